@@ -0,0 +1,155 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+package org.apache.poi.xssf.eventusermodel;
+
+/**
+ * Parses numbers directly from the character buffers of the XML parsers, i.e. without creating
+ * intermediate Strings for the common cases.
+ * <p>
+ * Doubles with up to 15 significant digits and a decimal exponent within +/-22 are exactly representable
+ * by a long mantissa and a power of ten and can therefore be calculated with a single correctly rounded
+ * floating point operation. All other values are delegated to {@link Double#parseDouble(String)}.
+ */
+final class NumberParser {
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+        1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private static final int MAX_FAST_DIGITS = 15;
+
+    private NumberParser() {}
+
+    /**
+     * @throws NumberFormatException if the characters don't denote a number
+     */
+    static double parseDouble(char[] ch, int start, int length) {
+        final int end = start + length;
+        int i = start;
+        boolean negative = false;
+        if (i < end && (ch[i] == '-' || ch[i] == '+')) {
+            negative = ch[i] == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean anyDigit = false;
+        for (; i < end; i++) {
+            int d = ch[i] - '0';
+            if (d < 0 || d > 9) {
+                break;
+            }
+            anyDigit = true;
+            if (mantissa != 0 || d != 0) {
+                if (++digits > MAX_FAST_DIGITS) {
+                    return fallback(ch, start, length);
+                }
+                mantissa = mantissa * 10 + d;
+            }
+        }
+        if (i < end && ch[i] == '.') {
+            for (i++; i < end; i++) {
+                int d = ch[i] - '0';
+                if (d < 0 || d > 9) {
+                    break;
+                }
+                anyDigit = true;
+                if (mantissa != 0 || d != 0) {
+                    if (++digits > MAX_FAST_DIGITS) {
+                        return fallback(ch, start, length);
+                    }
+                    mantissa = mantissa * 10 + d;
+                }
+                exponent--;
+            }
+        }
+        if (!anyDigit) {
+            return fallback(ch, start, length);
+        }
+        if (i < end && (ch[i] == 'e' || ch[i] == 'E')) {
+            i++;
+            boolean negativeExp = false;
+            if (i < end && (ch[i] == '-' || ch[i] == '+')) {
+                negativeExp = ch[i] == '-';
+                i++;
+            }
+            int exp = 0;
+            boolean anyExpDigit = false;
+            for (; i < end && exp < 1000; i++) {
+                int d = ch[i] - '0';
+                if (d < 0 || d > 9) {
+                    break;
+                }
+                anyExpDigit = true;
+                exp = exp * 10 + d;
+            }
+            if (!anyExpDigit) {
+                return fallback(ch, start, length);
+            }
+            exponent += negativeExp ? -exp : exp;
+        }
+        if (i != end) {
+            return fallback(ch, start, length);
+        }
+
+        double value;
+        if (mantissa == 0) {
+            value = 0;
+        } else if (exponent == 0) {
+            value = mantissa;
+        } else if (exponent > 0 && exponent < POWERS_OF_TEN.length) {
+            value = mantissa * POWERS_OF_TEN[exponent];
+        } else if (exponent < 0 && -exponent < POWERS_OF_TEN.length) {
+            value = mantissa / POWERS_OF_TEN[-exponent];
+        } else {
+            return fallback(ch, start, length);
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * @throws NumberFormatException if the characters don't denote an integer
+     */
+    static int parseInt(char[] ch, int start, int length) {
+        final int end = start + length;
+        int i = start;
+        boolean negative = false;
+        if (i < end && ch[i] == '-') {
+            negative = true;
+            i++;
+        }
+        // up to 9 digits can't overflow
+        if (i == end || end - i > 9) {
+            return Integer.parseInt(new String(ch, start, length));
+        }
+        int value = 0;
+        for (; i < end; i++) {
+            int d = ch[i] - '0';
+            if (d < 0 || d > 9) {
+                return Integer.parseInt(new String(ch, start, length));
+            }
+            value = value * 10 + d;
+        }
+        return negative ? -value : value;
+    }
+
+    private static double fallback(char[] ch, int start, int length) {
+        return Double.parseDouble(new String(ch, start, length));
+    }
+}
@@ -177,6 +177,17 @@ public class ReadOnlySharedStringsTable extends DefaultHandler implements Shared
         readFrom(stream);
     }
 
+    /**
+     * Constructor for subclasses, which need to initialize their storage before
+     * calling {@link #readFrom(InputStream)}
+     *
+     * @param includePhoneticRuns whether or not to concatenate phoneticRuns onto the shared string
+     * @since POI 5.2.4
+     */
+    protected ReadOnlySharedStringsTable(boolean includePhoneticRuns) {
+        this.includePhoneticRuns = includePhoneticRuns;
+    }
+
     /**
      * Read this shared strings table from an XML file.
      *
@@ -224,9 +235,28 @@ public class ReadOnlySharedStringsTable extends DefaultHandler implements Shared
 
     @Override
     public RichTextString getItemAt(int idx) {
+        if (strings == null) {
+            // a table without items or a subclass, which stores the items itself
+            throw new IndexOutOfBoundsException("Index: " + idx + ", Size: 0");
+        }
         return new XSSFRichTextString(strings.get(idx));
     }
 
+    /**
+     * Stores a parsed string item - the items are added in the order of the table.
+     *
+     * @param string the text of the item
+     * @since POI 5.2.4
+     */
+    protected void addString(String string) {
+        // the list is only created with the first item, so subclasses, which store the items
+        // elsewhere, don't allocate it
+        if (strings == null) {
+            strings = new ArrayList<>(uniqueCount);
+        }
+        strings.add(string);
+    }
+
     //// ContentHandler methods ////
 
     private StringBuilder characters;
@@ -245,7 +275,6 @@ public class ReadOnlySharedStringsTable extends DefaultHandler implements Shared
             String uniqueCount = attributes.getValue("uniqueCount");
             if(uniqueCount != null) this.uniqueCount = Integer.parseInt(uniqueCount);
 
-            this.strings = new ArrayList<>(this.uniqueCount);
             characters = new StringBuilder(64);
         } else if ("si".equals(localName)) {
             characters.setLength(0);
@@ -266,7 +295,7 @@ public class ReadOnlySharedStringsTable extends DefaultHandler implements Shared
         }
 
         if ("si".equals(localName)) {
-            strings.add(characters.toString());
+            addString(characters.toString());
         } else if ("t".equals(localName)) {
             tIsOpen = false;
         } else if ("rPh".equals(localName)) {
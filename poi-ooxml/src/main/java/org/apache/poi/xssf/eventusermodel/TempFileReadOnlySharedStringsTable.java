@@ -0,0 +1,260 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+package org.apache.poi.xssf.eventusermodel;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.ss.usermodel.RichTextString;
+import org.apache.poi.util.Beta;
+import org.apache.poi.util.IOUtils;
+import org.apache.poi.util.TempFile;
+import org.apache.poi.xssf.usermodel.XSSFRelation;
+import org.apache.poi.xssf.usermodel.XSSFRichTextString;
+import org.xml.sax.SAXException;
+
+/**
+ * A variant of {@link ReadOnlySharedStringsTable} for huge shared strings tables.
+ * <p>
+ * Instead of keeping all strings on the heap, the parsed strings are written UTF-8 encoded
+ * to a temporary file and only an offset index (8 bytes per string) is kept in memory.
+ * The strings are decoded on demand and the most recently used strings are kept in a bounded
+ * LRU cache, so the heap usage depends on the working set and not on the size of the table.
+ * <p>
+ * The strings can be accessed concurrently, e.g. when several sheets are processed in parallel.
+ * The temporary file is removed when the table is closed.
+ *
+ * @since POI 5.2.4
+ */
+@Beta
+public class TempFileReadOnlySharedStringsTable extends ReadOnlySharedStringsTable implements Closeable {
+    private static final Logger LOG = LogManager.getLogger(TempFileReadOnlySharedStringsTable.class);
+
+    /** the default number of decoded strings, which are kept in memory */
+    public static final int DEFAULT_CACHE_SIZE = 10_000;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final File file;
+    private final RandomAccessFile raf;
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+    /** start offset of each string, the string length is the distance to the next offset */
+    private long[] offsets = new long[1025];
+    private int size;
+    private long flushedPosition;
+
+    private final Map<Integer, String> cache;
+
+    /**
+     * Calls {@link #TempFileReadOnlySharedStringsTable(OPCPackage, boolean, int)} with
+     * phonetic runs included and the default cache size
+     *
+     * @param pkg The {@link OPCPackage} to use as basis for the shared-strings table.
+     * @throws IOException If reading the data from the package fails.
+     * @throws SAXException if parsing the XML data fails.
+     */
+    public TempFileReadOnlySharedStringsTable(OPCPackage pkg) throws IOException, SAXException {
+        this(pkg, true, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * @param pkg The {@link OPCPackage} to use as basis for the shared-strings table.
+     * @param includePhoneticRuns whether or not to concatenate phoneticRuns onto the shared string
+     * @param cacheSize the maximum number of decoded strings kept in memory
+     * @throws IOException If reading the data from the package fails.
+     * @throws SAXException if parsing the XML data fails.
+     */
+    public TempFileReadOnlySharedStringsTable(OPCPackage pkg, boolean includePhoneticRuns, int cacheSize)
+            throws IOException, SAXException {
+        this(includePhoneticRuns, cacheSize);
+        List<PackagePart> parts = pkg.getPartsByContentType(XSSFRelation.SHARED_STRINGS.getContentType());
+
+        // Some workbooks have no shared strings table.
+        if (!parts.isEmpty()) {
+            read(parts.get(0));
+        }
+    }
+
+    /**
+     * @param part the shared strings part
+     * @param includePhoneticRuns whether or not to concatenate phoneticRuns onto the shared string
+     * @param cacheSize the maximum number of decoded strings kept in memory
+     * @throws IOException If reading the data from the package fails.
+     * @throws SAXException if parsing the XML data fails.
+     */
+    public TempFileReadOnlySharedStringsTable(PackagePart part, boolean includePhoneticRuns, int cacheSize)
+            throws IOException, SAXException {
+        this(includePhoneticRuns, cacheSize);
+        read(part);
+    }
+
+    /**
+     * @param stream the shared strings xml
+     * @param includePhoneticRuns whether or not to concatenate phoneticRuns onto the shared string
+     * @param cacheSize the maximum number of decoded strings kept in memory
+     * @throws IOException If reading the data from the package fails.
+     * @throws SAXException if parsing the XML data fails.
+     */
+    public TempFileReadOnlySharedStringsTable(InputStream stream, boolean includePhoneticRuns, int cacheSize)
+            throws IOException, SAXException {
+        this(includePhoneticRuns, cacheSize);
+        try {
+            readFrom(stream);
+        } catch (IOException | SAXException | RuntimeException e) {
+            IOUtils.closeQuietly(this);
+            throw e;
+        }
+    }
+
+    private TempFileReadOnlySharedStringsTable(boolean includePhoneticRuns, int cacheSize) throws IOException {
+        super(includePhoneticRuns);
+        if (cacheSize < 0) {
+            throw new IllegalArgumentException("cacheSize must not be negative, but was " + cacheSize);
+        }
+        cache = new LinkedHashMap<Integer, String>(Math.min(cacheSize, 1024), 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, String> eldest) {
+                return size() > cacheSize;
+            }
+        };
+        file = TempFile.createTempFile("poi-shared-strings", ".tmp");
+        raf = new RandomAccessFile(file, "rw");
+        channel = raf.getChannel();
+    }
+
+    private void read(PackagePart part) throws IOException, SAXException {
+        try (InputStream stream = part.getInputStream()) {
+            readFrom(stream);
+        } catch (IOException | SAXException | RuntimeException e) {
+            IOUtils.closeQuietly(this);
+            throw e;
+        }
+    }
+
+    @Override
+    public void readFrom(InputStream is) throws IOException, SAXException {
+        super.readFrom(is);
+        flushBuffer();
+    }
+
+    @Override
+    protected void addString(String string) {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        if (size + 1 >= offsets.length) {
+            offsets = Arrays.copyOf(offsets, offsets.length + (offsets.length >> 1));
+        }
+        try {
+            if (bytes.length > buffer.remaining()) {
+                flushBuffer();
+            }
+            if (bytes.length > buffer.capacity()) {
+                ByteBuffer bb = ByteBuffer.wrap(bytes);
+                while (bb.hasRemaining()) {
+                    flushedPosition += channel.write(bb, flushedPosition);
+                }
+            } else {
+                buffer.put(bytes);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to store shared string", e);
+        }
+        offsets[size + 1] = offsets[size] + bytes.length;
+        size++;
+    }
+
+    @Override
+    public RichTextString getItemAt(int idx) {
+        return new XSSFRichTextString(getString(idx));
+    }
+
+    private String getString(int idx) {
+        if (idx < 0 || idx >= size) {
+            throw new IndexOutOfBoundsException("Index " + idx + " is out of range [0," + size + ")");
+        }
+        synchronized (cache) {
+            String str = cache.get(idx);
+            if (str != null) {
+                return str;
+            }
+        }
+        // decode outside of the lock - positional reads don't interfere with each other
+        String str = new String(readBytes(idx), StandardCharsets.UTF_8);
+        synchronized (cache) {
+            cache.put(idx, str);
+        }
+        return str;
+    }
+
+    private byte[] readBytes(int idx) {
+        long pos = offsets[idx];
+        byte[] bytes = new byte[(int)(offsets[idx + 1] - pos)];
+        ByteBuffer bb = ByteBuffer.wrap(bytes);
+        try {
+            while (bb.hasRemaining()) {
+                int read = channel.read(bb, pos);
+                if (read < 0) {
+                    throw new IOException("Unexpected end of shared strings storage");
+                }
+                pos += read;
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to read shared string " + idx, e);
+        }
+        return bytes;
+    }
+
+    private void flushBuffer() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            flushedPosition += channel.write(buffer, flushedPosition);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Removes the temporary file, which holds the strings.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            raf.close();
+        } finally {
+            synchronized (cache) {
+                cache.clear();
+            }
+            if (!file.delete() && file.exists()) {
+                LOG.atWarn().log("Could not delete temporary file {}", file);
+            }
+        }
+    }
+}
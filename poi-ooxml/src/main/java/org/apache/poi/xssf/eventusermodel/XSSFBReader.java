@@ -26,6 +26,7 @@ import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
 
 import com.zaxxer.sparsebits.SparseBitSet;
 import org.apache.logging.log4j.LogManager;
@@ -38,6 +39,8 @@ import org.apache.poi.openxml4j.opc.PackagePartName;
 import org.apache.poi.openxml4j.opc.PackageRelationship;
 import org.apache.poi.openxml4j.opc.PackageRelationshipCollection;
 import org.apache.poi.openxml4j.opc.PackagingURIHelper;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.util.Beta;
 import org.apache.poi.util.LittleEndian;
 import org.apache.poi.util.LittleEndianConsts;
 import org.apache.poi.util.StringUtil;
@@ -46,10 +49,13 @@ import org.apache.poi.xssf.binary.XSSFBParseException;
 import org.apache.poi.xssf.binary.XSSFBParser;
 import org.apache.poi.xssf.binary.XSSFBRecordType;
 import org.apache.poi.xssf.binary.XSSFBRelation;
+import org.apache.poi.xssf.binary.XSSFBSharedStringsTable;
+import org.apache.poi.xssf.binary.XSSFBSheetHandler;
 import org.apache.poi.xssf.binary.XSSFBStylesTable;
 import org.apache.poi.xssf.binary.XSSFBUtils;
 import org.apache.poi.xssf.model.CommentsTable;
 import org.apache.poi.xssf.usermodel.XSSFRelation;
+import org.xml.sax.SAXException;
 
 /**
  * Reader for xlsb files.
@@ -107,6 +113,31 @@ public class XSSFBReader extends XSSFReader {
         return new SheetIterator(workbookPart);
     }
 
+    /**
+     * Parses the binary sheets in parallel with {@link XSSFBSheetHandler}s on the given executor,
+     * see {@link XSSFReader#parseSheets(ExecutorService, SheetContentsHandlerFactory, boolean)}
+     *
+     * @since POI 5.2.4
+     */
+    @Beta
+    @Override
+    public void parseSheets(ExecutorService executor, SheetContentsHandlerFactory handlerFactory, boolean formulasNotResults)
+            throws IOException, SAXException, InvalidFormatException {
+        final XSSFBSharedStringsTable strings = new XSSFBSharedStringsTable(pkg);
+        final XSSFBStylesTable styles = getXSSFBStylesTable();
+        parseSheets(executor, handlerFactory, (iter, handler) -> {
+            final PackagePart sheetPart = iter.getSheetPart();
+            final XSSFBCommentsTable comments = ((SheetIterator) iter).getXSSFBSheetComments();
+            return () -> {
+                try (InputStream stream = sheetPart.getInputStream()) {
+                    new XSSFBSheetHandler(stream, styles, comments, strings, handler,
+                        new DataFormatter(), formulasNotResults).parse();
+                }
+                return null;
+            };
+        });
+    }
+
     public XSSFBStylesTable getXSSFBStylesTable() throws IOException {
         ArrayList<PackagePart> parts = pkg.getPartsByContentType(XSSFBRelation.STYLES_BINARY.getContentType());
         if(parts.isEmpty()) return null;
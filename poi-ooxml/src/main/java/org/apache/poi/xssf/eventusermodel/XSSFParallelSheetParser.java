@@ -0,0 +1,573 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+package org.apache.poi.xssf.eventusermodel;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.util.Beta;
+import org.apache.poi.util.IOUtils;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler.SheetContentsHandler;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler.TypedSheetContentsHandler;
+import org.apache.poi.xssf.model.Comments;
+import org.apache.poi.xssf.model.SharedStrings;
+import org.apache.poi.xssf.model.Styles;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+/**
+ * Parses a single sheet#.xml part on several threads.
+ * <p>
+ * The inflated sheet part is split into chunks at {@code <row>} boundaries. Each chunk is wrapped
+ * with the sheet header and the closing tags and parsed as separate document by a {@link XSSFSheetXMLHandler},
+ * so the cell type, shared strings and formatting logic is the same as for the sequential parsing.
+ * The events of the chunks are buffered and delivered to the {@link SheetContentsHandler} on the calling
+ * thread in the original row order. The number of buffered chunks is bounded.
+ * {@link TypedSheetContentsHandler}s receive the typed values of the cells.
+ * <p>
+ * The sheet is parsed sequentially, if it can't be split safely, i.e. if it contains
+ * cell comments, CDATA sections, xml comments or rows without row number, or if it is not UTF-8 encoded.
+ * <p>
+ * The sheet part is kept in memory while parsing, so this class is limited to sheet parts up to 2GB.
+ *
+ * @since POI 5.2.4
+ */
+@Beta
+public class XSSFParallelSheetParser {
+    private static final Logger LOG = LogManager.getLogger(XSSFParallelSheetParser.class);
+
+    /** the default size of the chunks in bytes */
+    public static final int DEFAULT_CHUNK_SIZE = 4 * 1024 * 1024;
+
+    private final ExecutorService executor;
+    private final Styles styles;
+    private final SharedStrings strings;
+    private final boolean formulasNotResults;
+    private final Supplier<DataFormatter> formatterFactory;
+
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+    private int maxPendingChunks;
+
+    /**
+     * @param executor the executor for parsing the chunks
+     * @param styles  Table of styles
+     * @param strings Table of shared strings, which needs to be thread-safe for reading
+     * @param formulasNotResults whether the formulas should be reported instead of their cached results
+     */
+    public XSSFParallelSheetParser(ExecutorService executor, Styles styles, SharedStrings strings, boolean formulasNotResults) {
+        this(executor, styles, strings, formulasNotResults, DataFormatter::new);
+    }
+
+    /**
+     * @param executor the executor for parsing the chunks
+     * @param styles  Table of styles
+     * @param strings Table of shared strings, which needs to be thread-safe for reading
+     * @param formulasNotResults whether the formulas should be reported instead of their cached results
+     * @param formatterFactory creates the formatters - a formatter is only used by one thread at a time
+     */
+    public XSSFParallelSheetParser(ExecutorService executor, Styles styles, SharedStrings strings,
+                                   boolean formulasNotResults, Supplier<DataFormatter> formatterFactory) {
+        this.executor = executor;
+        this.styles = styles;
+        this.strings = strings;
+        this.formulasNotResults = formulasNotResults;
+        this.formatterFactory = formatterFactory;
+        this.maxPendingChunks = 2 * Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * @param chunkSize the minimum size of the chunks in bytes, the chunks are extended to the next row boundary
+     */
+    public void setChunkSize(int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be positive, but was " + chunkSize);
+        }
+        this.chunkSize = chunkSize;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * @param maxPendingChunks the maximum number of chunks, which are parsed or buffered ahead of the consumer
+     */
+    public void setMaxPendingChunks(int maxPendingChunks) {
+        if (maxPendingChunks <= 0) {
+            throw new IllegalArgumentException("maxPendingChunks must be positive, but was " + maxPendingChunks);
+        }
+        this.maxPendingChunks = maxPendingChunks;
+    }
+
+    public int getMaxPendingChunks() {
+        return maxPendingChunks;
+    }
+
+    /**
+     * Parses the sheet and reports the content to the handler on the calling thread.
+     *
+     * @param sheetStream the sheet#.xml part, the stream is not closed
+     * @param comments the comments of the sheet, may be null
+     * @param handler the receiver of the sheet content
+     * @throws IOException if the sheet can't be read
+     * @throws SAXException if the sheet can't be parsed
+     */
+    public void parse(InputStream sheetStream, Comments comments, SheetContentsHandler handler) throws IOException, SAXException {
+        final byte[] data = IOUtils.toByteArray(sheetStream);
+        final SheetLayout layout = (comments == null || comments.getNumberOfComments() == 0) ? SheetLayout.analyze(data) : null;
+        final int[] splits = (layout == null) ? null : layout.findSplits(data, chunkSize);
+        if (splits == null || splits.length < 2) {
+            LOG.atDebug().log("Parsing sheet sequentially");
+            parse(new ByteArrayInputStream(data),
+                new XSSFSheetXMLHandler(styles, comments, strings, handler, formatterFactory.get(), formulasNotResults));
+            return;
+        }
+
+        final boolean typed = handler instanceof TypedSheetContentsHandler;
+        final Deque<Future<RecordedEvents>> pending = new ArrayDeque<>();
+        int nextChunk = 0;
+        boolean success = false;
+        try {
+            while (nextChunk < splits.length || !pending.isEmpty()) {
+                while (nextChunk < splits.length && pending.size() < maxPendingChunks) {
+                    final int chunk = nextChunk++;
+                    final InputStream chunkStream = layout.chunkStream(data, splits, chunk);
+                    pending.add(executor.submit(() -> {
+                        RecordedEvents events = typed ? new RecordedTypedEvents() : new RecordedEvents();
+                        parse(chunkStream, new XSSFSheetXMLHandler(styles, null, strings, events, formatterFactory.get(), formulasNotResults));
+                        return events;
+                    }));
+                }
+                RecordedEvents events = XSSFReader.awaitSheet(pending.remove());
+                events.replay(handler, nextChunk == splits.length && pending.isEmpty());
+            }
+            success = true;
+        } finally {
+            if (!success) {
+                for (Future<RecordedEvents> future : pending) {
+                    future.cancel(true);
+                }
+            }
+        }
+    }
+
+    private static void parse(InputStream stream, XSSFSheetXMLHandler sheetHandler) throws IOException, SAXException {
+        XMLReader sheetParser;
+        try {
+            sheetParser = XMLHelper.newXMLReader();
+        } catch (ParserConfigurationException e) {
+            throw new SAXException("SAX parser appears to be broken - " + e.getMessage());
+        }
+        sheetParser.setContentHandler(sheetHandler);
+        sheetParser.parse(new InputSource(stream));
+    }
+
+    /**
+     * The positions of the sheetData element within the sheet xml
+     */
+    private static final class SheetLayout {
+        private final byte[] rowTag;
+        /** end of the sheetData start tag */
+        private final int contentStart;
+        /** start of the sheetData end tag */
+        private final int contentEnd;
+        /** the closing tags, which are appended to the chunks, except of the last one */
+        private final byte[] tail;
+
+        private SheetLayout(byte[] rowTag, int contentStart, int contentEnd, byte[] tail) {
+            this.rowTag = rowTag;
+            this.contentStart = contentStart;
+            this.contentEnd = contentEnd;
+            this.tail = tail;
+        }
+
+        /**
+         * @return the layout or null, if the sheet can't be split
+         */
+        static SheetLayout analyze(byte[] data) {
+            if (data.length < 2 || (data[0] & 0xFF) == 0xFE || (data[0] & 0xFF) == 0xFF || data[0] == 0 || data[1] == 0) {
+                // UTF-16 - the byte patterns don't apply
+                return null;
+            }
+            String root = rootElementName(data);
+            if (root == null) {
+                return null;
+            }
+
+            // find <sheetData> or <prefix:sheetData>
+            byte[] localName = "sheetData".getBytes(StandardCharsets.US_ASCII);
+            int start = -1;
+            String prefix = null;
+            for (int idx = indexOf(data, localName, 0, data.length); idx > 0; idx = indexOf(data, localName, idx + 1, data.length)) {
+                if (data[idx - 1] == '<') {
+                    prefix = "";
+                    start = idx + localName.length;
+                    break;
+                }
+                if (data[idx - 1] == ':') {
+                    int p = idx - 2;
+                    while (p > 0 && isNameChar(data[p])) {
+                        p--;
+                    }
+                    if (data[p] == '<' && p < idx - 2) {
+                        prefix = new String(data, p + 1, idx - p - 1, StandardCharsets.US_ASCII);
+                        start = idx + localName.length;
+                        break;
+                    }
+                }
+            }
+            if (start < 0 || start >= data.length || isNameChar(data[start])) {
+                return null;
+            }
+            int tagEnd = indexOf(data, new byte[]{'>'}, start, data.length);
+            if (tagEnd < 0 || data[tagEnd - 1] == '/') {
+                // empty sheetData
+                return null;
+            }
+            byte[] endTag = ("</" + prefix + "sheetData>").getBytes(StandardCharsets.US_ASCII);
+            int contentEnd = lastIndexOf(data, endTag);
+            if (contentEnd < tagEnd) {
+                return null;
+            }
+            int contentStart = tagEnd + 1;
+            // xml comments, CDATA sections or processing instructions could contain row tags
+            if (indexOf(data, new byte[]{'<', '!'}, contentStart, contentEnd) >= 0 ||
+                indexOf(data, new byte[]{'<', '?'}, contentStart, contentEnd) >= 0) {
+                return null;
+            }
+            byte[] tail = ("</" + prefix + "sheetData></" + root + ">").getBytes(StandardCharsets.US_ASCII);
+            byte[] rowTag = ("<" + prefix + "row").getBytes(StandardCharsets.US_ASCII);
+            return new SheetLayout(rowTag, contentStart, contentEnd, tail);
+        }
+
+        /**
+         * @return the start positions of the chunks or null, if the sheet can't be split
+         */
+        int[] findSplits(byte[] data, int chunkSize) {
+            int[] splits = new int[16];
+            int count = 0;
+            splits[count++] = contentStart;
+            int pos = contentStart;
+            while ((long)pos + chunkSize < contentEnd) {
+                int rowStart = findRowStart(data, pos + chunkSize);
+                if (rowStart < 0) {
+                    break;
+                }
+                if (!hasRowNumber(data, rowStart)) {
+                    // the row numbers of the following rows would depend on the previous chunk
+                    return null;
+                }
+                if (count == splits.length) {
+                    splits = Arrays.copyOf(splits, count * 2);
+                }
+                splits[count++] = rowStart;
+                pos = rowStart;
+            }
+            return Arrays.copyOf(splits, count);
+        }
+
+        InputStream chunkStream(byte[] data, int[] splits, int chunk) {
+            List<InputStream> parts = new ArrayList<>(3);
+            parts.add(new ByteArrayInputStream(data, 0, contentStart));
+            if (chunk == splits.length - 1) {
+                parts.add(new ByteArrayInputStream(data, splits[chunk], data.length - splits[chunk]));
+            } else {
+                parts.add(new ByteArrayInputStream(data, splits[chunk], splits[chunk + 1] - splits[chunk]));
+                parts.add(new ByteArrayInputStream(tail));
+            }
+            return new SequenceInputStream(Collections.enumeration(parts));
+        }
+
+        private int findRowStart(byte[] data, int from) {
+            for (int idx = indexOf(data, rowTag, from, contentEnd); idx >= 0; idx = indexOf(data, rowTag, idx + 1, contentEnd)) {
+                int next = idx + rowTag.length;
+                if (next < contentEnd && !isNameChar(data[next])) {
+                    return idx;
+                }
+            }
+            return -1;
+        }
+
+        private boolean hasRowNumber(byte[] data, int rowStart) {
+            for (int i = rowStart + rowTag.length; i < contentEnd - 2 && data[i] != '>'; i++) {
+                if (isWhitespace(data[i]) && data[i + 1] == 'r' && (data[i + 2] == '=' || isWhitespace(data[i + 2]))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static String rootElementName(byte[] data) {
+            for (int idx = 0; idx < data.length - 1; idx++) {
+                if (data[idx] == '<' && data[idx + 1] != '?' && data[idx + 1] != '!') {
+                    int end = idx + 1;
+                    while (end < data.length && isNameChar(data[end])) {
+                        end++;
+                    }
+                    return (end == idx + 1) ? null : new String(data, idx + 1, end - idx - 1, StandardCharsets.US_ASCII);
+                }
+            }
+            return null;
+        }
+
+        private static boolean isNameChar(byte b) {
+            return (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || (b >= '0' && b <= '9') ||
+                b == ':' || b == '_' || b == '-' || b == '.';
+        }
+
+        private static boolean isWhitespace(byte b) {
+            return b == ' ' || b == '\t' || b == '\r' || b == '\n';
+        }
+
+        private static int indexOf(byte[] data, byte[] pattern, int from, int to) {
+            final byte first = pattern[0];
+            final int max = to - pattern.length;
+            outer:
+            for (int i = from; i <= max; i++) {
+                if (data[i] != first) {
+                    continue;
+                }
+                for (int j = 1; j < pattern.length; j++) {
+                    if (data[i + j] != pattern[j]) {
+                        continue outer;
+                    }
+                }
+                return i;
+            }
+            return -1;
+        }
+
+        private static int lastIndexOf(byte[] data, byte[] pattern) {
+            outer:
+            for (int i = data.length - pattern.length; i >= 0; i--) {
+                for (int j = 0; j < pattern.length; j++) {
+                    if (data[i + j] != pattern[j]) {
+                        continue outer;
+                    }
+                }
+                return i;
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * Buffers the events of a chunk, until they can be passed on in order
+     */
+    private static class RecordedEvents implements SheetContentsHandler {
+        private static final byte START_ROW = 0;
+        private static final byte END_ROW = 1;
+        private static final byte CELL = 2;
+        private static final byte HEADER = 3;
+        private static final byte FOOTER = 4;
+        private static final byte END_SHEET = 5;
+        static final byte NUMERIC_CELL = 6;
+        static final byte STRING_CELL = 7;
+        static final byte BOOLEAN_CELL = 8;
+        static final byte ERROR_CELL = 9;
+        static final byte FORMULA_CELL = 10;
+
+        private byte[] types = new byte[1024];
+        private int[] rowNums = new int[1024];
+        private int size;
+        final List<String> texts = new ArrayList<>();
+
+        @Override
+        public void startRow(int rowNum) {
+            add(START_ROW, rowNum);
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            add(END_ROW, rowNum);
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            // comments are not supported, as the sheet isn't split in that case
+            add(CELL, 0);
+            texts.add(cellReference);
+            texts.add(formattedValue);
+        }
+
+        @Override
+        public void headerFooter(String text, boolean isHeader, String tagName) {
+            add(isHeader ? HEADER : FOOTER, 0);
+            texts.add(text);
+            texts.add(tagName);
+        }
+
+        @Override
+        public void endSheet() {
+            add(END_SHEET, 0);
+        }
+
+        /**
+         * @return the index of the event
+         */
+        int add(byte type, int rowNum) {
+            if (size == types.length) {
+                grow(size * 2);
+            }
+            types[size] = type;
+            rowNums[size] = rowNum;
+            return size++;
+        }
+
+        void grow(int newSize) {
+            types = Arrays.copyOf(types, newSize);
+            rowNums = Arrays.copyOf(rowNums, newSize);
+        }
+
+        void replay(SheetContentsHandler handler, boolean lastChunk) {
+            int text = 0;
+            for (int i = 0; i < size; i++) {
+                switch (types[i]) {
+                    case START_ROW:
+                        handler.startRow(rowNums[i]);
+                        break;
+                    case END_ROW:
+                        handler.endRow(rowNums[i]);
+                        break;
+                    case CELL:
+                        handler.cell(texts.get(text), texts.get(text + 1), null);
+                        text += 2;
+                        break;
+                    case HEADER:
+                    case FOOTER:
+                        handler.headerFooter(texts.get(text), types[i] == HEADER, texts.get(text + 1));
+                        text += 2;
+                        break;
+                    case END_SHEET:
+                        // the other chunks end with an artificial end of the sheet data
+                        if (lastChunk) {
+                            handler.endSheet();
+                        }
+                        break;
+                    default:
+                        text = replayTyped(handler, i, types[i], rowNums[i], text);
+                        break;
+                }
+            }
+        }
+
+        int replayTyped(SheetContentsHandler handler, int event, byte type, int rowNum, int text) {
+            return text;
+        }
+    }
+
+    /**
+     * Buffers the typed cell values for a {@link TypedSheetContentsHandler}
+     */
+    private static final class RecordedTypedEvents extends RecordedEvents implements TypedSheetContentsHandler {
+        private int[] colNums = new int[1024];
+        private int[] styles = new int[1024];
+        private double[] numbers = new double[1024];
+
+        @Override
+        public void numericCell(int rowNum, int colNum, double value, int styleIdx) {
+            numbers[addCell(NUMERIC_CELL, rowNum, colNum, styleIdx)] = value;
+        }
+
+        @Override
+        public void stringCell(int rowNum, int colNum, String value, int styleIdx) {
+            addCell(STRING_CELL, rowNum, colNum, styleIdx);
+            texts.add(value);
+        }
+
+        @Override
+        public void booleanCell(int rowNum, int colNum, boolean value, int styleIdx) {
+            numbers[addCell(BOOLEAN_CELL, rowNum, colNum, styleIdx)] = value ? 1 : 0;
+        }
+
+        @Override
+        public void errorCell(int rowNum, int colNum, String value, int styleIdx) {
+            addCell(ERROR_CELL, rowNum, colNum, styleIdx);
+            texts.add(value);
+        }
+
+        @Override
+        public void formulaCell(int rowNum, int colNum, String formula, int styleIdx) {
+            addCell(FORMULA_CELL, rowNum, colNum, styleIdx);
+            texts.add(formula);
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            // typed handlers only get cell comments via this method, which are not supported when splitting
+        }
+
+        private int addCell(byte type, int rowNum, int colNum, int styleIdx) {
+            int idx = add(type, rowNum);
+            colNums[idx] = colNum;
+            styles[idx] = styleIdx;
+            return idx;
+        }
+
+        @Override
+        void grow(int newSize) {
+            super.grow(newSize);
+            colNums = Arrays.copyOf(colNums, newSize);
+            styles = Arrays.copyOf(styles, newSize);
+            numbers = Arrays.copyOf(numbers, newSize);
+        }
+
+        @Override
+        int replayTyped(SheetContentsHandler handler, int event, byte type, int rowNum, int text) {
+            TypedSheetContentsHandler typed = (TypedSheetContentsHandler)handler;
+            switch (type) {
+                case NUMERIC_CELL:
+                    typed.numericCell(rowNum, colNums[event], numbers[event], styles[event]);
+                    return text;
+                case BOOLEAN_CELL:
+                    typed.booleanCell(rowNum, colNums[event], numbers[event] != 0, styles[event]);
+                    return text;
+                case STRING_CELL:
+                    typed.stringCell(rowNum, colNums[event], texts.get(text), styles[event]);
+                    return text + 1;
+                case ERROR_CELL:
+                    typed.errorCell(rowNum, colNums[event], texts.get(text), styles[event]);
+                    return text + 1;
+                case FORMULA_CELL:
+                    typed.formulaCell(rowNum, colNums[event], texts.get(text), styles[event]);
+                    return text + 1;
+                default:
+                    return text;
+            }
+        }
+    }
+}
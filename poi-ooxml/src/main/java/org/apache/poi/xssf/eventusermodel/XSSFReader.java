@@ -28,6 +28,11 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.BiFunction;
 
 import javax.xml.parsers.ParserConfigurationException;
 
@@ -43,13 +48,17 @@ import org.apache.poi.openxml4j.opc.PackageRelationship;
 import org.apache.poi.openxml4j.opc.PackageRelationshipCollection;
 import org.apache.poi.openxml4j.opc.PackageRelationshipTypes;
 import org.apache.poi.openxml4j.opc.PackagingURIHelper;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.util.Beta;
 import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler.SheetContentsHandler;
 import org.apache.poi.xssf.model.*;
 import org.apache.poi.xssf.usermodel.XSSFDrawing;
 import org.apache.poi.xssf.usermodel.XSSFRelation;
 import org.apache.poi.xssf.usermodel.XSSFShape;
 import org.apache.xmlbeans.XmlException;
 import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 import org.xml.sax.XMLReader;
@@ -236,6 +245,124 @@ public class XSSFReader {
         return new SheetIterator(workbookPart);
     }
 
+    /**
+     * Parses the sheets in parallel on the given executor.
+     * <p>
+     * The shared strings table and the styles table are loaded once and shared between the sheet parsers,
+     * which need to be thread-safe for reading therefore. The shared strings are always read into a
+     * {@link ReadOnlySharedStringsTable}, regardless of {@link #setUseReadOnlySharedStringsTable(boolean)},
+     * as the {@link SharedStringsTable} reads its strings from xml beans, which aren't thread-safe.
+     * Each sheet gets its own {@link SheetContentsHandler} and {@link DataFormatter}, i.e. a handler is
+     * only called by the thread, which parses its sheet.
+     * This method blocks until all sheets have been parsed. If a sheet fails, the remaining sheets are
+     * cancelled and the exception of the first failed sheet (in sheet order) is rethrown.
+     *
+     * @param executor the executor for the sheet parsers
+     * @param handlerFactory provides the handler per sheet - sheets without handler are skipped
+     * @param formulasNotResults whether the formulas should be reported instead of their cached results
+     * @throws IOException if a part can't be read
+     * @throws SAXException if a sheet can't be parsed
+     * @throws InvalidFormatException if the shared strings or styles can't be parsed
+     * @since POI 5.2.4
+     */
+    @Beta
+    public void parseSheets(ExecutorService executor, SheetContentsHandlerFactory handlerFactory, boolean formulasNotResults)
+            throws IOException, SAXException, InvalidFormatException {
+        final SharedStrings strings = new ReadOnlySharedStringsTable(pkg);
+        final StylesTable styles = getStylesTable();
+        parseSheets(executor, handlerFactory, (iter, handler) -> {
+            final PackagePart sheetPart = iter.getSheetPart();
+            final Comments comments = iter.getSheetComments();
+            return () -> {
+                parseSheet(sheetPart, new XSSFSheetXMLHandler(
+                    styles, comments, strings, handler, new DataFormatter(), formulasNotResults));
+                return null;
+            };
+        });
+    }
+
+    /**
+     * Submits the parsers of the sheets, which have a handler, and waits for them
+     *
+     * @param parserFactory creates the parser for the current sheet of the iterator
+     */
+    void parseSheets(ExecutorService executor, SheetContentsHandlerFactory handlerFactory,
+            BiFunction<SheetIterator, SheetContentsHandler, Callable<Void>> parserFactory)
+            throws IOException, SAXException, InvalidFormatException {
+        final SheetIterator iter = (SheetIterator) getSheetsData();
+        final List<Future<Void>> futures = new ArrayList<>();
+        boolean success = false;
+        try {
+            for (int sheetIndex = 0; iter.hasNext(); sheetIndex++) {
+                iter.moveToNextSheet();
+                final SheetContentsHandler handler = handlerFactory.createHandler(sheetIndex, iter.getSheetName());
+                if (handler == null) {
+                    continue;
+                }
+                futures.add(executor.submit(parserFactory.apply(iter, handler)));
+            }
+            for (Future<Void> future : futures) {
+                awaitSheet(future);
+            }
+            success = true;
+        } finally {
+            if (!success) {
+                for (Future<Void> future : futures) {
+                    future.cancel(true);
+                }
+            }
+        }
+    }
+
+    static void parseSheet(PackagePart sheetPart, ContentHandler handler) throws IOException, SAXException {
+        XMLReader sheetParser;
+        try {
+            sheetParser = XMLHelper.newXMLReader();
+        } catch (ParserConfigurationException e) {
+            throw new SAXException("SAX parser appears to be broken - " + e.getMessage());
+        }
+        sheetParser.setContentHandler(handler);
+        try (InputStream stream = sheetPart.getInputStream()) {
+            sheetParser.parse(new InputSource(stream));
+        }
+    }
+
+    static <T> T awaitSheet(Future<T> future) throws IOException, SAXException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for sheet to be parsed", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException)cause;
+            } else if (cause instanceof SAXException) {
+                throw (SAXException)cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException)cause;
+            } else if (cause instanceof Error) {
+                throw (Error)cause;
+            }
+            throw new IOException("Failed to parse sheet", cause);
+        }
+    }
+
+    /**
+     * Provides the handlers for {@link #parseSheets(ExecutorService, SheetContentsHandlerFactory, boolean)}
+     *
+     * @since POI 5.2.4
+     */
+    @FunctionalInterface
+    public interface SheetContentsHandlerFactory {
+        /**
+         * @param sheetIndex the zero based index of the sheet in the workbook
+         * @param sheetName the name of the sheet
+         * @return the handler for the sheet or null, if the sheet should be skipped
+         */
+        SheetContentsHandler createHandler(int sheetIndex, String sheetName);
+    }
+
     /**
      * Iterator over sheet data.
      */
@@ -344,7 +471,7 @@ public class XSSFReader {
          */
         @Override
         public InputStream next() {
-            xssfSheetRef = sheetIterator.next();
+            moveToNextSheet();
 
             String sheetId = xssfSheetRef.getId();
             try {
@@ -355,6 +482,14 @@ public class XSSFReader {
             }
         }
 
+        /**
+         * Moves to the next sheet like {@link #next()}, but without opening its stream.
+         * The sheet can be accessed via {@link #getSheetName()} and {@link #getSheetPart()} afterwards.
+         */
+        void moveToNextSheet() {
+            xssfSheetRef = sheetIterator.next();
+        }
+
         /**
          * Returns name of the current sheet
          *
@@ -0,0 +1,538 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+package org.apache.poi.xssf.eventusermodel;
+
+import static org.apache.poi.xssf.usermodel.XSSFRelation.NS_SPREADSHEETML;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.poi.ss.usermodel.BuiltinFormats;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.Beta;
+import org.apache.poi.util.IOUtils;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.model.SharedStrings;
+import org.apache.poi.xssf.model.Styles;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+
+/**
+ * A pull based alternative to {@link XSSFSheetXMLHandler} for the streaming processing of a sheet#.xml part.
+ * <p>
+ * Instead of receiving callbacks, the caller requests one row after the other via {@link #nextRow()},
+ * so the processing can be paused at any time, several sheets can be read interleaved, or the rows
+ * can be fed into a pipeline with backpressure.
+ * <p>
+ * The returned {@link CursorRow} is a flyweight, which is reused for all rows, i.e. its content is
+ * only valid until the next call of {@link #nextRow()}. The cell values are kept as raw characters
+ * and are only converted, when they are requested - numeric values are parsed without creating Strings.
+ * The attributes of a cell (reference, type and style) are still read as Strings, as the StAX API
+ * doesn't provide them otherwise.
+ * <p>
+ * Example:
+ * <pre>{@code
+ * XSSFReader reader = new XSSFReader(pkg);
+ * SharedStrings strings = reader.getSharedStringsTable();
+ * StylesTable styles = reader.getStylesTable();
+ * try (XSSFRowCursor cursor = new XSSFRowCursor(reader.getSheetsData().next(), strings, styles)) {
+ *     for (XSSFRowCursor.CursorRow row; (row = cursor.nextRow()) != null; ) {
+ *         for (int i = 0; i < row.getCellCount(); i++) {
+ *             if (row.getCellType(i) == CellType.NUMERIC) {
+ *                 sum += row.getNumericCellValue(i);
+ *             }
+ *         }
+ *     }
+ * }
+ * }</pre>
+ *
+ * @since POI 5.2.4
+ */
+@Beta
+public class XSSFRowCursor implements Closeable {
+    private final InputStream stream;
+    private final XMLStreamReader reader;
+    private final SharedStrings sharedStrings;
+    private final Styles styles;
+    private final CursorRow row = new CursorRow();
+
+    private int nextRowNum;
+    private boolean finished;
+
+    /**
+     * @param sheetStream the sheet#.xml part, which is closed together with this cursor
+     * @param strings the shared strings table, may be null if the sheet doesn't contain shared strings
+     * @param styles the styles table, may be null
+     * @throws XMLStreamException if the StAX parser can't be created
+     */
+    public XSSFRowCursor(InputStream sheetStream, SharedStrings strings, Styles styles) throws XMLStreamException {
+        this.stream = sheetStream;
+        try {
+            this.reader = XMLHelper.newXMLInputFactory().createXMLStreamReader(sheetStream);
+        } catch (XMLStreamException | RuntimeException e) {
+            // the stream is owned by the cursor, which isn't returned to the caller
+            IOUtils.closeQuietly(sheetStream);
+            throw e;
+        }
+        this.sharedStrings = strings;
+        this.styles = styles;
+    }
+
+    /**
+     * Reads the next row of the sheet. Rows, which are not contained in the sheet part, are skipped.
+     *
+     * @return the next row or null, if the end of the sheet data has been reached.
+     *      The instance is reused, i.e. it is only valid until the next call.
+     * @throws XMLStreamException if the xml can't be parsed
+     */
+    public CursorRow nextRow() throws XMLStreamException {
+        if (finished) {
+            return null;
+        }
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                if (isSpreadsheetElement("row")) {
+                    readRow();
+                    return row;
+                }
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                if (isSpreadsheetElement("sheetData")) {
+                    break;
+                }
+            }
+        }
+        finished = true;
+        return null;
+    }
+
+    /**
+     * Closes the parser and the sheet stream
+     */
+    @Override
+    public void close() throws IOException {
+        finished = true;
+        try {
+            reader.close();
+        } catch (XMLStreamException e) {
+            throw new IOException(e);
+        } finally {
+            stream.close();
+        }
+    }
+
+    private boolean isSpreadsheetElement(String localName) {
+        return localName.equals(reader.getLocalName()) && NS_SPREADSHEETML.equals(reader.getNamespaceURI());
+    }
+
+    private void readRow() throws XMLStreamException {
+        row.clear();
+        String r = reader.getAttributeValue(null, "r");
+        row.rowNum = (r != null) ? Integer.parseInt(r) - 1 : nextRowNum;
+        nextRowNum = row.rowNum + 1;
+
+        int depth = 0;
+        // 0 = ignore, 1 = value, 2 = formula
+        int capture = 0;
+        boolean inInlineString = false;
+        boolean inPhoneticRun = false;
+        while (reader.hasNext()) {
+            switch (reader.next()) {
+                case XMLStreamConstants.START_ELEMENT:
+                    depth++;
+                    if (!NS_SPREADSHEETML.equals(reader.getNamespaceURI())) {
+                        capture = 0;
+                        break;
+                    }
+                    String name = reader.getLocalName();
+                    if ("c".equals(name)) {
+                        row.addCell(reader.getAttributeValue(null, "r"),
+                            reader.getAttributeValue(null, "t"), reader.getAttributeValue(null, "s"));
+                        capture = 0;
+                    } else if ("v".equals(name)) {
+                        row.startValue();
+                        capture = 1;
+                    } else if ("f".equals(name)) {
+                        row.startFormula();
+                        capture = 2;
+                    } else if ("is".equals(name)) {
+                        row.startValue();
+                        inInlineString = true;
+                    } else if ("rPh".equals(name)) {
+                        inPhoneticRun = true;
+                    } else if ("t".equals(name) && inInlineString && !inPhoneticRun) {
+                        capture = 1;
+                    }
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    if (depth-- == 0) {
+                        // end of row
+                        return;
+                    }
+                    String endName = reader.getLocalName();
+                    if ("is".equals(endName)) {
+                        inInlineString = false;
+                    } else if ("rPh".equals(endName)) {
+                        inPhoneticRun = false;
+                    }
+                    capture = 0;
+                    break;
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+                    if (capture != 0) {
+                        row.append(capture == 2, reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * A flyweight view of the current row of a {@link XSSFRowCursor}.
+     * The cells are addressed by their position within the row, i.e. empty cells are skipped,
+     * use {@link #getColumnIndex(int)} to get the column of a cell.
+     */
+    public final class CursorRow {
+        // cell value types, the t attribute of the c element
+        private static final byte NUMBER = 0;
+        private static final byte SST_STRING = 1;
+        private static final byte INLINE_STRING = 2;
+        private static final byte FORMULA_STRING = 3;
+        private static final byte BOOLEAN = 4;
+        private static final byte ERROR = 5;
+
+        private int rowNum;
+        private int cellCount;
+
+        private int[] columns = new int[16];
+        private byte[] types = new byte[16];
+        private int[] styleIdx = new int[16];
+        private int[] valueStart = new int[16];
+        private int[] valueLength = new int[16];
+        private int[] formulaStart = new int[16];
+        private int[] formulaLength = new int[16];
+
+        // raw text of all values and formulas in the row
+        private char[] text = new char[1024];
+        private int textLength;
+
+        private CursorRow() {}
+
+        /**
+         * @return the zero based row number
+         */
+        public int getRowNum() {
+            return rowNum;
+        }
+
+        /**
+         * @return the number of cells in this row
+         */
+        public int getCellCount() {
+            return cellCount;
+        }
+
+        /**
+         * @param cell the position of the cell within the row
+         * @return the zero based column index of the cell
+         */
+        public int getColumnIndex(int cell) {
+            checkCell(cell);
+            return columns[cell];
+        }
+
+        /**
+         * @param column the zero based column index
+         * @return the position of the cell within the row or -1, if there's no cell for the column
+         */
+        public int findCell(int column) {
+            int idx = Arrays.binarySearch(columns, 0, cellCount, column);
+            if (idx >= 0) {
+                return idx;
+            }
+            // the columns are usually ordered, but this is not guaranteed
+            for (int i = 0; i < cellCount; i++) {
+                if (columns[i] == column) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Returns the type of the cell value, i.e. for formula cells this is the type of the cached result.
+         *
+         * @param cell the position of the cell within the row
+         * @return the type of the cell value, {@link CellType#BLANK} for cells without value
+         */
+        public CellType getCellType(int cell) {
+            checkCell(cell);
+            if (valueStart[cell] < 0) {
+                return CellType.BLANK;
+            }
+            switch (types[cell]) {
+                case SST_STRING:
+                case INLINE_STRING:
+                case FORMULA_STRING:
+                    return CellType.STRING;
+                case BOOLEAN:
+                    return CellType.BOOLEAN;
+                case ERROR:
+                    return CellType.ERROR;
+                case NUMBER:
+                default:
+                    return CellType.NUMERIC;
+            }
+        }
+
+        /**
+         * @param cell the position of the cell within the row
+         * @return true, if the cell contains a formula
+         */
+        public boolean hasFormula(int cell) {
+            checkCell(cell);
+            return formulaStart[cell] >= 0;
+        }
+
+        /**
+         * @param cell the position of the cell within the row
+         * @return the formula of the cell or null, if the cell doesn't contain a formula.
+         *      Shared formulas are only returned for the cell, which defines the formula.
+         */
+        public String getFormula(int cell) {
+            checkCell(cell);
+            int start = formulaStart[cell];
+            return (start < 0) ? null : new String(text, start, formulaLength[cell]);
+        }
+
+        /**
+         * @param cell the position of the cell within the row
+         * @return the index of the cell style
+         */
+        public int getStyleIndex(int cell) {
+            checkCell(cell);
+            return styleIdx[cell];
+        }
+
+        /**
+         * @param cell the position of the cell within the row
+         * @return the cell style or null, if no styles table has been provided
+         */
+        public XSSFCellStyle getCellStyle(int cell) {
+            checkCell(cell);
+            if (styles == null) {
+                return null;
+            }
+            int idx = styleIdx[cell];
+            return (idx == 0 && styles.getNumCellStyles() == 0) ? null : styles.getStyleAt(idx);
+        }
+
+        /**
+         * Parses the numeric value without allocating objects for the usual numbers.
+         *
+         * @param cell the position of the cell within the row
+         * @return the numeric value, 0 for blank cells
+         * @throws IllegalStateException if the cell value isn't numeric
+         */
+        public double getNumericCellValue(int cell) {
+            checkCell(cell);
+            if (valueStart[cell] < 0) {
+                return 0;
+            }
+            if (types[cell] != NUMBER) {
+                throw new IllegalStateException("Cell " + cell + " of row " + rowNum + " isn't numeric");
+            }
+            return NumberParser.parseDouble(text, valueStart[cell], valueLength[cell]);
+        }
+
+        /**
+         * @param cell the position of the cell within the row
+         * @return the boolean value, false for blank cells
+         * @throws IllegalStateException if the cell value isn't a boolean
+         */
+        public boolean getBooleanCellValue(int cell) {
+            checkCell(cell);
+            if (valueStart[cell] < 0) {
+                return false;
+            }
+            if (types[cell] != BOOLEAN) {
+                throw new IllegalStateException("Cell " + cell + " of row " + rowNum + " isn't a boolean");
+            }
+            return valueLength[cell] > 0 && text[valueStart[cell]] != '0';
+        }
+
+        /**
+         * Returns the string value of the cell. Shared strings are resolved via the shared strings table.
+         * For other cell types the raw value is returned.
+         *
+         * @param cell the position of the cell within the row
+         * @return the string value, null for blank cells
+         */
+        public String getStringCellValue(int cell) {
+            checkCell(cell);
+            int start = valueStart[cell];
+            if (start < 0) {
+                return null;
+            }
+            if (types[cell] == SST_STRING) {
+                if (sharedStrings == null) {
+                    throw new IllegalStateException("No shared strings table available to resolve cell " + cell + " of row " + rowNum);
+                }
+                return sharedStrings.getItemAt(NumberParser.parseInt(text, start, valueLength[cell])).getString();
+            }
+            return new String(text, start, valueLength[cell]);
+        }
+
+        /**
+         * @param cell the position of the cell within the row
+         * @return the raw value of the cell, e.g. the shared string index for shared strings,
+         *      null for blank cells
+         */
+        public String getRawValue(int cell) {
+            checkCell(cell);
+            int start = valueStart[cell];
+            return (start < 0) ? null : new String(text, start, valueLength[cell]);
+        }
+
+        /**
+         * Formats the cell value like {@link XSSFSheetXMLHandler} does
+         *
+         * @param cell the position of the cell within the row
+         * @param formatter the formatter for numeric values
+         * @return the formatted value, null for blank cells
+         */
+        public String getFormattedValue(int cell, DataFormatter formatter) {
+            checkCell(cell);
+            if (valueStart[cell] < 0) {
+                return null;
+            }
+            switch (types[cell]) {
+                case BOOLEAN:
+                    return getBooleanCellValue(cell) ? "TRUE" : "FALSE";
+                case ERROR:
+                    return "ERROR:" + getRawValue(cell);
+                case NUMBER:
+                    XSSFCellStyle style = getCellStyle(cell);
+                    if (style != null && valueLength[cell] > 0) {
+                        short formatIndex = style.getDataFormat();
+                        String formatString = style.getDataFormatString();
+                        if (formatString == null) {
+                            formatString = BuiltinFormats.getBuiltinFormat(formatIndex);
+                        }
+                        if (formatString != null) {
+                            return formatter.formatRawCellContents(getNumericCellValue(cell), formatIndex, formatString);
+                        }
+                    }
+                    return getRawValue(cell);
+                default:
+                    return getStringCellValue(cell);
+            }
+        }
+
+        private void checkCell(int cell) {
+            if (cell < 0 || cell >= cellCount) {
+                throw new IndexOutOfBoundsException("Cell " + cell + " is out of range [0," + cellCount + ")");
+            }
+        }
+
+        private void clear() {
+            cellCount = 0;
+            textLength = 0;
+        }
+
+        private void addCell(String ref, String type, String style) {
+            if (cellCount == columns.length) {
+                int newLength = columns.length * 2;
+                columns = Arrays.copyOf(columns, newLength);
+                types = Arrays.copyOf(types, newLength);
+                styleIdx = Arrays.copyOf(styleIdx, newLength);
+                valueStart = Arrays.copyOf(valueStart, newLength);
+                valueLength = Arrays.copyOf(valueLength, newLength);
+                formulaStart = Arrays.copyOf(formulaStart, newLength);
+                formulaLength = Arrays.copyOf(formulaLength, newLength);
+            }
+            int idx = cellCount++;
+            columns[idx] = (ref != null) ? CellReference.convertColPrefixToIndex(ref) : (idx == 0 ? 0 : columns[idx - 1] + 1);
+            types[idx] = parseType(type);
+            styleIdx[idx] = (style != null) ? Integer.parseInt(style) : 0;
+            valueStart[idx] = -1;
+            valueLength[idx] = 0;
+            formulaStart[idx] = -1;
+            formulaLength[idx] = 0;
+        }
+
+        private void startValue() {
+            if (cellCount > 0) {
+                valueStart[cellCount - 1] = textLength;
+                valueLength[cellCount - 1] = 0;
+            }
+        }
+
+        private void startFormula() {
+            if (cellCount > 0) {
+                formulaStart[cellCount - 1] = textLength;
+                formulaLength[cellCount - 1] = 0;
+            }
+        }
+
+        private void append(boolean formula, char[] ch, int start, int length) {
+            if (cellCount == 0) {
+                return;
+            }
+            if (textLength + length > text.length) {
+                text = Arrays.copyOf(text, Math.max(text.length * 2, textLength + length));
+            }
+            System.arraycopy(ch, start, text, textLength, length);
+            textLength += length;
+            if (formula) {
+                formulaLength[cellCount - 1] += length;
+            } else {
+                valueLength[cellCount - 1] += length;
+            }
+        }
+
+        private byte parseType(String type) {
+            if (type == null || "n".equals(type)) {
+                return NUMBER;
+            }
+            switch (type) {
+                case "s":
+                    return SST_STRING;
+                case "inlineStr":
+                    return INLINE_STRING;
+                case "b":
+                    return BOOLEAN;
+                case "e":
+                    return ERROR;
+                case "str":
+                default:
+                    // str = formula string, d = ISO date string
+                    return FORMULA_STRING;
+            }
+        }
+    }
+}
@@ -28,6 +28,7 @@ import org.apache.poi.ss.usermodel.BuiltinFormats;
 import org.apache.poi.ss.usermodel.DataFormatter;
 import org.apache.poi.ss.usermodel.RichTextString;
 import org.apache.poi.ss.util.CellAddress;
+import org.apache.poi.ss.util.CellReference;
 import org.apache.poi.xssf.model.*;
 import org.apache.poi.xssf.usermodel.XSSFCellStyle;
 import org.apache.poi.xssf.usermodel.XSSFComment;
@@ -85,6 +86,11 @@ public class XSSFSheetXMLHandler extends DefaultHandler {
     */
    private final SheetContentsHandler output;
 
+   /**
+    * The output, if it accepts typed cell values, otherwise null
+    */
+   private final TypedSheetContentsHandler typedOutput;
+
    // Set when V start element is seen
    private boolean vIsOpen;
    // Set when F start element is seen
@@ -107,6 +113,12 @@ public class XSSFSheetXMLHandler extends DefaultHandler {
    private String cellRef;
    private final boolean formulasNotResults;
 
+   // Only tracked for the typed output
+   private int colNum;
+   private int styleIndex;
+   private boolean formulaStringResult;
+   private char[] valueChars = new char[64];
+
    // Gathers characters as they are seen.
    private final StringBuilder value = new StringBuilder(64);
    private final StringBuilder formula = new StringBuilder(64);
@@ -131,6 +143,8 @@ public class XSSFSheetXMLHandler extends DefaultHandler {
        this.comments = comments;
        this.sharedStringsTable = strings;
        this.output = sheetContentsHandler;
+       this.typedOutput = (sheetContentsHandler instanceof TypedSheetContentsHandler)
+           ? (TypedSheetContentsHandler)sheetContentsHandler : null;
        this.formulasNotResults = formulasNotResults;
        this.nextDataType = xssfDataType.NUMBER;
        this.formatter = dataFormatter;
@@ -259,6 +273,7 @@ public class XSSFSheetXMLHandler extends DefaultHandler {
            } else {
                rowNum = nextRowNum;
            }
+           colNum = -1;
            output.startRow(rowNum);
        }
        // c => cell
@@ -270,6 +285,12 @@ public class XSSFSheetXMLHandler extends DefaultHandler {
            cellRef = attributes.getValue("r");
            String cellType = attributes.getValue("t");
            String cellStyleStr = attributes.getValue("s");
+           if (typedOutput != null) {
+               // the typed output gets the raw values, so the style lookup can be skipped
+               colNum = (cellRef != null) ? CellReference.convertColPrefixToIndex(cellRef) : colNum + 1;
+               styleIndex = (cellStyleStr != null) ? Integer.parseInt(cellStyleStr) : 0;
+               formulaStringResult = "str".equals(cellType);
+           }
            if ("b".equals(cellType))
                nextDataType = xssfDataType.BOOLEAN;
            else if ("e".equals(cellType))
@@ -280,7 +301,7 @@ public class XSSFSheetXMLHandler extends DefaultHandler {
                nextDataType = xssfDataType.SST_STRING;
            else if ("str".equals(cellType))
                nextDataType = xssfDataType.FORMULA;
-           else {
+           else if (typedOutput == null) {
                // Number, but almost certainly with a special style or format
                XSSFCellStyle style = null;
                if (stylesTable != null) {
@@ -370,6 +391,11 @@ public class XSSFSheetXMLHandler extends DefaultHandler {
    }
 
    private void outputCell() {
+       if (typedOutput != null) {
+           outputTypedCell();
+           return;
+       }
+
        String thisStr = null;
 
        // Process the value contents as required, now we have it all
@@ -445,6 +471,87 @@ public class XSSFSheetXMLHandler extends DefaultHandler {
        output.cell(cellRef, thisStr, comment);
    }
 
+   /**
+    * Passes the cell value to the typed output. Numbers are parsed directly from the characters
+    * and no formatting is applied.
+    */
+   private void outputTypedCell() {
+       final int length = value.length();
+       if (valueChars.length < length) {
+           valueChars = new char[Math.max(length, valueChars.length * 2)];
+       }
+       value.getChars(0, length, valueChars, 0);
+
+       switch (nextDataType) {
+           case BOOLEAN:
+               typedOutput.booleanCell(rowNum, colNum, length > 0 && valueChars[0] != '0', styleIndex);
+               break;
+
+           case ERROR:
+               typedOutput.errorCell(rowNum, colNum, value.toString(), styleIndex);
+               break;
+
+           case FORMULA:
+               if (formulasNotResults) {
+                   typedOutput.formulaCell(rowNum, colNum, formula.toString(), styleIndex);
+               } else if (formulaStringResult || length == 0) {
+                   typedOutput.stringCell(rowNum, colNum, decodedValue(), styleIndex);
+               } else {
+                   try {
+                       typedOutput.numericCell(rowNum, colNum, NumberParser.parseDouble(valueChars, 0, length), styleIndex);
+                   } catch (NumberFormatException e) {
+                       // Formula is a String result not a Numeric one
+                       typedOutput.stringCell(rowNum, colNum, decodedValue(), styleIndex);
+                   }
+               }
+               break;
+
+           case INLINE_STRING:
+               typedOutput.stringCell(rowNum, colNum, decodedValue(), styleIndex);
+               break;
+
+           case SST_STRING:
+               if (length > 0) {
+                   try {
+                       int idx = NumberParser.parseInt(valueChars, 0, length);
+                       typedOutput.stringCell(rowNum, colNum, sharedStringsTable.getItemAt(idx).getString(), styleIndex);
+                   } catch (NumberFormatException ex) {
+                       LOG.atError().withThrowable(ex).log("Failed to parse SST index '{}'", value);
+                   }
+               }
+               break;
+
+           case NUMBER:
+               if (length > 0) {
+                   try {
+                       typedOutput.numericCell(rowNum, colNum, NumberParser.parseDouble(valueChars, 0, length), styleIndex);
+                   } catch (NumberFormatException e) {
+                       // e.g. a date in ISO 8601 format of a cell with type "d"
+                       typedOutput.stringCell(rowNum, colNum, value.toString(), styleIndex);
+                   }
+               }
+               break;
+
+           default:
+               break;
+       }
+
+       checkForEmptyCellComments(EmptyCellCommentsCheckType.CELL);
+       if (comments != null) {
+           XSSFComment comment = comments.findCellComment(new CellAddress(cellRef));
+           if (comment != null) {
+               output.cell(cellRef, null, comment);
+           }
+       }
+   }
+
+   /**
+    * @return the text of the value with the escaped characters, e.g. {@code _x000D_}, decoded
+    */
+   private String decodedValue() {
+       return new XSSFRichTextString(value.toString()).toString();
+   }
+
    /**
     * Do a check for, and output, comments in otherwise empty cells.
     */
@@ -548,4 +655,50 @@ public class XSSFSheetXMLHandler extends DefaultHandler {
       /** Signal that the end of a sheet was been reached */
       default void endSheet() {}
    }
+
+   /**
+    * A variant of {@link SheetContentsHandler}, which receives the raw cell values instead of
+    * formatted Strings.
+    * <p>
+    * Numeric values are parsed directly from the characters of the parser, and neither the
+    * cell styles are resolved nor the values are formatted, so the consumer can decide on the
+    * conversion. Cell comments are still reported via {@link #cell(String, String, XSSFComment)}
+    * with a null value.
+    *
+    * @since POI 5.2.4
+    */
+   public interface TypedSheetContentsHandler extends SheetContentsHandler {
+      /**
+       * A numeric cell or a formula cell with a numeric result was encountered
+       *
+       * @param rowNum the zero based row number
+       * @param colNum the zero based column number
+       * @param value the value
+       * @param styleIdx the index of the cell style
+       */
+      void numericCell(int rowNum, int colNum, double value, int styleIdx);
+
+      /**
+       * A string cell (shared, inline or a formula string result) was encountered
+       *
+       * @param rowNum the zero based row number
+       * @param colNum the zero based column number
+       * @param value the value
+       * @param styleIdx the index of the cell style
+       */
+      void stringCell(int rowNum, int colNum, String value, int styleIdx);
+
+      /** A boolean cell was encountered */
+      default void booleanCell(int rowNum, int colNum, boolean value, int styleIdx) {}
+
+      /** An error cell was encountered, the value is the error code, e.g. #DIV/0! */
+      default void errorCell(int rowNum, int colNum, String value, int styleIdx) {}
+
+      /** A formula cell was encountered - only called, if the handler is created to report formulas instead of results */
+      default void formulaCell(int rowNum, int colNum, String formula, int styleIdx) {}
+
+      /** Only called for cell comments */
+      @Override
+      default void cell(String cellReference, String formattedValue, XSSFComment comment) {}
+   }
 }
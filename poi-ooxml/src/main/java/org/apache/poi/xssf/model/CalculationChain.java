@@ -21,9 +21,12 @@ import static org.apache.poi.ooxml.POIXMLTypeLoader.DEFAULT_XML_OPTIONS;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.apache.poi.ooxml.POIXMLDocumentPart;
 import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.ss.util.CellReference;
 import org.apache.xmlbeans.XmlException;
 import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTCalcCell;
 import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTCalcChain;
@@ -102,4 +105,43 @@ public class CalculationChain extends POIXMLDocumentPart {
             }
         }
     }
+
+    /**
+     * Remove the formula references of a range of rows from the calculation chain in one pass,
+     * e.g. when the rows are shifted
+     *
+     * @param sheetId  the sheet Id of a sheet the formulas belong to.
+     * @param firstRow the 0-based index of the first row
+     * @param lastRow the 0-based index of the last row, inclusive
+     * @since POI 5.2.4
+     */
+    public void removeItems(int sheetId, int firstRow, int lastRow){
+        if (firstRow > lastRow) {
+            return;
+        }
+        int id = -1;
+        int keptId = -1;
+        CTCalcCell[] c = chain.getCArray();
+        List<CTCalcCell> kept = new ArrayList<>(c.length);
+        for (CTCalcCell calcCell : c) {
+            //If sheet Id  is omitted, it is assumed to be the same as the value of the previous cell.
+            if (calcCell.isSetI()) id = calcCell.getI();
+
+            if (id == sheetId) {
+                int row = new CellReference(calcCell.getR()).getRow();
+                if (row >= firstRow && row <= lastRow) {
+                    continue;
+                }
+            }
+            if (!calcCell.isSetI() && id != keptId) {
+                // the sheet Id was specified by a removed cell
+                calcCell.setI(id);
+            }
+            keptId = id;
+            kept.add(calcCell);
+        }
+        if (kept.size() < c.length) {
+            chain.setCArray(kept.toArray(new CTCalcCell[0]));
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,391 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.model;
+
+import static org.apache.poi.ooxml.POIXMLTypeLoader.DEFAULT_XML_OPTIONS;
+import static org.apache.poi.xssf.usermodel.XSSFRelation.NS_SPREADSHEETML;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.poi.ooxml.POIXMLDocumentPart;
+import org.apache.poi.ooxml.POIXMLRelation;
+import org.apache.poi.ss.usermodel.RichTextString;
+import org.apache.poi.util.Beta;
+import org.apache.poi.util.TempFile;
+import org.apache.poi.xssf.usermodel.XSSFFactory;
+import org.apache.poi.xssf.usermodel.XSSFRelation;
+import org.apache.poi.xssf.usermodel.XSSFRichTextString;
+import org.apache.xmlbeans.XmlException;
+import org.apache.xmlbeans.XmlOptions;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTRst;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTSst;
+
+/**
+ * A shared strings table for writing large workbooks, e.g. via SXSSF, with a bounded heap usage.
+ * <p>
+ * The xml of the string items is stored in a temporary file and the heap only contains a compact
+ * hash index of primitive arrays (about 20 bytes per unique string), instead of a {@code CTRst} bean
+ * and a map entry per string. The {@code sst.xml} part is written by copying the stored items.
+ * <p>
+ * This table can only be used for new workbooks, i.e. it can't read an existing shared strings part.
+ * Use {@link #factory()} to create a workbook with this table:
+ * <pre>
+ * XSSFWorkbook template = new XSSFWorkbook(CompactSharedStringsTable.factory());
+ * SXSSFWorkbook wb = new SXSSFWorkbook(template, 100, false, true);
+ * </pre>
+ * The temporary file is removed when the workbook is closed.
+ *
+ * @since POI 5.2.4
+ */
+@Beta
+public class CompactSharedStringsTable extends SharedStringsTable {
+    private static final Logger LOG = LogManager.getLogger(CompactSharedStringsTable.class);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private static final XmlOptions PARSE_OPTIONS = new XmlOptions(DEFAULT_XML_OPTIONS);
+    private static final XmlOptions SAVE_OPTIONS = new XmlOptions();
+    static {
+        // the stored si elements don't declare the namespace
+        PARSE_OPTIONS.setLoadReplaceDocumentElement(null);
+        PARSE_OPTIONS.setLoadSubstituteNamespaces(Collections.singletonMap("", NS_SPREADSHEETML));
+        SAVE_OPTIONS.setSaveOuter();
+        SAVE_OPTIONS.setSaveAggressiveNamespaces();
+        SAVE_OPTIONS.setUseDefaultNamespace(true);
+        SAVE_OPTIONS.setSaveImplicitNamespaces(Collections.singletonMap("", NS_SPREADSHEETML));
+    }
+
+    private static final byte[] SST_START = ("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n" +
+            "<sst xmlns=\"" + NS_SPREADSHEETML + "\" count=\"").getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] SST_END = "</sst>".getBytes(StandardCharsets.US_ASCII);
+
+    private final File file;
+    private final RandomAccessFile raf;
+    private final FileChannel channel;
+
+    /** not yet flushed items, items never straddle the buffer and the file */
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private long flushedPosition;
+
+    /** a detached si element for serializing rich text items */
+    private CTRst siHolder;
+
+    /** start offset of each item in the storage, the item length is the distance to the next offset */
+    private long[] offsets = new long[INITIAL_CAPACITY + 1];
+    /** hash of each item */
+    private int[] hashes = new int[INITIAL_CAPACITY];
+    /** open addressing hash table of item index + 1, 0 denotes an empty slot */
+    private int[] slots = new int[INITIAL_CAPACITY * 2];
+
+    public CompactSharedStringsTable() throws IOException {
+        super();
+        file = TempFile.createTempFile("poi-shared-strings", ".tmp");
+        raf = new RandomAccessFile(file, "rw");
+        channel = raf.getChannel();
+    }
+
+    /**
+     * @return a factory for creating new workbooks, which use this shared strings table
+     */
+    public static XSSFFactory factory() {
+        return CompactFactory.INSTANCE;
+    }
+
+    /**
+     * Reading existing shared strings parts is not supported
+     *
+     * @throws IllegalStateException always
+     */
+    @Override
+    public void readFrom(InputStream is) throws IOException {
+        throw new IllegalStateException("CompactSharedStringsTable can't read existing shared strings");
+    }
+
+    @Override
+    public RichTextString getItemAt(int idx) {
+        if (idx < 0 || idx >= uniqueCount) {
+            throw new IndexOutOfBoundsException("Index " + idx + " is out of range [0," + uniqueCount + ")");
+        }
+        try {
+            String xml = new String(readItem(idx), StandardCharsets.UTF_8);
+            CTRst st = CTRst.Factory.parse(xml, PARSE_OPTIONS);
+            return new XSSFRichTextString(st);
+        } catch (IOException | XmlException e) {
+            throw new IllegalStateException("Unable to read shared string item " + idx, e);
+        }
+    }
+
+    @Override
+    int addEntry(CTRst st) {
+        final String xml = isPlainText(st) ? plainTextXml(st.getT()) : siXml(st);
+        final byte[] item = xml.getBytes(StandardCharsets.UTF_8);
+        final int hash = hash(item);
+        count++;
+        try {
+            int mask = slots.length - 1;
+            for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+                int entry = slots[slot];
+                if (entry == 0) {
+                    int idx = uniqueCount;
+                    appendItem(item, hash);
+                    slots[slot] = idx + 1;
+                    if (uniqueCount * 2 > slots.length) {
+                        rehash(slots.length * 2);
+                    }
+                    return idx;
+                }
+                int idx = entry - 1;
+                if (hashes[idx] == hash && itemEquals(idx, item)) {
+                    return idx;
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to store shared string item", e);
+        }
+    }
+
+    /**
+     * Provide access to the strings in the SharedStringsTable.
+     * This loads all strings into memory and should be avoided for large tables.
+     *
+     * @return list of shared string instances
+     */
+    @Override
+    public List<RichTextString> getSharedStringItems() {
+        ArrayList<RichTextString> items = new ArrayList<>(uniqueCount);
+        for (int i = 0; i < uniqueCount; i++) {
+            items.add(getItemAt(i));
+        }
+        return Collections.unmodifiableList(items);
+    }
+
+    /**
+     * Write this table out as XML, by copying the stored items.
+     *
+     * @param out The stream to write to.
+     * @throws IOException if an error occurs while writing.
+     */
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        flushBuffer();
+        out.write(SST_START);
+        out.write((count + "\" uniqueCount=\"" + uniqueCount + "\">").getBytes(StandardCharsets.US_ASCII));
+
+        byte[] buf = new byte[BUFFER_SIZE];
+        ByteBuffer bb = ByteBuffer.wrap(buf);
+        for (int i = 0; i < uniqueCount; i++) {
+            long pos = offsets[i];
+            long end = offsets[i + 1];
+            while (pos < end) {
+                bb.clear();
+                bb.limit((int)Math.min(buf.length, end - pos));
+                int read = channel.read(bb, pos);
+                if (read < 0) {
+                    throw new IOException("Unexpected end of shared strings storage");
+                }
+                out.write(buf, 0, read);
+                pos += read;
+            }
+        }
+        out.write(SST_END);
+    }
+
+    /**
+     * Removes the temporary file, which holds the string items.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            raf.close();
+        } finally {
+            if (!file.delete() && file.exists()) {
+                LOG.atWarn().log("Could not delete temporary file {}", file);
+            }
+        }
+    }
+
+    private static boolean isPlainText(CTRst st) {
+        if (!st.isSetT() || st.sizeOfRArray() > 0 || st.sizeOfRPhArray() > 0 || st.isSetPhoneticPr()) {
+            return false;
+        }
+        String text = st.getT();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < ' ' && c != '\t' && c != '\n' && c != '\r') {
+                // let XmlBeans deal with the characters, which need special encoding
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Creates the same xml as XmlBeans would create for a plain string item, but without the overhead.
+     * Whitespace is preserved like in {@link XSSFRichTextString}.
+     */
+    private static String plainTextXml(String text) {
+        StringBuilder sb = new StringBuilder(text.length() + 32);
+        boolean preserve = !text.isEmpty() &&
+            (Character.isWhitespace(text.charAt(0)) || Character.isWhitespace(text.charAt(text.length() - 1)));
+        sb.append(preserve ? "<si><t xml:space=\"preserve\">" : "<si><t>");
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '<': sb.append("&lt;"); break;
+                case '>': sb.append("&gt;"); break;
+                case '&': sb.append("&amp;"); break;
+                case '\r': sb.append("&#13;"); break;
+                default: sb.append(c); break;
+            }
+        }
+        sb.append("</t></si>");
+        return sb.toString();
+    }
+
+    private String siXml(CTRst st) {
+        if (siHolder == null) {
+            siHolder = CTSst.Factory.newInstance().addNewSi();
+        }
+        siHolder.set(st);
+        return siHolder.xmlText(SAVE_OPTIONS);
+    }
+
+    private static int hash(byte[] item) {
+        // FNV-1a
+        int h = 0x811c9dc5;
+        for (byte b : item) {
+            h ^= b;
+            h *= 0x01000193;
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private void appendItem(byte[] item, int hash) throws IOException {
+        int idx = uniqueCount;
+        if (idx + 1 >= offsets.length) {
+            int newCapacity = offsets.length + (offsets.length >> 1);
+            offsets = Arrays.copyOf(offsets, newCapacity);
+            hashes = Arrays.copyOf(hashes, newCapacity);
+        }
+        long start = offsets[idx];
+        if (item.length > buffer.remaining()) {
+            flushBuffer();
+        }
+        if (item.length > buffer.capacity()) {
+            ByteBuffer bb = ByteBuffer.wrap(item);
+            long pos = start;
+            while (bb.hasRemaining()) {
+                pos += channel.write(bb, pos);
+            }
+            flushedPosition = pos;
+        } else {
+            buffer.put(item);
+        }
+        hashes[idx] = hash;
+        offsets[idx + 1] = start + item.length;
+        uniqueCount++;
+    }
+
+    private void flushBuffer() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            flushedPosition += channel.write(buffer, flushedPosition);
+        }
+        buffer.clear();
+    }
+
+    private byte[] readItem(int idx) throws IOException {
+        long start = offsets[idx];
+        byte[] item = new byte[(int)(offsets[idx + 1] - start)];
+        if (start >= flushedPosition) {
+            System.arraycopy(buffer.array(), (int)(start - flushedPosition), item, 0, item.length);
+        } else {
+            ByteBuffer bb = ByteBuffer.wrap(item);
+            long pos = start;
+            while (bb.hasRemaining()) {
+                int read = channel.read(bb, pos);
+                if (read < 0) {
+                    throw new IOException("Unexpected end of shared strings storage");
+                }
+                pos += read;
+            }
+        }
+        return item;
+    }
+
+    private boolean itemEquals(int idx, byte[] item) throws IOException {
+        long start = offsets[idx];
+        if (offsets[idx + 1] - start != item.length) {
+            return false;
+        }
+        if (start >= flushedPosition) {
+            byte[] buf = buffer.array();
+            int off = (int)(start - flushedPosition);
+            for (int i = 0; i < item.length; i++) {
+                if (buf[off + i] != item[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return Arrays.equals(readItem(idx), item);
+    }
+
+    private void rehash(int newSize) {
+        int[] newSlots = new int[newSize];
+        int mask = newSize - 1;
+        for (int idx = 0; idx < uniqueCount; idx++) {
+            int slot = hashes[idx] & mask;
+            while (newSlots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            newSlots[slot] = idx + 1;
+        }
+        slots = newSlots;
+    }
+
+    private static final class CompactFactory extends XSSFFactory {
+        private static final CompactFactory INSTANCE = new CompactFactory();
+
+        @Override
+        public POIXMLDocumentPart newDocumentPart(POIXMLRelation descriptor) {
+            if (XSSFRelation.SHARED_STRINGS.getRelation().equals(descriptor.getRelation())) {
+                try {
+                    return new CompactSharedStringsTable();
+                } catch (IOException e) {
+                    throw new IllegalStateException("Unable to create shared strings table", e);
+                }
+            }
+            return super.newDocumentPart(descriptor);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * A hash index over one of the lists of the {@link StylesTable}, e.g. the fonts, which maps a key of
+ * the properties of the entries to the positions of the entries with this key.
+ * <p>
+ * The entries are mutable - e.g. a font is usually changed after it has been created -, therefore
+ * new entries are only indexed when the next lookup is done. The setters of the indexed entries report
+ * their changes via {@link #markChanged(Object)}, and the changed entries are moved to the positions of
+ * their current key before the next lookup. Changes of the underlying XML beans aren't reported, so the
+ * key is only a hint: the candidates are checked by the caller, and candidates, whose key has changed
+ * since they have been indexed, are moved to the positions of their current key as well.
+ *
+ * @param <T> the type of the entries
+ */
+final class StyleIndex<T> {
+    private final List<T> entries;
+    private final Function<T, Object> keyFunction;
+    private final Consumer<T> changeListener;
+    /** the positions of the indexed entries per key, in ascending order */
+    private final Map<Object, List<Integer>> positions = new HashMap<>();
+    /** the key of each indexed entry, when it was indexed */
+    private final List<Object> keys = new ArrayList<>();
+    /** the positions of each indexed entry - usually only one */
+    private final Map<T, List<Integer>> entryPositions = new IdentityHashMap<>();
+    /** the indexed entries, which have been changed since the last lookup */
+    private final Set<T> changed = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    /**
+     * @param entries the indexed list, to which entries are only appended
+     * @param keyFunction provides the key of an entry, the keys of equal entries need to be equal
+     * @param changeListener registers the index at an entry, when it is indexed, so its setters
+     *      call {@link #markChanged(Object)}
+     */
+    StyleIndex(List<T> entries, Function<T, Object> keyFunction, Consumer<T> changeListener) {
+        this.entries = entries;
+        this.keyFunction = keyFunction;
+        this.changeListener = changeListener;
+    }
+
+    /**
+     * Marks an entry, whose properties have been changed, to be moved to its current key before the next lookup
+     */
+    void markChanged(T entry) {
+        if (entryPositions.containsKey(entry)) {
+            changed.add(entry);
+        }
+    }
+
+    /**
+     * Finds the first entry with the given key, which matches the given condition
+     *
+     * @param key the key of the entry to look up
+     * @param matcher the condition the entry needs to fulfill
+     * @return the position of the entry or -1 if no entry matches
+     */
+    int find(Object key, Predicate<T> matcher) {
+        // move the entries, which have been changed since the last lookup
+        if (!changed.isEmpty()) {
+            for (T entry : changed) {
+                for (Integer pos : entryPositions.get(entry)) {
+                    reindex(pos);
+                }
+            }
+            changed.clear();
+        }
+
+        // index the entries, which have been added since the last lookup
+        for (int pos = keys.size(); pos < entries.size(); pos++) {
+            T entry = entries.get(pos);
+            Object entryKey = keyFunction.apply(entry);
+            keys.add(entryKey);
+            positions.computeIfAbsent(entryKey, k -> new ArrayList<>(1)).add(pos);
+            entryPositions.computeIfAbsent(entry, k -> new ArrayList<>(1)).add(pos);
+            changeListener.accept(entry);
+        }
+
+        List<Integer> candidates = positions.get(key);
+        if (candidates == null) {
+            return -1;
+        }
+        int found = -1;
+        List<Integer> moved = null;
+        for (Integer pos : candidates) {
+            T entry = entries.get(pos);
+            if (matcher.test(entry)) {
+                found = pos;
+                break;
+            }
+            if (!key.equals(keyFunction.apply(entry))) {
+                if (moved == null) {
+                    moved = new ArrayList<>();
+                }
+                moved.add(pos);
+            }
+        }
+        if (moved != null) {
+            for (Integer pos : moved) {
+                reindex(pos);
+            }
+        }
+        return found;
+    }
+
+    private void reindex(Integer pos) {
+        Object oldKey = keys.get(pos);
+        Object newKey = keyFunction.apply(entries.get(pos));
+        if (oldKey.equals(newKey)) {
+            return;
+        }
+        List<Integer> oldPositions = positions.get(oldKey);
+        oldPositions.remove(pos);
+        if (oldPositions.isEmpty()) {
+            positions.remove(oldKey);
+        }
+
+        keys.set(pos, newKey);
+        List<Integer> newPositions = positions.computeIfAbsent(newKey, k -> new ArrayList<>(1));
+        int insertAt = Collections.binarySearch(newPositions, pos);
+        newPositions.add(-insertAt - 1, pos);
+    }
+}
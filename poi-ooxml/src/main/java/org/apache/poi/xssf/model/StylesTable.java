@@ -22,10 +22,12 @@ import static org.apache.poi.ooxml.POIXMLTypeLoader.DEFAULT_XML_OPTIONS;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -47,11 +49,13 @@ import org.apache.poi.xssf.usermodel.DefaultIndexedColorMap;
 import org.apache.poi.xssf.usermodel.IndexedColorMap;
 import org.apache.poi.xssf.usermodel.XSSFBuiltinTableStyle;
 import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+import org.apache.poi.xssf.usermodel.XSSFColor;
 import org.apache.poi.xssf.usermodel.XSSFFont;
 import org.apache.poi.xssf.usermodel.XSSFRelation;
 import org.apache.poi.xssf.usermodel.XSSFTableStyle;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.apache.poi.xssf.usermodel.extensions.XSSFCellBorder;
+import org.apache.poi.xssf.usermodel.extensions.XSSFCellBorder.BorderSide;
 import org.apache.poi.xssf.usermodel.extensions.XSSFCellFill;
 import org.apache.xmlbeans.XmlException;
 import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTBorder;
@@ -87,6 +91,17 @@ public class StylesTable extends POIXMLDocumentPart implements Styles {
     private final List<CTDxf> dxfs = new ArrayList<>();
     private final Map<String, TableStyle> tableStyles = new HashMap<>();
 
+    // hash indexes for the lookups of existing entries
+    private final Map<String, Short> numberFormatIds = new HashMap<>();
+    private final StyleIndex<XSSFFont> fontIndex =
+        new StyleIndex<>(fonts, StylesTable::getFontKey, font -> font.setStylesTable(this));
+    private final StyleIndex<XSSFCellFill> fillIndex =
+        new StyleIndex<>(fills, StylesTable::getFillKey, fill -> fill.setStylesTable(this));
+    private final StyleIndex<XSSFCellBorder> borderIndex =
+        new StyleIndex<>(borders, StylesTable::getBorderKey, border -> border.setStylesTable(this));
+    /** the first position of each xf - the xfs are changed in place, so they are compared by identity */
+    private final Map<CTXf, Integer> xfIndexes = new IdentityHashMap<>();
+
     private IndexedColorMap indexedColors = new DefaultIndexedColorMap();
 
     /**
@@ -230,7 +245,7 @@ public class StylesTable extends POIXMLDocumentPart implements Styles {
             if( ctfmts != null){
                 for (CTNumFmt nfmt : ctfmts.getNumFmtArray()) {
                     short formatId = (short)nfmt.getNumFmtId();
-                    numberFormats.put(formatId, nfmt.getFormatCode());
+                    putNumberFormat(formatId, nfmt.getFormatCode());
                 }
             }
 
@@ -259,7 +274,11 @@ public class StylesTable extends POIXMLDocumentPart implements Styles {
             }
 
             CTCellXfs cellXfs = styleSheet.getCellXfs();
-            if(cellXfs != null) xfs.addAll(Arrays.asList(cellXfs.getXfArray()));
+            if(cellXfs != null) {
+                for (CTXf xf : cellXfs.getXfArray()) {
+                    addCellXf(xf);
+                }
+            }
 
             CTCellStyleXfs cellStyleXfs = styleSheet.getCellStyleXfs();
             if(cellStyleXfs != null) styleXfs.addAll(Arrays.asList(cellStyleXfs.getXfArray()));
@@ -297,13 +316,24 @@ public class StylesTable extends POIXMLDocumentPart implements Styles {
     }
 
     private short getNumberFormatId(String fmt) {
-        // Find the key, and return that
+        Short id = numberFormatIds.get(fmt);
+        if (id == null) {
+            throw new IllegalStateException("Number format not in style table: " + fmt);
+        }
+        return id;
+    }
+
+    /**
+     * Updates the lowest id of the given number format, after a format with this code has been replaced or removed
+     */
+    private void updateNumberFormatId(String fmt) {
+        numberFormatIds.remove(fmt);
         for (Entry<Short,String> numFmt : numberFormats.entrySet()) {
             if(numFmt.getValue().equals(fmt)) {
-                return numFmt.getKey();
+                numberFormatIds.put(fmt, numFmt.getKey());
+                break;
             }
         }
-        throw new IllegalStateException("Number format not in style table: " + fmt);
     }
 
     /**
@@ -319,12 +349,9 @@ public class StylesTable extends POIXMLDocumentPart implements Styles {
     @Override
     public int putNumberFormat(String fmt) {
         // Check if number format already exists
-        if (numberFormats.containsValue(fmt)) {
-            try {
-                return getNumberFormatId(fmt);
-            } catch (final IllegalStateException e) {
-                throw new IllegalStateException("Found the format, but couldn't figure out where - should never happen!");
-            }
+        Short existingId = numberFormatIds.get(fmt);
+        if (existingId != null) {
+            return existingId;
         }
 
 
@@ -352,7 +379,7 @@ public class StylesTable extends POIXMLDocumentPart implements Styles {
             formatIndex = (short) Math.max(nextKey, FIRST_USER_DEFINED_NUMBER_FORMAT_ID);
         }
 
-        numberFormats.put(formatIndex, fmt);
+        putNumberFormat(formatIndex, fmt);
         return formatIndex;
     }
 
@@ -368,7 +395,14 @@ public class StylesTable extends POIXMLDocumentPart implements Styles {
      */
     @Override
     public void putNumberFormat(short index, String fmt) {
-        numberFormats.put(index, fmt);
+        String oldFmt = numberFormats.put(index, fmt);
+        if (oldFmt != null && !oldFmt.equals(fmt) && numberFormatIds.get(oldFmt) == index) {
+            updateNumberFormatId(oldFmt);
+        }
+        Short id = numberFormatIds.get(fmt);
+        if (id == null || id > index) {
+            numberFormatIds.put(fmt, index);
+        }
     }
 
     /**
@@ -383,6 +417,9 @@ public class StylesTable extends POIXMLDocumentPart implements Styles {
         String fmt = numberFormats.remove(index);
         boolean removed = (fmt != null);
         if (removed) {
+            if (numberFormatIds.get(fmt) == index) {
+                updateNumberFormatId(fmt);
+            }
             for (final CTXf style : xfs) {
                 if (style.isSetNumFmtId() && style.getNumFmtId() == index) {
                     style.unsetApplyNumberFormat();
@@ -425,7 +462,7 @@ public class StylesTable extends POIXMLDocumentPart implements Styles {
     public int putFont(XSSFFont font, boolean forceRegistration) {
         int idx = -1;
         if(!forceRegistration) {
-            idx = fonts.indexOf(font);
+            idx = fontIndex.find(getFontKey(font), font::equals);
         }
 
         if (idx != -1) {
@@ -467,10 +504,11 @@ public class StylesTable extends POIXMLDocumentPart implements Styles {
     public int putStyle(XSSFCellStyle style) {
         CTXf mainXF = style.getCoreXf();
 
-        if(! xfs.contains(mainXF)) {
-            xfs.add(mainXF);
+        Integer idx = xfIndexes.get(mainXF);
+        if (idx == null) {
+            idx = addCellXf(mainXF);
         }
-        return xfs.indexOf(mainXF);
+        return idx;
     }
 
     @Override
@@ -487,7 +525,7 @@ public class StylesTable extends POIXMLDocumentPart implements Styles {
      */
     @Override
     public int putBorder(XSSFCellBorder border) {
-        int idx = borders.indexOf(border);
+        int idx = borderIndex.find(getBorderKey(border), border::equals);
         if (idx != -1) {
             return idx;
         }
@@ -526,7 +564,7 @@ public class StylesTable extends POIXMLDocumentPart implements Styles {
      */
     @Override
     public int putFill(XSSFCellFill fill) {
-        int idx = fills.indexOf(fill);
+        int idx = fillIndex.find(getFillKey(fill), fill::equals);
         if (idx != -1) {
             return idx;
         }
@@ -548,13 +586,78 @@ public class StylesTable extends POIXMLDocumentPart implements Styles {
      */
     @Internal
     public int putCellXf(CTXf cellXf) {
-        xfs.add(cellXf);
+        addCellXf(cellXf);
         return xfs.size();
     }
 
     @Internal
     public void replaceCellXfAt(int idx, CTXf cellXf) {
-        xfs.set(idx, cellXf);
+        CTXf oldXf = xfs.set(idx, cellXf);
+        if (oldXf != cellXf) {
+            if (xfIndexes.get(oldXf) == idx) {
+                // the same xf might have been added more than once
+                xfIndexes.remove(oldXf);
+                for (int i = idx + 1; i < xfs.size(); i++) {
+                    if (xfs.get(i) == oldXf) {
+                        xfIndexes.put(oldXf, i);
+                        break;
+                    }
+                }
+            }
+            Integer existing = xfIndexes.get(cellXf);
+            if (existing == null || existing > idx) {
+                xfIndexes.put(cellXf, idx);
+            }
+        }
+    }
+
+    private int addCellXf(CTXf cellXf) {
+        int idx = xfs.size();
+        xfs.add(cellXf);
+        xfIndexes.putIfAbsent(cellXf, idx);
+        return idx;
+    }
+
+    /**
+     * Merges the cell formats (xfs) with the same properties, so only the first one of them is kept.
+     * The remaining cell formats are moved to close the gaps. The cells, rows and columns, which
+     * use the cell formats, need to be changed to the returned indexes by the caller.
+     * <p>
+     * {@link XSSFCellStyle} objects, which have been created before, refer to the old indexes
+     * and must not be used afterwards.
+     *
+     * @return the new index of each cell format by its old index, or {@code null} if there were no duplicates
+     * @see org.apache.poi.xssf.usermodel.XSSFOptimiser#optimiseCellStyles(XSSFWorkbook)
+     * @since POI 5.2.4
+     */
+    @Internal
+    public int[] removeDuplicateCellXfs() {
+        int[] newIndexes = new int[xfs.size()];
+        Map<String, Integer> firstIndexes = new HashMap<>();
+        List<CTXf> remaining = new ArrayList<>(xfs.size());
+        for (int i = 0; i < xfs.size(); i++) {
+            CTXf xf = xfs.get(i);
+            // the same comparison as in XSSFCellStyle.equals
+            Integer first = firstIndexes.putIfAbsent(xf.toString(), remaining.size());
+            if (first == null) {
+                newIndexes[i] = remaining.size();
+                remaining.add(xf);
+            } else {
+                newIndexes[i] = first;
+            }
+        }
+        if (remaining.size() == xfs.size()) {
+            return null;
+        }
+
+        xfs.clear();
+        xfIndexes.clear();
+        for (CTXf xf : remaining) {
+            // the xfs of a loaded stylesheet are part of the document, which would disconnect
+            // them when they are written at other positions
+            addCellXf((CTXf) xf.copy());
+        }
+        return newIndexes;
     }
 
     @Internal
@@ -757,7 +860,7 @@ public class StylesTable extends POIXMLDocumentPart implements Styles {
         styleXfs.add(styleXf);
         CTXf xf = createDefaultXf();
         xf.setXfId(0);
-        xfs.add(xf);
+        addCellXf(xf);
     }
 
     private static CTXf createDefaultXf() {
@@ -877,20 +980,9 @@ public class StylesTable extends POIXMLDocumentPart implements Styles {
      * where color is the indexed-value, not the actual color.
      */
     public XSSFFont findFont(boolean bold, short color, short fontHeight, String name, boolean italic, boolean strikeout, short typeOffset, byte underline) {
-        for (XSSFFont font : fonts) {
-            if (    (font.getBold() == bold)
-                    && font.getColor() == color
-                    && font.getFontHeight() == fontHeight
-                    && font.getFontName().equals(name)
-                    && font.getItalic() == italic
-                    && font.getStrikeout() == strikeout
-                    && font.getTypeOffset() == typeOffset
-                    && font.getUnderline() == underline)
-            {
-                return font;
-            }
-        }
-        return null;
+        int idx = fontIndex.find(getFontKey(bold, fontHeight, name, italic, strikeout, typeOffset, underline),
+            font -> font.getColor() == color && matchesFont(font, bold, fontHeight, name, italic, strikeout, typeOffset, underline));
+        return idx == -1 ? null : fonts.get(idx);
     }
 
     /**
@@ -898,20 +990,85 @@ public class StylesTable extends POIXMLDocumentPart implements Styles {
      * where color is the actual Color-value, not the indexed color
      */
     public XSSFFont findFont(boolean bold, Color color, short fontHeight, String name, boolean italic, boolean strikeout, short typeOffset, byte underline) {
-        for (XSSFFont font : fonts) {
-            if (    (font.getBold() == bold)
-                    && font.getXSSFColor().equals(color)
-                    && font.getFontHeight() == fontHeight
-                    && font.getFontName().equals(name)
-                    && font.getItalic() == italic
-                    && font.getStrikeout() == strikeout
-                    && font.getTypeOffset() == typeOffset
-                    && font.getUnderline() == underline)
-            {
-                return font;
-            }
+        int idx = fontIndex.find(getFontKey(bold, fontHeight, name, italic, strikeout, typeOffset, underline),
+            font -> font.getXSSFColor().equals(color) && matchesFont(font, bold, fontHeight, name, italic, strikeout, typeOffset, underline));
+        return idx == -1 ? null : fonts.get(idx);
+    }
+
+    private static boolean matchesFont(XSSFFont font, boolean bold, short fontHeight, String name, boolean italic, boolean strikeout, short typeOffset, byte underline) {
+        return (font.getBold() == bold)
+                && font.getFontHeight() == fontHeight
+                && font.getFontName().equals(name)
+                && font.getItalic() == italic
+                && font.getStrikeout() == strikeout
+                && font.getTypeOffset() == typeOffset
+                && font.getUnderline() == underline;
+    }
+
+    /**
+     * Called by the setters of a font, which has been indexed for the lookups, e.g. by {@link #findFont}
+     *
+     * @since POI 5.2.4
+     */
+    @Internal
+    public void onFontChange(XSSFFont font) {
+        fontIndex.markChanged(font);
+    }
+
+    /**
+     * Called by the setters of a fill, which has been indexed for the lookups by {@link #putFill(XSSFCellFill)}
+     *
+     * @since POI 5.2.4
+     */
+    @Internal
+    public void onFillChange(XSSFCellFill fill) {
+        fillIndex.markChanged(fill);
+    }
+
+    /**
+     * Called by the setters of a border, which has been indexed for the lookups by {@link #putBorder(XSSFCellBorder)}
+     *
+     * @since POI 5.2.4
+     */
+    @Internal
+    public void onBorderChange(XSSFCellBorder border) {
+        borderIndex.markChanged(border);
+    }
+
+    // The keys of the hash indexes contain the properties, which are compared by the equals methods
+    // of the entries, apart of the colors of the fonts, which are looked up in different ways.
+
+    private static Object getFontKey(XSSFFont font) {
+        return getFontKey(font.getBold(), font.getFontHeight(), font.getFontName(), font.getItalic(),
+            font.getStrikeout(), font.getTypeOffset(), font.getUnderline());
+    }
+
+    private static Object getFontKey(boolean bold, short fontHeight, String name, boolean italic, boolean strikeout, short typeOffset, byte underline) {
+        return Arrays.asList(bold, fontHeight, name, italic, strikeout, typeOffset, underline);
+    }
+
+    private static Object getFillKey(XSSFCellFill fill) {
+        return Arrays.asList(fill.getPatternType(), getColorKey(fill.getFillForegroundColor()),
+            getColorKey(fill.getFillBackgroundColor()));
+    }
+
+    private static Object getBorderKey(XSSFCellBorder border) {
+        List<Object> key = new ArrayList<>();
+        for (BorderSide side : BorderSide.values()) {
+            key.add(border.getBorderStyle(side));
+            key.add(getColorKey(border.getBorderColor(side)));
+        }
+        return key;
+    }
+
+    private static Object getColorKey(XSSFColor color) {
+        if (color == null) {
+            return null;
         }
-        return null;
+        // the RGB value of themed colors might be inherited from the theme, after they have been indexed
+        byte[] argb = color.isRGB() && !color.isThemed() ? color.getARGB() : null;
+        return Arrays.asList(color.isThemed() ? color.getTheme() : null, argb == null ? null : ByteBuffer.wrap(argb),
+            color.isIndexed() ? color.getIndexed() : null, color.isAuto());
     }
 
     /**
@@ -0,0 +1,116 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.streaming;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.ZipEntry;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.io.output.CountingOutputStream;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.poi.util.TempFile;
+
+/**
+ * A sheet entry, which has been deflated independently of the zip output stream.
+ * This allows several sheets to be generated and compressed in parallel.
+ * The deflated data is kept in a temp file until it is added as raw entry to the zip stream.
+ */
+final class DeflatedSheetEntry implements Closeable {
+    private static final Logger LOG = LogManager.getLogger(DeflatedSheetEntry.class);
+
+    private final String name;
+    private final File file;
+    private long crc;
+    private long size;
+    private long compressedSize;
+
+    private DeflatedSheetEntry(String name, File file) {
+        this.name = name;
+        this.file = file;
+    }
+
+    /**
+     * Generates the sheet xml by injecting the sheet data into the template and deflates it.
+     *
+     * @param name the zip entry name
+     * @param template the template sheet xml
+     * @param sheetInjector the provider of the sheet data
+     * @return the deflated entry, which needs to be closed to remove the temp file
+     */
+    static DeflatedSheetEntry deflate(String name, byte[] template, SXSSFWorkbook.ISheetInjector sheetInjector) throws IOException {
+        DeflatedSheetEntry entry = new DeflatedSheetEntry(name, TempFile.createTempFile("poi-sxssf-sheet", ".deflated"));
+        boolean success = false;
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            CRC32 crc = new CRC32();
+            CountingOutputStream uncompressed;
+            try (OutputStream fos = new BufferedOutputStream(new FileOutputStream(entry.file));
+                 DeflaterOutputStream dos = new DeflaterOutputStream(fos, deflater, 8192);
+                 CountingOutputStream cos = new CountingOutputStream(new CheckedOutputStream(dos, crc))) {
+                uncompressed = cos;
+                SXSSFWorkbook.copyStreamAndInjectWorksheet(new ByteArrayInputStream(template), cos, sheetInjector);
+            }
+            entry.crc = crc.getValue();
+            entry.size = uncompressed.getByteCount();
+            entry.compressedSize = entry.file.length();
+            success = true;
+            return entry;
+        } finally {
+            deflater.end();
+            if (!success) {
+                entry.close();
+            }
+        }
+    }
+
+    /**
+     * Adds the deflated data as raw entry to the zip stream
+     */
+    void writeTo(ZipArchiveOutputStream zos, long time) throws IOException {
+        ZipArchiveEntry ze = new ZipArchiveEntry(name);
+        ze.setMethod(ZipEntry.DEFLATED);
+        ze.setCrc(crc);
+        ze.setSize(size);
+        ze.setCompressedSize(compressedSize);
+        if (time >= 0) ze.setTime(time);
+        try (InputStream is = new FileInputStream(file)) {
+            zos.addRawArchiveEntry(ze, is);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (!file.delete() && file.exists()) {
+            LOG.atWarn().log("Could not delete temporary file {}", file);
+        }
+    }
+}
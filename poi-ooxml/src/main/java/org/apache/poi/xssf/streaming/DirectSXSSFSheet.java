@@ -0,0 +1,90 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.streaming;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.poi.util.Beta;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+
+/**
+ * A variant of SXSSFSheet which writes the flushed rows directly into the zip entry
+ * of the sheet instead of a temporary file.
+ *
+ * This variant is experimental and APIs may change at short notice.
+ *
+ * @see DirectSXSSFWorkbook
+ * @since POI 5.2.4
+ */
+@Beta
+public class DirectSXSSFSheet extends SXSSFSheet {
+    private boolean written;
+
+    public DirectSXSSFSheet(DirectSXSSFWorkbook workbook, XSSFSheet xSheet) throws IOException {
+        super(workbook, xSheet, workbook.getRandomAccessWindowSize());
+        _writer = workbook.createSheetDataWriter(this);
+    }
+
+    /**
+     * Unsupported in DirectSXSSFSheet
+     *
+     * @throws RuntimeException this is unsupported
+     */
+    @Override
+    public InputStream getWorksheetXMLInputStream() throws IOException {
+        throw new RuntimeException("Not supported by DirectSXSSFSheet");
+    }
+
+    /**
+     * Create a new row within the sheet and return the high level representation
+     *
+     * @param rownum  row number
+     * @return high level Row object representing a row in the sheet
+     * @throws IllegalStateException if the sheet was already completely written,
+     *      i.e. rows of another sheet have been flushed in the meantime
+     */
+    @Override
+    public SXSSFRow createRow(int rownum) {
+        if (written) {
+            throw new IllegalStateException("Sheet '" + getSheetName() + "' has already been written " +
+                    "- DirectSXSSFWorkbook only supports filling the sheets one after another");
+        }
+        return super.createRow(rownum);
+    }
+
+    /**
+     * @return true, if the sheet entry has been completely written to the output
+     */
+    public boolean isWritten() {
+        return written;
+    }
+
+    void setWritten() {
+        written = true;
+    }
+
+    /**
+     * The rows are not flushed when disposing, as this would add data to the
+     * zip stream after the sheet entry has been closed
+     */
+    @Override
+    boolean dispose() throws IOException {
+        return _writer.dispose();
+    }
+}
@@ -0,0 +1,357 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.streaming;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveInputStream;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.io.output.UnsynchronizedByteArrayOutputStream;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.poi.openxml4j.util.ZipArchiveThresholdInputStream;
+import org.apache.poi.openxml4j.util.ZipInputStreamZipEntrySource;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.util.Beta;
+import org.apache.poi.util.IOUtils;
+import org.apache.poi.util.NotImplemented;
+import org.apache.poi.xssf.usermodel.XSSFChartSheet;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+/**
+ * A variant of SXSSFWorkbook which writes the flushed rows of each sheet directly into
+ * the zip entry of that sheet. Unlike SXSSFWorkbook, no temporary file per sheet is created
+ * and the sheet data isn't copied a second time when the workbook is written.
+ * <p>
+ * The output stream needs to be provided upfront and the sheets need to be filled
+ * one after another: as soon as rows of a sheet are flushed, the previously filled sheet
+ * is completed and can't receive any more rows. Sheet settings which are stored in
+ * front of the sheet data, e.g. column widths or panes, need to be set before the
+ * first rows of a sheet are flushed. Settings stored behind the sheet data, e.g. merged
+ * regions, can be set until the next sheet is started.
+ * <p>
+ * The remaining parts of the workbook, e.g. the styles and the shared strings table,
+ * are written when {@link #finish()} is called.
+ * <p>
+ * This variant is experimental and APIs may change at short notice.
+ *
+ * @since POI 5.2.4
+ */
+@Beta
+public class DirectSXSSFWorkbook extends SXSSFWorkbook {
+    private static final Logger LOG = LogManager.getLogger(DirectSXSSFWorkbook.class);
+
+    private final OutputStream out;
+    private final Set<String> writtenEntries = new HashSet<>();
+    private ZipArchiveOutputStream zos;
+    private DirectSXSSFSheet activeSheet;
+    private boolean finished;
+
+    public DirectSXSSFWorkbook(OutputStream out) {
+        this(null, SXSSFWorkbook.DEFAULT_WINDOW_SIZE, false, out);
+    }
+
+    public DirectSXSSFWorkbook(int rowAccessWindowSize, OutputStream out) {
+        this(null, rowAccessWindowSize, false, out);
+    }
+
+    /**
+     * Constructs a workbook which streams its sheets directly to the given output stream.
+     *
+     * @param workbook  the template workbook, or {@code null} to start with an empty workbook
+     * @param rowAccessWindowSize the number of rows that are kept in memory until flushed out
+     * @param useSharedStringsTable whether to use a shared strings table
+     * @param out the stream to which the workbook is written - it isn't closed by this workbook
+     */
+    public DirectSXSSFWorkbook(XSSFWorkbook workbook, int rowAccessWindowSize, boolean useSharedStringsTable, OutputStream out) {
+        super(workbook, rowAccessWindowSize, false, useSharedStringsTable);
+        if (out == null) {
+            throw new IllegalArgumentException("The output stream must not be null");
+        }
+        this.out = out;
+    }
+
+    @NotImplemented
+    @Override
+    protected SheetDataWriter createSheetDataWriter() throws IOException {
+        throw new RuntimeException("Not supported by DirectSXSSFWorkbook");
+    }
+
+    protected StreamingSheetWriter createSheetDataWriter(DirectSXSSFSheet sheet) throws IOException {
+        return new DirectSheetWriter(sheet);
+    }
+
+    @Override
+    SXSSFSheet createAndRegisterSXSSFSheet(XSSFSheet xSheet) {
+        final DirectSXSSFSheet sxSheet;
+        try {
+            sxSheet = new DirectSXSSFSheet(this, xSheet);
+        } catch (IOException ioe) {
+            throw new RuntimeException(ioe);
+        }
+        registerSheetMapping(sxSheet, xSheet);
+        return sxSheet;
+    }
+
+    @Override
+    public DirectSXSSFSheet createSheet() {
+        return (DirectSXSSFSheet) super.createSheet();
+    }
+
+    @Override
+    public DirectSXSSFSheet createSheet(String sheetname) {
+        return (DirectSXSSFSheet) super.createSheet(sheetname);
+    }
+
+    /**
+     * Removes sheet at the given index.
+     *
+     * @param index of the sheet to remove (0-based)
+     * @throws IllegalStateException if the sheet data has already been written
+     */
+    @Override
+    public void removeSheetAt(int index) {
+        SXSSFSheet sxSheet = getSXSSFSheet(_wb.getSheetAt(index));
+        if (sxSheet == activeSheet || (sxSheet instanceof DirectSXSSFSheet && ((DirectSXSSFSheet)sxSheet).isWritten())) {
+            throw new IllegalStateException("Sheet '" + sxSheet.getSheetName() + "' has already been written and can't be removed");
+        }
+        super.removeSheetAt(index);
+    }
+
+    /**
+     * Completes the workbook: the remaining rows of all sheets are written
+     * followed by the other parts of the workbook.
+     * The output stream provided in the constructor is flushed but not closed.
+     *
+     * @throws IOException if anything can't be written.
+     */
+    public void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+        finished = true;
+
+        for (Sheet sheet : _wb) {
+            SXSSFSheet sxSheet = getSXSSFSheet((XSSFSheet)sheet);
+            // See bug 56557, we should not inject data into the special ChartSheets
+            if (!(sxSheet instanceof DirectSXSSFSheet) || sheet instanceof XSSFChartSheet) {
+                continue;
+            }
+            DirectSXSSFSheet dxSheet = (DirectSXSSFSheet)sxSheet;
+            if (dxSheet.isWritten()) {
+                continue;
+            }
+            if (dxSheet != activeSheet) {
+                // no rows have been flushed yet, so the dimension can still be provided
+                dxSheet.deriveDimension();
+                startSheet(dxSheet);
+            }
+            finishSheet(dxSheet);
+        }
+
+        ZipArchiveOutputStream zipOut = getArchiveOutputStream();
+        try (UnsynchronizedByteArrayOutputStream bos = new UnsynchronizedByteArrayOutputStream()) {
+            _wb.write(bos);
+
+            // copy the template entries, which haven't been streamed already
+            try (
+                    InputStream is = bos.toInputStream();
+                    ZipInputStreamZipEntrySource source = new ZipInputStreamZipEntrySource(
+                            new ZipArchiveThresholdInputStream(new ZipArchiveInputStream(is)))
+            ) {
+                Enumeration<? extends ZipArchiveEntry> en = source.getEntries();
+                while (en.hasMoreElements()) {
+                    ZipArchiveEntry ze = en.nextElement();
+                    if (writtenEntries.contains(ze.getName())) {
+                        continue;
+                    }
+                    ZipArchiveEntry zeOut = new ZipArchiveEntry(ze.getName());
+                    if (ze.getSize() >= 0) zeOut.setSize(ze.getSize());
+                    if (ze.getTime() >= 0) zeOut.setTime(ze.getTime());
+                    zipOut.putArchiveEntry(zeOut);
+                    try (InputStream zis = source.getInputStream(ze)) {
+                        if (zis instanceof ZipArchiveThresholdInputStream) {
+                            // #59743 - disable Threshold handling for SXSSF copy
+                            ((ZipArchiveThresholdInputStream)zis).setGuardState(false);
+                        }
+                        IOUtils.copy(zis, zipOut);
+                    } finally {
+                        zipOut.closeArchiveEntry();
+                    }
+                }
+            }
+        } finally {
+            zipOut.finish();
+        }
+        out.flush();
+    }
+
+    /**
+     * Write out this workbook. DirectSXSSFWorkbook can only be written once and only to the
+     * output stream which was provided in the constructor, so this is the same as {@link #finish()}.
+     *
+     * @param stream the output stream provided in the constructor
+     * @throws IOException if anything can't be written.
+     * @throws IllegalArgumentException if the stream is not the one provided in the constructor
+     */
+    @Override
+    public void write(OutputStream stream) throws IOException {
+        if (stream != out) {
+            throw new IllegalArgumentException("DirectSXSSFWorkbook can only be written to the stream provided in the constructor");
+        }
+        finish();
+    }
+
+    /**
+     * DirectSXSSFWorkbook doesn't use temp files for the sheet data, so this is the same as {@link #write(OutputStream)}.
+     */
+    @Override
+    public void writeAvoidingTempFiles(OutputStream stream) throws IOException {
+        write(stream);
+    }
+
+    /**
+     * Opens the zip entry of the given sheet, if it isn't already open.
+     * Any other sheet which is currently written gets completed first.
+     */
+    void startSheet(DirectSXSSFSheet sheet) throws IOException {
+        if (sheet == activeSheet) {
+            return;
+        }
+        if (sheet.isWritten()) {
+            throw new IllegalStateException("Sheet '" + sheet.getSheetName() + "' has already been written");
+        }
+        if (activeSheet != null) {
+            finishSheet(activeSheet);
+        }
+
+        LOG.atDebug().log("Start streaming sheet {}", sheet.getSheetName());
+        String entryName = getEntryName(sheet);
+        getArchiveOutputStream().putArchiveEntry(new ZipArchiveEntry(entryName));
+        writtenEntries.add(entryName);
+        activeSheet = sheet;
+        writeWorksheetFragment(sheet, true);
+    }
+
+    private void finishSheet(DirectSXSSFSheet sheet) throws IOException {
+        sheet.flushRows();
+        // flush the buffered rows into the zip entry
+        sheet.getSheetDataWriter().close();
+        writeWorksheetFragment(sheet, false);
+        getArchiveOutputStream().closeArchiveEntry();
+        sheet.setWritten();
+        activeSheet = null;
+    }
+
+    /**
+     * Writes the part of the sheet xml which is located in front of (head) or
+     * behind (tail) the streamed rows.
+     */
+    private void writeWorksheetFragment(DirectSXSSFSheet sheet, boolean head) throws IOException {
+        try (UnsynchronizedByteArrayOutputStream bos = new UnsynchronizedByteArrayOutputStream()) {
+            sheet._sh.writeWorksheetXml(bos);
+            FragmentOutputStream fragment = new FragmentOutputStream(getArchiveOutputStream(), head);
+            try (InputStream is = bos.toInputStream()) {
+                copyStreamAndInjectWorksheet(is, fragment, (output) -> fragment.toggle());
+            }
+        }
+    }
+
+    private static String getEntryName(SXSSFSheet sheet) {
+        return sheet._sh.getPackagePart().getPartName().getName().substring(1);
+    }
+
+    private ZipArchiveOutputStream getArchiveOutputStream() {
+        if (zos == null) {
+            zos = createArchiveOutputStream(out);
+        }
+        return zos;
+    }
+
+    /**
+     * Only forwards the data to the zip stream, while enabled.
+     * The zip stream is never closed.
+     */
+    private static final class FragmentOutputStream extends OutputStream {
+        private final OutputStream zipOut;
+        private boolean enabled;
+
+        FragmentOutputStream(OutputStream zipOut, boolean enabled) {
+            this.zipOut = zipOut;
+            this.enabled = enabled;
+        }
+
+        void toggle() {
+            enabled = !enabled;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (enabled) {
+                zipOut.write(b);
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (enabled) {
+                zipOut.write(b, off, len);
+            }
+        }
+    }
+
+    /**
+     * Writes the rows into the zip entry of its sheet, which is opened with the first row.
+     */
+    private final class DirectSheetWriter extends StreamingSheetWriter {
+        private final DirectSXSSFSheet sheet;
+
+        DirectSheetWriter(DirectSXSSFSheet sheet) throws IOException {
+            super(new EntryOutputStream(), _sharedStringSource);
+            this.sheet = sheet;
+        }
+
+        @Override
+        public void writeRow(int rownum, SXSSFRow row) throws IOException {
+            startSheet(sheet);
+            super.writeRow(rownum, row);
+        }
+    }
+
+    /**
+     * Forwards the data to the currently open zip entry. The zip stream is never closed.
+     */
+    private final class EntryOutputStream extends OutputStream {
+        @Override
+        public void write(int b) throws IOException {
+            getArchiveOutputStream().write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            getArchiveOutputStream().write(b, off, len);
+        }
+    }
+}
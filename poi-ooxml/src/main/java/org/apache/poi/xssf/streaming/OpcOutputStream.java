@@ -20,6 +20,7 @@ package org.apache.poi.xssf.streaming;
 import org.apache.poi.xssf.streaming.Zip64Impl.Entry;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.List;
@@ -93,6 +94,42 @@ class OpcOutputStream extends DeflaterOutputStream {
         crc.reset();
     }
 
+    /**
+     * Adds an entry, which has already been deflated, e.g. by another thread.
+     * The data is copied as-is to the target stream.
+     *
+     * @param name the entry name
+     * @param crc the CRC-32 of the uncompressed data
+     * @param size the size of the uncompressed data
+     * @param compressedSize the size of the deflated data
+     * @param raw the stream providing the deflated data
+     */
+    public void putRawEntry(String name, long crc, long size, long compressedSize, InputStream raw) throws IOException {
+        if (current != null) {
+            closeEntry();
+        }
+        Entry entry = new Entry(name);
+        entry.offset = written;
+        written += spec.writeLFH(entry);
+
+        byte[] buf = new byte[8192];
+        long copied = 0;
+        int readBytes;
+        while ((readBytes = raw.read(buf)) != -1) {
+            out.write(buf, 0, readBytes);
+            copied += readBytes;
+        }
+        if (copied != compressedSize) {
+            throw new IOException("Expected " + compressedSize + " compressed bytes for entry " + name + ", but got " + copied);
+        }
+
+        entry.crc = crc;
+        entry.size = size;
+        entry.compressedSize = Math.toIntExact(compressedSize);
+        written += entry.compressedSize;
+        written += spec.writeDAT(entry);
+        entries.add(entry);
+    }
 
     /**
      * @see ZipOutputStream#finish()
@@ -18,9 +18,11 @@
 package org.apache.poi.xssf.streaming;
 
 import org.apache.commons.compress.archivers.ArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
 import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 
 class OpcZipArchiveOutputStream extends ZipArchiveOutputStream {
@@ -47,6 +49,11 @@ class OpcZipArchiveOutputStream extends ZipArchiveOutputStream {
         out.closeEntry();
     }
 
+    @Override
+    public void addRawArchiveEntry(ZipArchiveEntry entry, InputStream rawStream) throws IOException {
+        out.putRawEntry(entry.getName(), entry.getCrc(), entry.getSize(), entry.getCompressedSize(), rawStream);
+    }
+
 
     @Override
     public void finish() throws IOException {
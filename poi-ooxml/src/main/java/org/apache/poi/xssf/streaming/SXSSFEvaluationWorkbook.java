@@ -55,9 +55,18 @@ public final class SXSSFEvaluationWorkbook extends BaseXSSFEvaluationWorkbook {
         return new SXSSFEvaluationSheet(_sxssfBook.getSheetAt(sheetIndex));
     }
 
+    /**
+     * Returns the parsed formula of the cell, which is cached until the formula of the cell changes
+     */
     @Override
     public Ptg[] getFormulaTokens(EvaluationCell evalCell) {
         SXSSFCell cell = ((SXSSFEvaluationCell)evalCell).getSXSSFCell();
-        return FormulaParser.parse(cell.getCellFormula(), this, FormulaType.CELL, _sxssfBook.getSheetIndex(cell.getSheet()));
+        String formula = cell.getCellFormula();
+        Ptg[] ptgs = getCachedFormulaTokens(evalCell, formula, null);
+        if (ptgs == null) {
+            ptgs = FormulaParser.parse(formula, this, FormulaType.CELL, _sxssfBook.getSheetIndex(cell.getSheet()));
+            cacheFormulaTokens(evalCell, formula, null, ptgs);
+        }
+        return ptgs;
     }
 }
@@ -27,6 +27,7 @@ import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.CellType;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.BaseXSSFEvaluationWorkbook;
 import org.apache.poi.xssf.usermodel.BaseXSSFFormulaEvaluator;
 
 import static org.apache.logging.log4j.util.Unbox.box;
@@ -61,13 +62,19 @@ public final class SXSSFFormulaEvaluator extends BaseXSSFFormulaEvaluator {
         return new SXSSFFormulaEvaluator(workbook, stabilityClassifier, udfFinder);
     }
     public void notifySetFormula(Cell cell) {
-        _bookEvaluator.notifyUpdateCell(new SXSSFEvaluationCell((SXSSFCell)cell));
+        SXSSFEvaluationCell evalCell = new SXSSFEvaluationCell((SXSSFCell)cell);
+        _bookEvaluator.notifyUpdateCell(evalCell);
+        ((BaseXSSFEvaluationWorkbook)getEvaluationWorkbook()).notifyUpdateCell(evalCell);
     }
     public void notifyDeleteCell(Cell cell) {
-        _bookEvaluator.notifyDeleteCell(new SXSSFEvaluationCell((SXSSFCell)cell));
+        SXSSFEvaluationCell evalCell = new SXSSFEvaluationCell((SXSSFCell)cell);
+        _bookEvaluator.notifyDeleteCell(evalCell);
+        ((BaseXSSFEvaluationWorkbook)getEvaluationWorkbook()).notifyUpdateCell(evalCell);
     }
     public void notifyUpdateCell(Cell cell) {
-        _bookEvaluator.notifyUpdateCell(new SXSSFEvaluationCell((SXSSFCell)cell));
+        SXSSFEvaluationCell evalCell = new SXSSFEvaluationCell((SXSSFCell)cell);
+        _bookEvaluator.notifyUpdateCell(evalCell);
+        ((BaseXSSFEvaluationWorkbook)getEvaluationWorkbook()).notifyUpdateCell(evalCell);
     }
 
 
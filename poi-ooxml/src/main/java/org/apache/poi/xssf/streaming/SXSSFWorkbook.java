@@ -32,6 +32,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Spliterator;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import org.apache.commons.compress.archivers.ArchiveOutputStream;
 import org.apache.commons.compress.archivers.zip.Zip64Mode;
@@ -138,6 +141,11 @@ public class SXSSFWorkbook implements Workbook {
 
     private boolean shouldCalculateSheetDimensions = true;
 
+    /**
+     * executor for generating and compressing the sheets in parallel, {@code null} to write them one after another
+     */
+    private ExecutorService _sheetWriterExecutor;
+
     /**
      * Construct a new workbook with default row window size
      */
@@ -371,6 +379,34 @@ public class SXSSFWorkbook implements Workbook {
         return shouldCalculateSheetDimensions;
     }
 
+    /**
+     * Sets an executor, which is used to generate and compress the sheet entries in parallel, when the
+     * workbook is written. Each sheet is deflated independently into a temporary file and the compressed
+     * entries are then added one after another to the zip stream.
+     * <p>
+     * For {@link DeferredSXSSFWorkbook}, the row generators of the sheets are called on the executor threads
+     * and therefore must not share any unsynchronized state.
+     * <p>
+     * The executor isn't shut down by this workbook.
+     *
+     * @param executor the executor, or {@code null} to write the sheets sequentially (the default)
+     * @since POI 5.2.4
+     */
+    @Beta
+    public void setSheetWriterExecutor(ExecutorService executor) {
+        _sheetWriterExecutor = executor;
+    }
+
+    /**
+     * @return the executor for writing the sheets in parallel or {@code null} if they are written sequentially
+     * @see #setSheetWriterExecutor(ExecutorService)
+     * @since POI 5.2.4
+     */
+    @Beta
+    public ExecutorService getSheetWriterExecutor() {
+        return _sheetWriterExecutor;
+    }
+
     @Internal
     protected SharedStringsTable getSharedStringSource() {
         return _sharedStringSource;
@@ -423,6 +459,10 @@ public class SXSSFWorkbook implements Workbook {
     }
 
     protected void injectData(ZipEntrySource zipEntrySource, OutputStream out) throws IOException {
+        if (_sheetWriterExecutor != null) {
+            injectDataInParallel(zipEntrySource, out);
+            return;
+        }
         ArchiveOutputStream zos = createArchiveOutputStream(out);
         try {
             Enumeration<? extends ZipArchiveEntry> en = zipEntrySource.getEntries();
@@ -456,6 +496,89 @@ public class SXSSFWorkbook implements Workbook {
         }
     }
 
+    private void injectDataInParallel(ZipEntrySource zipEntrySource, OutputStream out) throws IOException {
+        final Map<String,Future<DeflatedSheetEntry>> sheetEntries = new HashMap<>();
+        ZipArchiveOutputStream zos = createArchiveOutputStream(out);
+        try {
+            // submit the sheets first, so they are compressed while the other entries are copied
+            Enumeration<? extends ZipArchiveEntry> en = zipEntrySource.getEntries();
+            while (en.hasMoreElements()) {
+                ZipArchiveEntry ze = en.nextElement();
+                XSSFSheet xSheet = getSheetFromZipEntryName(ze.getName());
+                // See bug 56557, we should not inject data into the special ChartSheets
+                if (xSheet == null || xSheet instanceof XSSFChartSheet) {
+                    continue;
+                }
+                final byte[] template;
+                try (final InputStream is = zipEntrySource.getInputStream(ze)) {
+                    if (is instanceof ZipArchiveThresholdInputStream) {
+                        // #59743 - disable Threshold handling for SXSSF copy
+                        ((ZipArchiveThresholdInputStream)is).setGuardState(false);
+                    }
+                    template = IOUtils.toByteArray(is);
+                }
+                final String name = ze.getName();
+                final ISheetInjector sheetInjector = createSheetInjector(getSXSSFSheet(xSheet));
+                sheetEntries.put(name, _sheetWriterExecutor.submit(
+                    () -> DeflatedSheetEntry.deflate(name, template, sheetInjector)));
+            }
+
+            en = zipEntrySource.getEntries();
+            while (en.hasMoreElements()) {
+                ZipArchiveEntry ze = en.nextElement();
+                Future<DeflatedSheetEntry> sheetEntry = sheetEntries.remove(ze.getName());
+                if (sheetEntry != null) {
+                    try (DeflatedSheetEntry deflated = getDeflatedSheetEntry(sheetEntry)) {
+                        deflated.writeTo(zos, ze.getTime());
+                    }
+                    continue;
+                }
+                ZipArchiveEntry zeOut = new ZipArchiveEntry(ze.getName());
+                if (ze.getSize() >= 0) zeOut.setSize(ze.getSize());
+                if (ze.getTime() >= 0) zeOut.setTime(ze.getTime());
+                zos.putArchiveEntry(zeOut);
+                try (final InputStream is = zipEntrySource.getInputStream(ze)) {
+                    if (is instanceof ZipArchiveThresholdInputStream) {
+                        ((ZipArchiveThresholdInputStream)is).setGuardState(false);
+                    }
+                    IOUtils.copy(is, zos);
+                } finally {
+                    zos.closeArchiveEntry();
+                }
+            }
+        } finally {
+            // wait for the remaining sheets in case of an error, to remove their temp files
+            for (Future<DeflatedSheetEntry> sheetEntry : sheetEntries.values()) {
+                try {
+                    getDeflatedSheetEntry(sheetEntry).close();
+                } catch (IOException | RuntimeException e) {
+                    LOG.atDebug().withThrowable(e).log("Ignoring failed sheet entry after previous error");
+                }
+            }
+            zos.finish();
+            zipEntrySource.close();
+        }
+    }
+
+    private static DeflatedSheetEntry getDeflatedSheetEntry(Future<DeflatedSheetEntry> sheetEntry) throws IOException {
+        try {
+            return sheetEntry.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for sheet to be written", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException)cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException)cause;
+            } else if (cause instanceof Error) {
+                throw (Error)cause;
+            }
+            throw new IOException("Failed to write sheet", cause);
+        }
+    }
+
     protected ZipArchiveOutputStream createArchiveOutputStream(OutputStream out) {
         if (Zip64Mode.Always.equals(zip64Mode)) {
             return new OpcZipArchiveOutputStream(out);
@@ -476,7 +599,7 @@ public class SXSSFWorkbook implements Workbook {
     }
 
     // private static void copyStreamAndInjectWorksheet(InputStream in, OutputStream out, InputStream worksheetData) throws IOException {
-    private static void copyStreamAndInjectWorksheet(InputStream in, OutputStream out, ISheetInjector sheetInjector) throws IOException {
+    static void copyStreamAndInjectWorksheet(InputStream in, OutputStream out, ISheetInjector sheetInjector) throws IOException {
         InputStreamReader inReader = new InputStreamReader(in, StandardCharsets.UTF_8);
         OutputStreamWriter outWriter = new OutputStreamWriter(out, StandardCharsets.UTF_8);
         boolean needsStartTag = true;
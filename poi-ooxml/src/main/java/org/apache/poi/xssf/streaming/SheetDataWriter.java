@@ -84,6 +84,19 @@ public class SheetDataWriter implements Closeable {
         this._sharedStringSource = sharedStringsTable;
     }
 
+    /**
+     * Create a sheet data writer which writes to the given writer and uses
+     * the given shared strings table for string cells.
+     *
+     * @param writer the writer to write the sheet data to
+     * @param sharedStringsTable the shared strings table, or {@code null} to use inline strings
+     * @since POI 5.2.4
+     */
+    public SheetDataWriter(Writer writer, SharedStringsTable sharedStringsTable) throws IOException {
+        this(writer);
+        this._sharedStringSource = sharedStringsTable;
+    }
+
     /**
      * Create a temp file to write sheet data.
      * By default, temp files are created in the default temporary-file directory
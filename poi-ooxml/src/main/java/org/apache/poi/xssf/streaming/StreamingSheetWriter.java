@@ -29,6 +29,7 @@ import java.nio.charset.StandardCharsets;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.poi.util.Beta;
+import org.apache.poi.xssf.model.SharedStringsTable;
 
 /**
  * Unlike SheetDataWriter, this writer does not create a temporary file, it writes data directly
@@ -49,6 +50,16 @@ public class StreamingSheetWriter extends SheetDataWriter {
         LOG.atDebug().log("Preparing SXSSF sheet writer");
     }
 
+    /**
+     * @param out the output stream to write the sheet data to
+     * @param sharedStringsTable the shared strings table, or {@code null} to use inline strings
+     * @since POI 5.2.4
+     */
+    public StreamingSheetWriter(OutputStream out, SharedStringsTable sharedStringsTable) throws IOException {
+        super(createWriter(out), sharedStringsTable);
+        LOG.atDebug().log("Preparing SXSSF sheet writer");
+    }
+
     @Override
     public File createTempFile() throws IOException {
         throw new RuntimeException("Not supported with StreamingSheetWriter");
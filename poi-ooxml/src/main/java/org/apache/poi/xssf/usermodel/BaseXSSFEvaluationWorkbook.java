@@ -19,9 +19,11 @@ package org.apache.poi.xssf.usermodel;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentSkipListMap;
 
 import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.formula.EvaluationCell;
 import org.apache.poi.ss.formula.EvaluationName;
 import org.apache.poi.ss.formula.EvaluationWorkbook;
 import org.apache.poi.ss.formula.FormulaParser;
@@ -55,7 +57,11 @@ public abstract class BaseXSSFEvaluationWorkbook implements FormulaRenderingWork
 
     // lazily populated. This should only be accessed through getTableCache
     // keys are lower-case to make this a quasi-case-insensitive map
-    private Map<String, XSSFTable> _tableCache;
+    private volatile Map<String, XSSFTable> _tableCache;
+
+    // the parsed formulas by the identity keys of their cells
+    // concurrent, as the formulas are looked up during parallel evaluations
+    private final Map<Object, CachedFormula> _formulaCache = new ConcurrentHashMap<>();
 
 
     protected BaseXSSFEvaluationWorkbook(XSSFWorkbook book) {
@@ -68,6 +74,49 @@ public abstract class BaseXSSFEvaluationWorkbook implements FormulaRenderingWork
     @Override
     public void clearAllCachedResultValues() {
         _tableCache = null;
+        _formulaCache.clear();
+    }
+
+    /**
+     * Removes the parsed formula of the given cell, which has been changed or deleted
+     *
+     * @since POI 5.2.4
+     */
+    public void notifyUpdateCell(EvaluationCell cell) {
+        _formulaCache.remove(cell.getIdentityKey());
+    }
+
+    /**
+     * Returns the tokens, which have been cached for the given cell by {@link #cacheFormulaTokens},
+     * if the cell still has the same formula at the same position.
+     * The returned tokens are shared and must not be modified.
+     *
+     * @param cell the formula cell
+     * @param formula the formula text or for shared formulas the formula of the master cell
+     * @param sharedRef the range of the shared formula or {@code null} for other formulas
+     * @return the cached tokens or {@code null}, if the formula needs to be parsed
+     */
+    protected Ptg[] getCachedFormulaTokens(EvaluationCell cell, String formula, String sharedRef) {
+        CachedFormula cached = _formulaCache.get(cell.getIdentityKey());
+        return (cached != null && cached.matches(cell, formula, sharedRef)) ? cached.tokens : null;
+    }
+
+    /**
+     * Caches the parsed tokens of the given cell, which are valid as long as the formula and the
+     * position of the cell are unchanged. Formulas with defined names aren't cached, as the indexes
+     * of the names change, when names are removed. Formulas with structured references aren't cached
+     * either, as the references are resolved to the current area of the table.
+     */
+    protected void cacheFormulaTokens(EvaluationCell cell, String formula, String sharedRef, Ptg[] tokens) {
+        if (formula.indexOf('[') >= 0) {
+            return;
+        }
+        for (Ptg ptg : tokens) {
+            if (ptg instanceof NamePtg) {
+                return;
+            }
+        }
+        _formulaCache.put(cell.getIdentityKey(), new CachedFormula(cell, formula, sharedRef, tokens));
     }
 
     private int convertFromExternalSheetIndex(int externSheetIndex) {
@@ -361,17 +410,20 @@ public abstract class BaseXSSFEvaluationWorkbook implements FormulaRenderingWork
      *       Perhaps tables can be managed similar to PivotTable references above?
      */
     private Map<String, XSSFTable> getTableCache() {
-        if ( _tableCache != null ) {
-            return _tableCache;
+        Map<String, XSSFTable> tableCache = _tableCache;
+        if ( tableCache != null ) {
+            return tableCache;
         }
-        _tableCache = new ConcurrentSkipListMap<>(String.CASE_INSENSITIVE_ORDER);
+        // only publish the filled map, as formulas might be evaluated concurrently
+        tableCache = new ConcurrentSkipListMap<>(String.CASE_INSENSITIVE_ORDER);
 
         for (Sheet sheet : _uBook) {
             for (XSSFTable tbl : ((XSSFSheet)sheet).getTables()) {
-                _tableCache.put(tbl.getName(), tbl);
+                tableCache.put(tbl.getName(), tbl);
             }
         }
-        return _tableCache;
+        _tableCache = tableCache;
+        return tableCache;
     }
 
     /**
@@ -445,4 +497,28 @@ public abstract class BaseXSSFEvaluationWorkbook implements FormulaRenderingWork
             return new NamePtg(_index);
         }
     }
+
+    private static final class CachedFormula {
+        private final String formula;
+        private final String sharedRef;
+        private final int rowIndex;
+        private final int columnIndex;
+        private final Ptg[] tokens;
+
+        CachedFormula(EvaluationCell cell, String formula, String sharedRef, Ptg[] tokens) {
+            this.formula = formula;
+            this.sharedRef = sharedRef;
+            // structured references of the current row and shared formulas depend on the position
+            this.rowIndex = cell.getRowIndex();
+            this.columnIndex = cell.getColumnIndex();
+            this.tokens = tokens;
+        }
+
+        boolean matches(EvaluationCell cell, String formula, String sharedRef) {
+            return this.formula.equals(formula)
+                && (this.sharedRef == null ? sharedRef == null : this.sharedRef.equals(sharedRef))
+                && rowIndex == cell.getRowIndex()
+                && columnIndex == cell.getColumnIndex();
+        }
+    }
 }
@@ -0,0 +1,935 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.usermodel;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.IntPredicate;
+import java.util.function.IntUnaryOperator;
+import java.util.function.Predicate;
+
+import javax.xml.namespace.QName;
+
+import org.apache.poi.ss.util.CellReference;
+import org.apache.xmlbeans.XmlCursor;
+import org.apache.xmlbeans.XmlObject;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTCell;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTCellFormula;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTRow;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.STCellType;
+
+/**
+ * The rows of a sheet, which haven't been accessed yet, in a compact columnar form,
+ * see {@link XSSFLoadOptions#setCompactSheetData(boolean)}.
+ * <p>
+ * The cells are kept per column in parallel primitive arrays of the row numbers, the cell types,
+ * the style indexes and the values - numbers as their raw bits, shared strings and booleans as
+ * plain values and all other texts as index of a string pool. Formulas and the attributes of the
+ * rows are pooled as well, as the formulas of shared formula groups and the attributes of
+ * neighbouring rows are mostly equal.
+ * <p>
+ * Rows are only added while the sheet is read by {@link CompactSheetDataReader}. Afterwards they
+ * are only removed, when they are turned into regular rows via {@link #inflateRow(int, CTRow)}, or
+ * shifted via {@link #shiftRows(int, int, int)}. Removed rows are only marked, their cells remain in
+ * the columns and are skipped.
+ */
+final class CompactSheetData {
+    // the cell types, which correspond to the values of the t attribute
+    static final byte TYPE_NONE = 0;
+    static final byte TYPE_N = 1;
+    static final byte TYPE_S = 2;
+    static final byte TYPE_STR = 3;
+    static final byte TYPE_INLINE_STR = 4;
+    static final byte TYPE_B = 5;
+    static final byte TYPE_E = 6;
+    static final byte TYPE_D = 7;
+    private static final String[] TYPE_NAMES = { null, "n", "s", "str", "inlineStr", "b", "e", "d" };
+
+    /** flag of the cell type, if the cell has a value */
+    static final byte HAS_VALUE = 0x10;
+    private static final byte TYPE_MASK = 0x0f;
+
+    private static final Attributes NO_ATTRIBUTES = new Attributes(new QName[0], new String[0]);
+    private static final QName ROW_STYLE = new QName("s");
+
+    /** the row numbers, ascending */
+    private int[] rowNums = new int[64];
+    /** the index of the attributes of each row, or -1 if the row has been removed */
+    private int[] rowAttributes = new int[64];
+    private int[] rowFirstColumns = new int[64];
+    private int[] rowLastColumns = new int[64];
+    private int rowCount;
+    private int liveRowCount;
+    /** the index of the first and last row, which may have been removed meanwhile */
+    private int firstRow;
+    private int lastRow = -1;
+
+    private Column[] columns = new Column[16];
+    private final List<Attributes> attributes = new ArrayList<>();
+    private final List<String> strings = new ArrayList<>();
+    private final List<Formula> formulas = new ArrayList<>();
+
+    // only used while reading to pool the equal values
+    private Map<Attributes, Integer> attributeIndexes = new HashMap<>();
+    private Map<String, Integer> stringIndexes = new HashMap<>();
+    private Map<Formula, Integer> formulaIndexes = new HashMap<>();
+
+    /**
+     * The attributes of a row or a formula, apart of the ones which are stored separately
+     */
+    static final class Attributes {
+        private final QName[] names;
+        private final String[] values;
+
+        Attributes(QName[] names, String[] values) {
+            this.names = names;
+            this.values = values;
+        }
+
+        int size() {
+            return names.length;
+        }
+
+        QName getName(int index) {
+            return names[index];
+        }
+
+        String getValue(int index) {
+            return values[index];
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Attributes)) {
+                return false;
+            }
+            Attributes other = (Attributes) o;
+            return Arrays.equals(names, other.names) && Arrays.equals(values, other.values);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Arrays.hashCode(names) + Arrays.hashCode(values);
+        }
+    }
+
+    /**
+     * The text and the attributes of a formula
+     */
+    static final class Formula {
+        private final String text;
+        private final Attributes attributes;
+
+        /**
+         * @param text the formula text, {@code null} for an empty formula element, e.g. of a shared formula
+         */
+        Formula(String text, Attributes attributes) {
+            this.text = text;
+            this.attributes = attributes;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Formula)) {
+                return false;
+            }
+            Formula other = (Formula) o;
+            return Objects.equals(text, other.text) && attributes.equals(other.attributes);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Objects.hashCode(text) + attributes.hashCode();
+        }
+    }
+
+    /**
+     * The cells of a column, ordered by their row numbers
+     */
+    private static final class Column {
+        private int[] rows = new int[16];
+        /** the cell types combined with {@link #HAS_VALUE} */
+        private byte[] types = new byte[16];
+        /** the style indexes, -1 for cells without a style */
+        private int[] styles = new int[16];
+        private long[] values = new long[16];
+        /** the formula indexes, -1 for cells without a formula - {@code null} if the column has no formulas */
+        private int[] formulas;
+        private int size;
+
+        void add(int rownum, byte type, int style, long value, int formula) {
+            if (size == rows.length) {
+                int capacity = size + (size >> 1) + 16;
+                rows = Arrays.copyOf(rows, capacity);
+                types = Arrays.copyOf(types, capacity);
+                styles = Arrays.copyOf(styles, capacity);
+                values = Arrays.copyOf(values, capacity);
+                if (formulas != null) {
+                    formulas = Arrays.copyOf(formulas, capacity);
+                }
+            }
+            if (formula != -1 && formulas == null) {
+                formulas = new int[rows.length];
+                Arrays.fill(formulas, 0, size, -1);
+            }
+            rows[size] = rownum;
+            types[size] = type;
+            styles[size] = style;
+            values[size] = value;
+            if (formulas != null) {
+                formulas[size] = formula;
+            }
+            size++;
+        }
+
+        int find(int rownum) {
+            return Arrays.binarySearch(rows, 0, size, rownum);
+        }
+
+        int getFormula(int index) {
+            return formulas == null ? -1 : formulas[index];
+        }
+
+        void trim() {
+            rows = Arrays.copyOf(rows, size);
+            types = Arrays.copyOf(types, size);
+            styles = Arrays.copyOf(styles, size);
+            values = Arrays.copyOf(values, size);
+            if (formulas != null) {
+                formulas = Arrays.copyOf(formulas, size);
+            }
+        }
+    }
+
+    /**
+     * @return the cell type of the given value of the t attribute, or -1 if the value is unknown
+     */
+    static byte toType(String t) {
+        if (t == null) {
+            return TYPE_NONE;
+        }
+        for (byte type = TYPE_N; type < TYPE_NAMES.length; type++) {
+            if (TYPE_NAMES[type].equals(t)) {
+                return type;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Adds a row while reading the sheet. The rows have to be added in ascending order.
+     *
+     * @param rownum the 0-based row number
+     * @param rowAttributes the attributes of the row apart of the row number
+     * @param cellCount the number of cells
+     * @param cellColumns the column indexes of the cells, ascending
+     * @param cellTypes the types of the cells combined with {@link #HAS_VALUE}
+     * @param cellStyles the style indexes of the cells, -1 for cells without a style
+     * @param cellValues the values of numeric, shared string and boolean cells
+     * @param cellStrings the values of all other cells
+     * @param cellFormulas the formulas of the cells, {@code null} for cells without a formula
+     */
+    void addRow(int rownum, Attributes rowAttributes, int cellCount, int[] cellColumns, byte[] cellTypes,
+            int[] cellStyles, long[] cellValues, String[] cellStrings, Formula[] cellFormulas) {
+        if (rowCount == rowNums.length) {
+            int capacity = rowCount + (rowCount >> 1) + 16;
+            rowNums = Arrays.copyOf(rowNums, capacity);
+            this.rowAttributes = Arrays.copyOf(this.rowAttributes, capacity);
+            rowFirstColumns = Arrays.copyOf(rowFirstColumns, capacity);
+            rowLastColumns = Arrays.copyOf(rowLastColumns, capacity);
+        }
+        rowNums[rowCount] = rownum;
+        this.rowAttributes[rowCount] = pool(attributeIndexes, attributes, rowAttributes == null ? NO_ATTRIBUTES : rowAttributes);
+        rowFirstColumns[rowCount] = cellCount == 0 ? 0 : cellColumns[0];
+        rowLastColumns[rowCount] = cellCount == 0 ? -1 : cellColumns[cellCount - 1];
+        lastRow = rowCount;
+        rowCount++;
+        liveRowCount++;
+
+        for (int i = 0; i < cellCount; i++) {
+            int col = cellColumns[i];
+            if (col >= columns.length) {
+                columns = Arrays.copyOf(columns, Math.max(col + 1, columns.length * 2));
+            }
+            if (columns[col] == null) {
+                columns[col] = new Column();
+            }
+            long value = cellValues[i];
+            if (cellStrings[i] != null) {
+                value = pool(stringIndexes, strings, cellStrings[i]);
+            }
+            int formula = cellFormulas[i] == null ? -1 : pool(formulaIndexes, formulas, cellFormulas[i]);
+            columns[col].add(rownum, cellTypes[i], cellStyles[i], value, formula);
+        }
+    }
+
+    private static <T> int pool(Map<T, Integer> indexes, List<T> values, T value) {
+        Integer index = indexes.get(value);
+        if (index == null) {
+            index = values.size();
+            indexes.put(value, index);
+            values.add(value);
+        }
+        return index;
+    }
+
+    /**
+     * Releases the lookup maps, which are only needed while reading, and the unused capacity of the arrays
+     */
+    void finishReading() {
+        attributeIndexes = null;
+        stringIndexes = null;
+        formulaIndexes = null;
+        rowNums = Arrays.copyOf(rowNums, rowCount);
+        rowAttributes = Arrays.copyOf(rowAttributes, rowCount);
+        rowFirstColumns = Arrays.copyOf(rowFirstColumns, rowCount);
+        rowLastColumns = Arrays.copyOf(rowLastColumns, rowCount);
+        for (Column column : columns) {
+            if (column != null) {
+                column.trim();
+            }
+        }
+    }
+
+    /**
+     * @return the number of rows, which haven't been removed
+     */
+    int getRowCount() {
+        return liveRowCount;
+    }
+
+    /**
+     * @param rownum the 0-based row number
+     * @return the index of the row or -1 if the row isn't contained
+     */
+    int findRow(int rownum) {
+        int index = Arrays.binarySearch(rowNums, 0, rowCount, rownum);
+        return index >= 0 && rowAttributes[index] != -1 ? index : -1;
+    }
+
+    /**
+     * @return the 0-based number of the first row or -1 if there are no rows
+     */
+    int getFirstRowNum() {
+        while (firstRow < rowCount && rowAttributes[firstRow] == -1) {
+            firstRow++;
+        }
+        return firstRow < rowCount ? rowNums[firstRow] : -1;
+    }
+
+    /**
+     * @return the 0-based number of the last row or -1 if there are no rows
+     */
+    int getLastRowNum() {
+        while (lastRow >= 0 && rowAttributes[lastRow] == -1) {
+            lastRow--;
+        }
+        return lastRow >= 0 ? rowNums[lastRow] : -1;
+    }
+
+    /**
+     * @return the 0-based numbers of the rows between the given row numbers, inclusive
+     */
+    int[] getRowNums(int firstRowNum, int lastRowNum) {
+        int from = Arrays.binarySearch(rowNums, 0, rowCount, firstRowNum);
+        int to = Arrays.binarySearch(rowNums, 0, rowCount, lastRowNum);
+        from = from < 0 ? -from - 1 : from;
+        to = to < 0 ? -to - 1 : to + 1;
+        int[] result = new int[Math.max(0, to - from)];
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            if (rowAttributes[i] != -1) {
+                result[count++] = rowNums[i];
+            }
+        }
+        return count == result.length ? result : Arrays.copyOf(result, count);
+    }
+
+    /**
+     * @param condition the condition for the text of a formula
+     * @return the 0-based numbers of the rows, which contain a formula, whose text fulfills the condition,
+     *      in ascending order
+     */
+    int[] getRowNumsWithFormulas(Predicate<String> condition) {
+        // the condition is only checked once per distinct formula
+        BitSet matching = new BitSet(formulas.size());
+        for (int i = 0; i < formulas.size(); i++) {
+            // formulas with a range, i.e. array formulas and the masters of shared formulas, aren't compact
+            String text = formulas.get(i).text;
+            matching.set(i, text != null && condition.test(text));
+        }
+        if (matching.isEmpty()) {
+            return new int[0];
+        }
+        BitSet rows = new BitSet();
+        for (Column column : columns) {
+            if (column == null || column.formulas == null) {
+                continue;
+            }
+            for (int i = 0; i < column.size; i++) {
+                if (column.formulas[i] != -1 && matching.get(column.formulas[i]) && findRow(column.rows[i]) != -1) {
+                    rows.set(column.rows[i]);
+                }
+            }
+        }
+        return rows.stream().toArray();
+    }
+
+    /**
+     * @return the 0-based index of the first column with cells or -1 if there are no cells
+     */
+    int getFirstColumn() {
+        int first = Integer.MAX_VALUE;
+        for (int i = 0; i < rowCount; i++) {
+            if (rowAttributes[i] != -1 && rowLastColumns[i] != -1) {
+                first = Math.min(first, rowFirstColumns[i]);
+            }
+        }
+        return first == Integer.MAX_VALUE ? -1 : first;
+    }
+
+    /**
+     * @return the 0-based index of the last column with cells or -1 if there are no cells
+     */
+    int getLastColumn() {
+        int last = -1;
+        for (int i = 0; i < rowCount; i++) {
+            if (rowAttributes[i] != -1) {
+                last = Math.max(last, rowLastColumns[i]);
+            }
+        }
+        return last;
+    }
+
+    /**
+     * Removes a row without turning it into a regular row
+     *
+     * @param rownum the 0-based row number
+     */
+    void removeRow(int rownum) {
+        int index = findRow(rownum);
+        if (index != -1) {
+            rowAttributes[index] = -1;
+            liveRowCount--;
+        }
+    }
+
+    /**
+     * Shifts the rows between the given row numbers without turning them into regular rows. The rows, which are
+     * overwritten by the shifted rows, need to be removed before.
+     * <p>
+     * Only the part of the arrays between the source and the destination of the shift is rearranged, apart of
+     * moving the following part, if removed rows are dropped. The cells of removed rows are dropped within this
+     * part, so they can't be mixed up with the cells of the shifted rows, which get the same numbers.
+     *
+     * @param startRow the 0-based number of the first row to shift
+     * @param endRow the 0-based number of the last row to shift
+     * @param n the number of rows to shift
+     */
+    void shiftRows(int startRow, int endRow, int n) {
+        int first = Math.min(startRow, startRow + n);
+        int last = Math.max(endRow, endRow + n);
+
+        int from = lowerBound(rowNums, rowCount, first);
+        int to = lowerBound(rowNums, rowCount, last + 1);
+        int[] liveRowNums = new int[to - from];
+        int liveCount = 0;
+        for (int i = from; i < to; i++) {
+            if (rowAttributes[i] != -1) {
+                liveRowNums[liveCount++] = rowNums[i];
+            }
+        }
+        int[] order = shiftedOrder(rowNums, from, to, startRow, endRow, n, i -> rowAttributes[i] != -1);
+        shiftNumbers(rowNums, from, to, rowCount, order, startRow, endRow, n);
+        reorder(rowAttributes, from, to, rowCount, order);
+        reorder(rowFirstColumns, from, to, rowCount, order);
+        reorder(rowLastColumns, from, to, rowCount, order);
+        rowCount -= to - from - order.length;
+        firstRow = 0;
+        lastRow = rowCount - 1;
+
+        final int[] live = Arrays.copyOf(liveRowNums, liveCount);
+        for (Column column : columns) {
+            if (column == null) {
+                continue;
+            }
+            int cellFrom = lowerBound(column.rows, column.size, first);
+            int cellTo = lowerBound(column.rows, column.size, last + 1);
+            if (cellFrom == cellTo) {
+                continue;
+            }
+            int[] cellOrder = shiftedOrder(column.rows, cellFrom, cellTo, startRow, endRow, n,
+                i -> Arrays.binarySearch(live, column.rows[i]) >= 0);
+            shiftNumbers(column.rows, cellFrom, cellTo, column.size, cellOrder, startRow, endRow, n);
+            reorder(column.types, cellFrom, cellTo, column.size, cellOrder);
+            reorder(column.styles, cellFrom, cellTo, column.size, cellOrder);
+            reorder(column.values, cellFrom, cellTo, column.size, cellOrder);
+            if (column.formulas != null) {
+                reorder(column.formulas, cellFrom, cellTo, column.size, cellOrder);
+            }
+            column.size -= cellTo - cellFrom - cellOrder.length;
+        }
+    }
+
+    /**
+     * @return the index of the first of the ascending numbers, which is greater than or equal to the given number
+     */
+    private static int lowerBound(int[] nums, int size, int num) {
+        int index = Arrays.binarySearch(nums, 0, size, num);
+        return index < 0 ? -index - 1 : index;
+    }
+
+    /**
+     * Merges the shifted and the remaining entries of a part of ascending row numbers
+     *
+     * @param live checks, whether the entry at an index is kept
+     * @return the indexes of the kept entries in the order of their new row numbers
+     */
+    private static int[] shiftedOrder(int[] nums, int from, int to, int startRow, int endRow, int n, IntPredicate live) {
+        int[] shifted = new int[to - from];
+        int[] remaining = new int[to - from];
+        int shiftedCount = 0;
+        int remainingCount = 0;
+        for (int i = from; i < to; i++) {
+            if (!live.test(i)) {
+                continue;
+            }
+            if (nums[i] >= startRow && nums[i] <= endRow) {
+                shifted[shiftedCount++] = i;
+            } else {
+                remaining[remainingCount++] = i;
+            }
+        }
+        int[] order = new int[shiftedCount + remainingCount];
+        int s = 0;
+        int r = 0;
+        for (int k = 0; k < order.length; k++) {
+            if (r == remainingCount || (s < shiftedCount && nums[shifted[s]] + n < nums[remaining[r]])) {
+                order[k] = shifted[s++];
+            } else {
+                order[k] = remaining[r++];
+            }
+        }
+        return order;
+    }
+
+    private static void shiftNumbers(int[] nums, int from, int to, int size, int[] order, int startRow, int endRow, int n) {
+        int[] part = new int[order.length];
+        for (int k = 0; k < order.length; k++) {
+            int num = nums[order[k]];
+            part[k] = num >= startRow && num <= endRow ? num + n : num;
+        }
+        System.arraycopy(part, 0, nums, from, part.length);
+        System.arraycopy(nums, to, nums, from + part.length, size - to);
+    }
+
+    private static void reorder(int[] values, int from, int to, int size, int[] order) {
+        int[] part = new int[order.length];
+        for (int k = 0; k < order.length; k++) {
+            part[k] = values[order[k]];
+        }
+        System.arraycopy(part, 0, values, from, part.length);
+        System.arraycopy(values, to, values, from + part.length, size - to);
+    }
+
+    private static void reorder(byte[] values, int from, int to, int size, int[] order) {
+        byte[] part = new byte[order.length];
+        for (int k = 0; k < order.length; k++) {
+            part[k] = values[order[k]];
+        }
+        System.arraycopy(part, 0, values, from, part.length);
+        System.arraycopy(values, to, values, from + part.length, size - to);
+    }
+
+    private static void reorder(long[] values, int from, int to, int size, int[] order) {
+        long[] part = new long[order.length];
+        for (int k = 0; k < order.length; k++) {
+            part[k] = values[order[k]];
+        }
+        System.arraycopy(part, 0, values, from, part.length);
+        System.arraycopy(values, to, values, from + part.length, size - to);
+    }
+
+    /**
+     * Changes the style indexes of the cells and rows
+     *
+     * @param newIndexes provides the new style index for an old one
+     */
+    void remapStyles(IntUnaryOperator newIndexes) {
+        for (Column column : columns) {
+            if (column == null) {
+                continue;
+            }
+            for (int i = 0; i < column.size; i++) {
+                if (column.styles[i] != -1) {
+                    column.styles[i] = newIndexes.applyAsInt(column.styles[i]);
+                }
+            }
+        }
+        for (int i = 0; i < attributes.size(); i++) {
+            Attributes attrs = attributes.get(i);
+            for (int j = 0; j < attrs.size(); j++) {
+                if (ROW_STYLE.equals(attrs.names[j])) {
+                    String[] values = attrs.values.clone();
+                    values[j] = Integer.toString(newIndexes.applyAsInt(Integer.parseInt(values[j])));
+                    attributes.set(i, new Attributes(attrs.names, values));
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Fills the given empty row bean with the content of a row and removes the row from this store
+     *
+     * @param index the index of the row, see {@link #findRow(int)}
+     * @param ctRow the new row bean, which is already part of the sheet data
+     */
+    void inflateRow(int index, CTRow ctRow) {
+        int rownum = rowNums[index];
+        setAttributes(ctRow, attributes.get(rowAttributes[index]));
+        ctRow.setR(rownum + 1L);
+
+        for (int col = rowFirstColumns[index]; col <= rowLastColumns[index]; col++) {
+            Column column = col < columns.length ? columns[col] : null;
+            int cell = column == null ? -1 : column.find(rownum);
+            if (cell < 0) {
+                continue;
+            }
+            CTCell ctCell = ctRow.addNewC();
+            ctCell.setR(new CellReference(rownum, col).formatAsString(false));
+            if (column.styles[cell] != -1) {
+                ctCell.setS(column.styles[cell]);
+            }
+            byte type = (byte) (column.types[cell] & TYPE_MASK);
+            if (type != TYPE_NONE) {
+                ctCell.setT(STCellType.Enum.forString(TYPE_NAMES[type]));
+            }
+            int formula = column.getFormula(cell);
+            if (formula != -1) {
+                Formula f = formulas.get(formula);
+                CTCellFormula ctFormula = ctCell.addNewF();
+                setAttributes(ctFormula, f.attributes);
+                if (f.text != null) {
+                    ctFormula.setStringValue(f.text);
+                }
+            }
+            if ((column.types[cell] & HAS_VALUE) != 0) {
+                String value = getValue(column, cell);
+                if (type == TYPE_INLINE_STR) {
+                    ctCell.addNewIs().setT(value);
+                } else {
+                    ctCell.setV(value);
+                }
+            }
+        }
+
+        rowAttributes[index] = -1;
+        liveRowCount--;
+    }
+
+    private static void setAttributes(XmlObject bean, Attributes attributes) {
+        if (attributes.size() == 0) {
+            return;
+        }
+        try (XmlCursor cursor = bean.newCursor()) {
+            cursor.toNextToken();
+            for (int i = 0; i < attributes.size(); i++) {
+                cursor.insertAttributeWithValue(attributes.getName(i), attributes.getValue(i));
+            }
+        }
+    }
+
+    private String getValue(Column column, int cell) {
+        long value = column.values[cell];
+        switch (column.types[cell] & TYPE_MASK) {
+            case TYPE_NONE:
+            case TYPE_N:
+                return formatNumber(Double.longBitsToDouble(value));
+            case TYPE_S:
+                return Long.toString(value);
+            case TYPE_B:
+                return value == 0 ? "0" : "1";
+            default:
+                return strings.get((int) value);
+        }
+    }
+
+    /**
+     * @return the shortest text, which is parsed into the same number
+     */
+    static String formatNumber(double value) {
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+
+    /**
+     * Creates a writer of the rows as xml, e.g. for interleaving them with the regular rows, when the sheet is saved.
+     *
+     * @param out the target of the xml
+     * @param prefix the prefix of the spreadsheetml elements including the colon, or an empty string for the default namespace
+     * @param namespaces the prefixes of the namespaces, which are declared at the root element, by their namespace uris
+     * @param defaultStyles provides the index of the default style of the given column for cells without a style,
+     *      or -1 if the column has no default style
+     */
+    RowWriter newRowWriter(Writer out, String prefix, Map<String, String> namespaces, IntUnaryOperator defaultStyles) {
+        return new RowWriter(out, prefix, namespaces, defaultStyles);
+    }
+
+    /**
+     * Writes the rows in ascending order
+     */
+    final class RowWriter {
+        private final Writer out;
+        private final String rowTag;
+        private final String cellTag;
+        private final String formulaTag;
+        private final String valueTag;
+        private final String inlineStringTag;
+        private final String textTag;
+        private final Map<String, String> namespaces;
+        private final IntUnaryOperator defaultStyles;
+        private final int[] cursors = new int[columns.length];
+        private final String[] columnNames = new String[columns.length];
+        private final int[] columnStyles = new int[columns.length];
+        private int next;
+
+        private RowWriter(Writer out, String prefix, Map<String, String> namespaces, IntUnaryOperator defaultStyles) {
+            this.out = out;
+            this.rowTag = prefix + "row";
+            this.cellTag = prefix + "c";
+            this.formulaTag = prefix + "f";
+            this.valueTag = prefix + "v";
+            this.inlineStringTag = prefix + "is";
+            this.textTag = prefix + "t";
+            this.namespaces = namespaces;
+            this.defaultStyles = defaultStyles;
+            Arrays.fill(columnStyles, -2);
+        }
+
+        /**
+         * Writes the rows, which haven't been written yet and which precede the given row
+         *
+         * @param rownum the 0-based row number
+         */
+        void writeRowsBefore(int rownum) throws IOException {
+            while (next < rowCount && rowNums[next] < rownum) {
+                if (rowAttributes[next] != -1) {
+                    writeRow(next);
+                }
+                next++;
+            }
+        }
+
+        /**
+         * Writes the rows, which haven't been written yet
+         */
+        void writeRemainingRows() throws IOException {
+            writeRowsBefore(Integer.MAX_VALUE);
+        }
+
+        private void writeRow(int index) throws IOException {
+            int rownum = rowNums[index];
+            String rowRef = Integer.toString(rownum + 1);
+            out.write('<');
+            out.write(rowTag);
+            out.write(" r=\"");
+            out.write(rowRef);
+            out.write('"');
+            writeAttributes(attributes.get(rowAttributes[index]));
+
+            boolean empty = true;
+            for (int col = rowFirstColumns[index]; col <= rowLastColumns[index]; col++) {
+                Column column = columns[col];
+                if (column == null) {
+                    continue;
+                }
+                int cell = cursors[col];
+                while (cell < column.size && column.rows[cell] < rownum) {
+                    cell++;
+                }
+                cursors[col] = cell;
+                if (cell == column.size || column.rows[cell] != rownum) {
+                    continue;
+                }
+                if (empty) {
+                    out.write('>');
+                    empty = false;
+                }
+                writeCell(column, cell, col, rowRef);
+            }
+            if (empty) {
+                out.write("/>");
+            } else {
+                out.write("</");
+                out.write(rowTag);
+                out.write('>');
+            }
+        }
+
+        private void writeCell(Column column, int cell, int col, String rowRef) throws IOException {
+            if (columnNames[col] == null) {
+                columnNames[col] = CellReference.convertNumToColString(col);
+            }
+            out.write('<');
+            out.write(cellTag);
+            out.write(" r=\"");
+            out.write(columnNames[col]);
+            out.write(rowRef);
+            out.write('"');
+            int style = column.styles[cell];
+            if (style == -1) {
+                if (columnStyles[col] == -2) {
+                    columnStyles[col] = defaultStyles.applyAsInt(col);
+                }
+                style = columnStyles[col];
+            }
+            if (style != -1) {
+                out.write(" s=\"");
+                out.write(Integer.toString(style));
+                out.write('"');
+            }
+            byte type = (byte) (column.types[cell] & TYPE_MASK);
+            if (type != TYPE_NONE) {
+                out.write(" t=\"");
+                out.write(TYPE_NAMES[type]);
+                out.write('"');
+            }
+            int formula = column.getFormula(cell);
+            boolean hasValue = (column.types[cell] & HAS_VALUE) != 0;
+            if (formula == -1 && !hasValue) {
+                out.write("/>");
+                return;
+            }
+            out.write('>');
+            if (formula != -1) {
+                Formula f = formulas.get(formula);
+                out.write('<');
+                out.write(formulaTag);
+                writeAttributes(f.attributes);
+                if (f.text == null) {
+                    out.write("/>");
+                } else {
+                    out.write('>');
+                    writeEscaped(f.text, false);
+                    writeEndTag(formulaTag);
+                }
+            }
+            if (hasValue) {
+                String value = getValue(column, cell);
+                if (type == TYPE_INLINE_STR) {
+                    out.write('<');
+                    out.write(inlineStringTag);
+                    out.write("><");
+                    out.write(textTag);
+                    if (!value.isEmpty() && (Character.isWhitespace(value.charAt(0))
+                            || Character.isWhitespace(value.charAt(value.length() - 1)))) {
+                        out.write(" xml:space=\"preserve\"");
+                    }
+                    out.write('>');
+                    writeEscaped(value, false);
+                    writeEndTag(textTag);
+                    writeEndTag(inlineStringTag);
+                } else {
+                    out.write('<');
+                    out.write(valueTag);
+                    out.write('>');
+                    writeEscaped(value, false);
+                    writeEndTag(valueTag);
+                }
+            }
+            writeEndTag(cellTag);
+        }
+
+        private void writeEndTag(String tag) throws IOException {
+            out.write("</");
+            out.write(tag);
+            out.write('>');
+        }
+
+        private void writeAttributes(Attributes attrs) throws IOException {
+            Map<String, String> localNamespaces = null;
+            for (int i = 0; i < attrs.size(); i++) {
+                QName name = attrs.getName(i);
+                String uri = name.getNamespaceURI();
+                out.write(' ');
+                if (!uri.isEmpty()) {
+                    String prefix = namespaces.get(uri);
+                    if (prefix == null && localNamespaces != null) {
+                        prefix = localNamespaces.get(uri);
+                    }
+                    if (prefix == null) {
+                        // the namespace isn't declared at the root element, so it's declared at this element
+                        if (localNamespaces == null) {
+                            localNamespaces = new HashMap<>();
+                        }
+                        prefix = name.getPrefix();
+                        if (prefix.isEmpty() || namespaces.containsValue(prefix) || localNamespaces.containsValue(prefix)) {
+                            prefix = "ns" + localNamespaces.size();
+                        }
+                        localNamespaces.put(uri, prefix);
+                        out.write("xmlns:");
+                        out.write(prefix);
+                        out.write("=\"");
+                        writeEscaped(uri, true);
+                        out.write("\" ");
+                    }
+                    out.write(prefix);
+                    out.write(':');
+                }
+                out.write(name.getLocalPart());
+                out.write("=\"");
+                writeEscaped(attrs.getValue(i), true);
+                out.write('"');
+            }
+        }
+
+        private void writeEscaped(String text, boolean attribute) throws IOException {
+            int start = 0;
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                String replacement;
+                switch (c) {
+                    case '<': replacement = "&lt;"; break;
+                    case '>': replacement = "&gt;"; break;
+                    case '&': replacement = "&amp;"; break;
+                    case '"': replacement = attribute ? "&quot;" : null; break;
+                    case '\r': replacement = "&#xd;"; break;
+                    case '\n': replacement = attribute ? "&#xa;" : null; break;
+                    case '\t': replacement = attribute ? "&#x9;" : null; break;
+                    default: replacement = null; break;
+                }
+                if (replacement != null) {
+                    out.write(text, start, i - start);
+                    out.write(replacement);
+                    start = i + 1;
+                }
+            }
+            out.write(text, start, text.length() - start);
+        }
+    }
+}
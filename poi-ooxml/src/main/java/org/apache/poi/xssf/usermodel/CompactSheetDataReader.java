@@ -0,0 +1,408 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.usermodel;
+
+import static org.apache.poi.xssf.usermodel.XSSFRelation.NS_SPREADSHEETML;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLEventFactory;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLEventWriter;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.events.Attribute;
+import javax.xml.stream.events.StartDocument;
+import javax.xml.stream.events.StartElement;
+import javax.xml.stream.events.XMLEvent;
+
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.usermodel.CompactSheetData.Attributes;
+import org.apache.poi.xssf.usermodel.CompactSheetData.Formula;
+
+/**
+ * Splits a worksheet part into the rows, which are kept in a {@link CompactSheetData}, and the
+ * remaining xml, which is parsed into the XmlBeans objects of the sheet.
+ * <p>
+ * The events of each row are buffered, until the end of the row is reached. If the row only contains
+ * content, which has a compact representation, it's added to the compact store, otherwise its events
+ * are copied to the remaining xml. Rows without a row number get one, so the numbering of the regular
+ * rows isn't affected by the rows, which have been taken out.
+ */
+final class CompactSheetDataReader {
+    private static final int MAX_ROW = SpreadsheetVersion.EXCEL2007.getLastRowIndex();
+    private static final QName ROW_NUMBER = new QName("r");
+
+    private final XMLEventFactory eventFactory = XMLHelper.newXMLEventFactory();
+    private final CompactSheetData data = new CompactSheetData();
+    private final List<XMLEvent> rowEvents = new ArrayList<>();
+    private final StringBuilder text = new StringBuilder();
+    private int lastRowNum = -1;
+    private boolean compacted;
+
+    // the content of the current row
+    private int cellCount;
+    private int[] cellColumns = new int[16];
+    private byte[] cellTypes = new byte[16];
+    private int[] cellStyles = new int[16];
+    private long[] cellValues = new long[16];
+    private String[] cellStrings = new String[16];
+    private Formula[] cellFormulas = new Formula[16];
+
+    /**
+     * Copies the worksheet xml to the given stream, apart of the rows, which are taken into a compact store
+     *
+     * @param is the worksheet xml
+     * @param os receives the remaining worksheet xml in UTF-8
+     * @return the compact rows or {@code null} if no row has been taken out
+     * @throws XMLStreamException if the xml can't be parsed
+     */
+    static CompactSheetData read(InputStream is, OutputStream os) throws XMLStreamException {
+        return new CompactSheetDataReader().copy(is, os);
+    }
+
+    private CompactSheetData copy(InputStream is, OutputStream os) throws XMLStreamException {
+        XMLEventReader reader = XMLHelper.newXMLInputFactory().createXMLEventReader(is);
+        XMLEventWriter writer = XMLHelper.newXMLOutputFactory().createXMLEventWriter(os, "UTF-8");
+        try {
+            boolean inSheetData = false;
+            while (reader.hasNext()) {
+                XMLEvent event = reader.nextEvent();
+                if (event.isStartDocument()) {
+                    StartDocument start = (StartDocument) event;
+                    event = start.standaloneSet()
+                        ? eventFactory.createStartDocument("UTF-8", "1.0", start.isStandalone())
+                        : eventFactory.createStartDocument("UTF-8", "1.0");
+                } else if (event.isStartElement()) {
+                    QName name = event.asStartElement().getName();
+                    if (inSheetData && isSpreadsheetElement(name, "row")) {
+                        readRow(event.asStartElement(), reader, writer);
+                        continue;
+                    }
+                    inSheetData = isSpreadsheetElement(name, "sheetData");
+                } else if (event.isEndElement()) {
+                    inSheetData = false;
+                }
+                writer.add(event);
+            }
+            writer.flush();
+        } finally {
+            writer.close();
+            reader.close();
+        }
+
+        if (!compacted) {
+            return null;
+        }
+        data.finishReading();
+        return data;
+    }
+
+    private static boolean isSpreadsheetElement(QName name, String localName) {
+        return localName.equals(name.getLocalPart()) && NS_SPREADSHEETML.equals(name.getNamespaceURI());
+    }
+
+    private void readRow(StartElement start, XMLEventReader reader, XMLEventWriter writer) throws XMLStreamException {
+        rowEvents.clear();
+        rowEvents.add(start);
+        cellCount = 0;
+
+        boolean compact = true;
+        int rownum = -1;
+        boolean numbered = false;
+        List<QName> names = new ArrayList<>();
+        List<String> values = new ArrayList<>();
+        for (Iterator<Attribute> it = start.getAttributes(); it.hasNext(); ) {
+            Attribute attr = it.next();
+            if (ROW_NUMBER.equals(attr.getName())) {
+                numbered = true;
+                try {
+                    rownum = Integer.parseInt(attr.getValue()) - 1;
+                } catch (NumberFormatException e) {
+                    compact = false;
+                }
+            } else {
+                names.add(attr.getName());
+                values.add(attr.getValue());
+            }
+        }
+        if (!numbered) {
+            // like XSSFRow, assume no gaps
+            rownum = lastRowNum + 1;
+        }
+        // rows out of order are left to the regular handling
+        compact &= rownum > lastRowNum && rownum <= MAX_ROW;
+        lastRowNum = Math.max(lastRowNum, rownum);
+        Attributes rowAttributes = compact ? toAttributes(names, values) : null;
+
+        // the depth within the row: 1 = cell, 2 = formula, value or inline string, 3 = text of the inline string
+        int depth = 0;
+        String element = null;
+        String cellType = null;
+        String value = null;
+        Formula formula = null;
+        while (depth >= 0) {
+            XMLEvent event = reader.nextEvent();
+            rowEvents.add(event);
+            if (!compact) {
+                if (event.isStartElement()) {
+                    depth++;
+                } else if (event.isEndElement()) {
+                    depth--;
+                }
+                continue;
+            }
+
+            if (event.isStartElement()) {
+                StartElement se = event.asStartElement();
+                String localName = se.getName().getLocalPart();
+                depth++;
+                if (!NS_SPREADSHEETML.equals(se.getName().getNamespaceURI())) {
+                    compact = false;
+                } else if (depth == 1 && "c".equals(localName)) {
+                    cellType = null;
+                    value = null;
+                    formula = null;
+                    compact = startCell(se, rownum);
+                    if (compact) {
+                        cellType = getAttribute(se, "t");
+                    }
+                } else if (depth == 2 && ("f".equals(localName) || "v".equals(localName) || "is".equals(localName))) {
+                    element = localName;
+                    text.setLength(0);
+                    if ("f".equals(localName)) {
+                        compact = formula == null;
+                        names.clear();
+                        values.clear();
+                        for (Iterator<Attribute> it = se.getAttributes(); compact && it.hasNext(); ) {
+                            Attribute attr = it.next();
+                            compact = isCompactFormulaAttribute(attr);
+                            names.add(attr.getName());
+                            values.add(attr.getValue());
+                        }
+                    } else {
+                        compact = value == null && !se.getAttributes().hasNext();
+                    }
+                } else if (depth == 3 && "is".equals(element) && "t".equals(localName)) {
+                    element = "t";
+                    text.setLength(0);
+                } else {
+                    compact = false;
+                }
+            } else if (event.isCharacters()) {
+                if (depth == 2 && !"is".equals(element) || depth == 3) {
+                    text.append(event.asCharacters().getData());
+                } else {
+                    compact = event.asCharacters().isWhiteSpace();
+                }
+            } else if (event.isEndElement()) {
+                if (depth == 2 && "f".equals(element)) {
+                    formula = new Formula(text.length() == 0 ? null : text.toString(), toAttributes(names, values));
+                } else if (depth == 2 && "v".equals(element)) {
+                    value = text.toString();
+                } else if (depth == 3) {
+                    value = text.toString();
+                    element = "is";
+                } else if (depth == 2) {
+                    // an inline string without text
+                    compact = value != null;
+                } else if (depth == 1) {
+                    compact = endCell(cellType, value, "is".equals(element), formula);
+                    element = null;
+                }
+                depth--;
+            } else {
+                // comments and processing instructions are kept
+                compact = false;
+            }
+        }
+
+        if (compact) {
+            data.addRow(rownum, rowAttributes, cellCount, cellColumns, cellTypes, cellStyles, cellValues, cellStrings, cellFormulas);
+            Arrays.fill(cellStrings, 0, cellCount, null);
+            Arrays.fill(cellFormulas, 0, cellCount, null);
+            compacted = true;
+            return;
+        }
+
+        if (!numbered) {
+            List<Attribute> attributes = new ArrayList<>();
+            start.getAttributes().forEachRemaining(attributes::add);
+            attributes.add(eventFactory.createAttribute("r", Integer.toString(rownum + 1)));
+            QName name = start.getName();
+            rowEvents.set(0, eventFactory.createStartElement(name.getPrefix(), name.getNamespaceURI(),
+                name.getLocalPart(), attributes.iterator(), start.getNamespaces()));
+        }
+        for (XMLEvent event : rowEvents) {
+            writer.add(event);
+        }
+        Arrays.fill(cellStrings, 0, cellCount, null);
+        Arrays.fill(cellFormulas, 0, cellCount, null);
+    }
+
+    private static Attributes toAttributes(List<QName> names, List<String> values) {
+        return new Attributes(names.toArray(new QName[0]), values.toArray(new String[0]));
+    }
+
+    private static String getAttribute(StartElement se, String name) {
+        Attribute attr = se.getAttributeByName(new QName(name));
+        return attr == null ? null : attr.getValue();
+    }
+
+    private static boolean isCompactFormulaAttribute(Attribute attr) {
+        if (!attr.getName().getNamespaceURI().isEmpty()) {
+            return false;
+        }
+        switch (attr.getName().getLocalPart()) {
+            case "t":
+                // array formulas and shared formula masters are registered at the sheet, when the row is read
+                return "normal".equals(attr.getValue()) || "shared".equals(attr.getValue());
+            case "si":
+            case "ca":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Checks the attributes of a cell and adds the cell, if it has a compact representation
+     */
+    private boolean startCell(StartElement se, int rownum) {
+        int col = -1;
+        int style = -1;
+        for (Iterator<Attribute> it = se.getAttributes(); it.hasNext(); ) {
+            Attribute attr = it.next();
+            if (!attr.getName().getNamespaceURI().isEmpty()) {
+                return false;
+            }
+            switch (attr.getName().getLocalPart()) {
+                case "r":
+                    col = parseColumn(attr.getValue(), rownum);
+                    break;
+                case "s":
+                    try {
+                        style = Integer.parseInt(attr.getValue());
+                    } catch (NumberFormatException e) {
+                        return false;
+                    }
+                    if (style < 0) {
+                        return false;
+                    }
+                    break;
+                case "t":
+                    if (CompactSheetData.toType(attr.getValue()) == -1) {
+                        return false;
+                    }
+                    break;
+                default:
+                    return false;
+            }
+        }
+        // cells without reference and cells out of order are left to the regular handling
+        if (col == -1 || (cellCount > 0 && col <= cellColumns[cellCount - 1])) {
+            return false;
+        }
+
+        if (cellCount == cellColumns.length) {
+            int capacity = cellCount * 2;
+            cellColumns = Arrays.copyOf(cellColumns, capacity);
+            cellTypes = Arrays.copyOf(cellTypes, capacity);
+            cellStyles = Arrays.copyOf(cellStyles, capacity);
+            cellValues = Arrays.copyOf(cellValues, capacity);
+            cellStrings = Arrays.copyOf(cellStrings, capacity);
+            cellFormulas = Arrays.copyOf(cellFormulas, capacity);
+        }
+        cellColumns[cellCount] = col;
+        cellStyles[cellCount] = style;
+        cellCount++;
+        return true;
+    }
+
+    /**
+     * @return the column index of a cell reference of the given row, or -1 if the reference is invalid
+     *      or not in the plain A1 style, e.g. an absolute reference
+     */
+    private static int parseColumn(String ref, int rownum) {
+        int col = CellReference.convertColPrefixToIndex(ref);
+        if (col < 0) {
+            return -1;
+        }
+        // the number of column letters, i.e. "A" to "Z", "AA" to "ZZ" and "AAA" to "XFD"
+        int i = col < 26 ? 1 : col < 26 + 26 * 26 ? 2 : 3;
+        int row = 0;
+        int digits = 0;
+        for (; i < ref.length() && ref.charAt(i) >= '0' && ref.charAt(i) <= '9' && digits < 8; i++, digits++) {
+            row = row * 10 + (ref.charAt(i) - '0');
+        }
+        return digits > 0 && i == ref.length() && row == rownum + 1 ? col : -1;
+    }
+
+    /**
+     * Sets the type and value of the current cell
+     *
+     * @return {@code false} if the value has no compact representation
+     */
+    private boolean endCell(String t, String value, boolean inline, Formula formula) {
+        int cell = cellCount - 1;
+        byte type = CompactSheetData.toType(t);
+        boolean inlineType = type == CompactSheetData.TYPE_INLINE_STR;
+        if (inline ? !inlineType : inlineType && value != null) {
+            return false;
+        }
+        long bits = 0;
+        String string = null;
+        if (value != null) {
+            try {
+                switch (type) {
+                    case CompactSheetData.TYPE_NONE:
+                    case CompactSheetData.TYPE_N:
+                        bits = Double.doubleToRawLongBits(Double.parseDouble(value));
+                        break;
+                    case CompactSheetData.TYPE_S:
+                        bits = Integer.parseInt(value);
+                        break;
+                    case CompactSheetData.TYPE_B:
+                        if (!"0".equals(value) && !"1".equals(value)) {
+                            return false;
+                        }
+                        bits = "1".equals(value) ? 1 : 0;
+                        break;
+                    default:
+                        string = value;
+                        break;
+                }
+            } catch (NumberFormatException e) {
+                return false;
+            }
+            type |= CompactSheetData.HAS_VALUE;
+        }
+        cellTypes[cell] = type;
+        cellValues[cell] = bits;
+        cellStrings[cell] = string;
+        cellFormulas[cell] = formula;
+        return true;
+    }
+}
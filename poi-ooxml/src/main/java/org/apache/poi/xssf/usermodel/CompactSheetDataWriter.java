@@ -0,0 +1,269 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.usermodel;
+
+import static org.apache.poi.xssf.usermodel.XSSFRelation.NS_SPREADSHEETML;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntUnaryOperator;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.io.output.UnsynchronizedByteArrayOutputStream;
+
+/**
+ * Interleaves the rows of a {@link CompactSheetData} with the worksheet xml, which is written by
+ * XmlBeans, so the compact rows are serialized directly into the sheet part.
+ * <p>
+ * The xml is copied unchanged, apart of the {@code sheetData} element: before each regular row,
+ * the compact rows with lower row numbers are written, and the remaining compact rows are written
+ * before the end of the {@code sheetData} element. Only the tags up to the end of the sheet data
+ * are inspected, the remaining xml is copied without looking at it.
+ */
+final class CompactSheetDataWriter extends OutputStream {
+    private static final Pattern NAMESPACE = Pattern.compile("\\sxmlns(?::([^\\s=]+))?\\s*=\\s*([\"'])(.*?)\\2");
+    private static final Pattern ROW_NUMBER = Pattern.compile("\\sr\\s*=\\s*[\"'](\\d+)[\"']");
+
+    private static final int PROLOG = 0;
+    private static final int BEFORE_SHEET_DATA = 1;
+    private static final int IN_SHEET_DATA = 2;
+    private static final int AFTER_SHEET_DATA = 3;
+
+    private static final int TAG_ELEMENT = 0;
+    private static final int TAG_PROCESSING_INSTRUCTION = 1;
+    private static final int TAG_DECLARATION = 2;
+    private static final int TAG_COMMENT = 3;
+    private static final int TAG_CDATA = 4;
+
+    private final OutputStream out;
+    private final CompactSheetData data;
+    private final IntUnaryOperator defaultStyles;
+    private final UnsynchronizedByteArrayOutputStream tag = new UnsynchronizedByteArrayOutputStream(256);
+
+    private int state = PROLOG;
+    private boolean inTag;
+    private int tagKind;
+    /** the quote character of the current attribute value within a tag or 0 */
+    private int quote;
+
+    private String prefix;
+    private Writer writer;
+    private CompactSheetData.RowWriter rows;
+
+    /**
+     * @param out the target of the worksheet xml, which isn't closed by this stream
+     * @param data the compact rows
+     * @param defaultStyles provides the index of the default style of the given column for cells without a style,
+     *      or -1 if the column has no default style
+     */
+    CompactSheetDataWriter(OutputStream out, CompactSheetData data, IntUnaryOperator defaultStyles) {
+        this.out = out;
+        this.data = data;
+        this.defaultStyles = defaultStyles;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{ (byte) b }, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        int end = off + len;
+        int start = off;
+        for (int i = off; i < end && state != AFTER_SHEET_DATA; i++) {
+            int c = b[i];
+            if (!inTag) {
+                if (c == '<') {
+                    out.write(b, start, i - start);
+                    inTag = true;
+                    tagKind = TAG_ELEMENT;
+                    quote = 0;
+                    tag.reset();
+                    tag.write(c);
+                }
+                continue;
+            }
+            int length = tag.size();
+            tag.write(c);
+            if (length == 1 && (c == '?' || c == '!')) {
+                tagKind = c == '?' ? TAG_PROCESSING_INSTRUCTION : TAG_DECLARATION;
+            } else if (length == 2 && tagKind == TAG_DECLARATION && c == '[') {
+                tagKind = TAG_CDATA;
+            } else if (length == 3 && tagKind == TAG_DECLARATION && c == '-') {
+                tagKind = TAG_COMMENT;
+            }
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if ((c == '"' || c == '\'') && tagKind == TAG_ELEMENT) {
+                quote = c;
+            } else if (c == '>' && isTagComplete()) {
+                inTag = false;
+                endTag();
+                start = i + 1;
+            }
+        }
+        if (!inTag || state == AFTER_SHEET_DATA) {
+            out.write(b, start, end - start);
+        }
+    }
+
+    private boolean isTagComplete() {
+        switch (tagKind) {
+            case TAG_COMMENT:
+                return tag.size() >= 7 && endsWith("-->");
+            case TAG_CDATA:
+                return endsWith("]]>");
+            case TAG_PROCESSING_INSTRUCTION:
+                return endsWith("?>");
+            default:
+                return true;
+        }
+    }
+
+    private boolean endsWith(String suffix) {
+        byte[] buf = tag.toByteArray();
+        return endsWith(buf, suffix);
+    }
+
+    private static boolean endsWith(byte[] buf, String suffix) {
+        int offset = buf.length - suffix.length();
+        if (offset < 0) {
+            return false;
+        }
+        for (int i = 0; i < suffix.length(); i++) {
+            if (buf[offset + i] != suffix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void endTag() throws IOException {
+        byte[] buf = tag.toByteArray();
+        switch (state) {
+            case PROLOG:
+                if (buf[1] != '?' && buf[1] != '!') {
+                    readRootElement(new String(buf, StandardCharsets.UTF_8));
+                    state = BEFORE_SHEET_DATA;
+                }
+                out.write(buf);
+                break;
+            case BEFORE_SHEET_DATA:
+                if (isElement(buf, 1, "sheetData")) {
+                    if (endsWith(buf, "/>")) {
+                        writeString("<" + prefix + "sheetData>");
+                        rows.writeRemainingRows();
+                        writeString("</" + prefix + "sheetData>");
+                        state = AFTER_SHEET_DATA;
+                    } else {
+                        out.write(buf);
+                        state = IN_SHEET_DATA;
+                    }
+                } else {
+                    out.write(buf);
+                }
+                break;
+            case IN_SHEET_DATA:
+                if (isElement(buf, 1, "row")) {
+                    Matcher m = ROW_NUMBER.matcher(new String(buf, StandardCharsets.UTF_8));
+                    if (m.find()) {
+                        rows.writeRowsBefore(Integer.parseInt(m.group(1)) - 1);
+                        writer.flush();
+                    }
+                } else if (buf[1] == '/' && isElement(buf, 2, "sheetData")) {
+                    rows.writeRemainingRows();
+                    writer.flush();
+                    state = AFTER_SHEET_DATA;
+                }
+                out.write(buf);
+                break;
+            default:
+                out.write(buf);
+                break;
+        }
+    }
+
+    /**
+     * Reads the namespace declarations of the root element to find the prefix of the spreadsheetml elements
+     */
+    private void readRootElement(String element) {
+        Map<String, String> namespaces = new HashMap<>();
+        Matcher m = NAMESPACE.matcher(element);
+        while (m.find()) {
+            String nsPrefix = m.group(1);
+            if (nsPrefix == null) {
+                if (NS_SPREADSHEETML.equals(m.group(3))) {
+                    prefix = "";
+                }
+            } else {
+                namespaces.putIfAbsent(m.group(3), nsPrefix);
+            }
+        }
+        if (prefix == null) {
+            String nsPrefix = namespaces.get(NS_SPREADSHEETML);
+            prefix = nsPrefix == null ? "" : nsPrefix + ":";
+        }
+        writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        rows = data.newRowWriter(writer, prefix, namespaces, defaultStyles);
+    }
+
+    /**
+     * @return {@code true} if the tag, which starts at the given offset, is a spreadsheetml element of the given name
+     */
+    private boolean isElement(byte[] buf, int offset, String localName) {
+        String name = prefix + localName;
+        if (buf.length < offset + name.length() + 1) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            if (buf[offset + i] != name.charAt(i)) {
+                return false;
+            }
+        }
+        int next = buf[offset + name.length()];
+        return next == '>' || next == '/' || Character.isWhitespace(next);
+    }
+
+    private void writeString(String str) throws IOException {
+        writer.write(str);
+        writer.flush();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    /**
+     * Flushes the written xml, but doesn't close the target stream
+     */
+    @Override
+    public void close() throws IOException {
+        flush();
+    }
+}
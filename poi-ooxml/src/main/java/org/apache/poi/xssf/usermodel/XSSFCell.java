@@ -1214,6 +1214,14 @@ public final class XSSFCell extends CellBase {
 
     //Moved from XSSFRow.shift(). Not sure what is purpose.
     public void updateCellReferencesForShifting(String msg){
+        updateCellReferencesForShifting(msg, true);
+    }
+
+    /**
+     * @param removeFromCalcChain {@code false} if the references of the shifted rows have already been removed
+     *      from the calculation chain at once, instead of searching the chain for each cell
+     */
+    void updateCellReferencesForShifting(String msg, boolean removeFromCalcChain) {
         if(isPartOfArrayFormulaGroup()) {
             tryToDeleteArrayFormula(msg);
         }
@@ -1222,7 +1230,7 @@ public final class XSSFCell extends CellBase {
         int sheetId = Math.toIntExact(getSheet().sheet.getSheetId());
 
         //remove the reference in the calculation chain
-        if(calcChain != null) calcChain.removeItem(sheetId, getReference());
+        if(calcChain != null && removeFromCalcChain) calcChain.removeItem(sheetId, getReference());
 
         CTCell ctCell = getCTCell();
         String r = new CellReference(getRowIndex(), getColumnIndex()).formatAsString();
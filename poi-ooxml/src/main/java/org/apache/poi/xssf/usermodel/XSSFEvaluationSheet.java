@@ -17,8 +17,8 @@
 
 package org.apache.poi.xssf.usermodel;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.poi.ss.formula.EvaluationCell;
 import org.apache.poi.ss.formula.EvaluationSheet;
@@ -33,7 +33,8 @@ import org.apache.poi.util.Internal;
 final class XSSFEvaluationSheet implements EvaluationSheet {
 
     private final XSSFSheet _xs;
-    private Map<CellKey, EvaluationCell> _cellCache;
+    // concurrent, as formulas might be evaluated in parallel
+    private volatile Map<CellKey, EvaluationCell> _cellCache;
 
     public XSSFEvaluationSheet(XSSFSheet sheet) {
         _xs = sheet;
@@ -80,21 +81,13 @@ final class XSSFEvaluationSheet implements EvaluationSheet {
         }
 
         // cache for performance: ~30% speedup due to caching
-        if (_cellCache == null) {
-            _cellCache = new HashMap<>(_xs.getLastRowNum() * 3);
-            for (final Row row : _xs) {
-                final int rowNum = row.getRowNum();
-                for (final Cell cell : row) {
-                    // cast is safe, the iterator is just defined using the interface
-                    final CellKey key = new CellKey(rowNum, cell.getColumnIndex());
-                    final EvaluationCell evalcell = new XSSFEvaluationCell((XSSFCell) cell, this);
-                    _cellCache.put(key, evalcell);
-                }
-            }
+        Map<CellKey, EvaluationCell> cellCache = _cellCache;
+        if (cellCache == null) {
+            cellCache = getOrCreateCellCache();
         }
 
         final CellKey key = new CellKey(rowIndex, columnIndex);
-        EvaluationCell evalcell = _cellCache.get(key);
+        EvaluationCell evalcell = cellCache.get(key);
 
         // If cache is stale, update cache with this one cell
         // This is a compromise between rebuilding the entire cache
@@ -111,12 +104,30 @@ final class XSSFEvaluationSheet implements EvaluationSheet {
                 return null;
             }
             evalcell = new XSSFEvaluationCell(cell, this);
-            _cellCache.put(key, evalcell);
+            cellCache.put(key, evalcell);
         }
 
         return evalcell;
     }
 
+    private synchronized Map<CellKey, EvaluationCell> getOrCreateCellCache() {
+        Map<CellKey, EvaluationCell> cellCache = _cellCache;
+        if (cellCache == null) {
+            cellCache = new ConcurrentHashMap<>(Math.max(16, _xs.getLastRowNum() * 3));
+            for (final Row row : _xs) {
+                final int rowNum = row.getRowNum();
+                for (final Cell cell : row) {
+                    // cast is safe, the iterator is just defined using the interface
+                    final CellKey key = new CellKey(rowNum, cell.getColumnIndex());
+                    final EvaluationCell evalcell = new XSSFEvaluationCell((XSSFCell) cell, this);
+                    cellCache.put(key, evalcell);
+                }
+            }
+            _cellCache = cellCache;
+        }
+        return cellCache;
+    }
+
     private static class CellKey {
         private final int _row;
         private final int _col;
@@ -17,22 +17,29 @@
 
 package org.apache.poi.xssf.usermodel;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+import org.apache.poi.ss.SpreadsheetVersion;
 import org.apache.poi.ss.formula.EvaluationCell;
 import org.apache.poi.ss.formula.EvaluationSheet;
 import org.apache.poi.ss.formula.FormulaParser;
 import org.apache.poi.ss.formula.FormulaType;
+import org.apache.poi.ss.formula.SharedFormula;
 import org.apache.poi.ss.formula.ptg.Ptg;
+import org.apache.poi.ss.util.CellRangeAddress;
 import org.apache.poi.util.Internal;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTCellFormula;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.STCellFormulaType;
 
 /**
  * Internal POI use only
  */
 @Internal
 public final class XSSFEvaluationWorkbook extends BaseXSSFEvaluationWorkbook {
-    private final Map<XSSFSheet, XSSFEvaluationSheet> _sheetCache = new HashMap<>();
+    private final Map<XSSFSheet, XSSFEvaluationSheet> _sheetCache = new ConcurrentHashMap<>();
+    // the tokens of the shared formulas by sheet and shared group index, parsed at their master cell
+    private final Map<XSSFSheet, Map<Integer, SharedFormulaTokens>> _sharedFormulaCache = new ConcurrentHashMap<>();
 
     public static XSSFEvaluationWorkbook create(XSSFWorkbook book) {
         if (book == null) {
@@ -52,6 +59,7 @@ public final class XSSFEvaluationWorkbook extends BaseXSSFEvaluationWorkbook {
     public void clearAllCachedResultValues() {
         super.clearAllCachedResultValues();
         _sheetCache.clear();
+        _sharedFormulaCache.clear();
     }
 
     @Override
@@ -77,11 +85,72 @@ public final class XSSFEvaluationWorkbook extends BaseXSSFEvaluationWorkbook {
         return _sheetCache.computeIfAbsent(sheet, rows -> new XSSFEvaluationSheet(sheet));
     }
 
+    /**
+     * Returns the parsed formula of the cell. The tokens are cached per cell and only parsed again,
+     * if the formula or the position of the cell has changed. Shared formulas are parsed once for all
+     * cells of the group and rebased to the position of each cell.
+     */
     @Override
     public Ptg[] getFormulaTokens(EvaluationCell evalCell) {
         final XSSFCell cell = ((XSSFEvaluationCell)evalCell).getXSSFCell();
-        final int sheetIndex = _uBook.getSheetIndex(cell.getSheet());
-        final int rowIndex = cell.getRowIndex();
-        return FormulaParser.parse(cell.getCellFormula(this), this, FormulaType.CELL, sheetIndex, rowIndex);
+        final CTCellFormula f = cell.getCTCell().getF();
+        if (f != null && f.getT() == STCellFormulaType.SHARED && !cell.isPartOfArrayFormulaGroup()) {
+            final CTCellFormula master = cell.getSheet().getSharedFormula(Math.toIntExact(f.getSi()));
+            if (master != null) {
+                return getSharedFormulaTokens(evalCell, cell, Math.toIntExact(f.getSi()), master);
+            }
+        }
+
+        final String formula = cell.getCellFormula(this);
+        Ptg[] ptgs = getCachedFormulaTokens(evalCell, formula, null);
+        if (ptgs == null) {
+            final int sheetIndex = _uBook.getSheetIndex(cell.getSheet());
+            final int rowIndex = cell.getRowIndex();
+            ptgs = FormulaParser.parse(formula, this, FormulaType.CELL, sheetIndex, rowIndex);
+            cacheFormulaTokens(evalCell, formula, null, ptgs);
+        }
+        return ptgs;
+    }
+
+    private Ptg[] getSharedFormulaTokens(EvaluationCell evalCell, XSSFCell cell, int si, CTCellFormula master) {
+        final String formula = master.getStringValue();
+        final String ref = master.getRef();
+        Ptg[] ptgs = getCachedFormulaTokens(evalCell, formula, ref);
+        if (ptgs != null) {
+            return ptgs;
+        }
+
+        final XSSFSheet sheet = cell.getSheet();
+        final CellRangeAddress range = CellRangeAddress.valueOf(ref);
+        Ptg[] masterPtgs;
+        if (formula.indexOf('[') >= 0) {
+            // structured references are resolved relative to the current row, so they can't be shared
+            masterPtgs = FormulaParser.parse(formula, this, FormulaType.CELL, _uBook.getSheetIndex(sheet), cell.getRowIndex());
+        } else {
+            Map<Integer, SharedFormulaTokens> sheetFormulas =
+                _sharedFormulaCache.computeIfAbsent(sheet, s -> new ConcurrentHashMap<>());
+            SharedFormulaTokens shared = sheetFormulas.get(si);
+            if (shared == null || !shared.formula.equals(formula)) {
+                shared = new SharedFormulaTokens(formula,
+                    FormulaParser.parse(formula, this, FormulaType.CELL, _uBook.getSheetIndex(sheet), range.getFirstRow()));
+                sheetFormulas.put(si, shared);
+            }
+            masterPtgs = shared.tokens;
+        }
+
+        ptgs = new SharedFormula(SpreadsheetVersion.EXCEL2007).convertSharedFormulas(masterPtgs,
+            cell.getRowIndex() - range.getFirstRow(), cell.getColumnIndex() - range.getFirstColumn());
+        cacheFormulaTokens(evalCell, formula, ref, ptgs);
+        return ptgs;
+    }
+
+    private static final class SharedFormulaTokens {
+        private final String formula;
+        private final Ptg[] tokens;
+
+        SharedFormulaTokens(String formula, Ptg[] tokens) {
+            this.formula = formula;
+            this.tokens = tokens;
+        }
     }
 }
@@ -64,6 +64,8 @@ public class XSSFFont implements Font {
 
     private IndexedColorMap _indexedColorMap;
     private ThemesTable _themes;
+    /** the styles table, which has indexed this font, {@code null} if it isn't indexed */
+    private StylesTable _styles;
     private final CTFont _ctFont;
     private int _index;
 
@@ -316,6 +318,7 @@ public class XSSFFont implements Font {
         } else {
             _ctFont.setBArray(null);
         }
+        onChange();
     }
 
     /**
@@ -363,6 +366,7 @@ public class XSSFFont implements Font {
        // We know that FontCharset only has valid entries in it,
        //  so we can just set the int value from it
        charsetProperty.setVal( charSet.getValue() );
+       onChange();
     }
 
     /**
@@ -380,6 +384,7 @@ public class XSSFFont implements Font {
         // We know that FontCharset only has valid entries in it,
         //  so we can just set the int value from it
         charsetProperty.setVal( charSet.getNativeId() );
+        onChange();
     }
 
     /**
@@ -404,6 +409,7 @@ public class XSSFFont implements Font {
             default:
                 ctColor.setIndexed(color);
         }
+        onChange();
     }
 
     /**
@@ -420,6 +426,7 @@ public class XSSFFont implements Font {
             }
             ctColor.setRgb(color.getRGB());
         }
+        onChange();
     }
 
     /**
@@ -440,6 +447,7 @@ public class XSSFFont implements Font {
     public void setFontHeight(double height) {
         CTFontSize fontSize = _ctFont.sizeOfSzArray() == 0 ? _ctFont.addNewSz() : _ctFont.getSzArray(0);
         fontSize.setVal(height);
+        onChange();
     }
 
     /**
@@ -460,6 +468,7 @@ public class XSSFFont implements Font {
     public void setThemeColor(short theme) {
         CTColor ctColor = _ctFont.sizeOfColorArray() == 0 ? _ctFont.addNewColor() : _ctFont.getColorArray(0);
         ctColor.setTheme(theme);
+        onChange();
     }
 
     /**
@@ -477,6 +486,7 @@ public class XSSFFont implements Font {
     public void setFontName(String name) {
         CTFontName fontName = _ctFont.sizeOfNameArray() == 0 ? _ctFont.addNewName() : _ctFont.getNameArray(0);
         fontName.setVal(name == null ? DEFAULT_FONT_NAME : name);
+        onChange();
     }
 
 
@@ -494,6 +504,7 @@ public class XSSFFont implements Font {
         } else {
             _ctFont.setIArray(null);
         }
+        onChange();
     }
 
 
@@ -511,6 +522,7 @@ public class XSSFFont implements Font {
         } else {
             _ctFont.setStrikeArray(null);
         }
+        onChange();
     }
 
     /**
@@ -540,6 +552,7 @@ public class XSSFFont implements Font {
                     throw new IllegalStateException("Invalid type offset: " + offset);
             }
         }
+        onChange();
     }
 
     /**
@@ -569,6 +582,7 @@ public class XSSFFont implements Font {
             STUnderlineValues.Enum val = STUnderlineValues.Enum.forInt(underline.getValue());
             ctUnderline.setVal(val);
         }
+        onChange();
     }
 
 
@@ -592,6 +606,23 @@ public class XSSFFont implements Font {
     }
 
 
+    /**
+     * Records the styles table, which has indexed this font for its lookups
+     * and is notified about the changes of the font.
+     *
+     * @since POI 5.2.4
+     */
+    @Internal
+    public void setStylesTable(StylesTable styles) {
+        this._styles = styles;
+    }
+
+    private void onChange() {
+        if (_styles != null) {
+            _styles.onFontChange(this);
+        }
+    }
+
     /**
      * Records the Themes Table that is associated with
      *  the current font, used when looking up theme
@@ -624,6 +655,7 @@ public class XSSFFont implements Font {
         CTFontScheme ctFontScheme = _ctFont.sizeOfSchemeArray() == 0 ? _ctFont.addNewScheme() : _ctFont.getSchemeArray(0);
         STFontScheme.Enum val = STFontScheme.Enum.forInt(scheme.getValue());
         ctFontScheme.setVal(val);
+        onChange();
     }
 
     /**
@@ -648,6 +680,7 @@ public class XSSFFont implements Font {
     public void setFamily(int value) {
         CTFontFamily family = _ctFont.sizeOfFamilyArray() == 0 ? _ctFont.addNewFamily() : _ctFont.getFamilyArray(0);
         family.setVal(value);
+        onChange();
     }
 
     /**
@@ -17,12 +17,16 @@
 
 package org.apache.poi.xssf.usermodel;
 
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
 import org.apache.poi.ss.formula.BaseFormulaEvaluator;
 import org.apache.poi.ss.formula.EvaluationCell;
 import org.apache.poi.ss.formula.IStabilityClassifier;
 import org.apache.poi.ss.formula.WorkbookEvaluator;
 import org.apache.poi.ss.formula.udf.UDFFinder;
 import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.util.Beta;
 
 /**
  * Evaluates formula cells.<p>
@@ -56,13 +60,19 @@ public final class XSSFFormulaEvaluator extends BaseXSSFFormulaEvaluator {
     }
 
     public void notifySetFormula(Cell cell) {
-        _bookEvaluator.notifyUpdateCell(new XSSFEvaluationCell((XSSFCell)cell));
+        XSSFEvaluationCell evalCell = new XSSFEvaluationCell((XSSFCell)cell);
+        _bookEvaluator.notifyUpdateCell(evalCell);
+        ((BaseXSSFEvaluationWorkbook)getEvaluationWorkbook()).notifyUpdateCell(evalCell);
     }
     public void notifyDeleteCell(Cell cell) {
-        _bookEvaluator.notifyDeleteCell(new XSSFEvaluationCell((XSSFCell)cell));
+        XSSFEvaluationCell evalCell = new XSSFEvaluationCell((XSSFCell)cell);
+        _bookEvaluator.notifyDeleteCell(evalCell);
+        ((BaseXSSFEvaluationWorkbook)getEvaluationWorkbook()).notifyUpdateCell(evalCell);
     }
     public void notifyUpdateCell(Cell cell) {
-        _bookEvaluator.notifyUpdateCell(new XSSFEvaluationCell((XSSFCell)cell));
+        XSSFEvaluationCell evalCell = new XSSFEvaluationCell((XSSFCell)cell);
+        _bookEvaluator.notifyUpdateCell(evalCell);
+        ((BaseXSSFEvaluationWorkbook)getEvaluationWorkbook()).notifyUpdateCell(evalCell);
     }
 
     /**
@@ -100,6 +110,53 @@ public final class XSSFFormulaEvaluator extends BaseXSSFFormulaEvaluator {
         evaluateAllFormulaCells(_book, this);
     }
 
+    /**
+     * Like {@link #evaluateAll()}, but the formula cells are evaluated in parallel by the given pool.
+     * Formula cells, which don't depend on each other, are evaluated concurrently.
+     * <p>
+     * The workbook must not be modified during the evaluation.
+     *
+     * @param pool the pool to evaluate the formulas with
+     * @see WorkbookEvaluator#evaluateAll(java.util.Collection, ForkJoinPool)
+     * @since POI 5.2.4
+     */
+    @Beta
+    public void evaluateAll(ForkJoinPool pool) {
+        evaluateAllFormulaCells(_book, this, pool);
+    }
+
+    /**
+     * Evaluates the formula cells, which have been invalidated by the notify~ methods since the last call,
+     * and saves their results in the cells. Only the formulas, which depend on the updated cells, are evaluated,
+     * so this is much faster than {@link #evaluateAll()} for a few updated inputs of a large workbook.
+     * <p>
+     * Formulas, which haven't been evaluated by this evaluator before, aren't recalculated.
+     * The invalidated cells are only collected after {@link #setDirtyCellTracking(boolean)} has been enabled.
+     *
+     * @return the formula cells, whose results have changed
+     * @throws IllegalStateException if the tracking of dirty cells isn't enabled
+     * @see WorkbookEvaluator#recalculateDirty()
+     * @since POI 5.2.4
+     */
+    @Beta
+    public List<Cell> recalculateDirty() {
+        return recalculateDirty(_book, this, null);
+    }
+
+    /**
+     * Like {@link #recalculateDirty()}, but the formula cells are evaluated in parallel by the given pool.
+     * <p>
+     * The workbook must not be modified during the evaluation.
+     *
+     * @param pool the pool to evaluate the formulas with
+     * @return the formula cells, whose results have changed
+     * @since POI 5.2.4
+     */
+    @Beta
+    public List<Cell> recalculateDirty(ForkJoinPool pool) {
+        return recalculateDirty(_book, this, pool);
+    }
+
     /**
      * Turns a XSSFCell into a XSSFEvaluationCell
      */
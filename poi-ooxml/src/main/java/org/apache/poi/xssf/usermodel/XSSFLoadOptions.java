@@ -0,0 +1,100 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.usermodel;
+
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.util.Beta;
+
+/**
+ * Options for opening an existing workbook with {@link XSSFWorkbook#XSSFWorkbook(OPCPackage, XSSFLoadOptions)}.
+ * <p>
+ * The defaults are the same as for the other constructors of {@link XSSFWorkbook}.
+ *
+ * @since POI 5.2.4
+ */
+@Beta
+public final class XSSFLoadOptions {
+    private boolean compactSheetData;
+    private boolean lazySheets;
+
+    /**
+     * @return {@code true} if the rows of the sheets are kept in a compact store until they are accessed
+     * @see #setCompactSheetData(boolean)
+     */
+    public boolean isCompactSheetData() {
+        return compactSheetData;
+    }
+
+    /**
+     * Keep the rows of the sheets in a compact columnar store instead of the XmlBeans objects
+     * of the worksheet, until they are accessed.
+     * <p>
+     * The rows and cells are read from the sheet parts into primitive arrays per column, which
+     * take only a fraction of the memory of the corresponding XmlBeans objects. A row is turned into
+     * a regular {@link XSSFRow} with its {@link XSSFCell}s, when it is requested via
+     * {@link XSSFSheet#getRow(int)} or {@link XSSFSheet#createRow(int)}. Iterating the rows of a sheet
+     * and operations, which process all rows - like shifting rows or columns - turn all
+     * rows into regular rows. The remaining compact rows are written directly into the sheet part,
+     * when the workbook is saved.
+     * <p>
+     * Rows, which contain cells with rich text, array formulas, masters of shared formulas or other
+     * content without a compact representation, are always read as regular rows. Numbers are
+     * written back in their canonical form, e.g. "1E-3" is saved as "0.001".
+     * <p>
+     * The compact rows are not part of {@link XSSFSheet#getCTWorksheet()} - code, which accesses
+     * the sheet data of the XmlBeans objects directly, only sees the rows which have been accessed.
+     *
+     * @param compactSheetData {@code true} to keep the rows compact until they are accessed
+     * @return this options
+     */
+    public XSSFLoadOptions setCompactSheetData(boolean compactSheetData) {
+        this.compactSheetData = compactSheetData;
+        return this;
+    }
+
+    /**
+     * @return {@code true} if the sheet parts are parsed when the sheets are accessed for the first time
+     * @see #setLazySheets(boolean)
+     */
+    public boolean isLazySheets() {
+        return lazySheets;
+    }
+
+    /**
+     * Parse the sheet parts when the sheets are accessed for the first time instead of when the
+     * workbook is opened.
+     * <p>
+     * A sheet is parsed when it is returned by {@link XSSFWorkbook#getSheetAt(int)},
+     * {@link XSSFWorkbook#getSheet(String)} or the sheet iterators, or when an operation of the
+     * workbook needs its content, like renaming a sheet, which updates the formulas of all sheets.
+     * The names, visibility and order of the sheets are available without parsing them.
+     * Sheets, which haven't been parsed, are copied unchanged from the source package,
+     * when the workbook is saved.
+     * <p>
+     * Sheets, which are reached from other parts without going through the workbook,
+     * e.g. via {@link XSSFTable#getXSSFSheet()}, need to be requested from the workbook once
+     * before they are used.
+     *
+     * @param lazySheets {@code true} to parse the sheet parts on the first access
+     * @return this options
+     */
+    public XSSFLoadOptions setLazySheets(boolean lazySheets) {
+        this.lazySheets = lazySheets;
+        return this;
+    }
+}
@@ -0,0 +1,54 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+package org.apache.poi.xssf.usermodel;
+
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.util.Beta;
+
+/**
+ * Excel can get cranky if you give it files containing too
+ *  many duplicate styles, and this class can help to avoid those.
+ * In general, it's much better to re-use the styles in your code,
+ *  but sometimes - e.g. when styles are created per cell - this is
+ *  too hard, which is where the use of this class comes in.
+ *
+ * @see org.apache.poi.hssf.usermodel.HSSFOptimiser
+ * @since POI 5.2.4
+ */
+@Beta
+public final class XSSFOptimiser {
+    private XSSFOptimiser() {}
+
+    /**
+     * Goes through the workbook, optimising the cell styles
+     *  by merging duplicate ones. The cells, rows and columns
+     *  of all sheets are changed to use the remaining styles.
+     * {@link XSSFCellStyle} objects, which have been obtained
+     *  before, must not be used afterwards.
+     *
+     * @param workbook The workbook in which to optimise the cell styles
+     */
+    public static void optimiseCellStyles(XSSFWorkbook workbook) {
+        int[] newIndexes = workbook.getStylesSource().removeDuplicateCellXfs();
+        if (newIndexes == null) {
+            return;
+        }
+        for (Sheet sheet : workbook) {
+            ((XSSFSheet) sheet).remapCellStyles(idx -> idx >= 0 && idx < newIndexes.length ? newIndexes[idx] : idx);
+        }
+    }
+}
@@ -71,6 +71,14 @@ public class XSSFRow implements Row, Comparable<XSSFRow> {
      * @param sheet the parent sheet.
      */
     protected XSSFRow(CTRow row, XSSFSheet sheet) {
+        this(row, sheet, true);
+    }
+
+    /**
+     * @param registerFormulas {@code false} if the shared and array formulas of the cells are already registered
+     *      with the sheet, e.g. when the xml of the row has only been moved
+     */
+    XSSFRow(CTRow row, XSSFSheet sheet, boolean registerFormulas) {
         _row = row;
         _sheet = sheet;
         _cells = new TreeMap<>();
@@ -79,7 +87,9 @@ public class XSSFRow implements Row, Comparable<XSSFRow> {
             // Performance optimization for bug 57840: explicit boxing is slightly faster than auto-unboxing, though may use more memory
             final Integer colI = Integer.valueOf(cell.getColumnIndex()); // NOSONAR
             _cells.put(colI, cell);
-            sheet.onReadCell(cell);
+            if (registerFormulas) {
+                sheet.onReadCell(cell);
+            }
         }
 
         if (! row.isSetR()) {
@@ -627,13 +637,24 @@ public class XSSFRow implements Row, Comparable<XSSFRow> {
      * @param n the number of rows to move
      */
     protected void shift(int n) {
+        shift(n, true);
+    }
+
+    /**
+     * update cell references when shifting rows
+     *
+     * @param n the number of rows to move
+     * @param removeFromCalcChain {@code false} if the references of the shifted rows have already been removed
+     *      from the calculation chain at once
+     */
+    void shift(int n, boolean removeFromCalcChain) {
         final int rownum = getRowNum();
         final int newRownum = rownum + n;
         String msg = "Row[rownum=" + rownum + "] contains cell(s) included in a multi-cell array formula. " +
                 "You cannot change part of an array.";
         setRowNum(newRownum);
         for(Cell c : this){
-            ((XSSFCell)c).updateCellReferencesForShifting(msg);
+            ((XSSFCell)c).updateCellReferencesForShifting(msg, removeFromCalcChain);
         }
 
     }
@@ -0,0 +1,95 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.usermodel;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.poi.util.Beta;
+
+/**
+ * Collects several row shifts of a sheet, which are applied together by {@link #apply()}.
+ * <p>
+ * The result is the same as calling {@link XSSFSheet#shiftRows(int, int, int)} for each shift in the given order,
+ * but the formulas and the named ranges of the workbook are parsed and updated only once for all shifts.
+ * Shifts, which move array or shared formulas, are still applied one after the other.
+ * Inserting rows is expressed by shifting the following rows down, deleting rows by shifting the following
+ * rows up over them:
+ * <pre>
+ * new XSSFRowShiftBatch(sheet)
+ *     .shiftRows(10, sheet.getLastRowNum(), 2)      // insert two rows before row 10
+ *     .shiftRows(101, sheet.getLastRowNum() + 2, -1) // delete row 100
+ *     .apply();
+ * </pre>
+ *
+ * @since POI 5.2.4
+ */
+@Beta
+public final class XSSFRowShiftBatch {
+    private final XSSFSheet sheet;
+    private final List<RowShift> shifts = new ArrayList<>();
+
+    /**
+     * @param sheet the sheet, whose rows are shifted
+     */
+    public XSSFRowShiftBatch(XSSFSheet sheet) {
+        this.sheet = sheet;
+    }
+
+    /**
+     * Adds a shift of the rows between startRow and endRow, which is applied after the shifts added before
+     *
+     * @param startRow the row to start shifting, the row numbers include the effect of the preceding shifts
+     * @param endRow the row to end shifting
+     * @param n the number of rows to shift, negative to shift the rows up
+     * @return this batch
+     * @see XSSFSheet#shiftRows(int, int, int)
+     */
+    public XSSFRowShiftBatch shiftRows(int startRow, int endRow, int n) {
+        shifts.add(new RowShift(startRow, endRow, n));
+        return this;
+    }
+
+    /**
+     * Applies the added shifts to the sheet. Afterwards the batch is empty and can be reused.
+     *
+     * @throws IllegalArgumentException if the start of a shift is after its end or a shift would move rows
+     *      outside of the sheet
+     */
+    public void apply() {
+        if (!shifts.isEmpty()) {
+            try {
+                sheet.shiftRows(shifts);
+            } finally {
+                shifts.clear();
+            }
+        }
+    }
+
+    static final class RowShift {
+        final int startRow;
+        final int endRow;
+        final int n;
+
+        RowShift(int startRow, int endRow, int n) {
+            this.startRow = startRow;
+            this.endRow = endRow;
+            this.n = n;
+        }
+    }
+}
@@ -25,11 +25,14 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.*;
+import java.util.function.IntUnaryOperator;
+import java.util.function.Predicate;
 
 import javax.xml.namespace.QName;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
 
+import org.apache.commons.io.output.UnsynchronizedByteArrayOutputStream;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.poi.ooxml.POIXMLDocumentPart;
@@ -57,6 +60,7 @@ import org.apache.poi.util.Beta;
 import org.apache.poi.util.Internal;
 import org.apache.poi.util.Removal;
 import org.apache.poi.util.Units;
+import org.apache.poi.xssf.model.CalculationChain;
 import org.apache.poi.xssf.model.Comments;
 import org.apache.poi.xssf.usermodel.XSSFPivotTable.PivotTableReferenceConfigurator;
 import org.apache.poi.xssf.usermodel.helpers.ColumnHelper;
@@ -94,6 +98,19 @@ public class XSSFSheet extends POIXMLDocumentPart implements Sheet, OoxmlSheetEx
     protected CTWorksheet worksheet;
 
     private final SortedMap<Integer, XSSFRow> _rows = new TreeMap<>();
+    /**
+     * the rows, which haven't been accessed yet, if the workbook has been opened with compact sheet data -
+     * each row is either part of {@link #_rows} or of the compact rows
+     *
+     * @see XSSFLoadOptions#setCompactSheetData(boolean)
+     */
+    private CompactSheetData compactRows;
+    /**
+     * {@code true} as long as the sheet part hasn't been parsed
+     *
+     * @see XSSFLoadOptions#setLazySheets(boolean)
+     */
+    private volatile boolean readDeferred;
     private List<XSSFHyperlink> hyperlinks;
     private ColumnHelper columnHelper;
     private Comments sheetComments;
@@ -154,14 +171,55 @@ public class XSSFSheet extends POIXMLDocumentPart implements Sheet, OoxmlSheetEx
         }
     }
 
+    /**
+     * Postpones parsing the sheet part until {@link #readIfDeferred()} is called
+     */
+    void deferRead() {
+        readDeferred = true;
+    }
+
+    /**
+     * Parses the sheet part, if this has been postponed by {@link #deferRead()}. The sheet may be accessed
+     * by several threads at once, e.g. by the evaluation of formulas in parallel, so it's parsed only once.
+     */
+    void readIfDeferred() {
+        if (readDeferred) {
+            synchronized (this) {
+                if (readDeferred) {
+                    onDocumentRead();
+                    readDeferred = false;
+                }
+            }
+        }
+    }
+
     protected void read(InputStream is) throws IOException {
+        compactRows = null;
         try {
-            worksheet = WorksheetDocument.Factory.parse(is, DEFAULT_XML_OPTIONS).getWorksheet();
+            if (getWorkbook() != null && getWorkbook().isCompactSheetData()) {
+                // take the rows out of the xml, before it is parsed by XmlBeans
+                try (UnsynchronizedByteArrayOutputStream bos = new UnsynchronizedByteArrayOutputStream()) {
+                    compactRows = CompactSheetDataReader.read(is, bos);
+                    try (InputStream remaining = bos.toInputStream()) {
+                        worksheet = WorksheetDocument.Factory.parse(remaining, DEFAULT_XML_OPTIONS).getWorksheet();
+                    }
+                } catch (XMLStreamException e) {
+                    throw new POIXMLException(e);
+                }
+            } else {
+                worksheet = WorksheetDocument.Factory.parse(is, DEFAULT_XML_OPTIONS).getWorksheet();
+            }
         } catch (XmlException e){
             throw new POIXMLException(e);
         }
 
         initRows(worksheet);
+        if (compactRows != null) {
+            // rows out of order, which are read as regular rows, replace compact rows of the same number
+            for (Integer rownum : _rows.keySet()) {
+                compactRows.removeRow(rownum);
+            }
+        }
         columnHelper = new ColumnHelper(worksheet);
         // Look for bits we're interested in
         for(RelationPart rp : getRelationParts()){
@@ -173,7 +231,7 @@ public class XSSFSheet extends POIXMLDocumentPart implements Sheet, OoxmlSheetEx
             if(p instanceof XSSFTable) {
                 tables.put( rp.getRelationship().getId(), (XSSFTable)p );
             }
-            if(p instanceof XSSFPivotTable) {
+            if(p instanceof XSSFPivotTable && !readDeferred) {
                 getWorkbook().getPivotTables().add((XSSFPivotTable) p);
             }
         }
@@ -709,6 +767,10 @@ public class XSSFSheet extends POIXMLDocumentPart implements Sheet, OoxmlSheetEx
         final Integer rownumI = Integer.valueOf(rownum); // NOSONAR
         CTRow ctRow;
         XSSFRow prev = _rows.get(rownumI);
+        if (prev == null && compactRows != null) {
+            // inflate the row, so its cells are removed the same way as the ones of a regular row
+            prev = inflateRow(rownumI);
+        }
         if(prev != null){
             // the Cells in an existing row are invalidated on-purpose, in order to clean up correctly, we
             // need to call the remove, so things like ArrayFormulas and CalculationChain updates are done
@@ -995,6 +1057,15 @@ public class XSSFSheet extends POIXMLDocumentPart implements Sheet, OoxmlSheetEx
         return getWorkbook().getCellStyleAt((short)(idx == -1 ? 0 : idx));
     }
 
+    /**
+     * @return the index of the style, which is applied to the cells of the given column without a style,
+     *      when the sheet is written - see {@link XSSFCell#applyDefaultCellStyleIfNecessary()} - or -1 if none
+     */
+    private int getDefaultStyleIndex(int column) {
+        XSSFCellStyle style = (XSSFCellStyle) getColumnStyle(column);
+        return style == null ? -1 : getWorkbook().getStylesSource().putStyle(style);
+    }
+
     /**
      * Sets whether the worksheet is displayed from right to left instead of from left to right.
      *
@@ -1075,7 +1146,12 @@ public class XSSFSheet extends POIXMLDocumentPart implements Sheet, OoxmlSheetEx
      */
     @Override
     public int getFirstRowNum() {
-        return _rows.isEmpty() ? -1 : _rows.firstKey();
+        int first = _rows.isEmpty() ? -1 : _rows.firstKey();
+        if (compactRows != null) {
+            int compactFirst = compactRows.getFirstRowNum();
+            first = first == -1 || compactFirst == -1 ? Math.max(first, compactFirst) : Math.min(first, compactFirst);
+        }
+        return first;
     }
 
     /**
@@ -1197,7 +1273,8 @@ public class XSSFSheet extends POIXMLDocumentPart implements Sheet, OoxmlSheetEx
         // A test with 1_000_000 rows shows that querying getLastRowNum with lastKey() implementation takes ~40 ms,
         // and ~1.2 ms with cached implementation. 40 ms is negligible compared to the time of evaluation a million
         // cells, and the lastKey implementation is much more elegant and less error prone than caching.
-        return _rows.isEmpty() ? -1 : _rows.lastKey();
+        int last = _rows.isEmpty() ? -1 : _rows.lastKey();
+        return compactRows == null ? last : Math.max(last, compactRows.getLastRowNum());
     }
 
     @Override
@@ -1411,7 +1488,7 @@ public class XSSFSheet extends POIXMLDocumentPart implements Sheet, OoxmlSheetEx
      */
     @Override
     public int getPhysicalNumberOfRows() {
-        return _rows.size();
+        return _rows.size() + (compactRows == null ? 0 : compactRows.getRowCount());
     }
 
     /**
@@ -1492,7 +1569,106 @@ public class XSSFSheet extends POIXMLDocumentPart implements Sheet, OoxmlSheetEx
         // Performance optimization: explicit boxing is slightly faster than auto-unboxing, though may use more memory
         //noinspection UnnecessaryBoxing
         final Integer rownumI = Integer.valueOf(rownum); // NOSONAR
-        return _rows.get(rownumI);
+        XSSFRow row = _rows.get(rownumI);
+        if (row == null && compactRows != null) {
+            row = inflateRow(rownumI);
+        }
+        return row;
+    }
+
+    /**
+     * Turns a compact row into a regular row
+     *
+     * @return the regular row or {@code null} if there is no compact row with the given number
+     */
+    private XSSFRow inflateRow(Integer rownumI) {
+        final int rownum = rownumI;
+        int index = compactRows.findRow(rownum);
+        if (index == -1) {
+            return null;
+        }
+        CTRow ctRow;
+        if (_rows.isEmpty() || rownum > _rows.lastKey()) {
+            ctRow = worksheet.getSheetData().addNewRow();
+        } else {
+            ctRow = worksheet.getSheetData().insertNewRow(_rows.headMap(rownumI).size());
+        }
+        compactRows.inflateRow(index, ctRow);
+        XSSFRow row = new XSSFRow(ctRow, this);
+        _rows.put(rownumI, row);
+        if (compactRows.getRowCount() == 0) {
+            compactRows = null;
+        }
+        return row;
+    }
+
+    /**
+     * Turns all compact rows into regular rows, before all rows are processed
+     */
+    private void inflateAllRows() {
+        if (compactRows == null) {
+            return;
+        }
+        final QName rowName = new QName(XSSFRelation.NS_SPREADSHEETML, "row");
+        // insert the rows in one pass over the sheet data instead of looking up the position of each row
+        try (XmlCursor cur = worksheet.getSheetData().newCursor()) {
+            boolean atRow = cur.toFirstChild();
+            if (!atRow) {
+                cur.toEndToken();
+            }
+            for (int rownum : compactRows.getRowNums(0, Integer.MAX_VALUE)) {
+                while (atRow && ((CTRow) cur.getObject()).getR() - 1 < rownum) {
+                    if (!cur.toNextSibling()) {
+                        cur.toParent();
+                        cur.toEndToken();
+                        atRow = false;
+                    }
+                }
+                cur.beginElement(rowName);
+                cur.toParent();
+                CTRow ctRow = (CTRow) cur.getObject();
+                compactRows.inflateRow(compactRows.findRow(rownum), ctRow);
+                // Performance optimization: explicit boxing is slightly faster than auto-unboxing, though may use more memory
+                //noinspection UnnecessaryBoxing
+                _rows.put(Integer.valueOf(rownum), new XSSFRow(ctRow, this)); // NOSONAR
+                if (!cur.toNextSibling()) {
+                    cur.toParent();
+                    cur.toEndToken();
+                }
+            }
+        }
+        compactRows = null;
+    }
+
+    /**
+     * Changes the style indexes of the cells, rows and columns, e.g. after duplicate styles have been merged
+     *
+     * @param newIndexes provides the new style index for an old one
+     * @see XSSFOptimiser#optimiseCellStyles(XSSFWorkbook)
+     */
+    void remapCellStyles(IntUnaryOperator newIndexes) {
+        for (CTCols ctCols : worksheet.getColsArray()) {
+            for (CTCol ctCol : ctCols.getColArray()) {
+                if (ctCol.isSetStyle()) {
+                    ctCol.setStyle(newIndexes.applyAsInt(Math.toIntExact(ctCol.getStyle())));
+                }
+            }
+        }
+        for (XSSFRow row : _rows.values()) {
+            CTRow ctRow = row.getCTRow();
+            if (ctRow.isSetS()) {
+                ctRow.setS(newIndexes.applyAsInt(Math.toIntExact(ctRow.getS())));
+            }
+            for (Cell cell : row) {
+                CTCell ctCell = ((XSSFCell) cell).getCTCell();
+                if (ctCell.isSetS()) {
+                    ctCell.setS(newIndexes.applyAsInt(Math.toIntExact(ctCell.getS())));
+                }
+            }
+        }
+        if (compactRows != null) {
+            compactRows.remapStyles(newIndexes);
+        }
     }
 
     /**
@@ -1527,12 +1703,38 @@ public class XSSFSheet extends POIXMLDocumentPart implements Sheet, OoxmlSheetEx
             final Integer startI = Integer.valueOf(startRowNum); // NOSONAR
             //noinspection UnnecessaryBoxing
             final Integer endI = Integer.valueOf(endRowNum+1); // NOSONAR
+            if (compactRows != null) {
+                for (int rownum : compactRows.getRowNums(startRowNum, endRowNum)) {
+                    //noinspection UnnecessaryBoxing
+                    inflateRow(Integer.valueOf(rownum)); // NOSONAR
+                }
+            }
             final Collection<XSSFRow> inclusive = _rows.subMap(startI, endI).values();
             rows.addAll(inclusive);
         }
         return rows;
     }
 
+    /**
+     * Returns the rows, whose formulas need to be processed, e.g. when the formulas are adjusted after a shift.
+     * Compact rows are only turned into regular rows, if they contain a formula, whose text fulfills the given
+     * condition, all other compact rows are skipped.
+     *
+     * @param condition the condition for the text of a formula of a compact row
+     * @return the regular rows of this sheet in ascending order, which may contain rows without formulas
+     * @since POI 5.2.4
+     */
+    @Internal
+    public Collection<XSSFRow> getFormulaRows(Predicate<String> condition) {
+        if (compactRows != null) {
+            for (int rownum : compactRows.getRowNumsWithFormulas(condition)) {
+                //noinspection UnnecessaryBoxing
+                inflateRow(Integer.valueOf(rownum)); // NOSONAR
+            }
+        }
+        return _rows.values();
+    }
+
     /**
      * Horizontal page break information used for print layout view, page layout view, drawing print breaks in normal
      *  view, and for printing the worksheet.
@@ -1742,6 +1944,7 @@ public class XSSFSheet extends POIXMLDocumentPart implements Sheet, OoxmlSheetEx
     }
 
     private short getMaxOutlineLevelRows(){
+        inflateAllRows();
         int outlineLevel = 0;
         for (XSSFRow xrow : _rows.values()) {
             outlineLevel = Math.max(outlineLevel, xrow.getCTRow().getOutlineLevel());
@@ -2131,6 +2334,7 @@ public class XSSFSheet extends POIXMLDocumentPart implements Sheet, OoxmlSheetEx
     @Override
     @SuppressWarnings("unchecked")
     public Iterator<Row> rowIterator() {
+        inflateAllRows();
         return (Iterator<Row>)(Iterator<? extends Row>) _rows.values().iterator();
     }
 
@@ -2144,6 +2348,7 @@ public class XSSFSheet extends POIXMLDocumentPart implements Sheet, OoxmlSheetEx
     @Override
     @SuppressWarnings("unchecked")
     public Spliterator<Row> spliterator() {
+        inflateAllRows();
         return (Spliterator<Row>)(Spliterator<? extends Row>) _rows.values().spliterator();
     }
 
@@ -3045,21 +3250,54 @@ public class XSSFSheet extends POIXMLDocumentPart implements Sheet, OoxmlSheetEx
      */
     @Override
     public void shiftRows(int startRow, int endRow, final int n, boolean copyRowHeight, boolean resetOriginalRowHeight) {
+        shiftRows(Collections.singletonList(new XSSFRowShiftBatch.RowShift(startRow, endRow, n)));
+    }
+
+    /**
+     * Applies several row shifts one after the other, the formulas and the named ranges of the workbook are
+     * updated once for all shifts.
+     * <p>
+     * Only the rows between the source and the destination of a shift are processed: compact rows are shifted
+     * without turning them into regular rows, regular rows are renumbered in place and only moved within the
+     * sheet data, if their order changes, and formulas, which can't reference the shifted rows, aren't parsed.
+     *
+     * @param shifts the shifts in the order they are applied
+     * @see XSSFRowShiftBatch
+     */
+    void shiftRows(List<XSSFRowShiftBatch.RowShift> shifts) {
         int sheetIndex = getWorkbook().getSheetIndex(this);
         String sheetName = getWorkbook().getSheetName(sheetIndex);
-        FormulaShifter formulaShifter = FormulaShifter.createForRowShift(
-                sheetIndex, sheetName, startRow, endRow, n, SpreadsheetVersion.EXCEL2007);
-        removeOverwritten(startRow, endRow, n);
-        shiftCommentsAndRows(startRow, endRow, n);
+        // the parameters of all shifts are validated before anything is changed
+        List<FormulaShifter> formulaShifters = new ArrayList<>(shifts.size());
+        for (XSSFRowShiftBatch.RowShift shift : shifts) {
+            formulaShifters.add(FormulaShifter.createForRowShift(
+                    sheetIndex, sheetName, shift.startRow, shift.endRow, shift.n, SpreadsheetVersion.EXCEL2007));
+            validateShiftedRowNum(shift.startRow + shift.n);
+            validateShiftedRowNum(shift.endRow + shift.n);
+        }
+
+        if (shifts.size() > 1 && hasFormulaRangesInShiftedRows(shifts)) {
+            // the ranges of array and shared formulas are only updated along with the formulas,
+            // so the following shifts would see their old ranges
+            for (XSSFRowShiftBatch.RowShift shift : shifts) {
+                shiftRows(Collections.singletonList(shift));
+            }
+            return;
+        }
 
         XSSFRowShifter rowShifter = new XSSFRowShifter(this);
-        rowShifter.shiftMergedRegions(startRow, endRow, n);
-        rowShifter.updateNamedRanges(formulaShifter);
-        rowShifter.updateFormulas(formulaShifter);
-        rowShifter.updateConditionalFormatting(formulaShifter);
-        rowShifter.updateHyperlinks(formulaShifter);
+        for (int i = 0; i < shifts.size(); i++) {
+            XSSFRowShiftBatch.RowShift shift = shifts.get(i);
+            removeOverwritten(shift.startRow, shift.endRow, shift.n);
+            shiftCommentsAndRows(shift.startRow, shift.endRow, shift.n);
 
-        rebuildRows();
+            rowShifter.shiftMergedRegions(shift.startRow, shift.endRow, shift.n);
+            rowShifter.updateConditionalFormatting(formulaShifters.get(i));
+            rowShifter.updateHyperlinks(formulaShifters.get(i));
+        }
+        rowShifter.updateNamedRanges(formulaShifters);
+        // the shared and array formulas, whose ranges are changed, are registered again with the new ranges
+        rowShifter.updateFormulas(formulaShifters);
     }
 
     /**
@@ -3091,14 +3329,21 @@ public class XSSFSheet extends POIXMLDocumentPart implements Sheet, OoxmlSheetEx
         //rebuild the CTSheetData CTRow order
         SortedMap<Long, CTRow> ctRows = new TreeMap<>();
         CTSheetData sheetData = getCTWorksheet().getSheetData();
+        long lastRownum = Long.MIN_VALUE;
+        boolean sorted = true;
         for (CTRow ctRow : sheetData.getRowList()) {
             Long rownumL = ctRow.getR();
             ctRows.put(rownumL, ctRow);
+            sorted &= rownumL > lastRownum;
+            lastRownum = rownumL;
+        }
+        // the rows are only copied into a new order, if their order has changed
+        if (!sorted) {
+            List<CTRow> ctRowList = new ArrayList<>(ctRows.values());
+            CTRow[] ctRowArray = new CTRow[ctRowList.size()];
+            ctRowArray = ctRowList.toArray(ctRowArray);
+            sheetData.setRowArray(ctRowArray);
         }
-        List<CTRow> ctRowList = new ArrayList<>(ctRows.values());
-        CTRow[] ctRowArray = new CTRow[ctRowList.size()];
-        ctRowArray = ctRowList.toArray(ctRowArray);
-        sheetData.setRowArray(ctRowArray);
 
         //rebuild the _rows map
         _rows.clear();
@@ -3113,29 +3358,12 @@ public class XSSFSheet extends POIXMLDocumentPart implements Sheet, OoxmlSheetEx
     private void removeOverwritten(int startRow, int endRow, final int n) {
         XSSFVMLDrawing vml = getVMLDrawing(false);
         HashSet<Integer> rowsToRemoveSet = new HashSet<>();
-        for (Iterator<Row> it = rowIterator() ; it.hasNext() ; ) {
-            XSSFRow row = (XSSFRow)it.next();
-            int rownum = row.getRowNum();
-
-            // check if we should remove this row as it will be overwritten by the data later
-            if (shouldRemoveRow(startRow, endRow, n, rownum)) {
-                rowsToRemoveSet.add(rownum);
-                for (Cell c : row) {
-                    if (!c.isPartOfArrayFormulaGroup()) {
-                        //the support for deleting cells that are part of array formulas is not implemented yet
-                        c.setBlank();
-                    }
-                }
-                // remove row from worksheet.getSheetData row array
-                // Performance optimization: explicit boxing is slightly faster than auto-unboxing, though may use more memory
-                //noinspection UnnecessaryBoxing
-                final Integer rownumI = Integer.valueOf(row.getRowNum()); // NOSONAR
-                int idx = _rows.headMap(rownumI).size();
-                worksheet.getSheetData().removeRow(idx);
-
-                // remove row from _rows
-                it.remove();
-            }
+        // only the rows in the target-window where the moved rows will land are removed,
+        // if they are not part of the data that is copied
+        removeRows(startRow + n, Math.min(endRow + n, startRow - 1), rowsToRemoveSet);
+        removeRows(Math.max(startRow + n, endRow + 1), endRow + n, rowsToRemoveSet);
+        if (rowsToRemoveSet.isEmpty()) {
+            return;
         }
 
         // also remove any comments associated with this row
@@ -3177,6 +3405,49 @@ public class XSSFSheet extends POIXMLDocumentPart implements Sheet, OoxmlSheetEx
 
     }
 
+    /**
+     * Removes the regular and compact rows between the given row numbers, inclusive
+     *
+     * @param removedRows receives the numbers of the removed rows
+     */
+    private void removeRows(int firstRow, int lastRow, Set<Integer> removedRows) {
+        if (firstRow > lastRow) {
+            return;
+        }
+        CalculationChain calcChain = getWorkbook().getCalculationChain();
+        if (calcChain != null) {
+            // remove the formulas of all removed cells at once instead of searching the chain for each cell
+            calcChain.removeItems(Math.toIntExact(sheet.getSheetId()), firstRow, lastRow);
+        }
+        if (compactRows != null) {
+            for (int rownum : compactRows.getRowNums(firstRow, lastRow)) {
+                compactRows.removeRow(rownum);
+                removedRows.add(rownum);
+            }
+            if (compactRows.getRowCount() == 0) {
+                compactRows = null;
+            }
+        }
+        SortedMap<Integer, XSSFRow> rows = _rows.subMap(firstRow, lastRow + 1);
+        for (XSSFRow row : new ArrayList<>(rows.values())) {
+            for (Cell c : row) {
+                // apart of the calculation chain, the removal of a formula only affects other cells,
+                // if it is the master of a shared formula
+                CTCellFormula f = ((XSSFCell) c).getCTCell().getF();
+                if (f != null && f.getT() == STCellFormulaType.SHARED && f.isSetRef() && !c.isPartOfArrayFormulaGroup()) {
+                    c.setBlank();
+                }
+            }
+        }
+        for (XSSFRow row : rows.values()) {
+            removedRows.add(row.getRowNum());
+            try (XmlCursor cursor = row.getCTRow().newCursor()) {
+                cursor.removeXml();
+            }
+        }
+        rows.clear();
+    }
+
     private void shiftCommentsAndRows(int startRow, int endRow, final int n) {
         // then do the actual moving and also adjust comments/rowHeight
         // we need to sort it in a way so the shifting does not mess up the structures,
@@ -3201,49 +3472,204 @@ public class XSSFSheet extends POIXMLDocumentPart implements Sheet, OoxmlSheetEx
         });
 
 
-        for (Iterator<Row> it = rowIterator() ; it.hasNext() ; ) {
-            XSSFRow row = (XSSFRow)it.next();
-            int rownum = row.getRowNum();
+        if(sheetComments != null) {
+            Iterator<CellAddress> commentAddressIterator = sheetComments.getCellAddresses();
+            while (commentAddressIterator.hasNext()) {
+                CellAddress cellAddress = commentAddressIterator.next();
+                int rownum = cellAddress.getRow();
 
-            if(sheetComments != null) {
                 // calculate the new rownum
                 int newrownum = shiftedRowNum(startRow, endRow, n, rownum);
 
-                // is there a change necessary for the current row?
-                if(newrownum != rownum) {
-                    Iterator<CellAddress> commentAddressIterator = sheetComments.getCellAddresses();
-                    while (commentAddressIterator.hasNext()) {
-                        CellAddress cellAddress = commentAddressIterator.next();
-
-                        // is this comment part of the current row?
-                        if(cellAddress.getRow() == rownum) {
-                            XSSFComment oldComment = sheetComments.findCellComment(cellAddress);
-                            if (oldComment != null) {
-                                XSSFComment xssfComment = new XSSFComment(sheetComments, oldComment.getCTComment(),
-                                        oldComment.getCTShape());
-
-                                // we should not perform the shifting right here as we would then find
-                                // already shifted comments and would shift them again...
-                                commentsToShift.put(xssfComment, newrownum);
-                            }
-                        }
+                // is there a change necessary for the row of this comment, which is only moved along with its row?
+                if(newrownum != rownum && rowExists(rownum)) {
+                    XSSFComment oldComment = sheetComments.findCellComment(cellAddress);
+                    if (oldComment != null) {
+                        XSSFComment xssfComment = new XSSFComment(sheetComments, oldComment.getCTComment(),
+                                oldComment.getCTShape());
+
+                        // we should not perform the shifting right here as we would then find
+                        // already shifted comments and would shift them again...
+                        commentsToShift.put(xssfComment, newrownum);
                     }
                 }
             }
-
-            if(rownum < startRow || rownum > endRow) {
-                continue;
-            }
-            row.shift(n);
         }
+
+        shiftRowsInPlace(startRow, endRow, n);
+
         // adjust all the affected comment-structures now
         // the Map is sorted and thus provides them in the order that we need here,
         // i.e. from down to up if shifting down, vice-versa otherwise
         for(Map.Entry<XSSFComment, Integer> entry : commentsToShift.entrySet()) {
             entry.getKey().setRow(entry.getValue());
         }
+    }
 
-        rebuildRows();
+    private boolean rowExists(int rownum) {
+        return _rows.containsKey(rownum) || (compactRows != null && compactRows.findRow(rownum) != -1);
+    }
+
+    /**
+     * Shifts the regular rows and the compact rows between startRow and endRow, the rows in the target-window
+     * need to be removed before
+     */
+    private void shiftRowsInPlace(int startRow, int endRow, final int n) {
+        SortedMap<Integer, XSSFRow> rowsToShift = _rows.subMap(startRow, endRow + 1);
+        int[] compactRowNums = compactRows == null ? new int[0] : compactRows.getRowNums(startRow, endRow);
+        if (!rowsToShift.isEmpty()) {
+            validateShiftedRowNum(rowsToShift.firstKey() + n);
+            validateShiftedRowNum(rowsToShift.lastKey() + n);
+        }
+        if (compactRowNums.length > 0) {
+            validateShiftedRowNum(compactRowNums[0] + n);
+            validateShiftedRowNum(compactRowNums[compactRowNums.length - 1] + n);
+            validateArrayFormulasNotSplit(startRow, endRow, compactRowNums);
+            compactRows.shiftRows(startRow, endRow, n);
+        }
+
+        CalculationChain calcChain = getWorkbook().getCalculationChain();
+        if (calcChain != null) {
+            // remove the formulas of all shifted cells at once instead of searching the chain for each cell
+            calcChain.removeItems(Math.toIntExact(sheet.getSheetId()), startRow, endRow);
+        }
+        List<XSSFRow> rows = new ArrayList<>(rowsToShift.values());
+        for (XSSFRow row : rows) {
+            // the rows are still found by their old numbers, e.g. to look up array formulas
+            row.shift(n, false);
+        }
+        rowsToShift.clear();
+        for (XSSFRow row : rows) {
+            _rows.put(row.getRowNum(), row);
+        }
+        reorderRows(Math.min(startRow, startRow + n), Math.max(endRow, endRow + n), rows, n);
+    }
+
+    /**
+     * A range, which is moved by one of the shifts, lies in the rows of the first of these shifts before
+     * it is moved, so the original ranges are checked against the rows of all shifts
+     */
+    private boolean hasFormulaRangesInShiftedRows(List<XSSFRowShiftBatch.RowShift> shifts) {
+        List<CellRangeAddress> ranges = new ArrayList<>(arrayFormulas);
+        for (CTCellFormula sf : sharedFormulas.values()) {
+            ranges.add(CellRangeAddress.valueOf(sf.getRef()));
+        }
+        for (CellRangeAddress range : ranges) {
+            for (XSSFRowShiftBatch.RowShift shift : shifts) {
+                int firstRow = Math.min(shift.startRow, shift.startRow + shift.n);
+                int lastRow = Math.max(shift.endRow, shift.endRow + shift.n);
+                if (range.getFirstRow() <= lastRow && range.getLastRow() >= firstRow) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Compact rows are shifted without their cells, so the check of {@link XSSFRow#shift(int)}, that no part
+     * of a multi-cell array formula is moved, is done for the compact rows in advance
+     */
+    private void validateArrayFormulasNotSplit(int startRow, int endRow, int[] compactRowNums) {
+        for (CellRangeAddress range : arrayFormulas) {
+            if (range.getNumberOfCells() == 1
+                    || range.getLastRow() < startRow || range.getFirstRow() > endRow
+                    || (range.getFirstRow() >= startRow && range.getLastRow() <= endRow)) {
+                continue;
+            }
+            for (int rownum : compactRowNums) {
+                if (rownum >= range.getFirstRow() && rownum <= range.getLastRow()) {
+                    throw new IllegalStateException("Row[rownum=" + rownum + "] contains cell(s) included in a " +
+                            "multi-cell array formula. You cannot change part of an array.");
+                }
+            }
+        }
+    }
+
+    private static void validateShiftedRowNum(int rownum) {
+        int maxrow = SpreadsheetVersion.EXCEL2007.getLastRowIndex();
+        if (rownum < 0 || rownum > maxrow) {
+            throw new IllegalArgumentException("Invalid row number (" + rownum
+                    + ") outside allowable range (0.." + maxrow + ")");
+        }
+    }
+
+    /**
+     * Restores the order of the row beans in the sheet data after the rows between firstRow and lastRow
+     * have been renumbered. The rows, whose relative order hasn't changed, keep their position, e.g. no row
+     * is moved, if rows are inserted or deleted, and only the rows in the gap between the source and the
+     * destination are moved otherwise. Moved row beans are replaced, as moving them disconnects the old beans.
+     */
+    private void reorderRows(int firstRow, int lastRow, List<XSSFRow> shiftedRows, int n) {
+        Set<XSSFRow> shifted = Collections.newSetFromMap(new IdentityHashMap<>());
+        shifted.addAll(shiftedRows);
+        List<XSSFRow> rows = new ArrayList<>(_rows.subMap(firstRow, lastRow + 1).values());
+        // the row beans are still ordered by the row numbers before the shift
+        int[] positions = new int[rows.size()];
+        boolean ordered = true;
+        for (int i = 0; i < positions.length; i++) {
+            XSSFRow row = rows.get(i);
+            positions[i] = shifted.contains(row) ? row.getRowNum() - n : row.getRowNum();
+            ordered &= i == 0 || positions[i] > positions[i - 1];
+        }
+        if (ordered) {
+            return;
+        }
+
+        boolean[] keep = longestIncreasingSubsequence(positions);
+        SortedMap<Integer, XSSFRow> following = _rows.tailMap(lastRow + 1);
+        XSSFRow next = following.isEmpty() ? null : following.get(following.firstKey());
+        // move each row before its successor, starting with the last row
+        for (int i = rows.size() - 1; i >= 0; i--) {
+            XSSFRow row = rows.get(i);
+            if (!keep[i]) {
+                CTRow ctRow;
+                try (XmlCursor source = row.getCTRow().newCursor();
+                     XmlCursor target = (next == null ? worksheet.getSheetData() : next.getCTRow()).newCursor()) {
+                    if (next == null) {
+                        target.toEndToken();
+                    }
+                    source.moveXml(target);
+                    target.toPrevSibling();
+                    ctRow = (CTRow) target.getObject();
+                }
+                row = new XSSFRow(ctRow, this, false);
+                _rows.put(row.getRowNum(), row);
+            }
+            next = row;
+        }
+    }
+
+    /**
+     * @return the flags of the values, which belong to a longest strictly increasing subsequence
+     */
+    private static boolean[] longestIncreasingSubsequence(int[] values) {
+        // the index of the last value of the best subsequence found so far per length
+        int[] tails = new int[values.length];
+        int[] predecessors = new int[values.length];
+        int length = 0;
+        for (int i = 0; i < values.length; i++) {
+            int low = 0;
+            int high = length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (values[tails[mid]] < values[i]) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            predecessors[i] = low > 0 ? tails[low - 1] : -1;
+            tails[low] = i;
+            if (low == length) {
+                length++;
+            }
+        }
+        boolean[] result = new boolean[values.length];
+        for (int i = length > 0 ? tails[length - 1] : -1; i >= 0; i = predecessors[i]) {
+            result[i] = true;
+        }
+        return result;
     }
 
     private int shiftedRowNum(int startRow, int endRow, int n, int rownum) {
@@ -3320,8 +3746,6 @@ public class XSSFSheet extends POIXMLDocumentPart implements Sheet, OoxmlSheetEx
         for(Map.Entry<XSSFComment, Integer> entry : commentsToShift.entrySet()) {
             entry.getKey().setColumn(entry.getValue());
         }
-
-        rebuildRows();
     }
 
     /**
@@ -3632,20 +4056,6 @@ public class XSSFSheet extends POIXMLDocumentPart implements Sheet, OoxmlSheetEx
         return sheetPr.isSetPageSetUpPr() ? sheetPr.getPageSetUpPr() : sheetPr.addNewPageSetUpPr();
     }
 
-    private static boolean shouldRemoveRow(int startRow, int endRow, int n, int rownum) {
-        // is this row in the target-window where the moved rows will land?
-        if (rownum >= (startRow + n) && rownum <= (endRow + n)) {
-            // only remove it if the current row is not part of the data that is copied
-            if (n > 0 && rownum > endRow) {
-                return true;
-            }
-            else {
-                return n < 0 && rownum < startRow;
-            }
-        }
-        return false;
-    }
-
     private CTPane getPane(final boolean create) {
         final CTSheetView dsv = getDefaultSheetView(create);
         assert(dsv != null || !create);
@@ -3666,6 +4076,21 @@ public class XSSFSheet extends POIXMLDocumentPart implements Sheet, OoxmlSheetEx
         return sharedFormulas.get(sid);
     }
 
+    /**
+     * Registers an array formula or the master of a shared formula again, after the range of the formula
+     * has been changed, e.g. when rows have been shifted
+     *
+     * @param cell the cell with the formula
+     * @param oldRef the range of the formula before it has been changed
+     */
+    @Internal
+    public void onUpdateFormulaRef(XSSFCell cell, String oldRef) {
+        if (cell.getCTCell().getF().getT() == STCellFormulaType.ARRAY) {
+            arrayFormulas.remove(CellRangeAddress.valueOf(oldRef));
+        }
+        onReadCell(cell);
+    }
+
     void onReadCell(XSSFCell cell){
         //collect cells holding shared formulas
         CTCell ct = cell.getCTCell();
@@ -3694,14 +4119,39 @@ public class XSSFSheet extends POIXMLDocumentPart implements Sheet, OoxmlSheetEx
         }
     }
 
+    @Override
+    protected void prepareForCommit() {
+        // a sheet, which hasn't been parsed, keeps the content of its part
+        if (!readDeferred) {
+            super.prepareForCommit();
+        }
+    }
+
     @Override
     protected void commit() throws IOException {
+        if (readDeferred) {
+            return;
+        }
         PackagePart part = getPackagePart();
         try (OutputStream out = part.getOutputStream()) {
             write(out);
         }
     }
 
+    /**
+     * Writes the worksheet XML of this sheet to the given stream, the same way as it is
+     * done when the workbook is saved. The stream is not closed.
+     * This is used by the streaming writers, which produce the sheet parts themselves.
+     *
+     * @param out the stream to write the worksheet XML to
+     * @throws IOException if the sheet can't be written
+     * @since POI 5.2.4
+     */
+    @Internal
+    public void writeWorksheetXml(OutputStream out) throws IOException {
+        write(out);
+    }
+
     protected void write(OutputStream out) throws IOException {
         boolean setToNull = false;
         if(worksheet.sizeOfColsArray() == 1) {
@@ -3766,6 +4216,11 @@ public class XSSFSheet extends POIXMLDocumentPart implements Sheet, OoxmlSheetEx
                 }
             }
 
+            if (compactRows != null && compactRows.getLastColumn() != -1) {
+                minCell = Math.min(minCell, compactRows.getFirstColumn());
+                maxCell = Math.max(maxCell, compactRows.getLastColumn());
+            }
+
             // finally, if we had at least one cell we can populate the optional dimension-field
             if(minCell != Integer.MAX_VALUE) {
                 cellRangeAddress = new CellRangeAddress(getFirstRowNum(), getLastRowNum(), minCell, maxCell);
@@ -3782,7 +4237,14 @@ public class XSSFSheet extends POIXMLDocumentPart implements Sheet, OoxmlSheetEx
         XmlOptions xmlOptions = new XmlOptions(DEFAULT_XML_OPTIONS);
         xmlOptions.setSaveSyntheticDocumentElement(new QName(CTWorksheet.type.getName().getNamespaceURI(), "worksheet"));
 
-        worksheet.save(out, xmlOptions);
+        if (compactRows == null) {
+            worksheet.save(out, xmlOptions);
+        } else {
+            // the compact rows are written directly between the regular rows
+            try (CompactSheetDataWriter dataWriter = new CompactSheetDataWriter(out, compactRows, this::getDefaultStyleIndex)) {
+                worksheet.save(dataWriter, xmlOptions);
+            }
+        }
 
         // Bug 52233: Ensure that we have a col-array even if write() removed it
         if(setToNull) {
@@ -4785,7 +5247,8 @@ public class XSSFSheet extends POIXMLDocumentPart implements Sheet, OoxmlSheetEx
                                             nextCell.getColumnIndex(), ref.getLastColumn());
                                     nextF.setRef(nextRef.formatAsString());
 
-                                    sharedFormulas.put(Math.toIntExact(nextF.getSi()), nextF);
+                                    // a detached copy like in onReadCell, as the formula of the cell is updated separately
+                                    sharedFormulas.put(Math.toIntExact(nextF.getSi()), (CTCellFormula) nextF.copy());
                                     break DONE;
                                 }
                             }
@@ -208,6 +208,18 @@ public class XSSFWorkbook extends POIXMLDocument implements Workbook, Date1904Su
 
     private final XSSFFactory xssfFactory;
 
+    /**
+     * Whether the rows of the sheets are kept in a compact store until they are accessed
+     * @see XSSFLoadOptions#setCompactSheetData(boolean)
+     */
+    private boolean compactSheetData;
+
+    /**
+     * Whether the sheet parts are parsed on the first access
+     * @see XSSFLoadOptions#setLazySheets(boolean)
+     */
+    private boolean lazySheets;
+
     /**
      * Create a new SpreadsheetML workbook.
      */
@@ -251,8 +263,32 @@ public class XSSFWorkbook extends POIXMLDocument implements Workbook, Date1904Su
      * input format
      */
     public XSSFWorkbook(OPCPackage pkg) throws IOException {
+        this(pkg, null);
+    }
+
+    /**
+     * Constructs a XSSFWorkbook object given a OpenXML4J {@code Package} object and the options for reading it.
+     *
+     * <p>Once you have finished working with the Workbook, you should close the package
+     * by calling either {@link #close()} or {@link OPCPackage#close()}, to avoid
+     * leaving file handles open.
+     *
+     * @param pkg the OpenXML4J {@code OPC Package} object.
+     * @param options the options for reading the workbook, {@code null} for the defaults
+     * @throws IOException If reading data from the package fails
+     * @throws POIXMLException a RuntimeException that can be caused by invalid OOXML data
+     * @throws RuntimeException a number of other runtime exceptions can be thrown, especially if there are problems with the
+     * input format
+     * @since POI 5.2.4
+     */
+    @Beta
+    public XSSFWorkbook(OPCPackage pkg, XSSFLoadOptions options) throws IOException {
         super(pkg);
         this.xssfFactory = XSSFFactory.getInstance();
+        if (options != null) {
+            this.compactSheetData = options.isCompactSheetData();
+            this.lazySheets = options.isLazySheets();
+        }
 
         beforeDocumentRead();
 
@@ -346,6 +382,14 @@ public class XSSFWorkbook extends POIXMLDocument implements Workbook, Date1904Su
         this(part.getInputStream(), true);
     }
 
+    /**
+     * @return {@code true} if the rows of the sheets are kept in a compact store until they are accessed
+     * @see XSSFLoadOptions#setCompactSheetData(boolean)
+     */
+    boolean isCompactSheetData() {
+        return compactSheetData;
+    }
+
     /**
      * @return the XSSFFactory
      * @since POI 5.1.0
@@ -465,10 +509,30 @@ public class XSSFWorkbook extends POIXMLDocument implements Workbook, Date1904Su
             return;
         }
         sh.sheet = ctSheet;
-        sh.onDocumentRead();
+        if (lazySheets) {
+            // the pivot tables are registered with the workbook without parsing the sheet
+            for (POIXMLDocumentPart p : sh.getRelations()) {
+                if (p instanceof XSSFPivotTable) {
+                    pivotTables.add((XSSFPivotTable) p);
+                }
+            }
+            sh.deferRead();
+        } else {
+            sh.onDocumentRead();
+        }
         sheets.add(sh);
     }
 
+    /**
+     * Parses the given sheet, if this hasn't been done yet
+     *
+     * @see XSSFLoadOptions#setLazySheets(boolean)
+     */
+    private XSSFSheet readSheet(XSSFSheet sheet) {
+        sheet.readIfDeferred();
+        return sheet;
+    }
+
     /**
      * Create a new CTWorkbook with all values set to default
      */
@@ -627,7 +691,7 @@ public class XSSFWorkbook extends POIXMLDocument implements Workbook, Date1904Su
      */
     public XSSFSheet cloneSheet(int sheetNum, String newName) {
         validateSheetIndex(sheetNum);
-        XSSFSheet srcSheet = sheets.get(sheetNum);
+        XSSFSheet srcSheet = getSheetAt(sheetNum);
 
         if (newName == null) {
             String srcName = srcSheet.getSheetName();
@@ -1166,7 +1230,7 @@ public class XSSFWorkbook extends POIXMLDocument implements Workbook, Date1904Su
     public XSSFSheet getSheet(String name) {
         for (XSSFSheet sheet : sheets) {
             if (name.equalsIgnoreCase(sheet.getSheetName())) {
-                return sheet;
+                return readSheet(sheet);
             }
         }
         return null;
@@ -1183,7 +1247,7 @@ public class XSSFWorkbook extends POIXMLDocument implements Workbook, Date1904Su
     @Override
     public XSSFSheet getSheetAt(int index) {
         validateSheetIndex(index);
-        return sheets.get(index);
+        return readSheet(sheets.get(index));
     }
 
     /**
@@ -1273,22 +1337,25 @@ public class XSSFWorkbook extends POIXMLDocument implements Workbook, Date1904Su
     @Override
     @SuppressWarnings("unchecked")
     public Spliterator<Sheet> spliterator() {
+        for (XSSFSheet sheet : sheets) {
+            readSheet(sheet);
+        }
         return (Spliterator<Sheet>)(Spliterator<? extends Sheet>) sheets.spliterator();
     }
 
     private final class SheetIterator<T extends Sheet> implements Iterator<T> {
-        final private Iterator<T> it;
-        @SuppressWarnings("unchecked")
+        final private Iterator<XSSFSheet> it;
         public SheetIterator() {
-            it = (Iterator<T>) sheets.iterator();
+            it = sheets.iterator();
         }
         @Override
         public boolean hasNext() {
             return it.hasNext();
         }
         @Override
+        @SuppressWarnings("unchecked")
         public T next() throws NoSuchElementException {
-            return it.next();
+            return (T) readSheet(it.next());
         }
         /**
          * Unexpected behavior may occur if sheets are reordered after iterator
@@ -1626,7 +1693,7 @@ public class XSSFWorkbook extends POIXMLDocument implements Workbook, Date1904Su
     public void setSelectedTab(int index) {
         int idx = 0;
         for (XSSFSheet sh : sheets) {
-            sh.setSelected(idx == index);
+            readSheet(sh).setSelected(idx == index);
             idx++;
         }
     }
@@ -2435,7 +2502,7 @@ public class XSSFWorkbook extends POIXMLDocument implements Workbook, Date1904Su
     public XSSFTable getTable(String name) {
         if (name != null && sheets != null) {
             for (XSSFSheet sheet : sheets) {
-                for (XSSFTable tbl : sheet.getTables()) {
+                for (XSSFTable tbl : readSheet(sheet).getTables()) {
                     if (name.equalsIgnoreCase(tbl.getName())) {
                         return tbl;
                     }
@@ -20,6 +20,7 @@ package org.apache.poi.xssf.usermodel.extensions;
 import java.util.Objects;
 
 import org.apache.poi.ss.usermodel.BorderStyle;
+import org.apache.poi.xssf.model.StylesTable;
 import org.apache.poi.xssf.model.ThemesTable;
 import org.apache.poi.xssf.usermodel.IndexedColorMap;
 import org.apache.poi.xssf.usermodel.XSSFColor;
@@ -37,6 +38,8 @@ public class XSSFCellBorder {
     private final IndexedColorMap _indexedColorMap;
     private ThemesTable _theme;
     private final CTBorder border;
+    /** the styles table, which has indexed this border, {@code null} if it isn't indexed */
+    private StylesTable _styles;
 
     /**
      * Creates a Cell Border from the supplied XML definition
@@ -84,6 +87,23 @@ public class XSSFCellBorder {
        this._theme = themes;
     }
 
+    /**
+     * Records the styles table, which has indexed this border for its lookups
+     * and is notified about the changes of the border.
+     *
+     * @since POI 5.2.4
+     */
+    @Internal
+    public void setStylesTable(StylesTable styles) {
+        this._styles = styles;
+    }
+
+    private void onChange() {
+        if (_styles != null) {
+            _styles.onBorderChange(this);
+        }
+    }
+
     /**
      * The enumeration value indicating the side being used for a cell border.
      */
@@ -123,6 +143,7 @@ public class XSSFCellBorder {
      */
     public void setBorderStyle(BorderSide side, BorderStyle style) {
         getBorder(side, true).setStyle(STBorderStyle.Enum.forInt(style.ordinal() + 1));
+        onChange();
     }
 
     /**
@@ -157,6 +178,7 @@ public class XSSFCellBorder {
         if (color == null) borderPr.unsetColor();
         else
             borderPr.setColor(color.getCTColor());
+        onChange();
     }
 
     private CTBorderPr getBorder(BorderSide side) {
@@ -20,6 +20,7 @@ import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTColor;
 import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTFill;
 import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTPatternFill;
 import org.openxmlformats.schemas.spreadsheetml.x2006.main.STPatternType;
+import org.apache.poi.xssf.model.StylesTable;
 import org.apache.poi.xssf.usermodel.IndexedColorMap;
 import org.apache.poi.xssf.usermodel.XSSFColor;
 
@@ -35,6 +36,8 @@ public final class XSSFCellFill {
 
     private IndexedColorMap _indexedColorMap;
     private CTFill _fill;
+    /** the styles table, which has indexed this fill, {@code null} if it isn't indexed */
+    private StylesTable _styles;
 
     /**
      * Creates a CellFill from the supplied parts
@@ -75,6 +78,7 @@ public final class XSSFCellFill {
         CTPatternFill ptrn = ensureCTPatternFill();
         CTColor ctColor = ptrn.isSetBgColor() ? ptrn.getBgColor() : ptrn.addNewBgColor();
         ctColor.setIndexed(index);
+        onChange();
     }
 
     /**
@@ -89,6 +93,7 @@ public final class XSSFCellFill {
         } else {
             ptrn.setBgColor(color.getCTColor());
         }
+        onChange();
     }
 
     /**
@@ -113,6 +118,7 @@ public final class XSSFCellFill {
         CTPatternFill ptrn = ensureCTPatternFill();
         CTColor ctColor = ptrn.isSetFgColor() ? ptrn.getFgColor() : ptrn.addNewFgColor();
         ctColor.setIndexed(index);
+        onChange();
     }
 
     /**
@@ -127,6 +133,7 @@ public final class XSSFCellFill {
         } else {
             ptrn.setFgColor(color.getCTColor());
         }
+        onChange();
     }
 
     /**
@@ -147,6 +154,24 @@ public final class XSSFCellFill {
     public void setPatternType(STPatternType.Enum patternType) {
         CTPatternFill ptrn = ensureCTPatternFill();
         ptrn.setPatternType(patternType);
+        onChange();
+    }
+
+    /**
+     * Records the styles table, which has indexed this fill for its lookups
+     * and is notified about the changes of the fill.
+     *
+     * @since POI 5.2.4
+     */
+    @Internal
+    public void setStylesTable(StylesTable styles) {
+        this._styles = styles;
+    }
+
+    private void onChange() {
+        if (_styles != null) {
+            _styles.onFillChange(this);
+        }
     }
 
     private CTPatternFill ensureCTPatternFill() {
@@ -22,8 +22,7 @@ package org.apache.poi.xssf.usermodel.helpers;
 import java.util.List;
 
 import org.apache.poi.ooxml.POIXMLDocumentPart;
-import org.apache.poi.ss.formula.FormulaParser;
-import org.apache.poi.ss.formula.FormulaRenderer;
+import org.apache.poi.ss.formula.FormulaBatchUpdater;
 import org.apache.poi.ss.formula.FormulaType;
 import org.apache.poi.ss.formula.ptg.Ptg;
 import org.apache.poi.ss.formula.ptg.Pxg;
@@ -67,19 +66,22 @@ public final class XSSFFormulaUtils {
      * @param newName    the new sheet name
      */
     public void updateSheetName(final int sheetIndex, final String oldName, final String newName) {
+        FormulaBatchUpdater updater = createUpdater(oldName, newName);
+
         // update named ranges
         for (XSSFName nm : _wb.getAllNames()) {
             if (nm.getSheetIndex() == -1 || nm.getSheetIndex() == sheetIndex) {
-                updateName(nm, oldName, newName);
+                updateName(nm, updater);
             }
         }
 
         // update formulas
         for (Sheet sh : _wb) {
+            int shIndex = _wb.getSheetIndex(sh);
             for (Row row : sh) {
                 for (Cell cell : row) {
                     if (cell.getCellType() == CellType.FORMULA) {
-                        updateFormula((XSSFCell) cell, oldName, newName);
+                        updateFormula((XSSFCell) cell, shIndex, updater);
                     }
                 }
             }
@@ -92,29 +94,42 @@ public final class XSSFFormulaUtils {
                 XSSFDrawing dg = (XSSFDrawing) r;
                 for (XSSFChart chart : dg.getCharts()) {
                     Node dom = chart.getCTChartSpace().getDomNode();
-                    updateDomSheetReference(dom, oldName, newName);
+                    updateDomSheetReference(dom, oldName, newName, updater);
                 }
             }
         }
     }
 
+    /**
+     * Creates the updater for all formulas of a renaming. Only the formulas, which contain the old sheet name
+     * or a structured reference, are parsed and only the changed ones are rendered again.
+     */
+    private FormulaBatchUpdater createUpdater(String oldName, String newName) {
+        String quotedOldName = oldName.replace("'", "''");
+        return new FormulaBatchUpdater(_fpwb, _fpwb, (ptgs, sheetIndex) -> {
+            boolean changed = false;
+            for (Ptg ptg : ptgs) {
+                changed |= updatePtg(ptg, oldName, newName);
+            }
+            return changed;
+        }, (formula, sheetIndex) -> formula.contains(oldName) || formula.contains(quotedOldName)
+                || formula.indexOf('[') >= 0);
+    }
+
     /**
      * Parse cell formula and re-assemble it back using the new sheet name
      *
      * @param cell the cell to update
+     * @param sheetIndex the index of the sheet of the cell
+     * @param updater the updater of the renaming
      */
-    private void updateFormula(XSSFCell cell, String oldName, String newName) {
+    private void updateFormula(XSSFCell cell, int sheetIndex, FormulaBatchUpdater updater) {
         CTCellFormula f = cell.getCTCell().getF();
         if (f != null) {
             String formula = f.getStringValue();
             if (formula != null && formula.length() > 0) {
-                int sheetIndex = _wb.getSheetIndex(cell.getSheet());
-                Ptg[] ptgs = FormulaParser.parse(formula, _fpwb, FormulaType.CELL, sheetIndex, cell.getRowIndex());
-                for (Ptg ptg : ptgs) {
-                    updatePtg(ptg, oldName, newName);
-                }
-                String updatedFormula = FormulaRenderer.toFormulaString(_fpwb, ptgs);
-                if (!formula.equals(updatedFormula)) {
+                String updatedFormula = updater.update(formula, FormulaType.CELL, sheetIndex, cell.getRowIndex());
+                if (updatedFormula != null && !formula.equals(updatedFormula)) {
                     f.setStringValue(updatedFormula);
                 }
             }
@@ -125,40 +140,41 @@ public final class XSSFFormulaUtils {
      * Parse formula in the named range and re-assemble it back using the new sheet name.
      *
      * @param name the name to update
+     * @param updater the updater of the renaming
      */
-    private void updateName(XSSFName name, String oldName, String newName) {
+    private void updateName(XSSFName name, FormulaBatchUpdater updater) {
         String formula = name.getRefersToFormula();
         if (formula != null) {
             int sheetIndex = name.getSheetIndex();
             int rowIndex = -1; //don't care
-            Ptg[] ptgs = FormulaParser.parse(formula, _fpwb, FormulaType.NAMEDRANGE, sheetIndex, rowIndex);
-            for (Ptg ptg : ptgs) {
-                updatePtg(ptg, oldName, newName);
-            }
-            String updatedFormula = FormulaRenderer.toFormulaString(_fpwb, ptgs);
-            if (!formula.equals(updatedFormula)) {
+            String updatedFormula = updater.update(formula, FormulaType.NAMEDRANGE, sheetIndex, rowIndex);
+            if (updatedFormula != null && !formula.equals(updatedFormula)) {
                 name.setRefersToFormula(updatedFormula);
             }
         }
     }
 
-    private void updatePtg(Ptg ptg, String oldName, String newName) {
+    private boolean updatePtg(Ptg ptg, String oldName, String newName) {
+        boolean changed = false;
         if (ptg instanceof Pxg) {
             Pxg pxg = (Pxg)ptg;
             if (pxg.getExternalWorkbookNumber() < 1) {
                 if (pxg.getSheetName() != null &&
                         pxg.getSheetName().equals(oldName)) {
                     pxg.setSheetName(newName);
+                    changed = true;
                 }
                 if (pxg instanceof Pxg3D) {
                     Pxg3D pxg3D = (Pxg3D)pxg;
                     if (pxg3D.getLastSheetName() != null &&
                             pxg3D.getLastSheetName().equals(oldName)) {
                         pxg3D.setLastSheetName(newName);
+                        changed = true;
                     }
                 }
             }
         }
+        return changed;
     }
 
 
@@ -169,7 +185,7 @@ public final class XSSFFormulaUtils {
      *
      * Code extracted from: <a href="https://bz.apache.org/bugzilla/show_bug.cgi?id=54470">Bug 54470</a>
      */
-    private void updateDomSheetReference(Node dom, final String oldName, final String newName) {
+    private void updateDomSheetReference(Node dom, final String oldName, final String newName, FormulaBatchUpdater updater) {
         String value = dom.getNodeValue();
         if (value != null) {
             // make sure the value contains the old sheet and not a similar sheet
@@ -177,14 +193,14 @@ public final class XSSFFormulaUtils {
             if (value.contains(oldName+"!") || value.contains(oldName+"'!")) {
                 XSSFName temporary = _wb.createName();
                 temporary.setRefersToFormula(value);
-                updateName(temporary, oldName, newName);
+                updateName(temporary, updater);
                 dom.setNodeValue(temporary.getRefersToFormula());
                 _wb.removeName(temporary);
             }
         }
         NodeList nl = dom.getChildNodes();
         for (int i = 0; i < nl.getLength(); i++) {
-            updateDomSheetReference(nl.item(i), oldName, newName);
+            updateDomSheetReference(nl.item(i), oldName, newName, updater);
         }
     }
 
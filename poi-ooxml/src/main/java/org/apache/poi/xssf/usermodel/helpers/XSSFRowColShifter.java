@@ -19,12 +19,10 @@ package org.apache.poi.xssf.usermodel.helpers;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.apache.poi.ss.formula.FormulaBatchUpdater;
 import org.apache.poi.ss.formula.FormulaShifter;
-import org.apache.poi.ss.formula.FormulaParser;
 import org.apache.poi.ss.formula.FormulaType;
-import org.apache.poi.ss.formula.FormulaRenderer;
 import org.apache.poi.ss.formula.FormulaParseException;
-import org.apache.poi.ss.formula.ptg.Ptg;
 import org.apache.poi.ss.usermodel.*;
 import org.apache.poi.ss.usermodel.helpers.BaseRowColShifter;
 import org.apache.poi.ss.util.CellRangeAddress;
@@ -33,6 +31,7 @@ import org.apache.poi.xssf.usermodel.*;
 import org.openxmlformats.schemas.spreadsheetml.x2006.main.*;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import static org.apache.logging.log4j.util.Unbox.box;
@@ -53,16 +52,23 @@ import static org.apache.logging.log4j.util.Unbox.box;
      */
     /*package*/
     static void updateNamedRanges(Sheet sheet, FormulaShifter formulaShifter) {
+        updateNamedRanges(sheet, Collections.singletonList(formulaShifter));
+    }
+
+    /**
+     * Updated named ranges for several shifts, which are applied one after the other
+     */
+    /*package*/
+    static void updateNamedRanges(Sheet sheet, List<FormulaShifter> formulaShifters) {
         Workbook wb = sheet.getWorkbook();
-        XSSFEvaluationWorkbook fpb = XSSFEvaluationWorkbook.create((XSSFWorkbook) wb);
+        FormulaBatchUpdater updater = createUpdater(wb, formulaShifters);
         for (Name name : wb.getAllNames()) {
             String formula = name.getRefersToFormula();
             int sheetIndex = name.getSheetIndex();
             final int rowIndex = -1; //don't care, named ranges are not allowed to include structured references
 
-            Ptg[] ptgs = FormulaParser.parse(formula, fpb, FormulaType.NAMEDRANGE, sheetIndex, rowIndex);
-            if (formulaShifter.adjustFormula(ptgs, sheetIndex)) {
-                String shiftedFmla = FormulaRenderer.toFormulaString(fpb, ptgs);
+            String shiftedFmla = updater.update(formula, FormulaType.NAMEDRANGE, sheetIndex, rowIndex);
+            if (shiftedFmla != null) {
                 name.setRefersToFormula(shiftedFmla);
             }
         }
@@ -72,22 +78,33 @@ import static org.apache.logging.log4j.util.Unbox.box;
      * Update formulas.
      */
     /*package*/ static void updateFormulas(Sheet sheet, FormulaShifter formulaShifter) {
+        updateFormulas(sheet, Collections.singletonList(formulaShifter));
+    }
+
+    /**
+     * Update formulas for several shifts, which are applied one after the other
+     */
+    /*package*/ static void updateFormulas(Sheet sheet, List<FormulaShifter> formulaShifters) {
+        // one updater for all formulas of the workbook
+        FormulaBatchUpdater updater = createUpdater(sheet.getWorkbook(), formulaShifters);
+
         //update formulas on the parent sheet
-        updateSheetFormulas(sheet,formulaShifter);
+        updateSheetFormulas(sheet, updater);
 
         //update formulas on other sheets
         Workbook wb = sheet.getWorkbook();
         for(Sheet sh : wb)
         {
             if (sheet == sh) continue;
-            updateSheetFormulas(sh, formulaShifter);
+            updateSheetFormulas(sh, updater);
         }
     }
 
-    /*package*/ static void updateSheetFormulas(Sheet sh, FormulaShifter formulashifter) {
-        for (Row r : sh) {
-            XSSFRow row = (XSSFRow) r;
-            updateRowFormulas(row, formulashifter);
+    private static void updateSheetFormulas(Sheet sh, FormulaBatchUpdater updater) {
+        int sheetIndex = sh.getWorkbook().getSheetIndex(sh);
+        // compact rows are only turned into regular rows, if they contain a formula which may be changed
+        for (XSSFRow row : ((XSSFSheet) sh).getFormulaRows(formula -> updater.mayUpdate(formula, sheetIndex))) {
+            updateRowFormulas(row, sheetIndex, updater);
         }
     }
 
@@ -98,6 +115,12 @@ import static org.apache.logging.log4j.util.Unbox.box;
      * @param formulaShifter the formula shifting policy
      */
     /*package*/ static void updateRowFormulas(XSSFRow row, FormulaShifter formulaShifter) {
+        XSSFSheet sheet = row.getSheet();
+        XSSFWorkbook wb = sheet.getWorkbook();
+        updateRowFormulas(row, wb.getSheetIndex(sheet), createUpdater(wb, formulaShifter));
+    }
+
+    private static void updateRowFormulas(XSSFRow row, int sheetIndex, FormulaBatchUpdater updater) {
         XSSFSheet sheet = row.getSheet();
         for (Cell c : row) {
             XSSFCell cell = (XSSFCell) c;
@@ -107,50 +130,56 @@ import static org.apache.logging.log4j.util.Unbox.box;
                 CTCellFormula f = ctCell.getF();
                 String formula = f.getStringValue();
                 if (formula.length() > 0) {
-                    String shiftedFormula = shiftFormula(row, formula, formulaShifter);
+                    String shiftedFormula = shiftFormula(row, sheetIndex, formula, updater);
                     if (shiftedFormula != null) {
                         f.setStringValue(shiftedFormula);
                         if(f.getT() == STCellFormulaType.SHARED){
                             int si = Math.toIntExact(f.getSi());
                             CTCellFormula sf = sheet.getSharedFormula(si);
                             sf.setStringValue(shiftedFormula);
-                            updateRefInCTCellFormula(row, formulaShifter, sf);
+                            updateRefInCTCellFormula(row, sheetIndex, updater, sf);
                         }
                     }
 
                 }
 
                 //Range of cells which the formula applies to.
-                updateRefInCTCellFormula(row, formulaShifter, f);
+                String ref = f.isSetRef() ? f.getRef() : null;
+                updateRefInCTCellFormula(row, sheetIndex, updater, f);
+                if (ref != null && !ref.equals(f.getRef())) {
+                    sheet.onUpdateFormulaRef(cell, ref);
+                }
             }
 
         }
     }
 
     /**
-     * Shift a formula using the supplied FormulaShifter
+     * Creates the updater for all formulas of a shift. The sheet indexes are the extern sheet indexes of XSSF.
+     */
+    private static FormulaBatchUpdater createUpdater(Workbook wb, FormulaShifter formulaShifter) {
+        XSSFEvaluationWorkbook fpb = XSSFEvaluationWorkbook.create((XSSFWorkbook) wb);
+        return FormulaBatchUpdater.forShifter(fpb, fpb, formulaShifter);
+    }
+
+    private static FormulaBatchUpdater createUpdater(Workbook wb, List<FormulaShifter> formulaShifters) {
+        XSSFEvaluationWorkbook fpb = XSSFEvaluationWorkbook.create((XSSFWorkbook) wb);
+        return FormulaBatchUpdater.forShifters(fpb, fpb, formulaShifters);
+    }
+
+    /**
+     * Shift a formula using the supplied updater
      *
-     * @param row            the row of the cell this formula belongs to. Used to get a reference to the parent workbook.
+     * @param row            the row of the cell this formula belongs to
+     * @param sheetIndex     the index of the sheet of the row
      * @param formula        the formula to shift
-     * @param formulaShifter the FormulaShifter object that operates on the parsed formula tokens
+     * @param updater        the updater, which shifts the parsed formula tokens
      * @return the shifted formula if the formula was changed,
      * <code>null</code> if the formula wasn't modified
      */
-    /*package*/
-    static String shiftFormula(Row row, String formula, FormulaShifter formulaShifter) {
-        Sheet sheet = row.getSheet();
-        Workbook wb = sheet.getWorkbook();
-        int sheetIndex = wb.getSheetIndex(sheet);
-        final int rowIndex = row.getRowNum();
-        XSSFEvaluationWorkbook fpb = XSSFEvaluationWorkbook.create((XSSFWorkbook) wb);
-
+    private static String shiftFormula(Row row, int sheetIndex, String formula, FormulaBatchUpdater updater) {
         try {
-            Ptg[] ptgs = FormulaParser.parse(formula, fpb, FormulaType.CELL, sheetIndex, rowIndex);
-            String shiftedFmla = null;
-            if (formulaShifter.adjustFormula(ptgs, sheetIndex)) {
-                shiftedFmla = FormulaRenderer.toFormulaString(fpb, ptgs);
-            }
-            return shiftedFmla;
+            return updater.update(formula, FormulaType.CELL, sheetIndex, row.getRowNum());
         } catch (FormulaParseException fpe) {
             // Log, but don't change, rather than breaking
             LOG.atWarn().withThrowable(fpe).log("Error shifting formula on row {}", box(row.getRowNum()));
@@ -158,11 +187,10 @@ import static org.apache.logging.log4j.util.Unbox.box;
         }
     }
 
-    /*package*/
-    static void updateRefInCTCellFormula(Row row, FormulaShifter formulaShifter, CTCellFormula f) {
+    private static void updateRefInCTCellFormula(Row row, int sheetIndex, FormulaBatchUpdater updater, CTCellFormula f) {
         if (f.isSetRef()) { //Range of cells which the formula applies to.
             String ref = f.getRef();
-            String shiftedRef = shiftFormula(row, ref, formulaShifter);
+            String shiftedRef = shiftFormula(row, sheetIndex, ref, updater);
             if (shiftedRef != null) f.setRef(shiftedRef);
         }
     }
@@ -175,7 +203,7 @@ import static org.apache.logging.log4j.util.Unbox.box;
         int sheetIndex = wb.getSheetIndex(sheet);
         final int rowIndex = -1; //don't care, structured references not allowed in conditional formatting
 
-        XSSFEvaluationWorkbook fpb = XSSFEvaluationWorkbook.create(wb);
+        FormulaBatchUpdater updater = createUpdater(wb, formulaShifter);
         CTWorksheet ctWorksheet = xsheet.getCTWorksheet();
         CTConditionalFormatting[] conditionalFormattingArray = ctWorksheet.getConditionalFormattingArray();
         // iterate backwards due to possible calls to ctWorksheet.removeConditionalFormatting(j)
@@ -219,9 +247,8 @@ import static org.apache.logging.log4j.util.Unbox.box;
                 String[] formulaArray = cfRule.getFormulaArray();
                 for (int i = 0; i < formulaArray.length; i++) {
                     String formula = formulaArray[i];
-                    Ptg[] ptgs = FormulaParser.parse(formula, fpb, FormulaType.CELL, sheetIndex, rowIndex);
-                    if (formulaShifter.adjustFormula(ptgs, sheetIndex)) {
-                        String shiftedFmla = FormulaRenderer.toFormulaString(fpb, ptgs);
+                    String shiftedFmla = updater.update(formula, FormulaType.CELL, sheetIndex, rowIndex);
+                    if (shiftedFmla != null) {
                         cfRule.setFormulaArray(i, shiftedFmla);
                     }
                 }
@@ -17,6 +17,8 @@
 
 package org.apache.poi.xssf.usermodel.helpers;
 
+import java.util.List;
+
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.poi.ss.formula.FormulaShifter;
@@ -46,6 +48,30 @@ public final class XSSFRowShifter extends RowShifter {
         XSSFRowColShifter.updateFormulas(sheet, formulaShifter);
     }
 
+    /**
+     * Update the named ranges for several row shifts, which are applied one after the other,
+     * so each name is parsed only once
+     *
+     * @param formulaShifters the formula shifting policies of the row shifts
+     * @since POI 5.2.4
+     */
+    @Internal
+    public void updateNamedRanges(List<FormulaShifter> formulaShifters) {
+        XSSFRowColShifter.updateNamedRanges(sheet, formulaShifters);
+    }
+
+    /**
+     * Update the formulas of the workbook for several row shifts, which are applied one after the other,
+     * so each formula is parsed only once
+     *
+     * @param formulaShifters the formula shifting policies of the row shifts
+     * @since POI 5.2.4
+     */
+    @Internal
+    public void updateFormulas(List<FormulaShifter> formulaShifters) {
+        XSSFRowColShifter.updateFormulas(sheet, formulaShifters);
+    }
+
     /**
      * Update the formulas in specified row using the formula shifting policy specified by shifter
      *
@@ -0,0 +1,111 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.benchmark;
+
+import static org.apache.commons.io.output.NullOutputStream.NULL_OUTPUT_STREAM;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.GeneralSecurityException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.input.UnsynchronizedByteArrayInputStream;
+import org.apache.commons.io.output.UnsynchronizedByteArrayOutputStream;
+import org.apache.poi.benchmark.BenchmarkFixtures.Format;
+import org.apache.poi.poifs.crypt.Decryptor;
+import org.apache.poi.poifs.crypt.EncryptionInfo;
+import org.apache.poi.poifs.crypt.EncryptionMode;
+import org.apache.poi.poifs.crypt.Encryptor;
+import org.apache.poi.poifs.filesystem.POIFSFileSystem;
+import org.apache.poi.util.IOUtils;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Agile encryption and decryption of a generated xlsx file.
+ * <p>
+ * Both directions include the password key derivation, which dominates for small files.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class AgileEncryptionBench {
+    private static final String PASSWORD = "benchmark";
+
+    @Param({"1000", "50000"})
+    public int rows;
+
+    private byte[] plain;
+    private byte[] encrypted;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException, GeneralSecurityException {
+        plain = BenchmarkFixtures.generate(Format.XSSF, rows);
+        UnsynchronizedByteArrayOutputStream bos = new UnsynchronizedByteArrayOutputStream();
+        encrypt(bos);
+        encrypted = bos.toByteArray();
+    }
+
+    @Benchmark
+    public void encrypt() throws IOException, GeneralSecurityException {
+        encrypt(NULL_OUTPUT_STREAM);
+    }
+
+    @Benchmark
+    public long decrypt() throws IOException, GeneralSecurityException {
+        try (POIFSFileSystem fs = new POIFSFileSystem(new UnsynchronizedByteArrayInputStream(encrypted))) {
+            EncryptionInfo info = new EncryptionInfo(fs);
+            Decryptor dec = Decryptor.getInstance(info);
+            if (!dec.verifyPassword(PASSWORD)) {
+                throw new IllegalStateException("invalid password");
+            }
+            try (InputStream is = dec.getDataStream(fs)) {
+                return IOUtils.copy(is, NULL_OUTPUT_STREAM);
+            }
+        }
+    }
+
+    private void encrypt(OutputStream out) throws IOException, GeneralSecurityException {
+        try (POIFSFileSystem fs = new POIFSFileSystem()) {
+            EncryptionInfo info = new EncryptionInfo(EncryptionMode.agile);
+            Encryptor enc = info.getEncryptor();
+            enc.confirmPassword(PASSWORD);
+            try (OutputStream os = enc.getDataStream(fs)) {
+                os.write(plain);
+            }
+            fs.writeFilesystem(out);
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(".*" + AgileEncryptionBench.class.getSimpleName() + ".*")
+                .addProfiler(GCProfiler.class)
+                .forks(1)
+                .build();
+
+        new Runner(opt).run();
+    }
+}
@@ -0,0 +1,148 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.benchmark;
+
+import java.io.IOException;
+import java.util.Calendar;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+
+import org.apache.commons.io.output.UnsynchronizedByteArrayOutputStream;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+/**
+ * Generates the workbooks, which are used by the benchmarks.
+ * <p>
+ * The content only depends on the requested size - the random values are drawn from a fixed seed -
+ * so the results of different runs and different POI versions can be compared with each other.
+ */
+public final class BenchmarkFixtures {
+    /** the number of columns of a generated row */
+    static final int COLUMNS = 8;
+
+    private static final long SEED = 0x5EED_CAFEL;
+
+    public enum Format {
+        HSSF, XSSF;
+
+        Workbook create() {
+            return this == HSSF ? new HSSFWorkbook() : new XSSFWorkbook();
+        }
+    }
+
+    private BenchmarkFixtures() {}
+
+    /**
+     * Fills the sheet "Data" of the given workbook with {@code rows} rows of mixed content:
+     * <ul>
+     * <li>A: row number, B: random double, C: string out of a pool of 1000 values, D: date,
+     *     E: boolean, F: percentage style</li>
+     * <li>G: {@code A*B}, H: {@code IF(E,G,-G)}</li>
+     * </ul>
+     * and adds a sheet "Summary" with aggregate and lookup formulas over the data.
+     */
+    static Workbook fill(Workbook wb, int rows) {
+        Random random = new Random(SEED);
+        Calendar cal = Calendar.getInstance(TimeZone.getTimeZone("UTC"), Locale.ROOT);
+        cal.clear();
+        cal.set(2000, Calendar.JANUARY, 1);
+
+        CellStyle dateStyle = wb.createCellStyle();
+        dateStyle.setDataFormat(wb.createDataFormat().getFormat("yyyy-mm-dd"));
+        CellStyle percentStyle = wb.createCellStyle();
+        percentStyle.setDataFormat(wb.createDataFormat().getFormat("0.00%"));
+
+        Sheet data = wb.createSheet("Data");
+        for (int r = 0; r < rows; r++) {
+            int excelRow = r + 1;
+            Row row = data.createRow(r);
+            row.createCell(0).setCellValue(excelRow);
+            row.createCell(1).setCellValue(random.nextDouble() * 1000);
+            row.createCell(2).setCellValue("Item " + random.nextInt(1000));
+            row.createCell(3).setCellValue(cal.getTime());
+            row.getCell(3).setCellStyle(dateStyle);
+            row.createCell(4).setCellValue(random.nextBoolean());
+            row.createCell(5).setCellValue(random.nextDouble());
+            row.getCell(5).setCellStyle(percentStyle);
+            row.createCell(6).setCellFormula("A" + excelRow + "*B" + excelRow);
+            row.createCell(7).setCellFormula("IF(E" + excelRow + ",G" + excelRow + ",-G" + excelRow + ")");
+            cal.add(Calendar.DAY_OF_MONTH, 1);
+        }
+
+        String last = Integer.toString(Math.max(rows, 1));
+        Sheet summary = wb.createSheet("Summary");
+        String[] formulas = {
+            "SUM(Data!B1:B" + last + ")",
+            "AVERAGE(Data!G1:G" + last + ")",
+            "SUMPRODUCT(Data!A1:A" + last + ",Data!F1:F" + last + ")",
+            "COUNTIF(Data!C1:C" + last + ",\"Item 1*\")",
+            "SUMIFS(Data!B1:B" + last + ",Data!E1:E" + last + ",TRUE)",
+            "VLOOKUP(" + last + ",Data!A1:H" + last + ",8,FALSE)",
+            "MATCH(\"Item 500\",Data!C1:C" + last + ",0)",
+            "MAX(Data!H1:H" + last + ")-MIN(Data!H1:H" + last + ")"
+        };
+        for (int i = 0; i < formulas.length; i++) {
+            summary.createRow(i).createCell(0).setCellFormula(formulas[i]);
+        }
+        return wb;
+    }
+
+    /**
+     * Writes a streaming workbook with the same data sheet layout as {@link #fill(Workbook, int)},
+     * but without the summary sheet
+     */
+    static void fillStreaming(SXSSFWorkbook wb, int rows) {
+        Random random = new Random(SEED);
+        Sheet data = wb.createSheet("Data");
+        for (int r = 0; r < rows; r++) {
+            int excelRow = r + 1;
+            Row row = data.createRow(r);
+            row.createCell(0).setCellValue(excelRow);
+            row.createCell(1).setCellValue(random.nextDouble() * 1000);
+            row.createCell(2).setCellValue("Item " + random.nextInt(1000));
+            row.createCell(3).setCellValue(36526 + r);
+            row.createCell(4).setCellValue(random.nextBoolean());
+            row.createCell(5).setCellValue(random.nextDouble());
+            row.createCell(6).setCellFormula("A" + excelRow + "*B" + excelRow);
+            row.createCell(7).setCellFormula("IF(E" + excelRow + ",G" + excelRow + ",-G" + excelRow + ")");
+        }
+    }
+
+    /**
+     * @return the serialized workbook of {@link #fill(Workbook, int)} including the cached formula results
+     */
+    static byte[] generate(Format format, int rows) throws IOException {
+        try (Workbook wb = fill(format.create(), rows)) {
+            wb.getCreationHelper().createFormulaEvaluator().evaluateAll();
+            return toBytes(wb);
+        }
+    }
+
+    static byte[] toBytes(Workbook wb) throws IOException {
+        UnsynchronizedByteArrayOutputStream bos = new UnsynchronizedByteArrayOutputStream();
+        wb.write(bos);
+        return bos.toByteArray();
+    }
+}
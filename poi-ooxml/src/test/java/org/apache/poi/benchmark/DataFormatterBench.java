@@ -0,0 +1,103 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.benchmark;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.poi.benchmark.BenchmarkFixtures.Format;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.FormulaEvaluator;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * {@link DataFormatter#formatCellValue(Cell)} over the numeric, date, text, boolean and formula cells
+ * of a generated sheet
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class DataFormatterBench {
+    private static final int ROWS = 1000;
+
+    @Param({"HSSF", "XSSF"})
+    public Format format;
+
+    private Workbook workbook;
+    private List<Cell> cells;
+    private DataFormatter formatter;
+    private FormulaEvaluator evaluator;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        workbook = BenchmarkFixtures.fill(format.create(), ROWS);
+        cells = new ArrayList<>();
+        for (Row row : workbook.getSheet("Data")) {
+            row.forEach(cells::add);
+        }
+        formatter = new DataFormatter(Locale.ROOT);
+        evaluator = workbook.getCreationHelper().createFormulaEvaluator();
+        evaluator.evaluateAll();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        workbook.close();
+    }
+
+    @Benchmark
+    public int formatCellValue() {
+        int length = 0;
+        for (Cell cell : cells) {
+            length += formatter.formatCellValue(cell).length();
+        }
+        return length;
+    }
+
+    @Benchmark
+    public int formatCellValueWithEvaluator() {
+        int length = 0;
+        for (Cell cell : cells) {
+            length += formatter.formatCellValue(cell, evaluator).length();
+        }
+        return length;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(".*" + DataFormatterBench.class.getSimpleName() + ".*")
+                .addProfiler(GCProfiler.class)
+                .forks(1)
+                .build();
+
+        new Runner(opt).run();
+    }
+}
@@ -0,0 +1,101 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.poi.benchmark.BenchmarkFixtures.Format;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.FormulaEvaluator;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Formula evaluation via the {@link FormulaEvaluator}, i.e. the {@code WorkbookEvaluator}
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class EvaluationBench {
+
+    @Param({"HSSF", "XSSF"})
+    public Format format;
+
+    @Param({"1000", "10000"})
+    public int rows;
+
+    private Workbook workbook;
+    private FormulaEvaluator evaluator;
+    private Cell input;
+    private Sheet summary;
+    private double inputValue;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        workbook = BenchmarkFixtures.fill(format.create(), rows);
+        evaluator = workbook.getCreationHelper().createFormulaEvaluator();
+        input = workbook.getSheet("Data").getRow(0).getCell(1);
+        inputValue = input.getNumericCellValue();
+        summary = workbook.getSheet("Summary");
+        evaluator.evaluateAll();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        workbook.close();
+    }
+
+    /** full recalculation without any cached values */
+    @Benchmark
+    public void recalculateAll() {
+        evaluator.clearAllCachedResultValues();
+        evaluator.evaluateAll();
+    }
+
+    /** change a single input and evaluate the dependent aggregates with a warm cache */
+    @Benchmark
+    public double updateAndEvaluate() {
+        inputValue += 1;
+        input.setCellValue(inputValue);
+        evaluator.notifyUpdateCell(input);
+        double sum = 0;
+        for (int i = 0; i <= summary.getLastRowNum(); i++) {
+            sum += evaluator.evaluate(summary.getRow(i).getCell(0)).getNumberValue();
+        }
+        return sum;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(".*" + EvaluationBench.class.getSimpleName() + ".*")
+                .addProfiler(GCProfiler.class)
+                .forks(1)
+                .build();
+
+        new Runner(opt).run();
+    }
+}
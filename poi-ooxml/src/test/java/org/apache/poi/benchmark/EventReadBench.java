@@ -0,0 +1,139 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.input.UnsynchronizedByteArrayInputStream;
+import org.apache.poi.POIDataSamples;
+import org.apache.poi.benchmark.BenchmarkFixtures.Format;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.binary.XSSFBSharedStringsTable;
+import org.apache.poi.xssf.binary.XSSFBSheetHandler;
+import org.apache.poi.xssf.binary.XSSFBStylesTable;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFBReader;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler.SheetContentsHandler;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+
+/**
+ * Event based reading of xlsx files via {@link XSSFReader} and of xlsb files via {@link XSSFBReader}
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class EventReadBench {
+
+    @Param({"20000"})
+    public int rows;
+
+    private byte[] xlsx;
+    private byte[] xlsb;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        xlsx = BenchmarkFixtures.generate(Format.XSSF, rows);
+        // there's no writer for xlsb, so use the largest of the checked-in samples
+        xlsb = POIDataSamples.getSpreadSheetInstance().readFile("sample.xlsb");
+    }
+
+    @Benchmark
+    public int readXlsx() throws Exception {
+        CountingHandler handler = new CountingHandler();
+        try (OPCPackage pkg = OPCPackage.open(new UnsynchronizedByteArrayInputStream(xlsx))) {
+            XSSFReader reader = new XSSFReader(pkg);
+            ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg);
+            StylesTable styles = reader.getStylesTable();
+            DataFormatter formatter = new DataFormatter();
+            Iterator<InputStream> it = reader.getSheetsData();
+            while (it.hasNext()) {
+                try (InputStream is = it.next()) {
+                    XMLReader sheetParser = XMLHelper.newXMLReader();
+                    sheetParser.setContentHandler(
+                        new XSSFSheetXMLHandler(styles, null, strings, handler, formatter, false));
+                    sheetParser.parse(new InputSource(is));
+                }
+            }
+        }
+        return handler.cells;
+    }
+
+    @Benchmark
+    public int readXlsb() throws Exception {
+        CountingHandler handler = new CountingHandler();
+        try (OPCPackage pkg = OPCPackage.open(new UnsynchronizedByteArrayInputStream(xlsb))) {
+            XSSFBReader reader = new XSSFBReader(pkg);
+            XSSFBSharedStringsTable strings = new XSSFBSharedStringsTable(pkg);
+            XSSFBStylesTable styles = reader.getXSSFBStylesTable();
+            DataFormatter formatter = new DataFormatter();
+            XSSFBReader.SheetIterator it = (XSSFBReader.SheetIterator) reader.getSheetsData();
+            while (it.hasNext()) {
+                try (InputStream is = it.next()) {
+                    new XSSFBSheetHandler(is, styles, it.getXSSFBSheetComments(), strings,
+                        handler, formatter, false).parse();
+                }
+            }
+        }
+        return handler.cells;
+    }
+
+    private static final class CountingHandler implements SheetContentsHandler {
+        private int cells;
+
+        @Override
+        public void startRow(int rowNum) {
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            cells++;
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(".*" + EventReadBench.class.getSimpleName() + ".*")
+                .addProfiler(GCProfiler.class)
+                .forks(1)
+                .build();
+
+        new Runner(opt).run();
+    }
+}
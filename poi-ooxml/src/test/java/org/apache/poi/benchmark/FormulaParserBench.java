@@ -0,0 +1,96 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.poi.benchmark.BenchmarkFixtures.Format;
+import org.apache.poi.hssf.usermodel.HSSFEvaluationWorkbook;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.formula.FormulaParser;
+import org.apache.poi.ss.formula.FormulaParsingWorkbook;
+import org.apache.poi.ss.formula.FormulaType;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFEvaluationWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * {@link FormulaParser#parse(String, FormulaParsingWorkbook, FormulaType, int)} of typical formulas
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class FormulaParserBench {
+    private static final String[] FORMULAS = {
+        "A1*B1",
+        "IF(E1,G1,-G1)",
+        "SUM(Data!B1:B10000)",
+        "SUMPRODUCT(Data!A1:A1000,Data!F1:F1000)/COUNT(Data!A1:A1000)",
+        "VLOOKUP($A2,Data!$A$1:$H$10000,8,FALSE)",
+        "IFERROR(INDEX(Data!C:C,MATCH(\"Item \"&ROW(),Data!C:C,0)),\"n/a\")",
+        "ROUND(AVERAGE(Data!B1:B100)*1.21+MAX(0,MIN(Data!H1:H100)),2)",
+        "TEXT(DATE(2000,1,1)+ROW()-1,\"yyyy-mm-dd\")&\" - \"&UPPER(LEFT(Data!C1,4))"
+    };
+
+    @Param({"HSSF", "XSSF"})
+    public Format format;
+
+    private Workbook workbook;
+    private FormulaParsingWorkbook parsingWorkbook;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        workbook = BenchmarkFixtures.fill(format.create(), 10);
+        parsingWorkbook = (format == Format.HSSF)
+            ? HSSFEvaluationWorkbook.create((HSSFWorkbook)workbook)
+            : XSSFEvaluationWorkbook.create((XSSFWorkbook)workbook);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        workbook.close();
+    }
+
+    @Benchmark
+    public int parse() {
+        int tokens = 0;
+        for (String formula : FORMULAS) {
+            tokens += FormulaParser.parse(formula, parsingWorkbook, FormulaType.CELL, 1).length;
+        }
+        return tokens;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(".*" + FormulaParserBench.class.getSimpleName() + ".*")
+                .addProfiler(GCProfiler.class)
+                .forks(1)
+                .build();
+
+        new Runner(opt).run();
+    }
+}
@@ -0,0 +1,117 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.benchmark;
+
+import static org.apache.commons.io.output.NullOutputStream.NULL_OUTPUT_STREAM;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.input.UnsynchronizedByteArrayInputStream;
+import org.apache.commons.io.output.UnsynchronizedByteArrayOutputStream;
+import org.apache.poi.poifs.filesystem.DirectoryEntry;
+import org.apache.poi.poifs.filesystem.DirectoryNode;
+import org.apache.poi.poifs.filesystem.DocumentEntry;
+import org.apache.poi.poifs.filesystem.Entry;
+import org.apache.poi.poifs.filesystem.POIFSFileSystem;
+import org.apache.poi.util.IOUtils;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Opening, reading and writing of {@link POIFSFileSystem}s with a mix of small (mini stream)
+ * and large documents
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class POIFSBench {
+
+    @Param({"20", "200"})
+    public int documents;
+
+    private byte[] bytes;
+    private POIFSFileSystem fileSystem;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        Random random = new Random(0x5EED);
+        try (POIFSFileSystem fs = new POIFSFileSystem()) {
+            DirectoryEntry dir = fs.getRoot().createDirectory("Storage");
+            for (int i = 0; i < documents; i++) {
+                // alternate between documents in the mini stream and in the big block stream
+                byte[] data = new byte[(i % 2 == 0) ? 1000 + random.nextInt(3000) : 10_000 + random.nextInt(100_000)];
+                random.nextBytes(data);
+                (i % 4 < 2 ? fs.getRoot() : dir).createDocument("Document" + i, new UnsynchronizedByteArrayInputStream(data));
+            }
+            UnsynchronizedByteArrayOutputStream bos = new UnsynchronizedByteArrayOutputStream();
+            fs.writeFilesystem(bos);
+            bytes = bos.toByteArray();
+        }
+        fileSystem = new POIFSFileSystem(new UnsynchronizedByteArrayInputStream(bytes));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        fileSystem.close();
+    }
+
+    @Benchmark
+    public long openAndRead() throws IOException {
+        try (POIFSFileSystem fs = new POIFSFileSystem(new UnsynchronizedByteArrayInputStream(bytes))) {
+            return readAll(fs.getRoot());
+        }
+    }
+
+    @Benchmark
+    public void write() throws IOException {
+        fileSystem.writeFilesystem(NULL_OUTPUT_STREAM);
+    }
+
+    private static long readAll(DirectoryNode dir) throws IOException {
+        long size = 0;
+        for (Entry entry : dir) {
+            if (entry instanceof DirectoryNode) {
+                size += readAll((DirectoryNode)entry);
+            } else if (entry instanceof DocumentEntry) {
+                try (InputStream is = dir.createDocumentInputStream(entry)) {
+                    size += IOUtils.copy(is, NULL_OUTPUT_STREAM);
+                }
+            }
+        }
+        return size;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(".*" + POIFSBench.class.getSimpleName() + ".*")
+                .addProfiler(GCProfiler.class)
+                .forks(1)
+                .build();
+
+        new Runner(opt).run();
+    }
+}
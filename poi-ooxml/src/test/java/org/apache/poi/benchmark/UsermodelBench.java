@@ -0,0 +1,94 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.benchmark;
+
+import static org.apache.commons.io.output.NullOutputStream.NULL_OUTPUT_STREAM;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.input.UnsynchronizedByteArrayInputStream;
+import org.apache.poi.benchmark.BenchmarkFixtures.Format;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.usermodel.WorkbookFactory;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Loading and saving HSSF and XSSF workbooks via the usermodel
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class UsermodelBench {
+
+    @Param({"HSSF", "XSSF"})
+    public Format format;
+
+    @Param({"1000", "20000"})
+    public int rows;
+
+    private byte[] bytes;
+    private Workbook workbook;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        bytes = BenchmarkFixtures.generate(format, rows);
+        workbook = WorkbookFactory.create(new UnsynchronizedByteArrayInputStream(bytes));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        workbook.close();
+    }
+
+    @Benchmark
+    public int load() throws IOException {
+        try (Workbook wb = WorkbookFactory.create(new UnsynchronizedByteArrayInputStream(bytes))) {
+            return wb.getSheetAt(0).getLastRowNum();
+        }
+    }
+
+    @Benchmark
+    public void save() throws IOException {
+        workbook.write(NULL_OUTPUT_STREAM);
+    }
+
+    @Benchmark
+    public void createAndSave() throws IOException {
+        try (Workbook wb = BenchmarkFixtures.fill(format.create(), rows)) {
+            wb.write(NULL_OUTPUT_STREAM);
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(".*" + UsermodelBench.class.getSimpleName() + ".*")
+                .addProfiler(GCProfiler.class)
+                .forks(1)
+                .build();
+
+        new Runner(opt).run();
+    }
+}
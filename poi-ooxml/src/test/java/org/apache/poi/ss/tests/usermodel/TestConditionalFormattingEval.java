@@ -19,10 +19,16 @@ package org.apache.poi.ss.tests.usermodel;
 
 
 import org.apache.poi.ss.formula.ConditionalFormattingEvaluator;
+import org.apache.poi.ss.formula.ConditionalFormattingSheetResult;
 import org.apache.poi.ss.formula.EvaluationConditionalFormatRule;
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.Color;
+import org.apache.poi.ss.usermodel.ComparisonOperator;
+import org.apache.poi.ss.usermodel.ConditionalFormattingRule;
+import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.SheetConditionalFormatting;
+import org.apache.poi.ss.util.CellRangeAddress;
 import org.apache.poi.ss.util.CellReference;
 import org.apache.poi.xssf.XSSFTestDataSamples;
 import org.apache.poi.xssf.usermodel.XSSFColor;
@@ -37,6 +43,8 @@ import java.util.List;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class TestConditionalFormattingEval {
     private CellReference ref;
@@ -185,6 +193,77 @@ class TestConditionalFormattingEval {
         }
     }
 
+    @Test
+    void testSheetEvaluation() throws IOException {
+        try (XSSFWorkbook wb = XSSFTestDataSamples.openSampleWorkbook("ConditionalFormattingSamples.xlsx")) {
+            XSSFFormulaEvaluator formulaEval = new XSSFFormulaEvaluator(wb);
+            ConditionalFormattingEvaluator cellEval = new ConditionalFormattingEvaluator(wb, formulaEval);
+            ConditionalFormattingEvaluator sheetEval = new ConditionalFormattingEvaluator(wb, formulaEval);
+
+            int formattedCells = 0;
+            for (Sheet sheet : wb) {
+                ConditionalFormattingSheetResult result = sheetEval.getConditionalFormattingForSheet(sheet);
+                assertEquals(sheet.getSheetName(), result.getSheetName());
+                assertSame(result, sheetEval.getConditionalFormattingForSheet(sheet));
+                int count = 0;
+                for (Row row : sheet) {
+                    for (Cell cell : row) {
+                        List<EvaluationConditionalFormatRule> expected = cellEval.getConditionalFormattingForCell(cell);
+                        assertEquals(expected, result.getRules(cell.getRowIndex(), cell.getColumnIndex()), "rules of " + cell.getAddress());
+                        assertEquals(expected, sheetEval.getConditionalFormattingForCell(cell), "rules of " + cell.getAddress());
+                        if (!expected.isEmpty()) {
+                            assertEquals(cell.getRowIndex(), result.getRowIndex(count));
+                            assertEquals(cell.getColumnIndex(), result.getColumnIndex(count));
+                            assertEquals(expected, result.getRules(count));
+                            count++;
+                        }
+                    }
+                }
+                assertEquals(count, result.getCellCount(), "formatted cells of " + sheet.getSheetName());
+                formattedCells += count;
+            }
+            assertTrue(formattedCells > 100, "too few formatted cells: " + formattedCells);
+
+            // the results are evaluated again after changes of the values
+            Sheet sheet = wb.getSheet("Products2");
+            ConditionalFormattingSheetResult result = sheetEval.getConditionalFormattingForSheet(sheet);
+            assertEquals(1, result.getRules(15, 1).size());
+            Cell cell = sheet.getRow(1).getCell(6);
+            cell.setCellValue("Dairy");
+            formulaEval.notifyUpdateCell(cell);
+            sheetEval.clearAllCachedValues();
+            assertEquals(0, sheetEval.getConditionalFormattingForSheet(sheet).getRules(15, 1).size());
+        }
+    }
+
+    @Test
+    void testCellCreatedAfterSheetEvaluation() throws IOException {
+        try (XSSFWorkbook wb = new XSSFWorkbook()) {
+            Sheet sheet = wb.createSheet("Values");
+            for (int r = 0; r < 3; r++) {
+                sheet.createRow(r).createCell(0).setCellValue(r * 5);
+            }
+            SheetConditionalFormatting scf = sheet.getSheetConditionalFormatting();
+            ConditionalFormattingRule rule = scf.createConditionalFormattingRule(ComparisonOperator.GT, "5");
+            scf.addConditionalFormatting(new CellRangeAddress[] { CellRangeAddress.valueOf("A1:A10") }, rule);
+
+            ConditionalFormattingEvaluator cfe = new ConditionalFormattingEvaluator(wb, new XSSFFormulaEvaluator(wb));
+            ConditionalFormattingSheetResult result = cfe.getConditionalFormattingForSheet(sheet);
+            assertEquals(1, result.getCellCount());
+            assertEquals(0, cfe.getConditionalFormattingForCell(sheet.getRow(1).getCell(0)).size());
+            assertEquals(1, cfe.getConditionalFormattingForCell(sheet.getRow(2).getCell(0)).size());
+
+            // the new cells aren't part of the sheet result, but are evaluated on their own
+            Cell inRegion = sheet.createRow(5).createCell(0);
+            inRegion.setCellValue(20);
+            assertEquals(1, cfe.getConditionalFormattingForCell(inRegion).size());
+            Cell outsideRegion = sheet.getRow(5).createCell(1);
+            outsideRegion.setCellValue(20);
+            assertEquals(0, cfe.getConditionalFormattingForCell(outsideRegion).size());
+            assertSame(result, cfe.getConditionalFormattingForSheet(sheet));
+        }
+    }
+
     private List<EvaluationConditionalFormatRule> getRulesFor(int row, int col, Sheet sheet, ConditionalFormattingEvaluator cfe) {
         ref = new CellReference(sheet.getSheetName(), row, col, false, false);
         return rules = cfe.getConditionalFormattingForCell(ref);
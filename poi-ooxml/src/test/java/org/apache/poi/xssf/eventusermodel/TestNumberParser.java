@@ -0,0 +1,58 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+package org.apache.poi.xssf.eventusermodel;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class TestNumberParser {
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+        "0", "-0", "1", "-1", "42", "0.1", "0.25", ".5", "1.", "-123.456", "3.14159265358979",
+        "0.30000000000000004", "123456789012345", "1234567890123456789", "1E-3", "1e10", "-2.5E+5",
+        "1.7976931348623157E308", "4.9E-324", "1e23", "1e-23", "0.000001", "000123.4500",
+        "9007199254740993", " 1", "1 ", "NaN", "-Infinity"
+    })
+    void sameAsDouble(String str) {
+        char[] ch = ("x" + str + "y").toCharArray();
+        assertEquals(Double.parseDouble(str), NumberParser.parseDouble(ch, 1, str.length()), str);
+        assertEquals(Double.doubleToRawLongBits(Double.parseDouble(str)),
+            Double.doubleToRawLongBits(NumberParser.parseDouble(ch, 1, str.length())), str);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "-", ".", "e5", "1e", "1x", "abc"})
+    void invalidDouble(String str) {
+        char[] ch = str.toCharArray();
+        assertThrows(NumberFormatException.class, () -> NumberParser.parseDouble(ch, 0, ch.length));
+    }
+
+    @Test
+    void parseInt() {
+        for (String str : new String[]{"0", "7", "-15", "123456789", "2147483647", "-2147483648"}) {
+            char[] ch = str.toCharArray();
+            assertEquals(Integer.parseInt(str), NumberParser.parseInt(ch, 0, ch.length));
+        }
+        assertThrows(NumberFormatException.class, () -> NumberParser.parseInt(new char[]{'1', 'a'}, 0, 2));
+        assertThrows(NumberFormatException.class, () -> NumberParser.parseInt(new char[0], 0, 0));
+    }
+}
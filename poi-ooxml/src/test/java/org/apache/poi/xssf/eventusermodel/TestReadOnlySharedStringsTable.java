@@ -20,9 +20,12 @@
 package org.apache.poi.xssf.eventusermodel;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.regex.Pattern;
 
@@ -106,6 +109,16 @@ public final class TestReadOnlySharedStringsTable {
         }
     }
 
+    @Test
+    void testEmptySSTElement() throws Exception {
+        String xml = "<sst xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\" count=\"0\" uniqueCount=\"0\"/>";
+        ReadOnlySharedStringsTable sst = new ReadOnlySharedStringsTable(
+            new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+        assertEquals(0, sst.getCount());
+        assertEquals(0, sst.getUniqueCount());
+        assertThrows(IndexOutOfBoundsException.class, () -> sst.getItemAt(0));
+    }
+
     private void assertEmptySST(OPCPackage pkg) throws IOException, SAXException {
         ReadOnlySharedStringsTable sst = new ReadOnlySharedStringsTable(pkg);
         assertEquals(0, sst.getCount());
@@ -0,0 +1,92 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.eventusermodel;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.apache.commons.io.output.UnsynchronizedByteArrayOutputStream;
+import org.apache.poi.POIDataSamples;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.xssf.model.SharedStringsTable;
+import org.apache.poi.xssf.usermodel.XSSFRichTextString;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link TempFileReadOnlySharedStringsTable}
+ */
+final class TestTempFileReadOnlySharedStringsTable {
+    private static final POIDataSamples _ssTests = POIDataSamples.getSpreadSheetInstance();
+
+    @Test
+    void sameAsReadOnlySharedStringsTable() throws Exception {
+        try (OPCPackage pkg = OPCPackage.open(_ssTests.openResourceAsStream("51519.xlsx"))) {
+            List<PackagePart> parts = pkg.getPartsByName(Pattern.compile("/xl/sharedStrings.xml"));
+            for (boolean phonetic : new boolean[]{true, false}) {
+                ReadOnlySharedStringsTable expected = new ReadOnlySharedStringsTable(parts.get(0), phonetic);
+                // a tiny cache to decode the strings again and again
+                try (TempFileReadOnlySharedStringsTable sst = new TempFileReadOnlySharedStringsTable(parts.get(0), phonetic, 3)) {
+                    assertEquals(expected.getCount(), sst.getCount());
+                    assertEquals(49, sst.getUniqueCount());
+                    for (int pass = 0; pass < 2; pass++) {
+                        for (int i = 0; i < 49; i++) {
+                            assertEquals(expected.getItemAt(i).getString(), sst.getItemAt(i).getString());
+                        }
+                    }
+                    assertThrows(IndexOutOfBoundsException.class, () -> sst.getItemAt(49));
+                }
+            }
+        }
+    }
+
+    @Test
+    void largeTable() throws Exception {
+        // the strings exceed the write buffer of the table several times
+        SharedStringsTable table = new SharedStringsTable();
+        StringBuilder longString = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            longString.append("ümläut ");
+        }
+        for (int i = 0; i < 50000; i++) {
+            table.addSharedStringItem(new XSSFRichTextString(i == 1000 ? longString.toString() : "string " + i));
+        }
+        UnsynchronizedByteArrayOutputStream bos = new UnsynchronizedByteArrayOutputStream();
+        table.writeTo(bos);
+
+        try (TempFileReadOnlySharedStringsTable sst = new TempFileReadOnlySharedStringsTable(bos.toInputStream(), true, 100)) {
+            assertEquals(50000, sst.getUniqueCount());
+            assertEquals("string 0", sst.getItemAt(0).getString());
+            assertEquals(longString.toString(), sst.getItemAt(1000).getString());
+            assertEquals("string 1001", sst.getItemAt(1001).getString());
+            assertEquals("string 49999", sst.getItemAt(49999).getString());
+        }
+    }
+
+    @Test
+    void noSharedStringsTable() throws Exception {
+        try (OPCPackage pkg = OPCPackage.open(_ssTests.openResourceAsStream("noSharedStringTable.xlsx"));
+             TempFileReadOnlySharedStringsTable sst = new TempFileReadOnlySharedStringsTable(pkg)) {
+            assertEquals(0, sst.getCount());
+            assertEquals(0, sst.getUniqueCount());
+        }
+    }
+}
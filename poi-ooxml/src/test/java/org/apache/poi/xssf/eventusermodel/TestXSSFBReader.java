@@ -24,6 +24,8 @@ import static org.junit.jupiter.api.Assertions.assertNotNull;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.apache.poi.POIDataSamples;
 import org.apache.poi.openxml4j.opc.OPCPackage;
@@ -33,6 +35,8 @@ import org.apache.poi.xssf.binary.XSSFBSheetHandler;
 import org.apache.poi.xssf.binary.XSSFBStylesTable;
 import org.apache.poi.xssf.usermodel.XSSFComment;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 
 class TestXSSFBReader {
 
@@ -157,6 +161,31 @@ class TestXSSFBReader {
         }
     }
 
+    @ParameterizedTest
+    @ValueSource(strings = {"testVarious.xlsb", "comments.xlsb", "sample.xlsb"})
+    void parseSheetsInParallel(String testFileName) throws Exception {
+        List<String> expected = getSheets(testFileName);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try (OPCPackage pkg = OPCPackage.open(_ssTests.openResourceAsStream(testFileName))) {
+            TestSheetHandler[] handlers = new TestSheetHandler[expected.size()];
+            new XSSFBReader(pkg).parseSheets(executor, (sheetIndex, sheetName) -> {
+                TestSheetHandler handler = new TestSheetHandler();
+                handler.startSheet(sheetName);
+                handlers[sheetIndex] = handler;
+                return handler;
+            }, false);
+
+            List<String> sheetTexts = new ArrayList<>();
+            for (TestSheetHandler handler : handlers) {
+                handler.endSheet();
+                sheetTexts.add(handler.toString());
+            }
+            assertEquals(expected, sheetTexts);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
     @Test
     void testDate() throws Exception {
         List<String> sheets = getSheets("date.xlsb");
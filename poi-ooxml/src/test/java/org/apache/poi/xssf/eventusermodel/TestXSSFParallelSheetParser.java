@@ -0,0 +1,221 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+package org.apache.poi.xssf.eventusermodel;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.commons.io.output.UnsynchronizedByteArrayOutputStream;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.util.IOUtils;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler.SheetContentsHandler;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler.TypedSheetContentsHandler;
+import org.apache.poi.xssf.model.SharedStrings;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+
+class TestXSSFParallelSheetParser {
+    private static ExecutorService executor;
+
+    @BeforeAll
+    static void startExecutor() {
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterAll
+    static void stopExecutor() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void sameEventsAsSequentialParsing() throws Exception {
+        UnsynchronizedByteArrayOutputStream bos = new UnsynchronizedByteArrayOutputStream();
+        try (XSSFWorkbook wb = new XSSFWorkbook()) {
+            XSSFSheet sheet = wb.createSheet();
+            CellStyle percent = wb.createCellStyle();
+            percent.setDataFormat(wb.createDataFormat().getFormat("0.00%"));
+            for (int r = 0; r < 5000; r++) {
+                // leave some gaps
+                Row row = sheet.createRow(r + r / 100);
+                row.createCell(0).setCellValue("text" + (r % 77));
+                row.createCell(2).setCellValue(r / 7.0);
+                row.getCell(2).setCellStyle(percent);
+                row.createCell(3).setCellFormula("C" + (row.getRowNum() + 1) + "*2");
+                row.createCell(4).setCellValue(r % 3 == 0);
+            }
+            sheet.getHeader().setCenter("the header");
+            sheet.getFooter().setLeft("the footer");
+            wb.write(bos);
+        }
+
+        try (OPCPackage pkg = OPCPackage.open(bos.toInputStream())) {
+            XSSFReader reader = new XSSFReader(pkg);
+            SharedStrings strings = reader.getSharedStringsTable();
+            StylesTable styles = reader.getStylesTable();
+            byte[] sheetData;
+            try (InputStream is = reader.getSheetsData().next()) {
+                sheetData = IOUtils.toByteArray(is);
+            }
+
+            List<String> expected = new ArrayList<>();
+            XMLReader sheetParser = XMLHelper.newXMLReader();
+            sheetParser.setContentHandler(new XSSFSheetXMLHandler(styles, strings, new EventCollector(expected), new DataFormatter(), false));
+            sheetParser.parse(new InputSource(new ByteArrayInputStream(sheetData)));
+            assertTrue(expected.size() > 20000);
+
+            for (boolean formulas : new boolean[]{false, true}) {
+                if (formulas) {
+                    expected.clear();
+                    sheetParser.setContentHandler(new XSSFSheetXMLHandler(styles, strings, new EventCollector(expected), new DataFormatter(), true));
+                    sheetParser.parse(new InputSource(new ByteArrayInputStream(sheetData)));
+                }
+                XSSFParallelSheetParser parser = new XSSFParallelSheetParser(executor, styles, strings, formulas);
+                parser.setChunkSize(8192);
+                parser.setMaxPendingChunks(3);
+                List<String> actual = new ArrayList<>();
+                parser.parse(new ByteArrayInputStream(sheetData), null, new EventCollector(actual));
+                assertEquals(expected, actual);
+            }
+
+            // typed values
+            List<String> expectedTyped = new ArrayList<>();
+            sheetParser.setContentHandler(new XSSFSheetXMLHandler(styles, strings, new TypedEventCollector(expectedTyped), false));
+            sheetParser.parse(new InputSource(new ByteArrayInputStream(sheetData)));
+            XSSFParallelSheetParser parser = new XSSFParallelSheetParser(executor, styles, strings, false);
+            parser.setChunkSize(8192);
+            List<String> actualTyped = new ArrayList<>();
+            parser.parse(new ByteArrayInputStream(sheetData), null, new TypedEventCollector(actualTyped));
+            assertEquals(expectedTyped, actualTyped);
+        }
+    }
+
+    @Test
+    void prefixedAndWithoutRowNumbers() throws Exception {
+        String head = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>" +
+            "<x:worksheet xmlns:x=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\"><x:sheetData>";
+        String tail = "</x:sheetData></x:worksheet>";
+
+        StringBuilder prefixed = new StringBuilder(head);
+        StringBuilder noRowNumbers = new StringBuilder(head);
+        List<String> expected = new ArrayList<>();
+        for (int r = 0; r < 1000; r++) {
+            prefixed.append("<x:row r=\"").append(r + 1).append("\"><x:c r=\"A").append(r + 1)
+                .append("\" t=\"inlineStr\"><x:is><x:t>row ").append(r).append("</x:t></x:is></x:c></x:row>");
+            noRowNumbers.append("<x:row><x:c t=\"inlineStr\"><x:is><x:t>row ").append(r).append("</x:t></x:is></x:c></x:row>");
+        }
+        prefixed.append(tail);
+        noRowNumbers.append(tail);
+
+        XSSFParallelSheetParser parser = new XSSFParallelSheetParser(executor, null, null, false);
+        parser.setChunkSize(1000);
+
+        List<String> actual = new ArrayList<>();
+        parser.parse(new ByteArrayInputStream(prefixed.toString().getBytes(StandardCharsets.UTF_8)), null, new EventCollector(actual));
+        for (int r = 0; r < 1000; r++) {
+            expected.add("start " + r);
+            expected.add("A" + (r + 1) + "=row " + r);
+            expected.add("end " + r);
+        }
+        expected.add("endSheet");
+        assertEquals(expected, actual);
+
+        // sequential fallback
+        actual.clear();
+        parser.parse(new ByteArrayInputStream(noRowNumbers.toString().getBytes(StandardCharsets.UTF_8)), null, new EventCollector(actual));
+        assertEquals(expected.size(), actual.size());
+        assertEquals("start 999", actual.get(2997));
+        assertEquals("null=row 999", actual.get(2998));
+    }
+
+    private static class EventCollector implements SheetContentsHandler {
+        final List<String> events;
+
+        EventCollector(List<String> events) {
+            this.events = events;
+        }
+
+        @Override
+        public void startRow(int rowNum) {
+            events.add("start " + rowNum);
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            events.add("end " + rowNum);
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            events.add(cellReference + "=" + formattedValue);
+        }
+
+        @Override
+        public void headerFooter(String text, boolean isHeader, String tagName) {
+            events.add(tagName + "=" + text);
+        }
+
+        @Override
+        public void endSheet() {
+            events.add("endSheet");
+        }
+    }
+
+    private static final class TypedEventCollector extends EventCollector implements TypedSheetContentsHandler {
+        TypedEventCollector(List<String> events) {
+            super(events);
+        }
+
+        @Override
+        public void numericCell(int rowNum, int colNum, double value, int styleIdx) {
+            events.add(rowNum + "/" + colNum + "=" + value + "/" + styleIdx);
+        }
+
+        @Override
+        public void stringCell(int rowNum, int colNum, String value, int styleIdx) {
+            events.add(rowNum + "/" + colNum + "=" + value + "/" + styleIdx);
+        }
+
+        @Override
+        public void booleanCell(int rowNum, int colNum, boolean value, int styleIdx) {
+            events.add(rowNum + "/" + colNum + "=" + value + "/" + styleIdx);
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            events.add("unexpected " + cellReference);
+        }
+    }
+}
@@ -24,11 +24,16 @@ import static org.junit.jupiter.api.Assertions.*;
 import java.io.IOException;
 import java.io.InputStream;
 import java.security.MessageDigest;
+import java.util.ArrayList;
 import java.util.Base64;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.apache.commons.io.output.UnsynchronizedByteArrayOutputStream;
 import org.apache.poi.POIDataSamples;
@@ -40,6 +45,7 @@ import org.apache.poi.poifs.crypt.HashAlgorithm;
 import org.apache.poi.ss.usermodel.DataFormatter;
 import org.apache.poi.ss.usermodel.Name;
 import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
 import org.apache.poi.util.IOUtils;
 import org.apache.poi.util.XMLHelper;
@@ -49,6 +55,7 @@ import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.apache.poi.xssf.usermodel.XSSFComment;
 import org.apache.poi.xssf.usermodel.XSSFShape;
 import org.apache.poi.xssf.usermodel.XSSFSimpleShape;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 import org.xml.sax.InputSource;
@@ -411,6 +418,75 @@ public final class TestXSSFReader {
 
     }
 
+    @Test
+    void parseSheetsInParallel() throws Exception {
+        UnsynchronizedByteArrayOutputStream bos = new UnsynchronizedByteArrayOutputStream();
+        try (Workbook wb = new XSSFWorkbook()) {
+            for (int s = 0; s < 6; s++) {
+                Sheet sheet = wb.createSheet("S" + s);
+                for (int r = 0; r < 500; r++) {
+                    Row row = sheet.createRow(r);
+                    row.createCell(0).setCellValue("text" + (r % 10));
+                    row.createCell(1).setCellValue(s * 1000 + r);
+                }
+            }
+            wb.write(bos);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try (OPCPackage pkg = OPCPackage.open(bos.toInputStream())) {
+            XSSFReader reader = new XSSFReader(pkg);
+            Map<String, List<String>> values = new ConcurrentHashMap<>();
+            reader.parseSheets(executor, (sheetIndex, sheetName) -> {
+                if (sheetIndex == 2) {
+                    return null;
+                }
+                List<String> sheetValues = new ArrayList<>();
+                values.put(sheetName, sheetValues);
+                return new XSSFSheetXMLHandler.SheetContentsHandler() {
+                    @Override
+                    public void startRow(int rowNum) {}
+
+                    @Override
+                    public void endRow(int rowNum) {}
+
+                    @Override
+                    public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+                        sheetValues.add(cellReference + "=" + formattedValue);
+                    }
+                };
+            }, false);
+
+            assertEquals(5, values.size());
+            assertFalse(values.containsKey("S2"));
+            for (int s : new int[]{0, 1, 3, 4, 5}) {
+                List<String> sheetValues = values.get("S" + s);
+                assertEquals(1000, sheetValues.size());
+                assertEquals("A500=text9", sheetValues.get(998));
+                assertEquals("B500=" + (s * 1000 + 499), sheetValues.get(999));
+            }
+
+            IllegalStateException ex = assertThrows(IllegalStateException.class, () ->
+                reader.parseSheets(executor, (sheetIndex, sheetName) -> new XSSFSheetXMLHandler.SheetContentsHandler() {
+                    @Override
+                    public void startRow(int rowNum) {
+                        if (sheetIndex == 4 && rowNum == 100) {
+                            throw new IllegalStateException("failed " + sheetName);
+                        }
+                    }
+
+                    @Override
+                    public void endRow(int rowNum) {}
+
+                    @Override
+                    public void cell(String cellReference, String formattedValue, XSSFComment comment) {}
+                }, false));
+            assertEquals("failed S4", ex.getMessage());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
     private static String hash(XSSFReader reader) throws IOException {
         Iterable<InputStream> iter = () -> {
             try {
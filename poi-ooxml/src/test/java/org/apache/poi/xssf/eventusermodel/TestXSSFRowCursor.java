@@ -0,0 +1,181 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+package org.apache.poi.xssf.eventusermodel;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.apache.commons.io.output.UnsynchronizedByteArrayOutputStream;
+import org.apache.poi.POIDataSamples;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler.SheetContentsHandler;
+import org.apache.poi.xssf.model.SharedStrings;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+
+class TestXSSFRowCursor {
+    private static final POIDataSamples _ssTests = POIDataSamples.getSpreadSheetInstance();
+
+    @ParameterizedTest
+    @ValueSource(strings = {"sample.xlsx", "SampleSS.xlsx", "InlineString.xlsx", "FormulaEvalTestData_Copy.xlsx"})
+    void sameAsSheetXMLHandler(String file) throws Exception {
+        try (OPCPackage pkg = OPCPackage.open(_ssTests.openResourceAsStream(file))) {
+            XSSFReader reader = new XSSFReader(pkg);
+            SharedStrings strings = new ReadOnlySharedStringsTable(pkg);
+            StylesTable styles = reader.getStylesTable();
+            DataFormatter formatter = new DataFormatter();
+
+            XSSFReader.SheetIterator iter = (XSSFReader.SheetIterator) reader.getSheetsData();
+            while (iter.hasNext()) {
+                List<String> expected = new ArrayList<>();
+                List<String> expectedRefs = new ArrayList<>();
+                try (InputStream stream = iter.next()) {
+                    XMLReader sheetParser = XMLHelper.newXMLReader();
+                    sheetParser.setContentHandler(new XSSFSheetXMLHandler(styles, strings, new SheetContentsHandler() {
+                        @Override
+                        public void startRow(int rowNum) {}
+
+                        @Override
+                        public void endRow(int rowNum) {}
+
+                        @Override
+                        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+                            expected.add(formattedValue);
+                            expectedRefs.add(cellReference);
+                        }
+                    }, formatter, false));
+                    sheetParser.parse(new InputSource(stream));
+                }
+
+                List<String> actual = new ArrayList<>();
+                List<String> actualRefs = new ArrayList<>();
+                try (XSSFRowCursor cursor = new XSSFRowCursor(iter.getSheetPart().getInputStream(), strings, styles)) {
+                    for (XSSFRowCursor.CursorRow row; (row = cursor.nextRow()) != null; ) {
+                        for (int i = 0; i < row.getCellCount(); i++) {
+                            if (row.getCellType(i) != CellType.BLANK) {
+                                actual.add(row.getFormattedValue(i, formatter));
+                                actualRefs.add(new CellReference(row.getRowNum(), row.getColumnIndex(i)).formatAsString(false));
+                            }
+                        }
+                    }
+                    assertNull(cursor.nextRow());
+                }
+                assertEquals(expected, actual, file + " / " + iter.getSheetName());
+                for (int i = 0; i < expectedRefs.size(); i++) {
+                    // the handler passes missing cell references on, the cursor calculates the columns
+                    if (expectedRefs.get(i) != null) {
+                        assertEquals(expectedRefs.get(i), actualRefs.get(i));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void typedValues() throws Exception {
+        UnsynchronizedByteArrayOutputStream bos = new UnsynchronizedByteArrayOutputStream();
+        try (XSSFWorkbook wb = new XSSFWorkbook()) {
+            Sheet sheet = wb.createSheet();
+            for (int r = 0; r < 100; r++) {
+                Row row = sheet.createRow(r * 2);
+                row.createCell(0).setCellValue(r + 0.25);
+                row.createCell(3).setCellValue("text " + r);
+                row.createCell(4).setCellValue(r % 2 == 0);
+                row.createCell(5).setCellFormula("A" + (r * 2 + 1) + "*2");
+                row.createCell(6);
+            }
+            wb.write(bos);
+        }
+
+        try (OPCPackage pkg = OPCPackage.open(bos.toInputStream())) {
+            XSSFReader reader = new XSSFReader(pkg);
+            try (XSSFRowCursor cursor = new XSSFRowCursor(reader.getSheetsData().next(),
+                    reader.getSharedStringsTable(), reader.getStylesTable())) {
+                XSSFRowCursor.CursorRow first = null;
+                for (int r = 0; r < 100; r++) {
+                    XSSFRowCursor.CursorRow row = cursor.nextRow();
+                    if (first == null) {
+                        first = row;
+                    }
+                    // the row is a flyweight
+                    assertSame(first, row);
+                    assertEquals(r * 2, row.getRowNum());
+                    assertEquals(5, row.getCellCount());
+
+                    assertEquals(0, row.getColumnIndex(0));
+                    assertEquals(r + 0.25, row.getNumericCellValue(0), 0);
+                    assertEquals(1, row.findCell(3));
+                    assertEquals(-1, row.findCell(1));
+                    assertEquals(CellType.STRING, row.getCellType(1));
+                    assertEquals("text " + r, row.getStringCellValue(1));
+                    assertEquals(CellType.BOOLEAN, row.getCellType(2));
+                    assertEquals(r % 2 == 0, row.getBooleanCellValue(2));
+                    assertTrue(row.hasFormula(3));
+                    assertEquals("A" + (r * 2 + 1) + "*2", row.getFormula(3));
+                    assertEquals(CellType.BLANK, row.getCellType(4));
+                    assertFalse(row.hasFormula(4));
+
+                    assertThrows(IllegalStateException.class, () -> row.getNumericCellValue(1));
+                    assertThrows(IndexOutOfBoundsException.class, () -> row.getColumnIndex(5));
+                }
+                assertNull(cursor.nextRow());
+            }
+        }
+    }
+
+    @Test
+    void streamClosedIfParserFails() {
+        AtomicBoolean closed = new AtomicBoolean();
+        InputStream stream = new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new IOException("broken stream");
+            }
+
+            @Override
+            public void close() {
+                closed.set(true);
+            }
+        };
+        assertThrows(XMLStreamException.class, () -> new XSSFRowCursor(stream, null, null));
+        assertTrue(closed.get());
+    }
+}
@@ -16,17 +16,30 @@
 ==================================================================== */
 package org.apache.poi.xssf.eventusermodel;
 
+import org.apache.commons.io.output.UnsynchronizedByteArrayOutputStream;
 import org.apache.poi.POIDataSamples;
 import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.FormulaError;
+import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.model.SharedStringsTable;
+import org.apache.poi.xssf.model.StylesTable;
 import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler.SheetContentsHandler;
 import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.junit.jupiter.api.Test;
 import org.xml.sax.InputSource;
 import org.xml.sax.XMLReader;
 
 import java.io.InputStream;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -100,4 +113,165 @@ class TestXSSFSheetXMLHandler {
             }
         }
     }
+
+    @Test
+    void testTypedValues() throws Exception {
+        UnsynchronizedByteArrayOutputStream bos = new UnsynchronizedByteArrayOutputStream();
+        try (XSSFWorkbook wb = new XSSFWorkbook()) {
+            XSSFSheet sheet = wb.createSheet();
+            CellStyle style = wb.createCellStyle();
+            style.setDataFormat(wb.createDataFormat().getFormat("0.00%"));
+            Row row = sheet.createRow(0);
+            row.createCell(0).setCellValue(1.5);
+            row.getCell(0).setCellStyle(style);
+            row.createCell(1).setCellValue("text");
+            row.createCell(2).setCellValue(true);
+            row.createCell(3).setCellErrorValue(FormulaError.DIV0.getCode());
+            row = sheet.createRow(2);
+            row.createCell(1).setCellFormula("A1*2");
+            row.getCell(1).setCellValue(3);
+            row.createCell(2).setCellFormula("\"a\"&\"b\"");
+            row.getCell(2).setCellValue("ab");
+            wb.write(bos);
+        }
+
+        try (OPCPackage xlsxPackage = OPCPackage.open(bos.toInputStream())) {
+            final XSSFReader reader = new XSSFReader(xlsxPackage);
+            for (boolean formulasNotResults : new boolean[]{false, true}) {
+                final List<String> events = new ArrayList<>();
+                try (InputStream stream = reader.getSheetsData().next()) {
+                    final XMLReader sheetParser = XMLHelper.newXMLReader();
+                    sheetParser.setContentHandler(new XSSFSheetXMLHandler(reader.getStylesTable(),
+                            reader.getSharedStringsTable(), new XSSFSheetXMLHandler.TypedSheetContentsHandler() {
+                        @Override
+                        public void startRow(int rowNum) {
+                            events.add("row " + rowNum);
+                        }
+
+                        @Override
+                        public void endRow(int rowNum) {
+                        }
+
+                        @Override
+                        public void numericCell(int rowNum, int colNum, double value, int styleIdx) {
+                            events.add(rowNum + "/" + colNum + " n " + value + " s" + styleIdx);
+                        }
+
+                        @Override
+                        public void stringCell(int rowNum, int colNum, String value, int styleIdx) {
+                            events.add(rowNum + "/" + colNum + " s " + value);
+                        }
+
+                        @Override
+                        public void booleanCell(int rowNum, int colNum, boolean value, int styleIdx) {
+                            events.add(rowNum + "/" + colNum + " b " + value);
+                        }
+
+                        @Override
+                        public void errorCell(int rowNum, int colNum, String value, int styleIdx) {
+                            events.add(rowNum + "/" + colNum + " e " + value);
+                        }
+
+                        @Override
+                        public void formulaCell(int rowNum, int colNum, String formula, int styleIdx) {
+                            events.add(rowNum + "/" + colNum + " f " + formula);
+                        }
+                    }, formulasNotResults));
+                    sheetParser.parse(new InputSource(stream));
+                }
+
+                assertEquals(Arrays.asList("row 0", "0/0 n 1.5 s1", "0/1 s text", "0/2 b true", "0/3 e #DIV/0!", "row 2",
+                    formulasNotResults ? "2/1 f A1*2" : "2/1 n 3.0 s0",
+                    formulasNotResults ? "2/2 f \"a\"&\"b\"" : "2/2 s ab"), events);
+            }
+        }
+    }
+
+    @Test
+    void testTypedEscapedStrings() throws Exception {
+        String xml = "<worksheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\"><sheetData>" +
+            "<row r=\"1\"><c r=\"A1\" t=\"inlineStr\"><is><t>a_x000D_b</t></is></c>" +
+            "<c r=\"B1\" t=\"str\"><f>\"c\"&amp;CHAR(9)</f><v>c_x0009_</v></c></row>" +
+            "</sheetData></worksheet>";
+        final List<String> typed = new ArrayList<>();
+        final List<String> formatted = new ArrayList<>();
+        XMLReader sheetParser = XMLHelper.newXMLReader();
+        sheetParser.setContentHandler(new XSSFSheetXMLHandler(new StylesTable(), new SharedStringsTable(),
+                new XSSFSheetXMLHandler.TypedSheetContentsHandler() {
+            @Override
+            public void startRow(int rowNum) {
+            }
+
+            @Override
+            public void endRow(int rowNum) {
+            }
+
+            @Override
+            public void numericCell(int rowNum, int colNum, double value, int styleIdx) {
+            }
+
+            @Override
+            public void stringCell(int rowNum, int colNum, String value, int styleIdx) {
+                typed.add(value);
+            }
+        }, false));
+        sheetParser.parse(new InputSource(new StringReader(xml)));
+
+        sheetParser.setContentHandler(new XSSFSheetXMLHandler(new StylesTable(), new SharedStringsTable(),
+                new SheetContentsHandler() {
+            @Override
+            public void startRow(int rowNum) {
+            }
+
+            @Override
+            public void endRow(int rowNum) {
+            }
+
+            @Override
+            public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+                formatted.add(formattedValue);
+            }
+        }, false));
+        sheetParser.parse(new InputSource(new StringReader(xml)));
+
+        // the escaped characters of strings are decoded like by XSSFCell
+        assertEquals(Arrays.asList("a\rb", "c\t"), typed);
+        assertEquals(typed.get(0), formatted.get(0));
+    }
+
+    @Test
+    void testTypedDateCell() throws Exception {
+        String xml = "<worksheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\"><sheetData>" +
+            "<row r=\"1\"><c r=\"A1\" t=\"d\"><v>2022-03-15T10:30:00</v></c>" +
+            "<c r=\"B1\"><v>1.5</v></c></row>" +
+            "</sheetData></worksheet>";
+        final List<String> strings = new ArrayList<>();
+        final List<Double> numbers = new ArrayList<>();
+        XMLReader sheetParser = XMLHelper.newXMLReader();
+        sheetParser.setContentHandler(new XSSFSheetXMLHandler(new StylesTable(), new SharedStringsTable(),
+                new XSSFSheetXMLHandler.TypedSheetContentsHandler() {
+            @Override
+            public void startRow(int rowNum) {
+            }
+
+            @Override
+            public void endRow(int rowNum) {
+            }
+
+            @Override
+            public void numericCell(int rowNum, int colNum, double value, int styleIdx) {
+                numbers.add(value);
+            }
+
+            @Override
+            public void stringCell(int rowNum, int colNum, String value, int styleIdx) {
+                strings.add(value);
+            }
+        }, false));
+        sheetParser.parse(new InputSource(new StringReader(xml)));
+
+        // the date in ISO 8601 format is passed as string
+        assertEquals(Collections.singletonList("2022-03-15T10:30:00"), strings);
+        assertEquals(Collections.singletonList(1.5), numbers);
+    }
 }
@@ -28,6 +28,7 @@ import org.apache.poi.xssf.usermodel.XSSFSheet;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.junit.jupiter.api.Test;
 import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTCalcCell;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTCalcChain;
 
 public final class TestCalculationChain {
 
@@ -61,4 +62,31 @@ public final class TestCalculationChain {
             assertEquals(CellType.STRING, cell.getCellType());
         }
     }
+
+    @Test
+    void removeItems() {
+        CalculationChain chain = new CalculationChain();
+        CTCalcChain ctChain = chain.getCTCalcChain();
+        String[] refs = {"A1", "A2", "B3", "A4", "A2"};
+        int[] sheetIds = {1, 1, 1, 1, 2};
+        for (int i = 0; i < refs.length; i++) {
+            CTCalcCell c = ctChain.addNewC();
+            c.setR(refs[i]);
+            // the sheet id is only specified, when it changes
+            if (i == 0 || sheetIds[i] != sheetIds[i - 1]) {
+                c.setI(sheetIds[i]);
+            }
+        }
+
+        chain.removeItems(1, 0, 2);
+        assertEquals(2, ctChain.sizeOfCArray());
+        assertEquals("A4", ctChain.getCArray(0).getR());
+        // the sheet id of the removed first cell is kept
+        assertEquals(1, ctChain.getCArray(0).getI());
+        assertEquals("A2", ctChain.getCArray(1).getR());
+        assertEquals(2, ctChain.getCArray(1).getI());
+
+        chain.removeItems(1, 4, 10);
+        assertEquals(2, ctChain.sizeOfCArray());
+    }
 }
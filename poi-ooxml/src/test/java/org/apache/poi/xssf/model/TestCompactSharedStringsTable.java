@@ -0,0 +1,119 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.apache.commons.io.output.UnsynchronizedByteArrayOutputStream;
+import org.apache.poi.ss.usermodel.RichTextString;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFFont;
+import org.apache.poi.xssf.usermodel.XSSFRichTextString;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test {@link CompactSharedStringsTable}
+ */
+final class TestCompactSharedStringsTable {
+
+    @Test
+    void addAndDeduplicate() throws IOException {
+        try (CompactSharedStringsTable sst = new CompactSharedStringsTable()) {
+            // enough strings to spill the write buffer and to grow the index
+            for (int i = 0; i < 20000; i++) {
+                assertEquals(i, sst.addSharedStringItem(new XSSFRichTextString("string " + i)));
+            }
+            for (int i = 0; i < 20000; i += 7) {
+                assertEquals(i, sst.addSharedStringItem(new XSSFRichTextString("string " + i)));
+            }
+            assertEquals(20000, sst.getUniqueCount());
+            assertEquals(20000 + 2858, sst.getCount());
+
+            assertEquals("string 0", sst.getItemAt(0).getString());
+            assertEquals("string 19999", sst.getItemAt(19999).getString());
+            assertThrows(IndexOutOfBoundsException.class, () -> sst.getItemAt(20000));
+        }
+    }
+
+    @Test
+    void specialCharactersAndRichText() throws IOException {
+        try (CompactSharedStringsTable sst = new CompactSharedStringsTable()) {
+            String[] values = { "a < b && c > d", " leading space", "tab\t", "line\r\nbreak", "ünicode €", "" };
+            for (String v : values) {
+                sst.addSharedStringItem(new XSSFRichTextString(v));
+            }
+
+            XSSFRichTextString rt = new XSSFRichTextString("bold and plain");
+            XSSFFont font = new XSSFFont();
+            font.setBold(true);
+            rt.applyFont(0, 4, font);
+            int rtIdx = sst.addSharedStringItem(rt);
+            assertEquals(values.length, rtIdx);
+            // plain text with the same content is a different item
+            assertEquals(values.length + 1, sst.addSharedStringItem(new XSSFRichTextString("bold and plain")));
+
+            UnsynchronizedByteArrayOutputStream bos = new UnsynchronizedByteArrayOutputStream();
+            sst.writeTo(bos);
+
+            SharedStringsTable read = new SharedStringsTable();
+            read.readFrom(bos.toInputStream());
+            assertEquals(sst.getUniqueCount(), read.getUniqueCount());
+            assertEquals(sst.getCount(), read.getCount());
+            List<RichTextString> items = read.getSharedStringItems();
+            for (int i = 0; i < values.length; i++) {
+                assertEquals(values[i], items.get(i).getString());
+                assertEquals(values[i], sst.getItemAt(i).getString());
+            }
+            assertEquals(2, items.get(rtIdx).numFormattingRuns());
+            assertEquals(2, sst.getItemAt(rtIdx).numFormattingRuns());
+        }
+    }
+
+    @Test
+    void streamingWorkbook() throws IOException {
+        UnsynchronizedByteArrayOutputStream bos = new UnsynchronizedByteArrayOutputStream();
+        try (XSSFWorkbook template = new XSSFWorkbook(CompactSharedStringsTable.factory());
+             SXSSFWorkbook wb = new SXSSFWorkbook(template, 10, false, true)) {
+            assertInstanceOf(CompactSharedStringsTable.class, template.getSharedStringSource());
+            SXSSFSheet sheet = wb.createSheet();
+            for (int r = 0; r < 1000; r++) {
+                Row row = sheet.createRow(r);
+                row.createCell(0).setCellValue("value " + (r % 100));
+                row.createCell(1).setCellValue("row " + r);
+            }
+            wb.write(bos);
+        }
+
+        try (XSSFWorkbook wb = new XSSFWorkbook(bos.toInputStream())) {
+            assertEquals(1100, wb.getSharedStringSource().getUniqueCount());
+            for (int r = 0; r < 1000; r++) {
+                Row row = wb.getSheetAt(0).getRow(r);
+                assertEquals("value " + (r % 100), row.getCell(0).getStringCellValue());
+                assertEquals("row " + r, row.getCell(1).getStringCellValue());
+            }
+        }
+    }
+}
@@ -23,9 +23,12 @@ import org.apache.poi.xssf.usermodel.XSSFRelation;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -34,12 +37,21 @@ import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Map;
 
+import org.apache.poi.ss.usermodel.BorderStyle;
 import org.apache.poi.ss.usermodel.BuiltinFormats;
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Font;
 import org.apache.poi.xssf.XSSFTestDataSamples;
 import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+import org.apache.poi.xssf.usermodel.XSSFFont;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.xssf.usermodel.extensions.XSSFCellBorder;
+import org.apache.poi.xssf.usermodel.extensions.XSSFCellFill;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTBorder;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTFill;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTXf;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.STPatternType;
 
 public final class TestStylesTable {
     private static final String testFile = "Formatting.xlsx";
@@ -353,4 +365,105 @@ public final class TestStylesTable {
             assertNotNull(XSSFTestDataSamples.writeOutAndReadBack(workbook));
         }
     }
+
+    @Test
+    void lookupsFollowChangedFonts() {
+        StylesTable st = new StylesTable();
+        XSSFFont font = new XSSFFont();
+        font.setFontName("Arial");
+        int idx = st.putFont(font, true);
+        // fonts are usually changed after they have been registered
+        font.setBold(true);
+
+        XSSFFont bold = new XSSFFont();
+        bold.setFontName("Arial");
+        bold.setBold(true);
+        assertEquals(idx, st.putFont(bold));
+        assertSame(font, st.findFont(true, font.getColor(), font.getFontHeight(), "Arial", false, false, Font.SS_NONE, Font.U_NONE));
+
+        font.setItalic(true);
+        assertEquals(idx + 1, st.putFont(bold));
+        assertSame(font, st.findFont(true, font.getColor(), font.getFontHeight(), "Arial", true, false, Font.SS_NONE, Font.U_NONE));
+        assertNull(st.findFont(true, font.getColor(), font.getFontHeight(), "Arial", true, true, Font.SS_NONE, Font.U_NONE));
+    }
+
+    @Test
+    void lookupsFollowEntriesChangedAfterLookup() throws IOException {
+        try (XSSFWorkbook wb = new XSSFWorkbook()) {
+            StylesTable st = wb.getStylesSource();
+            XSSFFont font = wb.getFontAt(0);
+            // indexes the default font with its current properties
+            assertSame(font, st.findFont(false, font.getColor(), font.getFontHeight(), font.getFontName(),
+                false, false, Font.SS_NONE, Font.U_NONE));
+
+            font.setFontName("Arial");
+            assertSame(font, st.findFont(false, font.getColor(), font.getFontHeight(), "Arial",
+                false, false, Font.SS_NONE, Font.U_NONE));
+            int fontCount = st.getFonts().size();
+            XSSFFont arial = new XSSFFont();
+            arial.setFontName("Arial");
+            arial.setFontHeight(font.getFontHeight() / 20.0);
+            arial.setColor(font.getColor());
+            arial.setFamily(font.getFamily());
+            arial.setScheme(font.getScheme());
+            assertEquals(font, arial);
+            assertEquals(0, st.putFont(arial));
+            assertEquals(fontCount, st.getFonts().size());
+
+            XSSFCellFill fill = st.getFillAt(0);
+            assertEquals(0, st.putFill(new XSSFCellFill((CTFill) fill.getCTFill().copy(), st.getIndexedColors())));
+            fill.setPatternType(STPatternType.SOLID);
+            assertEquals(0, st.putFill(new XSSFCellFill((CTFill) fill.getCTFill().copy(), st.getIndexedColors())));
+
+            XSSFCellBorder border = st.getBorderAt(0);
+            assertEquals(0, st.putBorder(new XSSFCellBorder((CTBorder) border.getCTBorder().copy())));
+            border.setBorderStyle(XSSFCellBorder.BorderSide.TOP, BorderStyle.THIN);
+            assertEquals(0, st.putBorder(new XSSFCellBorder((CTBorder) border.getCTBorder().copy())));
+        }
+    }
+
+    @Test
+    void lookupNumberFormatsAfterChanges() {
+        StylesTable st = new StylesTable();
+        st.putNumberFormat((short) 200, "0.0");
+        st.putNumberFormat((short) 180, "0.0");
+        assertEquals(180, st.putNumberFormat("0.0"));
+
+        assertTrue(st.removeNumberFormat((short) 180));
+        assertEquals(200, st.putNumberFormat("0.0"));
+
+        st.putNumberFormat((short) 200, "0.00");
+        assertEquals(201, st.putNumberFormat("0.0"));
+        assertEquals(200, st.putNumberFormat("0.00"));
+    }
+
+    @Test
+    void putStyleUsesTheExistingIndex() {
+        StylesTable st = new StylesTable();
+        for (int i = 0; i < 100; i++) {
+            XSSFCellStyle style = st.createCellStyle();
+            assertEquals(style.getIndex(), st.putStyle(style));
+        }
+
+        XSSFCellStyle replaced = st.getStyleAt(10);
+        CTXf xf = (CTXf) st.getCellXfAt(20).copy();
+        st.replaceCellXfAt(10, xf);
+        assertEquals(10, st.putStyle(st.getStyleAt(10)));
+        assertEquals(101, st.putStyle(replaced));
+    }
+
+    @Test
+    void removeDuplicateCellXfs() {
+        StylesTable st = new StylesTable();
+        assertNull(st.removeDuplicateCellXfs());
+
+        for (int i = 0; i < 4; i++) {
+            st.createCellStyle().setWrapText(i % 2 == 0);
+        }
+        assertArrayEquals(new int[]{0, 1, 2, 1, 2}, st.removeDuplicateCellXfs());
+        assertEquals(3, st.getNumCellStyles());
+        assertTrue(st.getStyleAt(1).getWrapText());
+        assertFalse(st.getStyleAt(2).getWrapText());
+        assertEquals(2, st.putStyle(st.getStyleAt(2)));
+    }
 }
@@ -27,6 +27,8 @@ import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.apache.poi.ss.tests.usermodel.BaseTestXWorkbook;
 import org.apache.poi.ss.usermodel.Cell;
@@ -331,6 +333,28 @@ public final class TestDeferredSXSSFWorkbook extends BaseTestXWorkbook {
         }
     }
 
+    @Test
+    void generateSheetsInParallel() throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(5);
+        try (DeferredSXSSFWorkbook wb = new DeferredSXSSFWorkbook()) {
+            wb.setSheetWriterExecutor(executor);
+            populateData(wb);
+
+            try (XSSFWorkbook xwb = DeferredSXSSFITestDataProvider.instance.writeOutAndReadBack(wb)) {
+                for (int i = 0; i < 5; i++) {
+                    Sheet sh = xwb.getSheetAt(i);
+                    assertEquals("sheet" + i, sh.getSheetName());
+                    assertEquals(1000, sh.getPhysicalNumberOfRows());
+                    Row row = sh.getRow(999);
+                    assertEquals("sheet" + i + "!A1000", row.getCell(0).getStringCellValue());
+                    assertEquals(i, (int) row.getCell(1).getNumericCellValue());
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
     @ParameterizedTest
     @ValueSource(booleans = {false, true})
     void workbookDispose(boolean compressTempFiles) throws IOException {
@@ -0,0 +1,139 @@
+/*
+ *  ====================================================================
+ *    Licensed to the Apache Software Foundation (ASF) under one or more
+ *    contributor license agreements.  See the NOTICE file distributed with
+ *    this work for additional information regarding copyright ownership.
+ *    The ASF licenses this file to You under the Apache License, Version 2.0
+ *    (the "License"); you may not use this file except in compliance with
+ *    the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ * ====================================================================
+ */
+
+package org.apache.poi.xssf.streaming;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+
+import org.apache.commons.io.output.UnsynchronizedByteArrayOutputStream;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+final class TestDirectSXSSFWorkbook {
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void writeSheetsOneAfterAnother(boolean useSharedStringsTable) throws IOException {
+        UnsynchronizedByteArrayOutputStream bos = new UnsynchronizedByteArrayOutputStream();
+        try (DirectSXSSFWorkbook wb = new DirectSXSSFWorkbook(null, 10, useSharedStringsTable, bos)) {
+            DirectSXSSFSheet previous = null;
+            for (int s = 0; s < 3; s++) {
+                DirectSXSSFSheet sheet = wb.createSheet("S" + s);
+                sheet.setColumnWidth(0, 20 * 256);
+                for (int r = 0; r < 100; r++) {
+                    Row row = sheet.createRow(r);
+                    row.createCell(0).setCellValue("value " + s + "_" + r);
+                    row.createCell(1).setCellValue(r);
+                }
+                // the previous sheet has been completed, when this sheet started flushing
+                assertTrue(previous == null || previous.isWritten());
+                sheet.addMergedRegion(new CellRangeAddress(0, 0, 2, 3));
+                previous = sheet;
+            }
+            assertFalse(wb.createSheet().isWritten());
+            wb.write(bos);
+        }
+
+        try (XSSFWorkbook wb = new XSSFWorkbook(bos.toInputStream())) {
+            assertEquals(4, wb.getNumberOfSheets());
+            for (int s = 0; s < 3; s++) {
+                XSSFSheet sheet = wb.getSheetAt(s);
+                assertEquals("S" + s, sheet.getSheetName());
+                assertEquals(100, sheet.getPhysicalNumberOfRows());
+                assertEquals(20 * 256, sheet.getColumnWidth(0));
+                assertEquals(1, sheet.getNumMergedRegions());
+                for (int r = 0; r < 100; r++) {
+                    Row row = sheet.getRow(r);
+                    assertEquals("value " + s + "_" + r, row.getCell(0).getStringCellValue());
+                    assertEquals(r, row.getCell(1).getNumericCellValue(), 0);
+                }
+            }
+            assertEquals(0, wb.getSheetAt(3).getPhysicalNumberOfRows());
+        }
+    }
+
+    @Test
+    void completedSheetCantBeChanged() throws IOException {
+        UnsynchronizedByteArrayOutputStream bos = new UnsynchronizedByteArrayOutputStream();
+        try (DirectSXSSFWorkbook wb = new DirectSXSSFWorkbook(1, bos)) {
+            DirectSXSSFSheet sheet1 = wb.createSheet("S1");
+            sheet1.createRow(0).createCell(0).setCellValue("a");
+            sheet1.createRow(1).createCell(0).setCellValue("b");
+            assertFalse(sheet1.isWritten());
+
+            DirectSXSSFSheet sheet2 = wb.createSheet("S2");
+            sheet2.createRow(0).createCell(0).setCellValue("c");
+            sheet2.createRow(1).createCell(0).setCellValue("d");
+            assertTrue(sheet1.isWritten());
+            assertNull(sheet1.getRow(1));
+
+            assertThrows(IllegalStateException.class, () -> sheet1.createRow(5));
+            assertThrows(IllegalStateException.class, () -> wb.removeSheetAt(0));
+            assertThrows(IllegalArgumentException.class, () -> wb.write(new UnsynchronizedByteArrayOutputStream()));
+
+            wb.finish();
+        }
+
+        try (XSSFWorkbook wb = new XSSFWorkbook(bos.toInputStream())) {
+            assertEquals("b", wb.getSheet("S1").getRow(1).getCell(0).getStringCellValue());
+            assertEquals("d", wb.getSheet("S2").getRow(1).getCell(0).getStringCellValue());
+        }
+    }
+
+    @Test
+    void appendToTemplate() throws IOException {
+        UnsynchronizedByteArrayOutputStream bos = new UnsynchronizedByteArrayOutputStream();
+        try (XSSFWorkbook template = new XSSFWorkbook()) {
+            Sheet tmplSheet = template.createSheet("S1");
+            tmplSheet.createRow(0).createCell(0).setCellValue("header");
+            template.createSheet("S2");
+
+            try (DirectSXSSFWorkbook wb = new DirectSXSSFWorkbook(template, 2, false, bos)) {
+                Sheet sheet = wb.getSheetAt(0);
+                for (int r = 1; r < 10; r++) {
+                    sheet.createRow(r).createCell(0).setCellValue(r);
+                }
+                wb.finish();
+            }
+        }
+
+        try (XSSFWorkbook wb = new XSSFWorkbook(bos.toInputStream())) {
+            assertEquals(2, wb.getNumberOfSheets());
+            XSSFSheet sheet = wb.getSheetAt(0);
+            assertEquals(10, sheet.getPhysicalNumberOfRows());
+            assertEquals("header", sheet.getRow(0).getCell(0).getStringCellValue());
+            assertNotNull(sheet.getRow(9));
+            assertEquals(9, sheet.getRow(9).getCell(0).getNumericCellValue(), 0);
+            assertEquals(0, wb.getSheetAt(1).getPhysicalNumberOfRows());
+        }
+    }
+}
@@ -35,7 +35,10 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+import org.apache.commons.compress.archivers.zip.Zip64Mode;
 import org.apache.commons.io.output.UnsynchronizedByteArrayOutputStream;
 import org.apache.poi.POIDataSamples;
 import org.apache.poi.common.usermodel.HyperlinkType;
@@ -561,6 +564,41 @@ public final class TestSXSSFWorkbook extends BaseTestXWorkbook {
         }
     }
 
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void writeSheetsInParallel(boolean zip64) throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try (
+            SXSSFWorkbook wb = new SXSSFWorkbook(10);
+            UnsynchronizedByteArrayOutputStream bos = new UnsynchronizedByteArrayOutputStream()
+        ) {
+            wb.setZip64Mode(zip64 ? Zip64Mode.Always : Zip64Mode.AsNeeded);
+            wb.setSheetWriterExecutor(executor);
+            for (int s = 0; s < 5; s++) {
+                SXSSFSheet sheet = wb.createSheet("S" + s);
+                for (int r = 0; r < 200; r++) {
+                    SXSSFRow row = sheet.createRow(r);
+                    row.createCell(0).setCellValue("Sheet " + s + " row " + r);
+                    row.createCell(1).setCellValue(r);
+                }
+            }
+            wb.write(bos);
+            assertFalse(executor.isShutdown());
+
+            try (XSSFWorkbook xssfWorkbook = new XSSFWorkbook(bos.toInputStream())) {
+                assertEquals(5, xssfWorkbook.getNumberOfSheets());
+                for (int s = 0; s < 5; s++) {
+                    XSSFSheet xssfSheet = xssfWorkbook.getSheetAt(s);
+                    assertEquals(200, xssfSheet.getPhysicalNumberOfRows());
+                    assertEquals("Sheet " + s + " row 199", xssfSheet.getRow(199).getCell(0).getStringCellValue());
+                    assertEquals(199, xssfSheet.getRow(199).getCell(1).getNumericCellValue(), 0);
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
     @Test
     void addDimension() throws IOException {
         try (
@@ -0,0 +1,309 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.usermodel;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.commons.io.output.UnsynchronizedByteArrayOutputStream;
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.FormulaError;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.util.IOUtils;
+import org.apache.poi.xssf.XSSFTestDataSamples;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTSheetData;
+
+/**
+ * Tests the compact sheet data, see {@link XSSFLoadOptions#setCompactSheetData(boolean)}
+ */
+final class TestXSSFCompactSheetData {
+
+    @Test
+    void readAndWriteCompactRows() throws IOException, InvalidFormatException {
+        UnsynchronizedByteArrayOutputStream original = new UnsynchronizedByteArrayOutputStream();
+        try (XSSFWorkbook wb = new XSSFWorkbook()) {
+            XSSFCellStyle style = wb.createCellStyle();
+            style.setWrapText(true);
+            XSSFSheet sheet = wb.createSheet("Data");
+            for (int r = 0; r < 100; r++) {
+                if (r % 10 == 9) {
+                    continue;
+                }
+                XSSFRow row = sheet.createRow(r);
+                row.createCell(0).setCellValue(r);
+                row.createCell(1).setCellValue("text " + r);
+                row.createCell(2).setCellFormula("A" + (r + 1) + "*2");
+                row.getCell(2).setCellStyle(style);
+                row.createCell(4).setCellValue(r % 2 == 0);
+                row.createCell(5).setCellErrorValue(FormulaError.NA);
+                row.createCell(7).setCellValue(r + 0.125);
+            }
+            sheet.getRow(3).setHeight((short) 600);
+            sheet.getRow(4).getCell(1).setCellValue(new XSSFRichTextString("  padded  "));
+            wb.write(original);
+        }
+
+        UnsynchronizedByteArrayOutputStream saved = new UnsynchronizedByteArrayOutputStream();
+        try (XSSFWorkbook wb = openCompact(original.toInputStream())) {
+            XSSFSheet sheet = wb.getSheetAt(0);
+            assertEquals(0, sheet.getFirstRowNum());
+            assertEquals(98, sheet.getLastRowNum());
+            assertEquals(90, sheet.getPhysicalNumberOfRows());
+            assertEquals(0, sheet.getCTWorksheet().getSheetData().sizeOfRowArray());
+
+            // accessing a row turns it into a regular row
+            XSSFRow row = sheet.getRow(42);
+            assertNotNull(row);
+            assertEquals(1, sheet.getCTWorksheet().getSheetData().sizeOfRowArray());
+            assertEquals(42, row.getCell(0).getNumericCellValue(), 0);
+            assertEquals("text 42", row.getCell(1).getStringCellValue());
+            assertEquals("A43*2", row.getCell(2).getCellFormula());
+            assertTrue(row.getCell(2).getCellStyle().getWrapText());
+            assertTrue(row.getCell(4).getBooleanCellValue());
+            assertEquals(FormulaError.NA.getCode(), row.getCell(5).getErrorCellValue());
+            assertEquals(42.125, row.getCell(7).getNumericCellValue(), 0);
+            assertNull(row.getCell(3));
+            assertNull(sheet.getRow(9));
+            assertEquals(90, sheet.getPhysicalNumberOfRows());
+
+            row.getCell(1).setCellValue("changed");
+            sheet.createRow(9).createCell(0).setCellValue("new");
+            sheet.createRow(200).createCell(3).setCellValue(200);
+            wb.write(saved);
+        }
+
+        try (XSSFWorkbook wb = new XSSFWorkbook(saved.toInputStream());
+             XSSFWorkbook expected = new XSSFWorkbook(original.toInputStream())) {
+            XSSFSheet sheet = wb.getSheetAt(0);
+            expected.getSheetAt(0).getRow(42).getCell(1).setCellValue("changed");
+            expected.getSheetAt(0).createRow(9).createCell(0).setCellValue("new");
+            expected.getSheetAt(0).createRow(200).createCell(3).setCellValue(200);
+
+            assertSameContent(expected, wb);
+            assertEquals(600, sheet.getRow(3).getHeight());
+            assertEquals("  padded  ", sheet.getRow(4).getCell(1).getStringCellValue());
+            assertEquals("A1:H201", sheet.getCTWorksheet().getDimension().getRef());
+        }
+    }
+
+    @Test
+    void iterateAndShift() throws IOException, InvalidFormatException {
+        UnsynchronizedByteArrayOutputStream original = new UnsynchronizedByteArrayOutputStream();
+        try (XSSFWorkbook wb = new XSSFWorkbook()) {
+            XSSFSheet sheet = wb.createSheet();
+            for (int r = 0; r < 20; r += 2) {
+                sheet.createRow(r).createCell(0).setCellValue(r);
+            }
+            wb.write(original);
+        }
+
+        try (XSSFWorkbook wb = openCompact(original.toInputStream())) {
+            XSSFSheet sheet = wb.getSheetAt(0);
+            sheet.getRow(6);
+            sheet.getRow(14);
+            int expected = 0;
+            for (Row row : sheet) {
+                assertEquals(expected, row.getRowNum());
+                assertEquals(expected, row.getCell(0).getNumericCellValue(), 0);
+                expected += 2;
+            }
+            assertEquals(20, expected);
+            assertEquals(10, sheet.getCTWorksheet().getSheetData().sizeOfRowArray());
+            for (int i = 0; i < 10; i++) {
+                assertEquals(2 * i + 1, sheet.getCTWorksheet().getSheetData().getRowArray(i).getR());
+            }
+
+            sheet.shiftRows(4, 19, 1);
+            assertNull(sheet.getRow(4));
+            assertEquals(4, sheet.getRow(5).getCell(0).getNumericCellValue(), 0);
+        }
+    }
+
+    @Test
+    void shiftCompactRows() throws IOException, InvalidFormatException {
+        UnsynchronizedByteArrayOutputStream original = new UnsynchronizedByteArrayOutputStream();
+        try (XSSFWorkbook wb = new XSSFWorkbook()) {
+            XSSFSheet sheet = wb.createSheet();
+            for (int r = 0; r < 50; r++) {
+                if (r % 7 == 3) {
+                    continue;
+                }
+                XSSFRow row = sheet.createRow(r);
+                row.createCell(0).setCellValue(r);
+                if (r % 3 == 0) {
+                    row.createCell(1).setCellValue("text " + r);
+                }
+                if (r < 5) {
+                    row.createCell(2).setCellFormula("A" + (r + 1) + "*2");
+                }
+            }
+            wb.write(original);
+        }
+
+        UnsynchronizedByteArrayOutputStream saved = new UnsynchronizedByteArrayOutputStream();
+        try (XSSFWorkbook wb = openCompact(original.toInputStream())) {
+            XSSFSheet sheet = wb.getSheetAt(0);
+            sheet.getRow(20);
+            shiftRows(sheet);
+
+            // only the accessed row and the rows with formulas, which reference the shifted rows,
+            // have been turned into regular rows
+            CTSheetData sheetData = sheet.getCTWorksheet().getSheetData();
+            assertEquals(5, sheetData.sizeOfRowArray());
+            for (int i = 1; i < sheetData.sizeOfRowArray(); i++) {
+                assertTrue(sheetData.getRowArray(i - 1).getR() < sheetData.getRowArray(i).getR());
+            }
+            assertEquals("A31*2", sheet.getRow(30).getCell(2).getCellFormula());
+            assertEquals(20, sheet.getRow(23).getCell(0).getNumericCellValue(), 0);
+            wb.write(saved);
+        }
+
+        try (XSSFWorkbook wb = new XSSFWorkbook(saved.toInputStream());
+             XSSFWorkbook expected = new XSSFWorkbook(original.toInputStream())) {
+            shiftRows(expected.getSheetAt(0));
+            assertSameContent(expected, wb);
+        }
+    }
+
+    @Test
+    void shiftPartOfArrayFormula() throws IOException, InvalidFormatException {
+        try (XSSFWorkbook wb = new XSSFWorkbook(
+                XSSFTestDataSamples.openSamplePackage("MatrixFormulaEvalTestData.xlsx"),
+                new XSSFLoadOptions().setCompactSheetData(true))) {
+            XSSFSheet sheet = wb.getSheetAt(0);
+            // the compact rows 3 and 4 belong to the array formula H2:J4, whose master isn't moved
+            IllegalStateException e = assertThrows(IllegalStateException.class, () -> sheet.shiftRows(2, 5, 3));
+            assertTrue(e.getMessage().endsWith("You cannot change part of an array."), e.getMessage());
+            assertEquals("H2:J4", sheet.getRow(1).getCell(7).getCTCell().getF().getRef());
+            assertEquals(CellType.FORMULA, sheet.getRow(3).getCell(9).getCellType());
+        }
+    }
+
+    private static void shiftRows(XSSFSheet sheet) {
+        // insert 3 rows, move the first rows past the following rows and delete 2 rows
+        sheet.shiftRows(10, 49, 3);
+        sheet.shiftRows(0, 2, 30);
+        sheet.shiftRows(40, 52, -2);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"SampleSS.xlsx", "shared_formulas.xlsx", "WithVariousData.xlsx", "Formatting.xlsx",
+        "FormulaEvalTestData_Copy.xlsx", "49609.xlsx", "59021.xlsx", "65016.xlsx", "style-alternate-content.xlsx"})
+    void roundTripSamples(String sample) throws IOException, InvalidFormatException {
+        UnsynchronizedByteArrayOutputStream saved = new UnsynchronizedByteArrayOutputStream();
+        try (XSSFWorkbook wb = new XSSFWorkbook(XSSFTestDataSamples.openSamplePackage(sample),
+                new XSSFLoadOptions().setCompactSheetData(true))) {
+            wb.write(saved);
+        }
+
+        try (XSSFWorkbook expected = XSSFTestDataSamples.openSampleWorkbook(sample);
+             XSSFWorkbook wb = new XSSFWorkbook(saved.toInputStream())) {
+            assertSameContent(expected, wb);
+        }
+    }
+
+    @Test
+    void writePrefixedWorksheet() throws IOException, InvalidFormatException {
+        // the worksheet declares the spreadsheetml namespace with the x prefix and has no default namespace
+        UnsynchronizedByteArrayOutputStream saved = new UnsynchronizedByteArrayOutputStream();
+        try (XSSFWorkbook wb = new XSSFWorkbook(XSSFTestDataSamples.openSamplePackage("59021.xlsx"),
+                new XSSFLoadOptions().setCompactSheetData(true))) {
+            XSSFSheet sheet = wb.getSheetAt(0);
+            assertEquals(0, sheet.getCTWorksheet().getSheetData().sizeOfRowArray());
+            wb.write(saved);
+        }
+
+        try (XSSFWorkbook expected = XSSFTestDataSamples.openSampleWorkbook("59021.xlsx");
+             XSSFWorkbook wb = new XSSFWorkbook(saved.toInputStream())) {
+            assertTrue(expected.getSheetAt(0).getPhysicalNumberOfRows() > 1);
+            String xml;
+            try (InputStream is = wb.getSheetAt(0).getPackagePart().getInputStream()) {
+                xml = new String(IOUtils.toByteArray(is), StandardCharsets.UTF_8);
+            }
+            assertTrue(xml.contains("<x:row "), xml);
+            assertSameContent(expected, wb);
+        }
+    }
+
+    private static XSSFWorkbook openCompact(InputStream is) throws IOException, InvalidFormatException {
+        return new XSSFWorkbook(OPCPackage.open(is), new XSSFLoadOptions().setCompactSheetData(true));
+    }
+
+    private static void assertSameContent(Workbook expected, Workbook actual) {
+        assertEquals(expected.getNumberOfSheets(), actual.getNumberOfSheets());
+        for (int s = 0; s < expected.getNumberOfSheets(); s++) {
+            Sheet expectedSheet = expected.getSheetAt(s);
+            Sheet actualSheet = actual.getSheetAt(s);
+            assertEquals(expectedSheet.getPhysicalNumberOfRows(), actualSheet.getPhysicalNumberOfRows());
+            for (Row expectedRow : expectedSheet) {
+                Row row = actualSheet.getRow(expectedRow.getRowNum());
+                assertNotNull(row, "row " + expectedRow.getRowNum());
+                assertEquals(expectedRow.getHeight(), row.getHeight());
+                assertEquals(expectedRow.getZeroHeight(), row.getZeroHeight());
+                assertEquals(expectedRow.getPhysicalNumberOfCells(), row.getPhysicalNumberOfCells());
+                for (Cell expectedCell : expectedRow) {
+                    Cell cell = row.getCell(expectedCell.getColumnIndex());
+                    String ref = expectedCell.getAddress().formatAsString();
+                    assertNotNull(cell, ref);
+                    assertEquals(expectedCell.getCellType(), cell.getCellType(), ref);
+                    assertEquals(expectedCell.getCellStyle().getIndex(), cell.getCellStyle().getIndex(), ref);
+                    CellType type = expectedCell.getCellType();
+                    if (type == CellType.FORMULA) {
+                        assertEquals(expectedCell.getCellFormula(), cell.getCellFormula(), ref);
+                        type = expectedCell.getCachedFormulaResultType();
+                        assertEquals(type, cell.getCachedFormulaResultType(), ref);
+                    }
+                    switch (type) {
+                        case NUMERIC:
+                            assertEquals(expectedCell.getNumericCellValue(), cell.getNumericCellValue(), 0, ref);
+                            break;
+                        case STRING:
+                            assertEquals(expectedCell.getRichStringCellValue().getString(),
+                                cell.getRichStringCellValue().getString(), ref);
+                            break;
+                        case BOOLEAN:
+                            assertEquals(expectedCell.getBooleanCellValue(), cell.getBooleanCellValue(), ref);
+                            break;
+                        case ERROR:
+                            assertEquals(expectedCell.getErrorCellValue(), cell.getErrorCellValue(), ref);
+                            break;
+                        default:
+                            assertFalse(type == CellType._NONE, ref);
+                            break;
+                    }
+                }
+            }
+        }
+    }
+}
@@ -18,13 +18,24 @@
 package org.apache.poi.xssf.usermodel;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.IOException;
+
+import org.apache.poi.ss.formula.FormulaRenderer;
+import org.apache.poi.ss.formula.WorkbookEvaluator;
+import org.apache.poi.ss.formula.ptg.Ptg;
 import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
 import org.apache.poi.ss.usermodel.FormulaEvaluator;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.util.AreaReference;
 import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.xssf.XSSFTestDataSamples;
 import org.junit.jupiter.api.Test;
 
 class TestXSSFEvaluationWorkbook {
@@ -41,6 +52,110 @@ class TestXSSFEvaluationWorkbook {
         wb.getCreationHelper().createFormulaEvaluator().evaluateAll();
     }
 
+    @Test
+    void testFormulaTokensAreCached() throws IOException {
+        try (XSSFWorkbook wb = new XSSFWorkbook()) {
+            XSSFRow row = wb.createSheet().createRow(0);
+            row.createCell(0).setCellValue(1);
+            XSSFCell cell = row.createCell(1);
+            cell.setCellFormula("A1+1");
+
+            XSSFEvaluationWorkbook evalWb = XSSFEvaluationWorkbook.create(wb);
+            XSSFFormulaEvaluator evaluator = new XSSFFormulaEvaluator(wb, new WorkbookEvaluator(evalWb, null, null));
+            XSSFEvaluationCell evalCell = new XSSFEvaluationCell(cell);
+            Ptg[] ptgs = evalWb.getFormulaTokens(evalCell);
+            assertSame(ptgs, evalWb.getFormulaTokens(evalCell));
+            assertEquals(2, evaluator.evaluate(cell).getNumberValue(), 0);
+
+            // a changed formula is parsed again, even without notification
+            cell.setCellFormula("A1+2");
+            assertEquals("A1+2", FormulaRenderer.toFormulaString(evalWb, evalWb.getFormulaTokens(evalCell)));
+
+            ptgs = evalWb.getFormulaTokens(evalCell);
+            evaluator.notifySetFormula(cell);
+            assertNotSame(ptgs, evalWb.getFormulaTokens(evalCell));
+            assertEquals(3, evaluator.evaluate(cell).getNumberValue(), 0);
+
+            // moved cells are parsed again
+            wb.getSheetAt(0).shiftRows(0, 0, 2);
+            evaluator.clearAllCachedResultValues();
+            assertEquals("A3+2", FormulaRenderer.toFormulaString(evalWb, evalWb.getFormulaTokens(evalCell)));
+            assertEquals(3, evaluator.evaluate(cell).getNumberValue(), 0);
+        }
+    }
+
+    @Test
+    void testFormulaTokensWithNamesAreNotCached() throws IOException {
+        try (XSSFWorkbook wb = new XSSFWorkbook()) {
+            XSSFRow row = wb.createSheet("Data").createRow(0);
+            row.createCell(0).setCellValue(1);
+            row.createCell(1).setCellValue(2);
+            for (String name : new String[]{"first", "second"}) {
+                wb.createName().setNameName(name);
+            }
+            wb.getName("first").setRefersToFormula("Data!$A$1");
+            wb.getName("second").setRefersToFormula("Data!$B$1");
+            XSSFCell cell = row.createCell(2);
+            cell.setCellFormula("second*10");
+
+            XSSFEvaluationWorkbook evalWb = XSSFEvaluationWorkbook.create(wb);
+            XSSFFormulaEvaluator evaluator = new XSSFFormulaEvaluator(wb, new WorkbookEvaluator(evalWb, null, null));
+            XSSFEvaluationCell evalCell = new XSSFEvaluationCell(cell);
+            assertEquals(20, evaluator.evaluate(cell).getNumberValue(), 0);
+
+            // the index of the name in the tokens changes
+            wb.removeName(wb.getName("first"));
+            assertEquals("second*10", FormulaRenderer.toFormulaString(evalWb, evalWb.getFormulaTokens(evalCell)));
+            evaluator.notifySetFormula(cell);
+            assertEquals(20, evaluator.evaluate(cell).getNumberValue(), 0);
+        }
+    }
+
+    @Test
+    void testFormulaTokensWithStructuredReferencesAreNotCached() throws IOException {
+        try (XSSFWorkbook wb = new XSSFWorkbook()) {
+            XSSFSheet sheet = wb.createSheet("Data");
+            sheet.createRow(0).createCell(0).setCellValue("Value");
+            for (int r = 1; r < 5; r++) {
+                sheet.createRow(r).createCell(0).setCellValue(r);
+            }
+            XSSFTable table = sheet.createTable(new AreaReference("A1:A4", wb.getSpreadsheetVersion()));
+            table.setName("Values");
+            XSSFCell cell = sheet.getRow(0).createCell(2);
+            // keep the structured reference in the formula
+            wb.setCellFormulaValidation(false);
+            cell.setCellFormula("SUM(Values[Value])");
+
+            XSSFFormulaEvaluator evaluator = new XSSFFormulaEvaluator(wb);
+            assertEquals(6, evaluator.evaluate(cell).getNumberValue(), 0);
+
+            // the structured reference is resolved to the new area of the table
+            table.setArea(new AreaReference("A1:A5", wb.getSpreadsheetVersion()));
+            XSSFCell first = sheet.getRow(1).getCell(0);
+            first.setCellValue(11);
+            evaluator.notifyUpdateCell(first);
+            assertEquals(20, evaluator.evaluate(cell).getNumberValue(), 0);
+        }
+    }
+
+    @Test
+    void testSharedFormulaTokens() throws IOException {
+        try (XSSFWorkbook wb = XSSFTestDataSamples.openSampleWorkbook("shared_formulas.xlsx")) {
+            XSSFEvaluationWorkbook evalWb = XSSFEvaluationWorkbook.create(wb);
+            int count = 0;
+            for (Row row : wb.getSheetAt(0)) {
+                for (Cell cell : row) {
+                    if (cell.getCellType() == CellType.FORMULA) {
+                        Ptg[] ptgs = evalWb.getFormulaTokens(new XSSFEvaluationCell((XSSFCell) cell));
+                        assertEquals(cell.getCellFormula(), FormulaRenderer.toFormulaString(evalWb, ptgs));
+                        count++;
+                    }
+                }
+            }
+            assertTrue(count > 0);
+        }
+    }
+
     private void verifySheet(Workbook wb, FormulaEvaluator formulaEvaluator) {
         Sheet sheet = wb.createSheet();
         Row row = sheet.createRow(0);
@@ -22,15 +22,19 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.IOException;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Function;
 
 import org.apache.poi.hssf.HSSFTestDataSamples;
 import org.apache.poi.ss.usermodel.BaseTestFormulaEvaluator;
 import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
 import org.apache.poi.ss.usermodel.CellValue;
 import org.apache.poi.ss.usermodel.FormulaEvaluator;
 import org.apache.poi.ss.usermodel.Row;
@@ -444,4 +448,69 @@ public final class TestXSSFFormulaEvaluation extends BaseTestFormulaEvaluator {
             assertEquals("another value", value.getStringCellValue(), "wrong value A5");
         }
     }
+
+    @Test
+    void testParallelEvaluateAll() throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try (XSSFWorkbook sequential = new XSSFWorkbook();
+             XSSFWorkbook parallel = new XSSFWorkbook()) {
+            for (XSSFWorkbook wb : new XSSFWorkbook[]{sequential, parallel}) {
+                XSSFSheet data = wb.createSheet("Data");
+                for (int i = 0; i < 500; i++) {
+                    XSSFRow row = data.createRow(i);
+                    row.createCell(0).setCellValue(i % 13);
+                    row.createCell(1).setCellFormula("A" + (i + 1) + "*3");
+                    row.createCell(2).setCellFormula("SUM(B$1:B" + (i + 1) + ")");
+                }
+                wb.createSheet("Summary").createRow(0).createCell(0).setCellFormula("SUM(Data!C:C)/COUNT(Data!A:A)");
+            }
+            new XSSFFormulaEvaluator(sequential).evaluateAll();
+            new XSSFFormulaEvaluator(parallel).evaluateAll(pool);
+
+            for (int i = 0; i < 500; i++) {
+                for (int j = 1; j < 3; j++) {
+                    XSSFCell expected = sequential.getSheet("Data").getRow(i).getCell(j);
+                    XSSFCell actual = parallel.getSheet("Data").getRow(i).getCell(j);
+                    assertEquals(CellType.NUMERIC, actual.getCachedFormulaResultType());
+                    assertEquals(expected.getNumericCellValue(), actual.getNumericCellValue(), 0);
+                }
+            }
+            assertEquals(sequential.getSheet("Summary").getRow(0).getCell(0).getNumericCellValue(),
+                    parallel.getSheet("Summary").getRow(0).getCell(0).getNumericCellValue(), 0);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testRecalculateDirty() throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try (XSSFWorkbook wb = new XSSFWorkbook()) {
+            XSSFSheet data = wb.createSheet("Data");
+            for (int i = 0; i < 500; i++) {
+                XSSFRow row = data.createRow(i);
+                row.createCell(0).setCellValue(i);
+                row.createCell(1).setCellFormula("A" + (i + 1) + "*3");
+            }
+            XSSFCell total = wb.createSheet("Summary").createRow(0).createCell(0);
+            total.setCellFormula("SUM(Data!B1:B500)");
+
+            XSSFFormulaEvaluator evaluator = new XSSFFormulaEvaluator(wb);
+            evaluator.setDirtyCellTracking(true);
+            evaluator.evaluateAll();
+            assertEquals(3 * 499 * 250, total.getNumericCellValue(), 0);
+
+            XSSFCell input = data.getRow(10).getCell(0);
+            input.setCellValue(20);
+            evaluator.notifyUpdateCell(input);
+            List<Cell> changed = evaluator.recalculateDirty(pool);
+            assertEquals(2, changed.size());
+            assertTrue(changed.contains(data.getRow(10).getCell(1)));
+            assertTrue(changed.contains(total));
+            assertEquals(60, data.getRow(10).getCell(1).getNumericCellValue(), 0);
+            assertEquals(3 * 499 * 250 + 30, total.getNumericCellValue(), 0);
+        } finally {
+            pool.shutdown();
+        }
+    }
 }
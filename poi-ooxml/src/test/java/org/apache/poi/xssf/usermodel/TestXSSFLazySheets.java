@@ -0,0 +1,155 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.usermodel;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.io.output.UnsynchronizedByteArrayOutputStream;
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackagingURIHelper;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.util.IOUtils;
+import org.apache.poi.xssf.XSSFTestDataSamples;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the lazy reading of sheets, see {@link XSSFLoadOptions#setLazySheets(boolean)}
+ */
+final class TestXSSFLazySheets {
+
+    @Test
+    void untouchedSheetsAreCopied() throws IOException, InvalidFormatException {
+        UnsynchronizedByteArrayOutputStream saved = new UnsynchronizedByteArrayOutputStream();
+        try (XSSFWorkbook wb = openLazy(XSSFTestDataSamples.openSamplePackage("SampleSS.xlsx"))) {
+            assertEquals(3, wb.getNumberOfSheets());
+            assertEquals("Sheet Number 2", wb.getSheetName(1));
+            wb.getSheetAt(0).getRow(0).createCell(5).setCellValue("changed");
+            wb.write(saved);
+        }
+
+        try (OPCPackage original = XSSFTestDataSamples.openSamplePackage("SampleSS.xlsx");
+             OPCPackage pkg = OPCPackage.open(saved.toInputStream())) {
+            assertArrayEquals(getPartContent(original, "/xl/worksheets/sheet2.xml"),
+                getPartContent(pkg, "/xl/worksheets/sheet2.xml"));
+            assertArrayEquals(getPartContent(original, "/xl/worksheets/sheet3.xml"),
+                getPartContent(pkg, "/xl/worksheets/sheet3.xml"));
+            assertFalse(Arrays.equals(getPartContent(original, "/xl/worksheets/sheet1.xml"),
+                getPartContent(pkg, "/xl/worksheets/sheet1.xml")));
+        }
+
+        try (XSSFWorkbook wb = new XSSFWorkbook(saved.toInputStream());
+             XSSFWorkbook expected = XSSFTestDataSamples.openSampleWorkbook("SampleSS.xlsx")) {
+            assertEquals("changed", wb.getSheetAt(0).getRow(0).getCell(5).getStringCellValue());
+            for (int s = 0; s < expected.getNumberOfSheets(); s++) {
+                Sheet expectedSheet = expected.getSheetAt(s);
+                Sheet sheet = wb.getSheetAt(s);
+                assertEquals(expectedSheet.getPhysicalNumberOfRows(), sheet.getPhysicalNumberOfRows());
+                for (Row expectedRow : expectedSheet) {
+                    assertNotNull(sheet.getRow(expectedRow.getRowNum()));
+                }
+            }
+        }
+    }
+
+    @Test
+    void sheetsAreReadOnAccess() throws IOException, InvalidFormatException {
+        try (XSSFWorkbook wb = openLazy(XSSFTestDataSamples.openSamplePackage("SampleSS.xlsx"))) {
+            assertEquals(5, wb.getSheet("sheet number 2").getPhysicalNumberOfRows());
+            assertEquals(2, wb.getSheetIndex("Sheet3"));
+            int rows = 0;
+            for (Sheet sheet : wb) {
+                rows += sheet.getPhysicalNumberOfRows();
+            }
+            assertEquals(8, rows);
+        }
+    }
+
+    @Test
+    void renameSheetUpdatesUnreadSheets() throws IOException, InvalidFormatException {
+        UnsynchronizedByteArrayOutputStream original = new UnsynchronizedByteArrayOutputStream();
+        try (XSSFWorkbook wb = new XSSFWorkbook()) {
+            wb.createSheet("Data").createRow(0).createCell(0).setCellValue(42);
+            wb.createSheet("Report").createRow(0).createCell(0).setCellFormula("Data!A1*2");
+            wb.write(original);
+        }
+
+        UnsynchronizedByteArrayOutputStream saved = new UnsynchronizedByteArrayOutputStream();
+        try (XSSFWorkbook wb = openLazy(OPCPackage.open(original.toInputStream()))) {
+            wb.setSheetName(0, "Values");
+            wb.write(saved);
+        }
+
+        try (XSSFWorkbook wb = new XSSFWorkbook(saved.toInputStream())) {
+            assertEquals("Values!A1*2", wb.getSheet("Report").getRow(0).getCell(0).getCellFormula());
+        }
+    }
+
+    @Test
+    void sheetIsReadOnceByConcurrentAccess() throws Exception {
+        try (XSSFWorkbook wb = openLazy(XSSFTestDataSamples.openSamplePackage("SampleSS.xlsx"))) {
+            int threads = 8;
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            try {
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<Row>> rows = new ArrayList<>();
+                for (int i = 0; i < threads; i++) {
+                    rows.add(executor.submit(() -> {
+                        start.await();
+                        return wb.getSheetAt(1).getRow(0);
+                    }));
+                }
+                start.countDown();
+                // all threads see the rows of the same parsed sheet
+                Row first = rows.get(0).get();
+                assertNotNull(first);
+                for (Future<Row> row : rows) {
+                    assertSame(first, row.get());
+                }
+                assertEquals(5, wb.getSheetAt(1).getPhysicalNumberOfRows());
+            } finally {
+                executor.shutdown();
+            }
+        }
+    }
+
+    private static XSSFWorkbook openLazy(OPCPackage pkg) throws IOException {
+        return new XSSFWorkbook(pkg, new XSSFLoadOptions().setLazySheets(true));
+    }
+
+    private static byte[] getPartContent(OPCPackage pkg, String partName) throws IOException, InvalidFormatException {
+        try (InputStream is = pkg.getPart(PackagingURIHelper.createPartName(partName)).getInputStream()) {
+            return IOUtils.toByteArray(is);
+        }
+    }
+}
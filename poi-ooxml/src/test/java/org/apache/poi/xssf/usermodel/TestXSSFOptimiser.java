@@ -0,0 +1,108 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.usermodel;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+
+import org.apache.commons.io.output.UnsynchronizedByteArrayOutputStream;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.ss.usermodel.FillPatternType;
+import org.apache.poi.ss.usermodel.IndexedColors;
+import org.apache.poi.xssf.XSSFTestDataSamples;
+import org.junit.jupiter.api.Test;
+
+final class TestXSSFOptimiser {
+
+    @Test
+    void optimiseCellStyles() throws IOException {
+        try (XSSFWorkbook wb = createWorkbookWithStylePerCell()) {
+            assertEquals(1 + 3 * 20 + 2, wb.getNumCellStyles());
+            XSSFOptimiser.optimiseCellStyles(wb);
+            assertStyles(wb);
+
+            try (XSSFWorkbook wb2 = XSSFTestDataSamples.writeOutAndReadBack(wb)) {
+                assertStyles(wb2);
+            }
+        }
+    }
+
+    @Test
+    void optimiseCellStylesOfCompactRows() throws Exception {
+        UnsynchronizedByteArrayOutputStream bos = new UnsynchronizedByteArrayOutputStream();
+        try (XSSFWorkbook wb = createWorkbookWithStylePerCell()) {
+            wb.write(bos);
+        }
+        try (XSSFWorkbook wb = new XSSFWorkbook(OPCPackage.open(bos.toInputStream()),
+                new XSSFLoadOptions().setCompactSheetData(true))) {
+            // one of the rows is a regular row, the others are still compact
+            wb.getSheetAt(0).getRow(5);
+            XSSFOptimiser.optimiseCellStyles(wb);
+            assertStyles(wb);
+
+            try (XSSFWorkbook wb2 = XSSFTestDataSamples.writeOutAndReadBack(wb)) {
+                assertStyles(wb2);
+            }
+        }
+    }
+
+    private static XSSFWorkbook createWorkbookWithStylePerCell() {
+        XSSFWorkbook wb = new XSSFWorkbook();
+        XSSFSheet sheet = wb.createSheet();
+        for (int r = 0; r < 20; r++) {
+            XSSFRow row = sheet.createRow(r);
+            for (int c = 0; c < 3; c++) {
+                XSSFCellStyle style = wb.createCellStyle();
+                if (c == 1) {
+                    style.setFillForegroundColor(IndexedColors.YELLOW.getIndex());
+                    style.setFillPattern(FillPatternType.SOLID_FOREGROUND);
+                } else if (c == 2) {
+                    style.setWrapText(true);
+                }
+                row.createCell(c).setCellValue(r * c);
+                row.getCell(c).setCellStyle(style);
+            }
+        }
+        XSSFCellStyle rowStyle = wb.createCellStyle();
+        rowStyle.setWrapText(true);
+        sheet.getRow(3).setRowStyle(rowStyle);
+        XSSFCellStyle columnStyle = wb.createCellStyle();
+        columnStyle.setWrapText(true);
+        sheet.setDefaultColumnStyle(5, columnStyle);
+        return wb;
+    }
+
+    private static void assertStyles(XSSFWorkbook wb) {
+        // the default style, which is equal to the unchanged new styles, the yellow style and the wrapped style
+        assertEquals(3, wb.getNumCellStyles());
+        XSSFSheet sheet = wb.getSheetAt(0);
+        for (int r = 0; r < 20; r++) {
+            XSSFRow row = sheet.getRow(r);
+            assertEquals(0, row.getCell(0).getCellStyle().getIndex());
+            assertEquals(FillPatternType.SOLID_FOREGROUND, row.getCell(1).getCellStyle().getFillPattern());
+            assertEquals(IndexedColors.YELLOW.getIndex(), row.getCell(1).getCellStyle().getFillForegroundColor());
+            assertTrue(row.getCell(2).getCellStyle().getWrapText());
+            assertFalse(row.getCell(0).getCellStyle().getWrapText());
+        }
+        assertEquals(sheet.getRow(0).getCell(2).getCellStyle(), sheet.getRow(3).getRowStyle());
+        assertEquals(sheet.getRow(0).getCell(2).getCellStyle(), sheet.getColumnStyle(5));
+    }
+}
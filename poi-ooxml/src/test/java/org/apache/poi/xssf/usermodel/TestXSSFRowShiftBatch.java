@@ -0,0 +1,234 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.usermodel;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.TreeSet;
+
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.ClientAnchor;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.xssf.XSSFTestDataSamples;
+import org.junit.jupiter.api.Test;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTCellFormula;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTSheetData;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.STCellFormulaType;
+
+final class TestXSSFRowShiftBatch {
+
+    @Test
+    void batchEqualsSequentialShifts() throws IOException {
+        try (XSSFWorkbook expected = createWorkbook(); XSSFWorkbook wb = createWorkbook()) {
+            XSSFSheet expectedSheet = expected.getSheetAt(0);
+            // insert 2 rows, move the first rows past the following rows and delete 3 rows
+            expectedSheet.shiftRows(5, 29, 2);
+            expectedSheet.shiftRows(0, 3, 20);
+            expectedSheet.shiftRows(27, 40, -3);
+
+            new XSSFRowShiftBatch(wb.getSheetAt(0))
+                .shiftRows(5, 29, 2)
+                .shiftRows(0, 3, 20)
+                .shiftRows(27, 40, -3)
+                .apply();
+
+            assertSameContent(expected, wb);
+            assertEquals("SUM(Data!A21:A29)", wb.getSheet("Summary").getRow(0).getCell(0).getCellFormula());
+            CTSheetData sheetData = wb.getSheetAt(0).getCTWorksheet().getSheetData();
+            for (int i = 1; i < sheetData.sizeOfRowArray(); i++) {
+                assertTrue(sheetData.getRowArray(i - 1).getR() < sheetData.getRowArray(i).getR());
+            }
+
+            try (XSSFWorkbook wb2 = XSSFTestDataSamples.writeOutAndReadBack(wb)) {
+                assertSameContent(expected, wb2);
+            }
+        }
+    }
+
+    @Test
+    void invalidShiftChangesNothing() throws IOException {
+        try (XSSFWorkbook wb = createWorkbook()) {
+            XSSFSheet sheet = wb.getSheetAt(0);
+            XSSFRowShiftBatch batch = new XSSFRowShiftBatch(sheet)
+                .shiftRows(5, 29, 2)
+                .shiftRows(10, 5, 1);
+            assertThrows(IllegalArgumentException.class, batch::apply);
+            assertEquals(5, sheet.getRow(5).getCell(0).getNumericCellValue(), 0);
+
+            // the rows would be moved above the first row
+            batch.shiftRows(5, 29, 2).shiftRows(3, 10, -4);
+            assertThrows(IllegalArgumentException.class, batch::apply);
+            assertEquals(5, sheet.getRow(5).getCell(0).getNumericCellValue(), 0);
+
+            // the rows would be moved below the last row
+            int maxRow = SpreadsheetVersion.EXCEL2007.getLastRowIndex();
+            batch.shiftRows(5, 29, 2).shiftRows(20, 31, maxRow - 30);
+            assertThrows(IllegalArgumentException.class, batch::apply);
+            assertEquals(5, sheet.getRow(5).getCell(0).getNumericCellValue(), 0);
+
+            // the batch is empty after it has been applied
+            batch.apply();
+            assertEquals(5, sheet.getRow(5).getCell(0).getNumericCellValue(), 0);
+        }
+    }
+
+    @Test
+    void shiftWidensArrayFormula() throws IOException {
+        try (XSSFWorkbook wb = XSSFTestDataSamples.openSampleWorkbook("57798.xlsx")) {
+            // the array formula B1:B2 is widened to B1:B12, its master in the first row isn't moved
+            XSSFSheet sheet = wb.getSheetAt(0);
+            sheet.shiftRows(1, 3, 10);
+
+            XSSFCell master = sheet.getRow(0).getCell(1);
+            assertEquals("B1:B12", master.getCTCell().getF().getRef());
+            assertEquals(CellRangeAddress.valueOf("B1:B12"), master.getArrayFormulaRange());
+            XSSFCell cell = sheet.getRow(11).getCell(1);
+            assertTrue(cell.isPartOfArrayFormulaGroup());
+            assertEquals(CellType.FORMULA, cell.getCellType());
+            assertFalse(sheet.getRow(0).createCell(5).isPartOfArrayFormulaGroup());
+        }
+    }
+
+    @Test
+    void shiftArrayFormulaTwice() throws IOException {
+        try (XSSFWorkbook expected = createWorkbook(); XSSFWorkbook wb = createWorkbook()) {
+            for (XSSFWorkbook workbook : new XSSFWorkbook[] {expected, wb}) {
+                workbook.getSheetAt(0).setArrayFormula("A6:A8*2", CellRangeAddress.valueOf("E6:E8"));
+            }
+            XSSFSheet expectedSheet = expected.getSheetAt(0);
+            // the array formula is moved to E16:E18 and then back to E7:E9, which overlaps its old range
+            expectedSheet.shiftRows(5, 7, 10);
+            expectedSheet.shiftRows(15, 17, -9);
+
+            XSSFSheet sheet = wb.getSheetAt(0);
+            new XSSFRowShiftBatch(sheet)
+                .shiftRows(5, 7, 10)
+                .shiftRows(15, 17, -9)
+                .apply();
+
+            assertSameContent(expected, wb);
+            XSSFCell master = sheet.getRow(6).getCell(4);
+            assertEquals("E7:E9", master.getCTCell().getF().getRef());
+            assertEquals(CellRangeAddress.valueOf("E7:E9"), master.getArrayFormulaRange());
+            assertTrue(sheet.getRow(8).getCell(4).isPartOfArrayFormulaGroup());
+            assertFalse(sheet.getRow(9).createCell(4).isPartOfArrayFormulaGroup());
+        }
+    }
+
+    @Test
+    void shiftWidensSharedFormula() throws IOException {
+        try (XSSFWorkbook original = new XSSFWorkbook()) {
+            XSSFSheet originalSheet = original.createSheet();
+            for (int r = 0; r < 3; r++) {
+                XSSFRow row = originalSheet.createRow(r);
+                row.createCell(0).setCellValue(r);
+                CTCellFormula f = row.createCell(1).getCTCell().addNewF();
+                f.setT(STCellFormulaType.SHARED);
+                f.setSi(0);
+                if (r == 0) {
+                    f.setRef("B1:B3");
+                    f.setStringValue("A1*2");
+                }
+            }
+
+            try (XSSFWorkbook wb = XSSFTestDataSamples.writeOutAndReadBack(original)) {
+                // the shared formula B1:B3 is widened to B1:B8, its master in the first row isn't moved
+                XSSFSheet sheet = wb.getSheetAt(0);
+                sheet.shiftRows(1, 2, 5);
+                assertEquals("B1:B8", sheet.getRow(0).getCell(1).getCTCell().getF().getRef());
+                assertEquals("B1:B8", sheet.getSharedFormula(0).getRef());
+                assertEquals("A7*2", sheet.getRow(6).getCell(1).getCellFormula());
+
+                // the next cell of the shared formula becomes the master
+                sheet.getRow(0).getCell(1).setBlank();
+                CTCellFormula f = sheet.getRow(6).getCell(1).getCTCell().getF();
+                assertEquals("B7:B8", f.getRef());
+                assertEquals("A7*2", f.getStringValue());
+                assertEquals("A8*2", sheet.getRow(7).getCell(1).getCellFormula());
+            }
+        }
+    }
+
+    private static XSSFWorkbook createWorkbook() {
+        XSSFWorkbook wb = new XSSFWorkbook();
+        XSSFSheet sheet = wb.createSheet("Data");
+        for (int r = 0; r < 30; r++) {
+            XSSFRow row = sheet.createRow(r);
+            row.createCell(0).setCellValue(r);
+            if (r % 5 == 0) {
+                row.createCell(1).setCellFormula("A" + (r + 1) + "+A" + (r % 10 + 1));
+            }
+            if (r % 4 != 1) {
+                row.createCell(2).setCellValue("text " + r);
+            }
+        }
+        XSSFDrawing drawing = sheet.createDrawingPatriarch();
+        for (int r : new int[] {2, 12}) {
+            ClientAnchor anchor = wb.getCreationHelper().createClientAnchor();
+            anchor.setRow1(r);
+            anchor.setRow2(r + 2);
+            anchor.setCol1(2);
+            anchor.setCol2(4);
+            XSSFComment comment = drawing.createCellComment(anchor);
+            comment.setString(new XSSFRichTextString("comment " + r));
+            sheet.getRow(r).getCell(2).setCellComment(comment);
+        }
+        sheet.addMergedRegion(new CellRangeAddress(8, 9, 3, 4));
+        sheet.addMergedRegion(new CellRangeAddress(1, 2, 3, 4));
+
+        XSSFSheet summary = wb.createSheet("Summary");
+        summary.createRow(0).createCell(0).setCellFormula("SUM(Data!A1:A30)");
+        summary.getRow(0).createCell(1).setCellFormula("Data!B6*2");
+        XSSFName name = wb.createName();
+        name.setNameName("values");
+        name.setRefersToFormula("Data!$A$3:$A$12");
+        return wb;
+    }
+
+    private static void assertSameContent(XSSFWorkbook expected, XSSFWorkbook actual) {
+        for (int s = 0; s < expected.getNumberOfSheets(); s++) {
+            XSSFSheet expectedSheet = expected.getSheetAt(s);
+            XSSFSheet sheet = actual.getSheetAt(s);
+            assertEquals(expectedSheet.getPhysicalNumberOfRows(), sheet.getPhysicalNumberOfRows());
+            for (Row expectedRow : expectedSheet) {
+                Row row = sheet.getRow(expectedRow.getRowNum());
+                assertNotNull(row, "row " + expectedRow.getRowNum());
+                assertEquals(expectedRow.getPhysicalNumberOfCells(), row.getPhysicalNumberOfCells());
+                for (Cell expectedCell : expectedRow) {
+                    Cell cell = row.getCell(expectedCell.getColumnIndex());
+                    String ref = expectedCell.getAddress().formatAsString();
+                    assertNotNull(cell, ref);
+                    assertEquals(expectedCell.toString(), cell.toString(), ref);
+                    assertEquals(ref, ((XSSFCell) cell).getCTCell().getR());
+                }
+            }
+            assertEquals(expectedSheet.getMergedRegions(), sheet.getMergedRegions());
+            assertEquals(new TreeSet<>(expectedSheet.getCellComments().keySet()),
+                new TreeSet<>(sheet.getCellComments().keySet()));
+        }
+        assertEquals(expected.getName("values").getRefersToFormula(), actual.getName("values").getRefersToFormula());
+    }
+}
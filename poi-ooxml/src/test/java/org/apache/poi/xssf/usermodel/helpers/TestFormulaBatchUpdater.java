@@ -0,0 +1,132 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.usermodel.helpers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.formula.FormulaBatchUpdater;
+import org.apache.poi.ss.formula.FormulaShifter;
+import org.apache.poi.ss.formula.FormulaType;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFEvaluationWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFName;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the bulk updates of formulas with {@link FormulaBatchUpdater}
+ */
+final class TestFormulaBatchUpdater {
+
+    @Test
+    void shifter() throws IOException {
+        try (XSSFWorkbook wb = new XSSFWorkbook()) {
+            wb.createSheet("Data");
+            wb.createSheet("Other");
+            XSSFEvaluationWorkbook fpb = XSSFEvaluationWorkbook.create(wb);
+            FormulaShifter shifter = FormulaShifter.createForRowShift(0, "Data", 2, 10, 1, SpreadsheetVersion.EXCEL2007);
+            FormulaBatchUpdater updater = FormulaBatchUpdater.forShifter(fpb, fpb, shifter);
+
+            assertEquals("A4*2", updater.update("A3*2", FormulaType.CELL, 0, 0));
+            // formulas, which only contain numbers of rows above the shifted rows, aren't parsed
+            assertNull(updater.update("A1*2", FormulaType.CELL, 0, 0));
+            assertNull(updater.update("SUM(A1:B2)", FormulaType.CELL, 0, 0));
+            assertEquals("SUM(A1:A12)", updater.update("SUM(A1:A11)", FormulaType.CELL, 0, 0));
+            // local references of other sheets aren't parsed at all
+            assertNull(updater.update("A3*2", FormulaType.CELL, 1, 0));
+            assertEquals("SUM(Data!A1:A11)", updater.update("SUM(Data!A1:A10)", FormulaType.CELL, 1, 0));
+            assertNull(updater.update("Other!A3", FormulaType.CELL, 1, 0));
+
+            assertEquals(4, updater.getParsedCount());
+            assertEquals(3, updater.getChangedCount());
+        }
+    }
+
+    @Test
+    void shifters() throws IOException {
+        try (XSSFWorkbook wb = new XSSFWorkbook()) {
+            wb.createSheet("Data");
+            XSSFEvaluationWorkbook fpb = XSSFEvaluationWorkbook.create(wb);
+            FormulaBatchUpdater updater = FormulaBatchUpdater.forShifters(fpb, fpb, Arrays.asList(
+                FormulaShifter.createForRowShift(0, "Data", 2, 10, 1, SpreadsheetVersion.EXCEL2007),
+                FormulaShifter.createForRowShift(0, "Data", 20, 30, 2, SpreadsheetVersion.EXCEL2007)));
+
+            // the shifts are applied one after the other
+            assertEquals("A4+A23", updater.update("A3+A21", FormulaType.CELL, 0, 0));
+            assertEquals("A24", updater.update("A22", FormulaType.CELL, 0, 0));
+            assertNull(updater.update("A1+A2", FormulaType.CELL, 0, 0));
+            assertEquals(2, updater.getParsedCount());
+        }
+    }
+
+    @Test
+    void shiftRows() throws IOException {
+        try (XSSFWorkbook wb = new XSSFWorkbook()) {
+            XSSFSheet data = wb.createSheet("Data");
+            XSSFSheet other = wb.createSheet("Other");
+            for (int r = 0; r < 5; r++) {
+                data.createRow(r).createCell(0).setCellValue(r);
+                data.getRow(r).createCell(1).setCellFormula("A" + (r + 1) + "*2");
+                other.createRow(r).createCell(0).setCellFormula("B" + (r + 1) + "+Data!A" + (r + 1));
+                other.getRow(r).createCell(1).setCellFormula("A" + (r + 1));
+            }
+            XSSFName name = wb.createName();
+            name.setNameName("Last");
+            name.setRefersToFormula("Data!$A$5");
+
+            data.shiftRows(2, 4, 1);
+
+            assertEquals("A2*2", data.getRow(1).getCell(1).getCellFormula());
+            assertEquals("A4*2", data.getRow(3).getCell(1).getCellFormula());
+            assertEquals("A6*2", data.getRow(5).getCell(1).getCellFormula());
+            assertEquals("B2+Data!A2", other.getRow(1).getCell(0).getCellFormula());
+            assertEquals("B3+Data!A4", other.getRow(2).getCell(0).getCellFormula());
+            assertEquals("A3", other.getRow(2).getCell(1).getCellFormula());
+            assertEquals("Data!$A$6", name.getRefersToFormula());
+        }
+    }
+
+    @Test
+    void renameSheet() throws IOException {
+        try (XSSFWorkbook wb = new XSSFWorkbook()) {
+            Sheet data = wb.createSheet("My Data");
+            Sheet other = wb.createSheet("Other");
+            data.createRow(0).createCell(0).setCellValue(1);
+            other.createRow(0).createCell(0).setCellFormula("'My Data'!A1*2");
+            other.getRow(0).createCell(1).setCellFormula("SUM(A1:A2)");
+            other.getRow(0).createCell(2).setCellFormula("Other!A1+'My Data'!A1");
+            XSSFName name = wb.createName();
+            name.setNameName("First");
+            name.setRefersToFormula("'My Data'!$A$1");
+
+            wb.setSheetName(0, "Data");
+
+            assertEquals("Data!A1*2", other.getRow(0).getCell(0).getCellFormula());
+            // formulas without references to the sheet are left as they are
+            assertEquals("SUM(A1:A2)", other.getRow(0).getCell(1).getCellFormula());
+            assertEquals("Other!A1+Data!A1", other.getRow(0).getCell(2).getCellFormula());
+            assertEquals("Data!$A$1", name.getRefersToFormula());
+        }
+    }
+}
@@ -17,7 +17,10 @@
 
 package org.apache.poi.ss.formula;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.CellType;
@@ -27,6 +30,7 @@ import org.apache.poi.ss.usermodel.RichTextString;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.util.Beta;
 
 /**
  * Common functionality across file formats for evaluating formula cells.
@@ -281,11 +285,87 @@ public abstract class BaseFormulaEvaluator implements FormulaEvaluator, Workbook
         }
     }
 
+    /**
+     * Evaluates the formula cells of the workbook in parallel and then saves the results
+     * like {@link #evaluateAllFormulaCells(Workbook, FormulaEvaluator)}.
+     *
+     * @see WorkbookEvaluator#evaluateAll(java.util.Collection, ForkJoinPool)
+     * @since POI 5.2.4
+     */
+    protected static void evaluateAllFormulaCells(Workbook wb, BaseFormulaEvaluator evaluator, ForkJoinPool pool) {
+        EvaluationWorkbook evalWorkbook = evaluator.getEvaluationWorkbook();
+        List<EvaluationCell> formulaCells = new ArrayList<>();
+        for(int i=0; i<wb.getNumberOfSheets(); i++) {
+            Sheet sheet = wb.getSheetAt(i);
+            EvaluationSheet evalSheet = evalWorkbook.getSheet(i);
+
+            for(Row r : sheet) {
+                for (Cell c : r) {
+                    if (c.getCellType() == CellType.FORMULA) {
+                        formulaCells.add(evalSheet.getCell(c.getRowIndex(), c.getColumnIndex()));
+                    }
+                }
+            }
+        }
+        evaluator._bookEvaluator.evaluateAll(formulaCells, pool);
+        // the results are cached now, so this only saves them in the cells
+        evaluateAllFormulaCells(wb, evaluator);
+    }
+
+    /**
+     * Evaluates the formula cells, which have been invalidated by the notify~ methods since the last call,
+     * saves their results in the cells like {@link #evaluateFormulaCell(Cell)} and returns the cells,
+     * whose results have changed.
+     *
+     * @param pool the pool to evaluate the formulas with, {@code null} to evaluate them sequentially
+     * @see WorkbookEvaluator#recalculateDirty(ForkJoinPool)
+     * @since POI 5.2.4
+     */
+    protected static List<Cell> recalculateDirty(Workbook wb, BaseFormulaEvaluator evaluator, ForkJoinPool pool) {
+        EvaluationWorkbook evalWorkbook = evaluator.getEvaluationWorkbook();
+        List<Cell> changedCells = new ArrayList<>();
+        for (EvaluationCell evalCell : evaluator._bookEvaluator.recalculateDirty(pool)) {
+            Sheet sheet = wb.getSheetAt(evalWorkbook.getSheetIndex(evalCell.getSheet()));
+            Row row = sheet.getRow(evalCell.getRowIndex());
+            Cell cell = row == null ? null : row.getCell(evalCell.getColumnIndex());
+            if (cell != null) {
+                // the result is cached, so this only saves it in the cell
+                evaluator.evaluateFormulaCell(cell);
+                changedCells.add(cell);
+            }
+        }
+        return changedCells;
+    }
+
     @Override
     public void setIgnoreMissingWorkbooks(boolean ignore){
         _bookEvaluator.setIgnoreMissingWorkbooks(ignore);
     }
 
+    /**
+     * Whether to evaluate formulas with their compiled form, which speeds up repeated evaluations
+     * of numeric formulas.
+     *
+     * @see WorkbookEvaluator#setCompiledEvaluation(boolean)
+     * @since POI 5.2.4
+     */
+    @Beta
+    public void setCompiledEvaluation(boolean compiledEvaluation) {
+        _bookEvaluator.setCompiledEvaluation(compiledEvaluation);
+    }
+
+    /**
+     * Whether to collect the formula cells, which are invalidated by the notify~ methods,
+     * so they can be recalculated by {@code recalculateDirty()}. Disabled by default.
+     *
+     * @see WorkbookEvaluator#setDirtyCellTracking(boolean)
+     * @since POI 5.2.4
+     */
+    @Beta
+    public void setDirtyCellTracking(boolean tracking) {
+        _bookEvaluator.setDirtyCellTracking(tracking);
+    }
+
     @Override
     public void setDebugEvaluationOutputForNextEval(boolean value){
         _bookEvaluator.setDebugEvaluationOutputForNextEval(value);
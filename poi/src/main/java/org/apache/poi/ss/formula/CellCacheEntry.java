@@ -27,12 +27,15 @@ import org.apache.poi.ss.formula.IEvaluationListener.ICacheEntry;
 
 /**
  * Stores the parameters that identify the evaluation of one cell.<br>
+ *
+ * The value and the consuming cells can be accessed concurrently, when
+ * formulas are evaluated in parallel.
  */
 abstract class CellCacheEntry implements ICacheEntry {
     public static final CellCacheEntry[] EMPTY_ARRAY = { };
 
     private final FormulaCellCacheEntrySet _consumingCells;
-    private ValueEval _value;
+    private volatile ValueEval _value;
 
 
     protected CellCacheEntry() {
@@ -54,7 +57,7 @@ abstract class CellCacheEntry implements ICacheEntry {
         return _value;
     }
 
-    private static boolean areValuesEqual(ValueEval a, ValueEval b) {
+    static boolean areValuesEqual(ValueEval a, ValueEval b) {
         if (a == null) {
             return false;
         }
@@ -82,15 +85,22 @@ abstract class CellCacheEntry implements ICacheEntry {
     }
 
     public final void addConsumingCell(FormulaCellCacheEntry cellLoc) {
-        _consumingCells.add(cellLoc);
-
+        synchronized (_consumingCells) {
+            _consumingCells.add(cellLoc);
+        }
     }
     public final FormulaCellCacheEntry[] getConsumingCells() {
-        return _consumingCells.toArray();
+        synchronized (_consumingCells) {
+            return _consumingCells.toArray();
+        }
     }
 
     public final void clearConsumingCell(FormulaCellCacheEntry cce) {
-        if(!_consumingCells.remove(cce)) {
+        boolean removed;
+        synchronized (_consumingCells) {
+            removed = _consumingCells.remove(cce);
+        }
+        if (!removed) {
             throw new IllegalStateException("Specified formula cell is not consumed by this cell");
         }
     }
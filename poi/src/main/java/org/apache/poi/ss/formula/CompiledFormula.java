@@ -0,0 +1,747 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
+
+import org.apache.poi.ss.formula.eval.AreaEval;
+import org.apache.poi.ss.formula.eval.BlankEval;
+import org.apache.poi.ss.formula.eval.BoolEval;
+import org.apache.poi.ss.formula.eval.ErrorEval;
+import org.apache.poi.ss.formula.eval.FunctionEval;
+import org.apache.poi.ss.formula.eval.NumberEval;
+import org.apache.poi.ss.formula.eval.RefEval;
+import org.apache.poi.ss.formula.eval.TwoOperandNumericOperation;
+import org.apache.poi.ss.formula.eval.ValueEval;
+import org.apache.poi.ss.formula.function.FunctionMetadataRegistry;
+import org.apache.poi.ss.formula.functions.AggregateFunction;
+import org.apache.poi.ss.formula.functions.Function;
+import org.apache.poi.ss.formula.functions.MathX;
+import org.apache.poi.ss.formula.functions.NumericFunction;
+import org.apache.poi.ss.formula.ptg.AbstractFunctionPtg;
+import org.apache.poi.ss.formula.ptg.AddPtg;
+import org.apache.poi.ss.formula.ptg.Area3DPtg;
+import org.apache.poi.ss.formula.ptg.Area3DPxg;
+import org.apache.poi.ss.formula.ptg.AreaPtg;
+import org.apache.poi.ss.formula.ptg.AttrPtg;
+import org.apache.poi.ss.formula.ptg.BoolPtg;
+import org.apache.poi.ss.formula.ptg.DividePtg;
+import org.apache.poi.ss.formula.ptg.EqualPtg;
+import org.apache.poi.ss.formula.ptg.GreaterEqualPtg;
+import org.apache.poi.ss.formula.ptg.GreaterThanPtg;
+import org.apache.poi.ss.formula.ptg.IntPtg;
+import org.apache.poi.ss.formula.ptg.LessEqualPtg;
+import org.apache.poi.ss.formula.ptg.LessThanPtg;
+import org.apache.poi.ss.formula.ptg.MultiplyPtg;
+import org.apache.poi.ss.formula.ptg.NotEqualPtg;
+import org.apache.poi.ss.formula.ptg.NumberPtg;
+import org.apache.poi.ss.formula.ptg.ParenthesisPtg;
+import org.apache.poi.ss.formula.ptg.PercentPtg;
+import org.apache.poi.ss.formula.ptg.PowerPtg;
+import org.apache.poi.ss.formula.ptg.Ptg;
+import org.apache.poi.ss.formula.ptg.Ref3DPtg;
+import org.apache.poi.ss.formula.ptg.Ref3DPxg;
+import org.apache.poi.ss.formula.ptg.RefPtg;
+import org.apache.poi.ss.formula.ptg.SubtractPtg;
+import org.apache.poi.ss.formula.ptg.UnaryMinusPtg;
+import org.apache.poi.ss.formula.ptg.UnaryPlusPtg;
+import org.apache.poi.ss.util.NumberComparer;
+
+/**
+ * A formula, which has been compiled into a tree of nodes calculating with primitive doubles,
+ * instead of interpreting the tokens with a stack of boxed {@link ValueEval}s.
+ * <p>
+ * Only a subset of formulas is compiled: numeric and boolean constants, cell and area references,
+ * the arithmetic and comparison operators, {@code IF}, {@code SUM}, {@code AVERAGE}, {@code MIN},
+ * {@code MAX} and a few numeric functions. The nodes use the same calculations as the functions of
+ * the interpreter, so both give the same results.
+ * <p>
+ * Whenever a value comes up, which isn't handled by the nodes - e.g. a text in a referenced cell or
+ * an error like #DIV/0! - the node returns {@code NaN} and {@link #evaluate(OperationEvaluationContext)}
+ * returns {@code null}, so the formula is interpreted instead.
+ */
+final class CompiledFormula {
+    /** marker for formulas, which can't be compiled */
+    static final CompiledFormula NOT_COMPILABLE = new CompiledFormula(null);
+
+    private static final Map<Integer, DoubleUnaryOperator> ONE_ARG_FUNCTIONS = new HashMap<>();
+    private static final Map<Integer, DoubleBinaryOperator> TWO_ARG_FUNCTIONS = new HashMap<>();
+    private static final Map<Integer, AggregateType> AGGREGATE_FUNCTIONS = new HashMap<>();
+
+    static {
+        // the operators are the same as of the registered functions
+        oneArg("ABS", NumericFunction.ABS, Math::abs);
+        oneArg("EXP", NumericFunction.EXP, d -> Math.pow(Math.E, d));
+        oneArg("INT", NumericFunction.INT, d -> Math.round(d - 0.5));
+        oneArg("LN", NumericFunction.LN, Math::log);
+        oneArg("SQRT", NumericFunction.SQRT, Math::sqrt);
+        twoArg("MOD", NumericFunction.MOD, (d0, d1) -> d1 == 0.0 ? Double.NaN : MathX.mod(d0, d1));
+        twoArg("POWER", NumericFunction.POWER, Math::pow);
+        twoArg("ROUND", NumericFunction.ROUND, MathX::round);
+        twoArg("ROUNDDOWN", NumericFunction.ROUNDDOWN, MathX::roundDown);
+        twoArg("ROUNDUP", NumericFunction.ROUNDUP, MathX::roundUp);
+        aggregate("AVERAGE", AggregateFunction.AVERAGE, AggregateType.AVERAGE);
+        aggregate("MAX", AggregateFunction.MAX, AggregateType.MAX);
+        aggregate("MIN", AggregateFunction.MIN, AggregateType.MIN);
+        aggregate("SUM", AggregateFunction.SUM, AggregateType.SUM);
+    }
+
+    private final Node _root;
+
+    private CompiledFormula(Node root) {
+        _root = root;
+    }
+
+    /**
+     * @return the compiled formula or {@link #NOT_COMPILABLE}, if the tokens contain unsupported operations
+     */
+    static CompiledFormula compile(Ptg[] ptgs) {
+        Deque<Node> stack = new ArrayDeque<>();
+        for (Ptg ptg : ptgs) {
+            if (!compile(ptg, stack)) {
+                return NOT_COMPILABLE;
+            }
+        }
+        if (stack.size() != 1 || stack.peek() instanceof AreaNode) {
+            return NOT_COMPILABLE;
+        }
+        return new CompiledFormula(stack.pop());
+    }
+
+    boolean isCompiled() {
+        return _root != null;
+    }
+
+    /**
+     * @return the result or {@code null}, if the formula needs to be interpreted
+     */
+    ValueEval evaluate(OperationEvaluationContext ec) {
+        double result = _root.evaluate(new Evaluation(ec));
+        if (Double.isNaN(result)) {
+            return null;
+        }
+        return _root.isBoolean() ? BoolEval.valueOf(result != 0.0) : new NumberEval(result);
+    }
+
+    private static boolean compile(Ptg ptg, Deque<Node> stack) {
+        if (ptg instanceof AttrPtg) {
+            AttrPtg attrPtg = (AttrPtg) ptg;
+            if (attrPtg.isSum()) {
+                return compileAggregate(AggregateType.SUM, 1, stack);
+            }
+            // the jumps of IF are replaced by the IF node
+            return attrPtg.isOptimizedIf() || attrPtg.isSkip() || attrPtg.isSpace() || attrPtg.isSemiVolatile();
+        }
+        if (ptg instanceof ParenthesisPtg) {
+            return true;
+        }
+        if (ptg instanceof IntPtg) {
+            stack.push(new Constant(((IntPtg) ptg).getValue(), false));
+            return true;
+        }
+        if (ptg instanceof NumberPtg) {
+            stack.push(new Constant(((NumberPtg) ptg).getValue(), false));
+            return true;
+        }
+        if (ptg instanceof BoolPtg) {
+            stack.push(new Constant(((BoolPtg) ptg).getValue() ? 1.0 : 0.0, true));
+            return true;
+        }
+        if (ptg instanceof RefPtg) {
+            RefPtg refPtg = (RefPtg) ptg;
+            stack.push(new CellNode(refPtg.getRow(), refPtg.getColumn(), null));
+            return true;
+        }
+        if (ptg instanceof Ref3DPtg || ptg instanceof Ref3DPxg) {
+            stack.push(new CellNode(-1, -1, ptg));
+            return true;
+        }
+        if (ptg instanceof AreaPtg || ptg instanceof Area3DPtg || ptg instanceof Area3DPxg) {
+            stack.push(new AreaNode(ptg));
+            return true;
+        }
+        if (ptg instanceof AbstractFunctionPtg) {
+            return compileFunction((AbstractFunctionPtg) ptg, stack);
+        }
+        return compileOperator(ptg, stack);
+    }
+
+    private static boolean compileOperator(Ptg ptg, Deque<Node> stack) {
+        if (ptg == UnaryMinusPtg.instance || ptg == UnaryPlusPtg.instance || ptg == PercentPtg.instance) {
+            Node operand = popScalar(stack);
+            if (operand == null) {
+                return false;
+            }
+            stack.push(new UnaryOperation(ptg, operand));
+            return true;
+        }
+
+        int comparison = getComparison(ptg);
+        int arithmetic = getArithmetic(ptg);
+        if (comparison < 0 && arithmetic < 0) {
+            return false;
+        }
+        Node operand1 = popScalar(stack);
+        Node operand0 = popScalar(stack);
+        if (operand0 == null || operand1 == null) {
+            return false;
+        }
+        if (arithmetic >= 0) {
+            stack.push(new BinaryOperation(arithmetic, operand0, operand1));
+            return true;
+        }
+        // booleans and numbers are compared by their type
+        if (operand0.isBoolean() || operand1.isBoolean()) {
+            return false;
+        }
+        stack.push(new Comparison(comparison, operand0, operand1));
+        return true;
+    }
+
+    private static boolean compileFunction(AbstractFunctionPtg ptg, Deque<Node> stack) {
+        int index = ptg.getFunctionIndex();
+        int nArgs = ptg.getNumberOfOperands();
+        if (index == FunctionMetadataRegistry.FUNCTION_INDEX_IF) {
+            return compileIf(nArgs, stack);
+        }
+        AggregateType aggregate = AGGREGATE_FUNCTIONS.get(index);
+        if (aggregate != null) {
+            return compileAggregate(aggregate, nArgs, stack);
+        }
+        DoubleUnaryOperator oneArg = ONE_ARG_FUNCTIONS.get(index);
+        if (oneArg != null && nArgs == 1) {
+            Node arg = popScalar(stack);
+            if (arg == null) {
+                return false;
+            }
+            stack.push(new OneArgFunction(oneArg, arg));
+            return true;
+        }
+        DoubleBinaryOperator twoArg = TWO_ARG_FUNCTIONS.get(index);
+        if (twoArg != null && nArgs == 2) {
+            Node arg1 = popScalar(stack);
+            Node arg0 = popScalar(stack);
+            if (arg0 == null || arg1 == null) {
+                return false;
+            }
+            stack.push(new TwoArgFunction(twoArg, arg0, arg1));
+            return true;
+        }
+        return false;
+    }
+
+    private static boolean compileIf(int nArgs, Deque<Node> stack) {
+        if (nArgs < 2 || nArgs > 3 || stack.size() < nArgs) {
+            return false;
+        }
+        Node falseValue = nArgs == 3 ? popScalar(stack) : new Constant(0.0, true);
+        Node trueValue = popScalar(stack);
+        Node condition = popScalar(stack);
+        // the result type must not depend on the condition
+        if (condition == null || trueValue == null || falseValue == null || trueValue.isBoolean() != falseValue.isBoolean()) {
+            return false;
+        }
+        stack.push(new If(condition, trueValue, falseValue));
+        return true;
+    }
+
+    private static boolean compileAggregate(AggregateType type, int nArgs, Deque<Node> stack) {
+        if (stack.size() < nArgs) {
+            return false;
+        }
+        Node[] args = new Node[nArgs];
+        for (int i = nArgs - 1; i >= 0; i--) {
+            args[i] = stack.pop();
+        }
+        stack.push(new Aggregate(type, args));
+        return true;
+    }
+
+    private static Node popScalar(Deque<Node> stack) {
+        Node node = stack.poll();
+        return node instanceof AreaNode ? null : node;
+    }
+
+    private static int getComparison(Ptg ptg) {
+        if (ptg == EqualPtg.instance) {
+            return Comparison.EQUAL;
+        } else if (ptg == NotEqualPtg.instance) {
+            return Comparison.NOT_EQUAL;
+        } else if (ptg == LessThanPtg.instance) {
+            return Comparison.LESS_THAN;
+        } else if (ptg == LessEqualPtg.instance) {
+            return Comparison.LESS_EQUAL;
+        } else if (ptg == GreaterThanPtg.instance) {
+            return Comparison.GREATER_THAN;
+        } else if (ptg == GreaterEqualPtg.instance) {
+            return Comparison.GREATER_EQUAL;
+        }
+        return -1;
+    }
+
+    private static int getArithmetic(Ptg ptg) {
+        if (ptg == AddPtg.instance) {
+            return BinaryOperation.ADD;
+        } else if (ptg == SubtractPtg.instance) {
+            return BinaryOperation.SUBTRACT;
+        } else if (ptg == MultiplyPtg.instance) {
+            return BinaryOperation.MULTIPLY;
+        } else if (ptg == DividePtg.instance) {
+            return BinaryOperation.DIVIDE;
+        } else if (ptg == PowerPtg.instance) {
+            return BinaryOperation.POWER;
+        }
+        return -1;
+    }
+
+    private static void oneArg(String name, Function function, DoubleUnaryOperator operator) {
+        int index = FunctionMetadataRegistry.lookupIndexByName(name);
+        if (FunctionEval.getBasicFunction(index) == function) {
+            ONE_ARG_FUNCTIONS.put(index, operator);
+        }
+    }
+
+    private static void twoArg(String name, Function function, DoubleBinaryOperator operator) {
+        int index = FunctionMetadataRegistry.lookupIndexByName(name);
+        if (FunctionEval.getBasicFunction(index) == function) {
+            TWO_ARG_FUNCTIONS.put(index, operator);
+        }
+    }
+
+    private static void aggregate(String name, Function function, AggregateType type) {
+        int index = FunctionMetadataRegistry.lookupIndexByName(name);
+        if (FunctionEval.getBasicFunction(index) == function) {
+            AGGREGATE_FUNCTIONS.put(index, type);
+        }
+    }
+
+    /**
+     * Maps the results, which the interpreter turns into a #NUM! error, to the fallback marker
+     */
+    private static double checkValue(double result) {
+        return Double.isInfinite(result) ? Double.NaN : result;
+    }
+
+    /**
+     * Converts a cell value to a number like the operators do
+     */
+    private static double toNumber(ValueEval value) {
+        if (value instanceof NumberEval) {
+            return ((NumberEval) value).getNumberValue();
+        }
+        return value == BlankEval.instance ? 0.0 : Double.NaN;
+    }
+
+    /**
+     * The state of a single evaluation
+     */
+    private static final class Evaluation {
+        private final OperationEvaluationContext _ec;
+        private SheetRangeEvaluator _currentSheet;
+
+        Evaluation(OperationEvaluationContext ec) {
+            _ec = ec;
+        }
+
+        ValueEval getCellValue(int rowIndex, int columnIndex) {
+            if (_currentSheet == null) {
+                _currentSheet = _ec.getRefEvaluatorForCurrentSheet();
+            }
+            return _currentSheet.getEvalForCell(_ec.getSheetIndex(), rowIndex, columnIndex);
+        }
+    }
+
+    private abstract static class Node {
+        /**
+         * @return the value - booleans as 1 and 0 - or {@code NaN}, if the formula needs to be interpreted
+         */
+        abstract double evaluate(Evaluation ev);
+
+        boolean isBoolean() {
+            return false;
+        }
+
+        /**
+         * Adds the value of this argument of an aggregate function to the given aggregate
+         *
+         * @return {@code false}, if the formula needs to be interpreted
+         */
+        boolean collect(Evaluation ev, AggregateValues values) {
+            double d = evaluate(ev);
+            if (Double.isNaN(d)) {
+                return false;
+            }
+            values.add(d);
+            return true;
+        }
+    }
+
+    private static final class Constant extends Node {
+        private final double _value;
+        private final boolean _isBoolean;
+
+        Constant(double value, boolean isBoolean) {
+            _value = value;
+            _isBoolean = isBoolean;
+        }
+
+        @Override
+        double evaluate(Evaluation ev) {
+            return _value;
+        }
+
+        @Override
+        boolean isBoolean() {
+            return _isBoolean;
+        }
+    }
+
+    private static final class CellNode extends Node {
+        private final int _rowIndex;
+        private final int _columnIndex;
+        // the 3D reference or null for references to the current sheet
+        private final Ptg _ref3D;
+
+        CellNode(int rowIndex, int columnIndex, Ptg ref3D) {
+            _rowIndex = rowIndex;
+            _columnIndex = columnIndex;
+            _ref3D = ref3D;
+        }
+
+        /**
+         * @return the value of the cell or {@code null} for references to several sheets
+         */
+        private ValueEval getValue(Evaluation ev) {
+            if (_ref3D == null) {
+                return ev.getCellValue(_rowIndex, _columnIndex);
+            }
+            RefEval ref = (RefEval) (_ref3D instanceof Ref3DPtg
+                ? ev._ec.getRef3DEval((Ref3DPtg) _ref3D)
+                : ev._ec.getRef3DEval((Ref3DPxg) _ref3D));
+            if (ref.getFirstSheetIndex() != ref.getLastSheetIndex()) {
+                return null;
+            }
+            return ref.getInnerValueEval(ref.getFirstSheetIndex());
+        }
+
+        @Override
+        double evaluate(Evaluation ev) {
+            return toNumber(getValue(ev));
+        }
+
+        @Override
+        boolean collect(Evaluation ev, AggregateValues values) {
+            // referenced blanks, texts and booleans are ignored by the aggregate functions
+            ValueEval value = getValue(ev);
+            if (value instanceof NumberEval) {
+                values.add(((NumberEval) value).getNumberValue());
+                return true;
+            }
+            return value != null && !(value instanceof ErrorEval);
+        }
+    }
+
+    private static final class AreaNode extends Node {
+        private final Ptg _area;
+
+        AreaNode(Ptg area) {
+            _area = area;
+        }
+
+        @Override
+        double evaluate(Evaluation ev) {
+            // only used as argument of aggregate functions
+            return Double.NaN;
+        }
+
+        @Override
+        boolean collect(Evaluation ev, AggregateValues values) {
+            AreaEval area;
+            if (_area instanceof AreaPtg) {
+                AreaPtg aptg = (AreaPtg) _area;
+                area = (AreaEval) ev._ec.getAreaEval(aptg.getFirstRow(), aptg.getFirstColumn(), aptg.getLastRow(), aptg.getLastColumn());
+            } else if (_area instanceof Area3DPtg) {
+                area = (AreaEval) ev._ec.getArea3DEval((Area3DPtg) _area);
+            } else {
+                area = (AreaEval) ev._ec.getArea3DEval((Area3DPxg) _area);
+            }
+            if (area.getFirstSheetIndex() != area.getLastSheetIndex()) {
+                return false;
+            }
+            int width = area.getWidth();
+            int height = area.getHeight();
+            for (int r = 0; r < height; r++) {
+                for (int c = 0; c < width; c++) {
+                    ValueEval value = area.getRelativeValue(r, c);
+                    if (value instanceof NumberEval) {
+                        values.add(((NumberEval) value).getNumberValue());
+                    } else if (value instanceof ErrorEval) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+    }
+
+    private static final class UnaryOperation extends Node {
+        private final Ptg _operator;
+        private final Node _operand;
+
+        UnaryOperation(Ptg operator, Node operand) {
+            _operator = operator;
+            _operand = operand;
+        }
+
+        @Override
+        double evaluate(Evaluation ev) {
+            double d = _operand.evaluate(ev);
+            if (_operator == UnaryPlusPtg.instance) {
+                return d;
+            }
+            if (d == 0.0) {
+                // -0.0 is returned as 0.0
+                return 0.0;
+            }
+            return _operator == UnaryMinusPtg.instance ? -d : d / 100;
+        }
+    }
+
+    private static final class BinaryOperation extends Node {
+        static final int ADD = 0;
+        static final int SUBTRACT = 1;
+        static final int MULTIPLY = 2;
+        static final int DIVIDE = 3;
+        static final int POWER = 4;
+
+        private final int _operator;
+        private final Node _operand0;
+        private final Node _operand1;
+
+        BinaryOperation(int operator, Node operand0, Node operand1) {
+            _operator = operator;
+            _operand0 = operand0;
+            _operand1 = operand1;
+        }
+
+        @Override
+        double evaluate(Evaluation ev) {
+            double d0 = _operand0.evaluate(ev);
+            if (Double.isNaN(d0)) {
+                return Double.NaN;
+            }
+            double d1 = _operand1.evaluate(ev);
+            if (Double.isNaN(d1)) {
+                return Double.NaN;
+            }
+            double result;
+            switch (_operator) {
+                case ADD:
+                    result = d0 + d1;
+                    break;
+                case SUBTRACT:
+                    // the sign of a zero difference is kept, see TwoOperandNumericOperation
+                    return checkValue(d0 - d1);
+                case MULTIPLY:
+                    result = TwoOperandNumericOperation.multiply(d0, d1);
+                    break;
+                case DIVIDE:
+                    if (d1 == 0.0) {
+                        return Double.NaN;
+                    }
+                    result = TwoOperandNumericOperation.divide(d0, d1);
+                    break;
+                default:
+                    result = TwoOperandNumericOperation.power(d0, d1);
+                    break;
+            }
+            return result == 0.0 ? 0.0 : checkValue(result);
+        }
+    }
+
+    private static final class Comparison extends Node {
+        static final int EQUAL = 0;
+        static final int NOT_EQUAL = 1;
+        static final int LESS_THAN = 2;
+        static final int LESS_EQUAL = 3;
+        static final int GREATER_THAN = 4;
+        static final int GREATER_EQUAL = 5;
+
+        private final int _operator;
+        private final Node _operand0;
+        private final Node _operand1;
+
+        Comparison(int operator, Node operand0, Node operand1) {
+            _operator = operator;
+            _operand0 = operand0;
+            _operand1 = operand1;
+        }
+
+        @Override
+        double evaluate(Evaluation ev) {
+            double d0 = _operand0.evaluate(ev);
+            if (Double.isNaN(d0)) {
+                return Double.NaN;
+            }
+            double d1 = _operand1.evaluate(ev);
+            if (Double.isNaN(d1)) {
+                return Double.NaN;
+            }
+            int cmp = NumberComparer.compare(d0, d1);
+            boolean result;
+            switch (_operator) {
+                case EQUAL: result = cmp == 0; break;
+                case NOT_EQUAL: result = cmp != 0; break;
+                case LESS_THAN: result = cmp < 0; break;
+                case LESS_EQUAL: result = cmp <= 0; break;
+                case GREATER_THAN: result = cmp > 0; break;
+                default: result = cmp >= 0; break;
+            }
+            return result ? 1.0 : 0.0;
+        }
+
+        @Override
+        boolean isBoolean() {
+            return true;
+        }
+    }
+
+    private static final class If extends Node {
+        private final Node _condition;
+        private final Node _trueValue;
+        private final Node _falseValue;
+
+        If(Node condition, Node trueValue, Node falseValue) {
+            _condition = condition;
+            _trueValue = trueValue;
+            _falseValue = falseValue;
+        }
+
+        @Override
+        double evaluate(Evaluation ev) {
+            double condition = _condition.evaluate(ev);
+            if (Double.isNaN(condition)) {
+                return Double.NaN;
+            }
+            return (condition != 0.0 ? _trueValue : _falseValue).evaluate(ev);
+        }
+
+        @Override
+        boolean isBoolean() {
+            return _trueValue.isBoolean();
+        }
+    }
+
+    private static final class OneArgFunction extends Node {
+        private final DoubleUnaryOperator _function;
+        private final Node _arg;
+
+        OneArgFunction(DoubleUnaryOperator function, Node arg) {
+            _function = function;
+            _arg = arg;
+        }
+
+        @Override
+        double evaluate(Evaluation ev) {
+            double d = _arg.evaluate(ev);
+            return Double.isNaN(d) ? Double.NaN : checkValue(_function.applyAsDouble(d));
+        }
+    }
+
+    private static final class TwoArgFunction extends Node {
+        private final DoubleBinaryOperator _function;
+        private final Node _arg0;
+        private final Node _arg1;
+
+        TwoArgFunction(DoubleBinaryOperator function, Node arg0, Node arg1) {
+            _function = function;
+            _arg0 = arg0;
+            _arg1 = arg1;
+        }
+
+        @Override
+        double evaluate(Evaluation ev) {
+            double d0 = _arg0.evaluate(ev);
+            if (Double.isNaN(d0)) {
+                return Double.NaN;
+            }
+            double d1 = _arg1.evaluate(ev);
+            return Double.isNaN(d1) ? Double.NaN : checkValue(_function.applyAsDouble(d0, d1));
+        }
+    }
+
+    private enum AggregateType { SUM, AVERAGE, MIN, MAX }
+
+    private static final class AggregateValues {
+        private double _sum;
+        private double _min = Double.POSITIVE_INFINITY;
+        private double _max = Double.NEGATIVE_INFINITY;
+        private int _count;
+
+        void add(double value) {
+            _sum += value;
+            _min = Math.min(_min, value);
+            _max = Math.max(_max, value);
+            _count++;
+        }
+    }
+
+    private static final class Aggregate extends Node {
+        private final AggregateType _type;
+        private final Node[] _args;
+
+        Aggregate(AggregateType type, Node[] args) {
+            _type = type;
+            _args = args;
+        }
+
+        @Override
+        double evaluate(Evaluation ev) {
+            AggregateValues values = new AggregateValues();
+            for (Node arg : _args) {
+                if (!arg.collect(ev, values)) {
+                    return Double.NaN;
+                }
+            }
+            double result;
+            switch (_type) {
+                case SUM:
+                    result = values._sum;
+                    break;
+                case AVERAGE:
+                    if (values._count == 0) {
+                        return Double.NaN;
+                    }
+                    result = values._sum / values._count;
+                    break;
+                case MIN:
+                    result = values._count > 0 ? values._min : 0;
+                    break;
+                default:
+                    result = values._count > 0 ? values._max : 0;
+                    break;
+            }
+            return checkValue(result);
+        }
+    }
+}
@@ -18,10 +18,15 @@
 package org.apache.poi.ss.formula;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.LongStream;
 
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.ConditionalFormatting;
@@ -70,6 +75,17 @@ public class ConditionalFormattingEvaluator {
      */
     private final Map<CellReference, List<EvaluationConditionalFormatRule>> values = new HashMap<>();
 
+    /**
+     * The results of whole sheets by sheet name, see {@link #getConditionalFormattingForSheet(Sheet)}
+     */
+    private final Map<String, ConditionalFormattingSheetResult> sheetResults = new HashMap<>();
+
+    /**
+     * The positions of the cells, which existed when the sheet results were evaluated, by sheet name -
+     * sorted keys as of {@link ConditionalFormattingSheetResult#toKey(int, int)}
+     */
+    private final Map<String, long[]> sheetEvaluatedCells = new HashMap<>();
+
     public ConditionalFormattingEvaluator(Workbook wb, WorkbookEvaluatorProvider provider) {
         this.workbook = wb;
         this.workbookEvaluator = provider._getWorkbookEvaluator();
@@ -85,6 +101,8 @@ public class ConditionalFormattingEvaluator {
      */
     public void clearAllCachedFormats() {
         formats.clear();
+        sheetResults.clear();
+        sheetEvaluatedCells.clear();
     }
 
     /**
@@ -96,6 +114,8 @@ public class ConditionalFormattingEvaluator {
      */
     public void clearAllCachedValues() {
         values.clear();
+        sheetResults.clear();
+        sheetEvaluatedCells.clear();
     }
 
     /**
@@ -214,9 +234,141 @@ public class ConditionalFormattingEvaluator {
      *         or null if none apply
      */
     public List<EvaluationConditionalFormatRule> getConditionalFormattingForCell(Cell cell) {
+        final Sheet sheet = cell.getSheet();
+        final ConditionalFormattingSheetResult sheetResult = sheetResults.get(sheet.getSheetName());
+        if (sheetResult != null) {
+            final int rowIndex = cell.getRowIndex();
+            final int columnIndex = cell.getColumnIndex();
+            final List<EvaluationConditionalFormatRule> rules = sheetResult.getRules(rowIndex, columnIndex);
+            final long key = ConditionalFormattingSheetResult.toKey(rowIndex, columnIndex);
+            if (!rules.isEmpty() || Arrays.binarySearch(sheetEvaluatedCells.get(sheet.getSheetName()), key) >= 0
+                    || !isInAnyRegion(sheet, rowIndex, columnIndex)) {
+                return rules;
+            }
+            // the cell has been created after the sheet was evaluated
+        }
         return getConditionalFormattingForCell(getRef(cell));
     }
 
+    private boolean isInAnyRegion(Sheet sheet, int rowIndex, int columnIndex) {
+        for (EvaluationConditionalFormatRule rule : getRules(sheet)) {
+            for (CellRangeAddress region : rule.getRegions()) {
+                if (region.isInRange(rowIndex, columnIndex)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Evaluates the conditional formatting rules for all existing cells of a sheet at once,
+     * e.g. to render the whole sheet.
+     * <p>
+     * The rules are evaluated one after the other in priority order over all cells of their regions,
+     * with the same results as {@link #getConditionalFormattingForCell(Cell)} for each cell.
+     * This way the formulas of a rule are parsed and the values of its regions - for rules like
+     * top 10, above average or duplicates - are collected just once for all cells.
+     * The result is cached until {@link #clearAllCachedValues()} or {@link #clearAllCachedFormats()} is called,
+     * and {@link #getConditionalFormattingForCell(Cell)} returns the cached results of the sheet from then on.
+     * Cells, which are created after the evaluation of the sheet, are evaluated on their own.
+     * <p>
+     * Like {@link #getConditionalFormattingForCell(Cell)}, the cached values of formula cells are used,
+     * so make sure they are up to date.
+     *
+     * @param sheet The sheet to evaluate
+     * @return the applying rules of the existing cells of the sheet
+     * @since POI 5.2.4
+     */
+    public ConditionalFormattingSheetResult getConditionalFormattingForSheet(Sheet sheet) {
+        final String sheetName = sheet.getSheetName();
+        ConditionalFormattingSheetResult result = sheetResults.get(sheetName);
+        if (result != null) {
+            return result;
+        }
+
+        final Map<Long, List<EvaluationConditionalFormatRule>> matches = new HashMap<>();
+        // the cells in the regions of the rules, i.e. the ones with a result
+        final LongStream.Builder evaluated = LongStream.builder();
+        // the cells, for which a matching rule stopped the evaluation of the rules with lower priority
+        final Set<Long> stopped = new HashSet<>();
+        for (EvaluationConditionalFormatRule rule : getRules(sheet)) {
+            final boolean stopIfTrue = rule.getRule().getStopIfTrue();
+            final CellRangeAddress[] regions = rule.getRegions();
+            for (int i = 0; i < regions.length; i++) {
+                final int regionIndex = i;
+                forEachCell(sheet, regions[i], cell -> {
+                    final int rowIndex = cell.getRowIndex();
+                    final int columnIndex = cell.getColumnIndex();
+                    for (int j = 0; j < regionIndex; j++) {
+                        if (regions[j].isInRange(rowIndex, columnIndex)) {
+                            // already evaluated for an overlapping region of the rule
+                            return;
+                        }
+                    }
+                    final Long key = ConditionalFormattingSheetResult.toKey(rowIndex, columnIndex);
+                    evaluated.add(key);
+                    if (stopped.contains(key)) {
+                        return;
+                    }
+                    if (rule.matches(new CellReference(sheetName, rowIndex, columnIndex, false, false))) {
+                        matches.computeIfAbsent(key, k -> new ArrayList<>(1)).add(rule);
+                        if (stopIfTrue) {
+                            stopped.add(key);
+                        }
+                    }
+                });
+            }
+        }
+
+        result = new ConditionalFormattingSheetResult(sheetName, matches);
+        sheetResults.put(sheetName, result);
+        sheetEvaluatedCells.put(sheetName, evaluated.build().sorted().distinct().toArray());
+        return result;
+    }
+
+    /**
+     * Visits the existing cells of a region. For large regions, e.g. whole columns, the existing rows
+     * and cells are iterated instead of looking up each position.
+     */
+    private static void forEachCell(Sheet sheet, CellRangeAddress region, Consumer<Cell> action) {
+        final int firstRow = Math.max(region.getFirstRow(), 0);
+        final int lastRow = region.getLastRow() < 0 ? Integer.MAX_VALUE : region.getLastRow();
+        if ((long) lastRow - firstRow + 1 <= sheet.getPhysicalNumberOfRows()) {
+            for (int r = firstRow; r <= lastRow; r++) {
+                final Row row = sheet.getRow(r);
+                if (row != null) {
+                    forEachCell(row, region, action);
+                }
+            }
+        } else {
+            for (Row row : sheet) {
+                if (row.getRowNum() >= firstRow && row.getRowNum() <= lastRow) {
+                    forEachCell(row, region, action);
+                }
+            }
+        }
+    }
+
+    private static void forEachCell(Row row, CellRangeAddress region, Consumer<Cell> action) {
+        final int firstColumn = Math.max(region.getFirstColumn(), 0);
+        final int lastColumn = region.getLastColumn() < 0 ? Integer.MAX_VALUE : region.getLastColumn();
+        if ((long) lastColumn - firstColumn + 1 <= row.getPhysicalNumberOfCells()) {
+            for (int c = firstColumn; c <= lastColumn; c++) {
+                final Cell cell = row.getCell(c);
+                if (cell != null) {
+                    action.accept(cell);
+                }
+            }
+        } else {
+            for (Cell cell : row) {
+                if (cell.getColumnIndex() >= firstColumn && cell.getColumnIndex() <= lastColumn) {
+                    action.accept(cell);
+                }
+            }
+        }
+    }
+
     public static CellReference getRef(Cell cell) {
         return new CellReference(cell.getSheet().getSheetName(), cell.getRowIndex(), cell.getColumnIndex(), false, false);
     }
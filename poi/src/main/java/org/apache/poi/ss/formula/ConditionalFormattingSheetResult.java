@@ -0,0 +1,139 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.poi.util.Beta;
+
+/**
+ * The conditional formatting rules, which apply to the cells of a sheet, as evaluated by
+ * {@link ConditionalFormattingEvaluator#getConditionalFormattingForSheet(org.apache.poi.ss.usermodel.Sheet)}.
+ * <p>
+ * Only the cells with at least one applying rule are kept, ordered by row and column. The cells share
+ * their lists of rules, as usually large blocks of cells have the same rules, so the result of a large
+ * sheet takes little more than a {@code long} and an {@code int} per formatted cell.
+ * <p>
+ * To render a sheet, iterate the cells by their index:
+ * <pre>
+ * for (int i = 0; i &lt; result.getCellCount(); i++) {
+ *     render(result.getRowIndex(i), result.getColumnIndex(i), result.getRules(i));
+ * }
+ * </pre>
+ *
+ * @since POI 5.2.4
+ */
+@Beta
+public final class ConditionalFormattingSheetResult {
+
+    private final String sheetName;
+    /** the positions of the cells as row index in the upper and column index in the lower half, ascending */
+    private final long[] cells;
+    /** the index of the rule list of each cell */
+    private final int[] ruleListIndexes;
+    private final List<List<EvaluationConditionalFormatRule>> ruleLists;
+
+    /**
+     * @param sheetName the name of the sheet
+     * @param matches the applying rules of the cells by their positions, see {@link #toKey(int, int)}
+     */
+    /* package */ ConditionalFormattingSheetResult(String sheetName, Map<Long, List<EvaluationConditionalFormatRule>> matches) {
+        this.sheetName = sheetName;
+
+        long[] keys = new long[matches.size()];
+        int count = 0;
+        for (Map.Entry<Long, List<EvaluationConditionalFormatRule>> e : matches.entrySet()) {
+            if (!e.getValue().isEmpty()) {
+                keys[count++] = e.getKey();
+            }
+        }
+        cells = Arrays.copyOf(keys, count);
+        Arrays.sort(cells);
+
+        ruleListIndexes = new int[count];
+        ruleLists = new ArrayList<>();
+        Map<List<EvaluationConditionalFormatRule>, Integer> indexes = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            List<EvaluationConditionalFormatRule> rules = matches.get(cells[i]);
+            Integer index = indexes.get(rules);
+            if (index == null) {
+                index = ruleLists.size();
+                indexes.put(rules, index);
+                ruleLists.add(Collections.unmodifiableList(rules));
+            }
+            ruleListIndexes[i] = index;
+        }
+    }
+
+    /* package */ static long toKey(int rowIndex, int columnIndex) {
+        return ((long) rowIndex << 32) | columnIndex;
+    }
+
+    /**
+     * @return the name of the evaluated sheet
+     */
+    public String getSheetName() {
+        return sheetName;
+    }
+
+    /**
+     * @return the number of cells with at least one applying rule
+     */
+    public int getCellCount() {
+        return cells.length;
+    }
+
+    /**
+     * @param index the index of the cell, from 0 to {@link #getCellCount()} - 1
+     * @return the 0-based row index of the cell
+     */
+    public int getRowIndex(int index) {
+        return (int) (cells[index] >>> 32);
+    }
+
+    /**
+     * @param index the index of the cell, from 0 to {@link #getCellCount()} - 1
+     * @return the 0-based column index of the cell
+     */
+    public int getColumnIndex(int index) {
+        return (int) cells[index];
+    }
+
+    /**
+     * @param index the index of the cell, from 0 to {@link #getCellCount()} - 1
+     * @return unmodifiable list of the rules, which apply to the cell, in priority order
+     */
+    public List<EvaluationConditionalFormatRule> getRules(int index) {
+        return ruleLists.get(ruleListIndexes[index]);
+    }
+
+    /**
+     * @param rowIndex the 0-based row index of a cell
+     * @param columnIndex the 0-based column index of a cell
+     * @return unmodifiable list of the rules, which apply to the cell, in priority order - empty if none apply
+     */
+    public List<EvaluationConditionalFormatRule> getRules(int rowIndex, int columnIndex) {
+        int index = Arrays.binarySearch(cells, toKey(rowIndex, columnIndex));
+        return index < 0 ? Collections.emptyList() : getRules(index);
+    }
+}
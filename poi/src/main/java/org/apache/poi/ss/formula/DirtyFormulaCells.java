@@ -0,0 +1,73 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.poi.ss.formula.eval.ValueEval;
+
+/**
+ * Collects the formula cells, whose cached results have been cleared since the last
+ * {@link WorkbookEvaluator#recalculateDirty()}, together with their previous results.
+ * <p>
+ * The cells are kept in the order of their invalidation, i.e. the cells, which depend on an updated
+ * input, come after their precedents.
+ */
+final class DirtyFormulaCells {
+
+    private final Map<FormulaCellCacheEntry, ValueEval> _previousValues = new LinkedHashMap<>();
+
+    /**
+     * Adds an invalidated formula cell. The previous value of a cell, which is already dirty, is kept.
+     *
+     * @param previousValue the result before the invalidation or {@code null}, if the formula is new
+     */
+    public synchronized void add(FormulaCellCacheEntry entry, ValueEval previousValue) {
+        if (!_previousValues.containsKey(entry)) {
+            _previousValues.put(entry, previousValue);
+        }
+    }
+
+    public synchronized void remove(FormulaCellCacheEntry entry) {
+        _previousValues.remove(entry);
+    }
+
+    public synchronized void clear() {
+        _previousValues.clear();
+    }
+
+    /**
+     * Removes the dirty formula cells of the given workbook
+     *
+     * @return the removed cells with their previous results
+     */
+    public synchronized Map<FormulaCellCacheEntry, ValueEval> removeAll(int bookIndex) {
+        Map<FormulaCellCacheEntry, ValueEval> result = new LinkedHashMap<>();
+        Iterator<Map.Entry<FormulaCellCacheEntry, ValueEval>> it = _previousValues.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<FormulaCellCacheEntry, ValueEval> me = it.next();
+            if (me.getKey().getBookIndex() == bookIndex) {
+                result.put(me.getKey(), me.getValue());
+                it.remove();
+            }
+        }
+        return result;
+    }
+}
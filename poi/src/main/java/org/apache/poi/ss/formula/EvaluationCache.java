@@ -17,8 +17,9 @@
 
 package org.apache.poi.ss.formula;
 
+import java.util.Map;
+
 import org.apache.poi.ss.formula.FormulaUsedBlankCellSet.BookSheetKey;
-import org.apache.poi.ss.formula.PlainCellCache.Loc;
 import org.apache.poi.ss.formula.eval.BlankEval;
 import org.apache.poi.ss.formula.eval.BoolEval;
 import org.apache.poi.ss.formula.eval.ErrorEval;
@@ -31,18 +32,25 @@ import org.apache.poi.ss.usermodel.CellType;
  * Performance optimisation for {@link org.apache.poi.ss.usermodel.FormulaEvaluator}.
  * This class stores previously calculated values of already visited cells,
  * to avoid unnecessary re-calculation when the same cells are referenced multiple times
+ * <p>
+ * The lookups can be done concurrently by parallel evaluations, but the notifications
+ * about updated cells must not overlap with an evaluation.
  */
 final class EvaluationCache {
 
     private final PlainCellCache _plainCellCache;
     private final FormulaCellCache _formulaCellCache;
+    /** collects the formula cells with cleared results - {@code null} unless the tracking is enabled */
+    private volatile DirtyFormulaCells _dirtyCells;
+    private final LookupIndexCache _lookupIndexCache;
     /** only used for testing. <code>null</code> otherwise */
     final IEvaluationListener _evaluationListener;
 
     /* package */EvaluationCache(IEvaluationListener evaluationListener) {
         _evaluationListener = evaluationListener;
         _plainCellCache = new PlainCellCache();
-        _formulaCellCache = new FormulaCellCache();
+        _formulaCellCache = new FormulaCellCache(this);
+        _lookupIndexCache = new LookupIndexCache();
     }
 
     public void notifyUpdateCell(int bookIndex, int sheetIndex, EvaluationCell cell) {
@@ -50,12 +58,12 @@ final class EvaluationCache {
 
         int rowIndex = cell.getRowIndex();
         int columnIndex = cell.getColumnIndex();
-        Loc loc = new Loc(bookIndex, sheetIndex, rowIndex, columnIndex);
-        PlainValueCellCacheEntry pcce = _plainCellCache.get(loc);
+        long key = PlainCellCache.toKey(bookIndex, sheetIndex, rowIndex, columnIndex);
+        PlainValueCellCacheEntry pcce = _plainCellCache.get(key);
 
         if (cell.getCellType() == CellType.FORMULA) {
             if (fcce == null) {
-                fcce = new FormulaCellCacheEntry();
+                fcce = new FormulaCellCacheEntry(cell, bookIndex, this);
                 if (pcce == null) {
                     if (_evaluationListener != null) {
                         _evaluationListener.onChangeFromBlankValue(sheetIndex, rowIndex,
@@ -68,13 +76,17 @@ final class EvaluationCache {
             } else {
                 fcce.recurseClearCachedFormulaResults(_evaluationListener);
                 fcce.clearFormulaEntry();
+                // the formula may have changed
+                fcce.setCompiledFormula(null);
             }
+            // the previous result is kept, if the formula has been evaluated before
+            addDirtyFormulaCell(fcce, null);
             if (pcce == null) {
                 // was formula cell before - no change of type
             } else {
                 // changing from plain cell to formula cell
                 pcce.recurseClearCachedFormulaResults(_evaluationListener);
-                _plainCellCache.remove(loc);
+                _plainCellCache.remove(key);
             }
         } else {
             ValueEval value = WorkbookEvaluator.getValueFromNonFormulaCell(cell);
@@ -91,14 +103,14 @@ final class EvaluationCache {
                         updateAnyBlankReferencingFormulas(bookIndex, sheetIndex,
                                 rowIndex, columnIndex);
                     }
-                    _plainCellCache.put(loc, pcce);
+                    _plainCellCache.put(key, pcce);
                 }
             } else {
                 if (pcce.updateValue(value)) {
                     pcce.recurseClearCachedFormulaResults(_evaluationListener);
                 }
                 if (value == BlankEval.instance) {
-                    _plainCellCache.remove(loc);
+                    _plainCellCache.remove(key);
                 }
             }
             if (fcce == null) {
@@ -106,6 +118,7 @@ final class EvaluationCache {
             } else {
                 // was formula cell before - now a plain value
                 _formulaCellCache.remove(cell);
+                removeDirtyFormulaCell(fcce);
                 fcce.setSensitiveInputCells(null);
                 fcce.recurseClearCachedFormulaResults(_evaluationListener);
             }
@@ -116,30 +129,67 @@ final class EvaluationCache {
             final int rowIndex, final int columnIndex) {
         final BookSheetKey bsk = new BookSheetKey(bookIndex, sheetIndex);
         _formulaCellCache.applyOperation(entry -> entry.notifyUpdatedBlankCell(bsk, rowIndex, columnIndex, _evaluationListener));
+        _lookupIndexCache.applyOperation(entry -> entry.notifyUpdatedBlankCell(bsk, rowIndex, columnIndex, _evaluationListener));
     }
 
     public PlainValueCellCacheEntry getPlainValueEntry(int bookIndex, int sheetIndex,
             int rowIndex, int columnIndex, ValueEval value) {
 
-        Loc loc = new Loc(bookIndex, sheetIndex, rowIndex, columnIndex);
-        PlainValueCellCacheEntry result = _plainCellCache.get(loc);
+        long key = PlainCellCache.toKey(bookIndex, sheetIndex, rowIndex, columnIndex);
+        PlainValueCellCacheEntry result = _plainCellCache.get(key);
         if (result == null) {
-            result = new PlainValueCellCacheEntry(value);
-            _plainCellCache.put(loc, result);
-            if (_evaluationListener != null) {
-                _evaluationListener.onReadPlainValue(sheetIndex, rowIndex, columnIndex, result);
-            }
-        } else {
-            // TODO - if we are confident that this sanity check is not required, we can remove 'value' from plain value cache entry
-            if (!areValuesEqual(result.getValue(), value)) {
-                throw new IllegalStateException("value changed");
-            }
-            if (_evaluationListener != null) {
-                _evaluationListener.onCacheHit(sheetIndex, rowIndex, columnIndex, value);
+            PlainValueCellCacheEntry newEntry = new PlainValueCellCacheEntry(value);
+            // another thread might have added the same cell in the meantime
+            result = _plainCellCache.putIfAbsent(key, newEntry);
+            if (result == null) {
+                if (_evaluationListener != null) {
+                    _evaluationListener.onReadPlainValue(sheetIndex, rowIndex, columnIndex, newEntry);
+                }
+                return newEntry;
             }
         }
+        // TODO - if we are confident that this sanity check is not required, we can remove 'value' from plain value cache entry
+        if (!areValuesEqual(result.getValue(), value)) {
+            throw new IllegalStateException("value changed");
+        }
+        if (_evaluationListener != null) {
+            _evaluationListener.onCacheHit(sheetIndex, rowIndex, columnIndex, value);
+        }
         return result;
     }
+    /**
+     * Same as {@link #getPlainValueEntry(int, int, int, int, ValueEval)}, but the value of the
+     * non-blank plain cell is only converted to a {@link ValueEval}, if the cell isn't cached yet
+     */
+    public PlainValueCellCacheEntry getPlainValueEntry(int bookIndex, int sheetIndex,
+            int rowIndex, int columnIndex, EvaluationCell cell) {
+
+        PlainValueCellCacheEntry result = _plainCellCache.get(PlainCellCache.toKey(bookIndex, sheetIndex, rowIndex, columnIndex));
+        if (result == null || _evaluationListener != null) {
+            return getPlainValueEntry(bookIndex, sheetIndex, rowIndex, columnIndex,
+                    WorkbookEvaluator.getValueFromNonFormulaCell(cell));
+        }
+        if (!isValueOf(result.getValue(), cell)) {
+            throw new IllegalStateException("value changed");
+        }
+        return result;
+    }
+
+    private static boolean isValueOf(ValueEval value, EvaluationCell cell) {
+        switch (cell.getCellType()) {
+            case NUMERIC:
+                return value instanceof NumberEval && ((NumberEval)value).getNumberValue() == cell.getNumericCellValue();
+            case STRING:
+                return value instanceof StringEval && ((StringEval)value).getStringValue().equals(cell.getStringCellValue());
+            case BOOLEAN:
+                return value instanceof BoolEval && ((BoolEval)value).getBooleanValue() == cell.getBooleanCellValue();
+            case ERROR:
+                return value instanceof ErrorEval && ((ErrorEval)value).getErrorCode() == cell.getErrorCellValue();
+            default:
+                return false;
+        }
+    }
+
     private boolean areValuesEqual(ValueEval a, ValueEval b) {
         if (a == null) {
             return false;
@@ -167,14 +217,63 @@ final class EvaluationCache {
         throw new IllegalStateException("Unexpected value class (" + cls.getName() + ")");
     }
 
-    public FormulaCellCacheEntry getOrCreateFormulaCellEntry(EvaluationCell cell) {
-        FormulaCellCacheEntry result = _formulaCellCache.get(cell);
-        if (result == null) {
+    public FormulaCellCacheEntry getOrCreateFormulaCellEntry(EvaluationCell cell, int bookIndex) {
+        return _formulaCellCache.getOrCreate(cell, bookIndex);
+    }
 
-            result = new FormulaCellCacheEntry();
-            _formulaCellCache.put(cell, result);
+    public LookupIndexCache.Entry getOrCreateLookupIndexEntry(int bookIndex, int sheetIndex,
+            int firstRow, int firstColumn, int lastRow, int lastColumn) {
+        return _lookupIndexCache.getOrCreate(bookIndex, sheetIndex, firstRow, firstColumn, lastRow, lastColumn);
+    }
+
+    /**
+     * Enables or disables the collection of the formula cells, whose results are cleared.
+     * Disabling the tracking discards the collected cells.
+     */
+    public void setDirtyCellTracking(boolean enabled) {
+        if (!enabled) {
+            _dirtyCells = null;
+        } else if (_dirtyCells == null) {
+            _dirtyCells = new DirtyFormulaCells();
         }
-        return result;
+    }
+
+    public boolean isDirtyCellTracking() {
+        return _dirtyCells != null;
+    }
+
+    /**
+     * Collects a formula cell, whose result has been cleared, if the tracking is enabled
+     *
+     * @param previousValue the result before the invalidation or {@code null}, if the formula is new
+     */
+    public void addDirtyFormulaCell(FormulaCellCacheEntry entry, ValueEval previousValue) {
+        DirtyFormulaCells dirtyCells = _dirtyCells;
+        if (dirtyCells != null) {
+            dirtyCells.add(entry, previousValue);
+        }
+    }
+
+    private void removeDirtyFormulaCell(FormulaCellCacheEntry entry) {
+        DirtyFormulaCells dirtyCells = _dirtyCells;
+        if (dirtyCells != null) {
+            dirtyCells.remove(entry);
+        }
+    }
+
+    /**
+     * Removes the formula cells of the given workbook, whose results have been cleared since the last call
+     *
+     * @return the formula cells with their previous results - {@code null} for formulas,
+     *  which have been added or not evaluated before - in the order of their invalidation
+     * @throws IllegalStateException if the tracking of the dirty cells isn't enabled
+     */
+    public Map<FormulaCellCacheEntry, ValueEval> removeDirtyFormulaCells(int bookIndex) {
+        DirtyFormulaCells dirtyCells = _dirtyCells;
+        if (dirtyCells == null) {
+            throw new IllegalStateException("The tracking of dirty formula cells isn't enabled");
+        }
+        return dirtyCells.removeAll(bookIndex);
     }
 
     /**
@@ -186,6 +285,11 @@ final class EvaluationCache {
         }
         _plainCellCache.clear();
         _formulaCellCache.clear();
+        DirtyFormulaCells dirtyCells = _dirtyCells;
+        if (dirtyCells != null) {
+            dirtyCells.clear();
+        }
+        _lookupIndexCache.clear();
     }
     public void notifyDeleteCell(int bookIndex, int sheetIndex, EvaluationCell cell) {
 
@@ -194,12 +298,13 @@ final class EvaluationCache {
             if (fcce == null) {
                 // formula cell has not been evaluated yet
             } else {
+                removeDirtyFormulaCell(fcce);
                 fcce.setSensitiveInputCells(null);
                 fcce.recurseClearCachedFormulaResults(_evaluationListener);
             }
         } else {
-            Loc loc = new Loc(bookIndex, sheetIndex, cell.getRowIndex(), cell.getColumnIndex());
-            PlainValueCellCacheEntry pcce = _plainCellCache.get(loc);
+            long key = PlainCellCache.toKey(bookIndex, sheetIndex, cell.getRowIndex(), cell.getColumnIndex());
+            PlainValueCellCacheEntry pcce = _plainCellCache.get(key);
 
             if (pcce == null) {
                 // cache entry doesn't exist. nothing to do
@@ -23,6 +23,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
@@ -39,6 +40,7 @@ import org.apache.poi.ss.formula.eval.RefEval;
 import org.apache.poi.ss.formula.eval.StringEval;
 import org.apache.poi.ss.formula.eval.ValueEval;
 import org.apache.poi.ss.formula.functions.AggregateFunction;
+import org.apache.poi.ss.formula.ptg.Ptg;
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.CellType;
 import org.apache.poi.ss.usermodel.ConditionFilterData;
@@ -87,6 +89,11 @@ public class EvaluationConditionalFormatRule implements Comparable<EvaluationCon
      */
     private final Map<CellRangeAddress, Set<ValueAndFormat>> meaningfulRegionValues = new HashMap<>();
 
+    /**
+     * The formulas of the rule parsed once for all cells, see {@link #evaluateFormula(String, CellReference, CellRangeAddress)}
+     */
+    private final Map<String, Ptg[]> parsedFormulas = new HashMap<>();
+
     private final int priority;
     private final int formattingIndex;
     private final int ruleIndex;
@@ -353,12 +360,13 @@ public class EvaluationConditionalFormatRule implements Comparable<EvaluationCon
             return false;
         }
 
-        ValueEval eval = unwrapEval(workbookEvaluator.evaluate(rule.getFormula1(), ConditionalFormattingEvaluator.getRef(cell), region));
+        final CellReference ref = ConditionalFormattingEvaluator.getRef(cell);
+        ValueEval eval = unwrapEval(evaluateFormula(rule.getFormula1(), ref, region));
 
         String f2 = rule.getFormula2();
         ValueEval eval2 = BlankEval.instance;
         if (f2 != null && f2.length() > 0) {
-            eval2 = unwrapEval(workbookEvaluator.evaluate(f2, ConditionalFormattingEvaluator.getRef(cell), region));
+            eval2 = unwrapEval(evaluateFormula(f2, ref, region));
         }
 
         // we assume the cell has been evaluated, and the current formula value stored
@@ -384,6 +392,27 @@ public class EvaluationConditionalFormatRule implements Comparable<EvaluationCon
         return operator.isValidForIncompatibleTypes();
     }
 
+    /**
+     * Evaluates a formula of the rule for a cell. The formula is parsed once for all cells and only
+     * its relative references are adjusted to each cell, unless it contains structured references,
+     * which depend on the row of the cell.
+     */
+    private ValueEval evaluateFormula(String formula, CellReference ref, CellRangeAddress region) {
+        final String sheetName = ref.getSheetName();
+        if (sheetName == null || formula.indexOf('[') >= 0) {
+            return workbookEvaluator.evaluate(formula, ref, region);
+        }
+        final int sheetIndex = workbookEvaluator.getWorkbook().getSheetIndex(sheetName);
+        // the rules of a sheet are only evaluated for cells of that sheet
+        Ptg[] ptgs = parsedFormulas.get(formula);
+        if (ptgs == null) {
+            ptgs = FormulaParser.parse(formula, (FormulaParsingWorkbook) workbookEvaluator.getWorkbook(),
+                    FormulaType.CELL, sheetIndex, ref.getRow());
+            parsedFormulas.put(formula, ptgs);
+        }
+        return workbookEvaluator.evaluate(ptgs, sheetIndex, ref, region);
+    }
+
     private ValueEval unwrapEval(ValueEval eval) {
         ValueEval comp = eval;
 
@@ -399,7 +428,7 @@ public class EvaluationConditionalFormatRule implements Comparable<EvaluationCon
      * @return true/false using the same rules as Data Validation evaluations
      */
     private boolean checkFormula(CellReference ref, CellRangeAddress region) {
-        ValueEval comp = unwrapEval(workbookEvaluator.evaluate(rule.getFormula1(), ref, region));
+        ValueEval comp = unwrapEval(evaluateFormula(rule.getFormula1(), ref, region));
 
         // Copied for now from DataValidationEvaluator.ValidationEnum.FORMULA#isValidValue()
         if (comp instanceof BlankEval) {
@@ -457,16 +486,15 @@ public class EvaluationConditionalFormatRule implements Comparable<EvaluationCon
 
             final ConditionFilterData conf = rule.getFilterConfiguration();
 
-            // actually ordered, so iteration order is predictable
-            List<ValueAndFormat> values = new ArrayList<>(getMeaningfulValues(region, false, this::evaluateAboveAverage));
-
             Double val = cv.isNumber() ? cv.getValue() : null;
             if (val == null) {
                 return false;
             }
 
-            double avg = values.get(0).value;
-            double stdDev = values.get(1).value;
+            // actually ordered, so iteration order is predictable
+            Iterator<ValueAndFormat> values = getMeaningfulValues(region, false, this::evaluateAboveAverage).iterator();
+            double avg = values.next().value;
+            double stdDev = values.next().value;
 
             /*
              * use StdDev, aboveAverage, equalAverage to find:
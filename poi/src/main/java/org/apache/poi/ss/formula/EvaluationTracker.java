@@ -146,4 +146,18 @@ final class EvaluationTracker {
             }
         }
     }
+
+    /**
+     * Same as {@link #acceptPlainValueDependency(EvaluationWorkbook, int, int, int, int, ValueEval)}
+     * for a non-blank plain cell, whose value is only converted to a {@link ValueEval}, if it isn't cached yet
+     */
+    public void acceptPlainValueDependency(EvaluationWorkbook evalWorkbook, int bookIndex, int sheetIndex,
+            int rowIndex, int columnIndex, EvaluationCell cell) {
+        int prevFrameIndex = _evaluationFrames.size() - 1;
+        if (prevFrameIndex >= 0) {
+            CellEvaluationFrame consumingFrame = _evaluationFrames.get(prevFrameIndex);
+            consumingFrame.addSensitiveInputCell(_cache.getPlainValueEntry(bookIndex, sheetIndex,
+                    rowIndex, columnIndex, cell));
+        }
+    }
 }
@@ -0,0 +1,168 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula;
+
+import java.util.List;
+
+import org.apache.poi.ss.formula.ptg.Ptg;
+import org.apache.poi.util.Internal;
+
+/**
+ * Parses, adjusts and renders the formulas of a bulk operation, e.g. shifting rows or renaming a sheet.
+ * <p>
+ * The workbooks and the adjustment are set up once for all formulas of the operation. Each formula is
+ * first checked on its text, whether the adjustment might change it at all, and only parsed if so.
+ * The tokens are adjusted in place and only rendered again, if the adjustment changed them,
+ * so the formulas, which aren't affected, are neither parsed nor rendered nor written back.
+ *
+ * @since POI 5.2.4
+ */
+@Internal
+public final class FormulaBatchUpdater {
+
+    /**
+     * Adjusts the parsed tokens of a formula in place
+     */
+    @FunctionalInterface
+    public interface TokenAdjuster {
+        /**
+         * @param ptgs the tokens of the formula, which may be modified
+         * @param sheetIndex the index of the sheet of the formula
+         * @return {@code true} if any token was changed
+         */
+        boolean adjust(Ptg[] ptgs, int sheetIndex);
+    }
+
+    /**
+     * Checks on the text of a formula, whether the adjustment might change it
+     */
+    @FunctionalInterface
+    public interface FormulaFilter {
+        /**
+         * @return {@code false} if the formula is certainly not changed, so it doesn't need to be parsed
+         */
+        boolean mayAdjust(String formula, int sheetIndex);
+    }
+
+    private final FormulaParsingWorkbook _parsingWorkbook;
+    private final FormulaRenderingWorkbook _renderingWorkbook;
+    private final TokenAdjuster _adjuster;
+    private final FormulaFilter _filter;
+
+    private int _parsedCount;
+    private int _changedCount;
+
+    /**
+     * @param parsingWorkbook the workbook to parse the formulas
+     * @param renderingWorkbook the workbook to render the adjusted formulas, usually the same as the parsing workbook
+     * @param adjuster the adjustment of the tokens
+     * @param filter the check of the formula texts or {@code null} to parse all formulas
+     */
+    public FormulaBatchUpdater(FormulaParsingWorkbook parsingWorkbook, FormulaRenderingWorkbook renderingWorkbook,
+            TokenAdjuster adjuster, FormulaFilter filter) {
+        _parsingWorkbook = parsingWorkbook;
+        _renderingWorkbook = renderingWorkbook;
+        _adjuster = adjuster;
+        _filter = filter;
+    }
+
+    /**
+     * Creates an updater, which shifts the formulas with the given shifter. The sheet indexes passed to
+     * {@link #update(String, FormulaType, int, int)} are used as extern sheet indexes, like in XSSF.
+     */
+    public static FormulaBatchUpdater forShifter(FormulaParsingWorkbook parsingWorkbook,
+            FormulaRenderingWorkbook renderingWorkbook, FormulaShifter shifter) {
+        return new FormulaBatchUpdater(parsingWorkbook, renderingWorkbook, shifter::adjustFormula, shifter::mayAdjust);
+    }
+
+    /**
+     * Creates an updater, which applies the given shifters one after the other to each formula, so a formula
+     * is parsed and rendered only once for several shifts. The sheet indexes are used like in
+     * {@link #forShifter(FormulaParsingWorkbook, FormulaRenderingWorkbook, FormulaShifter)}.
+     */
+    public static FormulaBatchUpdater forShifters(FormulaParsingWorkbook parsingWorkbook,
+            FormulaRenderingWorkbook renderingWorkbook, List<FormulaShifter> shifters) {
+        if (shifters.size() == 1) {
+            return forShifter(parsingWorkbook, renderingWorkbook, shifters.get(0));
+        }
+        TokenAdjuster adjuster = (ptgs, sheetIndex) -> {
+            boolean changed = false;
+            for (FormulaShifter shifter : shifters) {
+                changed |= shifter.adjustFormula(ptgs, sheetIndex);
+            }
+            return changed;
+        };
+        FormulaFilter filter = (formula, sheetIndex) -> {
+            for (FormulaShifter shifter : shifters) {
+                if (shifter.mayAdjust(formula, sheetIndex)) {
+                    return true;
+                }
+            }
+            return false;
+        };
+        return new FormulaBatchUpdater(parsingWorkbook, renderingWorkbook, adjuster, filter);
+    }
+
+    /**
+     * Checks on the text of a formula, whether {@link #update(String, FormulaType, int, int)} might change it
+     *
+     * @param formula the text of the formula
+     * @param sheetIndex the 0-based index of the sheet of the formula, or -1 for workbook scoped names
+     * @return {@code false} if the formula is certainly not changed
+     */
+    public boolean mayUpdate(String formula, int sheetIndex) {
+        return _filter == null || _filter.mayAdjust(formula, sheetIndex);
+    }
+
+    /**
+     * Adjusts a formula
+     *
+     * @param formula the text of the formula
+     * @param formulaType the type of the formula
+     * @param sheetIndex the 0-based index of the sheet of the formula, or -1 for workbook scoped names
+     * @param rowIndex the 0-based row index of the cell of the formula, or -1 if the formula is not cell related
+     * @return the adjusted formula or {@code null} if the formula wasn't changed
+     * @throws FormulaParseException if the formula can't be parsed
+     */
+    public String update(String formula, FormulaType formulaType, int sheetIndex, int rowIndex) {
+        if (!mayUpdate(formula, sheetIndex)) {
+            return null;
+        }
+        _parsedCount++;
+        Ptg[] ptgs = FormulaParser.parse(formula, _parsingWorkbook, formulaType, sheetIndex, rowIndex);
+        if (!_adjuster.adjust(ptgs, sheetIndex)) {
+            return null;
+        }
+        _changedCount++;
+        return FormulaRenderer.toFormulaString(_renderingWorkbook, ptgs);
+    }
+
+    /**
+     * @return the number of formulas, which had to be parsed
+     */
+    public int getParsedCount() {
+        return _parsedCount;
+    }
+
+    /**
+     * @return the number of formulas, which were changed
+     */
+    public int getChangedCount() {
+        return _changedCount;
+    }
+}
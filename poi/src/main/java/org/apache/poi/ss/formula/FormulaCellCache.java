@@ -17,9 +17,8 @@
 
 package org.apache.poi.ss.formula;
 
-import java.util.HashMap;
-import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 final class FormulaCellCache {
 
@@ -28,10 +27,20 @@ final class FormulaCellCache {
     }
 
     private final Map<Object, FormulaCellCacheEntry> _formulaEntriesByCell;
+    private final EvaluationCache _cache;
 
     public FormulaCellCache() {
+        this(null);
+    }
+
+    /**
+     * @param cache collects the entries, whose results are cleared - {@code null} if not tracked
+     */
+    public FormulaCellCache(EvaluationCache cache) {
+        _cache = cache;
         // assumes the object returned by EvaluationCell.getIdentityKey() has a well behaved hashCode+equals
-        _formulaEntriesByCell = new HashMap<>();
+        // concurrent, as the cells are looked up and added during parallel evaluations
+        _formulaEntriesByCell = new ConcurrentHashMap<>();
     }
 
     public CellCacheEntry[] getCacheEntries() {
@@ -52,6 +61,15 @@ final class FormulaCellCache {
         return _formulaEntriesByCell.get(cell.getIdentityKey());
     }
 
+    /**
+     * @return the existing entry or a new entry, which has been added atomically
+     */
+    public FormulaCellCacheEntry getOrCreate(EvaluationCell cell, int bookIndex) {
+        Object key = cell.getIdentityKey();
+        FormulaCellCacheEntry entry = _formulaEntriesByCell.get(key);
+        return entry != null ? entry : _formulaEntriesByCell.computeIfAbsent(key, k -> new FormulaCellCacheEntry(cell, bookIndex, _cache));
+    }
+
     public void put(EvaluationCell cell, FormulaCellCacheEntry entry) {
         _formulaEntriesByCell.put(cell.getIdentityKey(), entry);
     }
@@ -28,6 +28,9 @@ import org.apache.poi.ss.formula.FormulaUsedBlankCellSet.BookSheetKey;
 
 /**
  * Stores the cached result of a formula evaluation, along with the set of sensitive input cells
+ *
+ * The result updates are synchronized on the entry, as the same formula cell can be evaluated by
+ * several threads at once during a parallel evaluation.
  */
 final class FormulaCellCacheEntry extends CellCacheEntry {
     
@@ -40,11 +43,39 @@ final class FormulaCellCacheEntry extends CellCacheEntry {
 
     private FormulaUsedBlankCellSet _usedBlankCellGroup;
 
+    /**
+     * The compiled formula of the cell, if the compiled evaluation is enabled.
+     * Only cleared, when the formula itself changes.
+     */
+    private volatile CompiledFormula _compiledFormula;
+
+    /** the evaluated cell, {@code null} if unknown */
+    private final EvaluationCell _cell;
+
+    private final int _bookIndex;
+
+    /** the cache, which collects this entry when its result is cleared - {@code null} for detached entries */
+    private final EvaluationCache _cache;
+
     public FormulaCellCacheEntry() {
-        // leave fields un-set
+        this(null, -1, null);
+    }
+
+    public FormulaCellCacheEntry(EvaluationCell cell, int bookIndex, EvaluationCache cache) {
+        _cell = cell;
+        _bookIndex = bookIndex;
+        _cache = cache;
+    }
+
+    public EvaluationCell getCell() {
+        return _cell;
+    }
+
+    public int getBookIndex() {
+        return _bookIndex;
     }
     
-    public boolean isInputSensitive() {
+    public synchronized boolean isInputSensitive() {
         if (_sensitiveInputCells != null) {
             if (_sensitiveInputCells.length > 0 ) {
                 return true;
@@ -53,7 +84,7 @@ final class FormulaCellCacheEntry extends CellCacheEntry {
         return _usedBlankCellGroup == null ? false : !_usedBlankCellGroup.isEmpty();
     }
 
-    public void setSensitiveInputCells(CellCacheEntry[] sensitiveInputCells) {
+    public synchronized void setSensitiveInputCells(CellCacheEntry[] sensitiveInputCells) {
         // need to tell all cells that were previously used, but no longer are, 
         // that they are not consumed by this cell any more
         if (sensitiveInputCells == null) {
@@ -65,7 +96,15 @@ final class FormulaCellCacheEntry extends CellCacheEntry {
         }
     }
 
-    public void clearFormulaEntry() {
+    public CompiledFormula getCompiledFormula() {
+        return _compiledFormula;
+    }
+
+    public void setCompiledFormula(CompiledFormula compiledFormula) {
+        _compiledFormula = compiledFormula;
+    }
+
+    public synchronized void clearFormulaEntry() {
         CellCacheEntry[] usedCells = _sensitiveInputCells;
         if (usedCells != null) {
             for (int i = usedCells.length-1; i>=0; i--) {
@@ -73,7 +112,11 @@ final class FormulaCellCacheEntry extends CellCacheEntry {
             }
         }
         _sensitiveInputCells = null;
+        ValueEval previousValue = getValue();
         clearValue();
+        if (previousValue != null && _cache != null) {
+            _cache.addDirtyFormulaCell(this, previousValue);
+        }
     }
     
     private void changeConsumingCells(CellCacheEntry[] usedCells) {
@@ -105,7 +148,7 @@ final class FormulaCellCacheEntry extends CellCacheEntry {
         }
     }
 
-    public void updateFormulaResult(ValueEval result, CellCacheEntry[] sensitiveInputCells, FormulaUsedBlankCellSet usedBlankAreas) {
+    public synchronized void updateFormulaResult(ValueEval result, CellCacheEntry[] sensitiveInputCells, FormulaUsedBlankCellSet usedBlankAreas) {
         updateValue(result);
         setSensitiveInputCells(sensitiveInputCells);
         _usedBlankCellGroup = usedBlankAreas;
@@ -0,0 +1,278 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.poi.ss.formula.ptg.Ptg;
+import org.apache.poi.util.IntList;
+
+/**
+ * The dependencies between formula cells, as far as they can be derived from the cell and area
+ * references of the parsed formulas.
+ * <p>
+ * References which are only resolved at evaluation time, e.g. via INDIRECT, OFFSET or defined names,
+ * and references to other workbooks are not part of the graph. The graph is therefore only a schedule -
+ * the evaluator still resolves any dependency, which hasn't been evaluated before, recursively.
+ * <p>
+ * To keep the number of edges linear for overlapping ranges (e.g. running totals over formula cells),
+ * the formula cells of each column are additionally organized in an implicit segment tree. Areas
+ * covering more than a few formula cells of a column only depend on the O(log n) tree nodes
+ * covering the rows of the area.
+ */
+final class FormulaCellGraph {
+    /** segments up to this size are linked directly to the formula cells */
+    private static final int DIRECT_LINK_LIMIT = 8;
+
+    private final EvaluationWorkbook _workbook;
+    private final EvaluationCell[] _cells;
+    private final int[] _sheetIndexes;
+
+    /** the formula cells of a sheet by column, see {@link Column} */
+    private final Map<Integer, TreeMap<Integer, Column>> _columnsBySheet = new HashMap<>();
+
+    /** the number of real and virtual (segment tree) nodes */
+    private int _nodeCount;
+    private final IntList _edgeFrom = new IntList();
+    private final IntList _edgeTo = new IntList();
+
+    /**
+     * The formula cells of one column, sorted by row
+     */
+    private static final class Column {
+        /** (row &lt;&lt; 32 | node), sorted */
+        private long[] _rowsAndNodes = new long[4];
+        private int _size;
+        /** the node id of the segment tree root (tree index 1) minus 1, or -1 if not built yet */
+        private int _treeBase = -1;
+
+        private void add(int row, int node) {
+            if (_size == _rowsAndNodes.length) {
+                _rowsAndNodes = Arrays.copyOf(_rowsAndNodes, _size * 2);
+            }
+            _rowsAndNodes[_size++] = ((long) row << 32) | node;
+        }
+
+        private int node(int index) {
+            return (int) _rowsAndNodes[index];
+        }
+
+        /** @return the index of the first cell with a row greater or equal to the given row */
+        private int lowerBound(int row) {
+            int lo = 0;
+            int hi = _size;
+            long key = (long) row << 32;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (_rowsAndNodes[mid] < key) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+    }
+
+    /**
+     * @param cells the formula cells, which become the nodes {@code 0 .. cells.size()-1}
+     */
+    FormulaCellGraph(WorkbookEvaluator evaluator, List<? extends EvaluationCell> cells) {
+        _workbook = evaluator.getWorkbook();
+        _cells = cells.toArray(new EvaluationCell[0]);
+        _sheetIndexes = new int[_cells.length];
+        _nodeCount = _cells.length;
+
+        for (int node = 0; node < _cells.length; node++) {
+            EvaluationCell cell = _cells[node];
+            int sheetIndex = evaluator.getSheetIndex(cell.getSheet());
+            _sheetIndexes[node] = sheetIndex;
+            _columnsBySheet.computeIfAbsent(sheetIndex, k -> new TreeMap<>())
+                .computeIfAbsent(cell.getColumnIndex(), k -> new Column())
+                .add(cell.getRowIndex(), node);
+        }
+        for (TreeMap<Integer, Column> columns : _columnsBySheet.values()) {
+            for (Column column : columns.values()) {
+                Arrays.sort(column._rowsAndNodes, 0, column._size);
+            }
+        }
+
+        for (int node = 0; node < _cells.length; node++) {
+            for (Ptg ptg : _workbook.getFormulaTokens(_cells[node])) {
+                addPrecedents(node, ptg);
+            }
+        }
+    }
+
+    int getCellCount() {
+        return _cells.length;
+    }
+
+    EvaluationCell getCell(int node) {
+        return _cells[node];
+    }
+
+    int getSheetIndex(int node) {
+        return _sheetIndexes[node];
+    }
+
+    private void addPrecedents(int node, Ptg ptg) {
+        // the names are resolved by the evaluation
+        FormulaDependencyGraph.forEachArea(_workbook, _sheetIndexes[node], ptg,
+            (firstSheet, lastSheet, firstRow, lastRow, firstColumn, lastColumn) ->
+                addPrecedents(node, firstSheet, lastSheet, firstRow, lastRow, firstColumn, lastColumn), -1);
+    }
+
+    private void addPrecedents(int node, int firstSheet, int lastSheet, int firstRow, int lastRow, int firstColumn, int lastColumn) {
+        for (int sheet = firstSheet; sheet <= lastSheet; sheet++) {
+            TreeMap<Integer, Column> columns = _columnsBySheet.get(sheet);
+            if (columns == null) {
+                continue;
+            }
+            for (Column column : columns.subMap(firstColumn, true, lastColumn, true).values()) {
+                int from = column.lowerBound(firstRow);
+                int to = column.lowerBound(lastRow + 1);
+                addSegment(node, column, from, to);
+            }
+        }
+    }
+
+    private void addSegment(int node, Column column, int from, int to) {
+        if (to - from <= DIRECT_LINK_LIMIT) {
+            for (int i = from; i < to; i++) {
+                addEdge(column.node(i), node);
+            }
+            return;
+        }
+        // iterative bottom-up segment tree: the leaves size..2*size-1 are the cells of the column
+        int size = column._size;
+        buildTree(column);
+        for (int l = from + size, r = to + size; l < r; l >>= 1, r >>= 1) {
+            if ((l & 1) == 1) {
+                addEdge(treeNode(column, l++), node);
+            }
+            if ((r & 1) == 1) {
+                addEdge(treeNode(column, --r), node);
+            }
+        }
+    }
+
+    private void buildTree(Column column) {
+        if (column._treeBase >= 0) {
+            return;
+        }
+        int size = column._size;
+        column._treeBase = _nodeCount - 1;
+        _nodeCount += size - 1;
+        for (int i = 1; i < size; i++) {
+            addEdge(treeNode(column, 2 * i), column._treeBase + i);
+            addEdge(treeNode(column, 2 * i + 1), column._treeBase + i);
+        }
+    }
+
+    private static int treeNode(Column column, int treeIndex) {
+        int size = column._size;
+        return (treeIndex >= size) ? column.node(treeIndex - size) : column._treeBase + treeIndex;
+    }
+
+    private void addEdge(int precedent, int dependent) {
+        _edgeFrom.add(precedent);
+        _edgeTo.add(dependent);
+    }
+
+    /**
+     * Splits the formula cells into strata, the cells of a stratum only depend on cells of
+     * previous strata and can therefore be evaluated independently of each other.
+     *
+     * @param cyclic receives the cells, which are part of a circular reference or depend on one,
+     *               in the order of the input cells
+     * @return the strata with the cell (node) indexes
+     */
+    List<int[]> getStrata(IntList cyclic) {
+        final int nodeCount = _nodeCount;
+        final int edgeCount = _edgeFrom.size();
+
+        // compressed adjacency list of the dependents
+        int[] start = new int[nodeCount + 1];
+        int[] inDegree = new int[nodeCount];
+        for (int e = 0; e < edgeCount; e++) {
+            start[_edgeFrom.get(e) + 1]++;
+            inDegree[_edgeTo.get(e)]++;
+        }
+        for (int n = 0; n < nodeCount; n++) {
+            start[n + 1] += start[n];
+        }
+        int[] dependents = new int[edgeCount];
+        int[] fill = Arrays.copyOf(start, nodeCount);
+        for (int e = 0; e < edgeCount; e++) {
+            dependents[fill[_edgeFrom.get(e)]++] = _edgeTo.get(e);
+        }
+
+        // Kahn's algorithm - virtual nodes don't add a level of their own
+        int[] level = new int[nodeCount];
+        int[] queue = new int[nodeCount];
+        int head = 0, tail = 0;
+        for (int n = 0; n < nodeCount; n++) {
+            if (inDegree[n] == 0) {
+                queue[tail++] = n;
+            }
+        }
+        int maxLevel = -1;
+        int[] levelSizes = new int[16];
+        while (head < tail) {
+            int n = queue[head++];
+            boolean real = n < _cells.length;
+            if (real) {
+                int lvl = level[n];
+                maxLevel = Math.max(maxLevel, lvl);
+                if (lvl >= levelSizes.length) {
+                    levelSizes = Arrays.copyOf(levelSizes, Math.max(lvl + 1, levelSizes.length * 2));
+                }
+                levelSizes[lvl]++;
+            }
+            int next = real ? level[n] + 1 : level[n];
+            for (int e = start[n]; e < start[n + 1]; e++) {
+                int d = dependents[e];
+                level[d] = Math.max(level[d], next);
+                if (--inDegree[d] == 0) {
+                    queue[tail++] = d;
+                }
+            }
+        }
+
+        List<int[]> strata = new ArrayList<>(maxLevel + 1);
+        for (int l = 0; l <= maxLevel; l++) {
+            strata.add(new int[levelSizes[l]]);
+        }
+        int[] strataFill = new int[maxLevel + 1];
+        for (int n = 0; n < _cells.length; n++) {
+            if (inDegree[n] > 0) {
+                cyclic.add(n);
+            } else {
+                int l = level[n];
+                strata.get(l)[strataFill[l]++] = n;
+            }
+        }
+        return strata;
+    }
+}
@@ -0,0 +1,619 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.formula.EvaluationWorkbook.ExternalSheet;
+import org.apache.poi.ss.formula.EvaluationWorkbook.ExternalSheetRange;
+import org.apache.poi.ss.formula.ptg.AreaNPtg;
+import org.apache.poi.ss.formula.ptg.AreaPtg;
+import org.apache.poi.ss.formula.ptg.AreaPtgBase;
+import org.apache.poi.ss.formula.ptg.NamePtg;
+import org.apache.poi.ss.formula.ptg.Ptg;
+import org.apache.poi.ss.formula.ptg.Pxg3D;
+import org.apache.poi.ss.formula.ptg.RefNPtg;
+import org.apache.poi.ss.formula.ptg.RefPtg;
+import org.apache.poi.ss.formula.ptg.RefPtgBase;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.util.AreaReference;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.Beta;
+import org.apache.poi.util.IntList;
+
+/**
+ * An index of the static dependencies between the cells of a workbook, derived from the cell and
+ * area references of the parsed formulas and of the defined names they use.
+ * <p>
+ * The referenced areas are kept as areas, i.e. a formula like {@code SUM(A:A)} is one entry and not one
+ * per cell, and are indexed by an interval tree per sheet, so the dependents of a cell are found
+ * without scanning all formulas.
+ * <p>
+ * References which are only resolved at evaluation time, e.g. via INDIRECT or OFFSET, and references
+ * to other workbooks are not part of the graph.
+ * <p>
+ * The graph is a snapshot of the formulas at the time of its creation and can be queried by several
+ * threads at once.
+ *
+ * @since POI 5.2.4
+ */
+@Beta
+public final class FormulaDependencyGraph {
+
+    /** names referring to other names are followed up to this depth */
+    private static final int MAX_NAME_DEPTH = 16;
+
+    /**
+     * Receives the areas of a reference token, the sheet range is inclusive
+     */
+    interface AreaConsumer {
+        void accept(int firstSheet, int lastSheet, int firstRow, int lastRow, int firstColumn, int lastColumn);
+    }
+
+    /**
+     * A static interval tree of the rows of the referenced areas of one sheet
+     */
+    private static final class IntervalTree {
+        private final int _center;
+        /** the areas, which contain the center row, sorted by their first row */
+        private final int[] _byFirstRow;
+        /** the same areas sorted by their last row in descending order */
+        private final int[] _byLastRow;
+        private final IntervalTree _left;
+        private final IntervalTree _right;
+
+        private IntervalTree(FormulaDependencyGraph graph, int[] areas, int minRow, int maxRow) {
+            _center = (minRow + maxRow) >>> 1;
+            IntList left = new IntList(8);
+            IntList center = new IntList(8);
+            IntList right = new IntList(8);
+            for (int area : areas) {
+                if (graph._lastRows[area] < _center) {
+                    left.add(area);
+                } else if (graph._firstRows[area] > _center) {
+                    right.add(area);
+                } else {
+                    center.add(area);
+                }
+            }
+            _byFirstRow = sort(center.toArray(), graph._firstRows, false);
+            _byLastRow = sort(center.toArray(), graph._lastRows, true);
+            _left = left.isEmpty() ? null : new IntervalTree(graph, left.toArray(), minRow, _center - 1);
+            _right = right.isEmpty() ? null : new IntervalTree(graph, right.toArray(), _center + 1, maxRow);
+        }
+
+        private static int[] sort(int[] areas, int[] rows, boolean descending) {
+            long[] keys = new long[areas.length];
+            for (int i = 0; i < areas.length; i++) {
+                long row = descending ? Integer.MAX_VALUE - rows[areas[i]] : rows[areas[i]];
+                keys[i] = (row << 32) | areas[i];
+            }
+            Arrays.sort(keys);
+            for (int i = 0; i < areas.length; i++) {
+                areas[i] = (int) keys[i];
+            }
+            return areas;
+        }
+
+        /**
+         * Adds the areas, which contain the given cell
+         */
+        private static void find(IntervalTree tree, FormulaDependencyGraph graph, int row, int column, IntList result) {
+            while (tree != null) {
+                if (row < tree._center) {
+                    for (int area : tree._byFirstRow) {
+                        if (graph._firstRows[area] > row) {
+                            break;
+                        }
+                        graph.addIfInColumns(area, column, result);
+                    }
+                    tree = tree._left;
+                } else if (row > tree._center) {
+                    for (int area : tree._byLastRow) {
+                        if (graph._lastRows[area] < row) {
+                            break;
+                        }
+                        graph.addIfInColumns(area, column, result);
+                    }
+                    tree = tree._right;
+                } else {
+                    for (int area : tree._byFirstRow) {
+                        graph.addIfInColumns(area, column, result);
+                    }
+                    return;
+                }
+            }
+        }
+    }
+
+    private final SpreadsheetVersion _spreadsheetVersion;
+    private final String[] _sheetNames;
+
+    /** the sorted keys of the formula cells - the indexes are the node ids */
+    private final long[] _cellKeys;
+    /** the first area of each formula cell, the areas of a cell end at the first area of the next cell */
+    private final int[] _areaStarts;
+
+    // the referenced areas
+    private final int[] _sheets;
+    private final int[] _firstRows;
+    private final int[] _lastRows;
+    private final int[] _firstColumns;
+    private final int[] _lastColumns;
+    private final int[] _owners;
+    private final IntervalTree[] _treesBySheet;
+
+    /** the formula cells, which depend on each formula cell, built on the first use */
+    private int[] _dependentStarts;
+    private int[] _dependents;
+
+    private FormulaDependencyGraph(Workbook workbook) {
+        EvaluationWorkbook evaluationWorkbook = workbook.createEvaluationWorkbook();
+        _spreadsheetVersion = workbook.getSpreadsheetVersion();
+        int nSheets = workbook.getNumberOfSheets();
+        _sheetNames = new String[nSheets];
+
+        List<EvaluationCell> cells = new ArrayList<>();
+        IntList sheetIndexes = new IntList();
+        for (int sheetIndex = 0; sheetIndex < nSheets; sheetIndex++) {
+            Sheet sheet = workbook.getSheetAt(sheetIndex);
+            _sheetNames[sheetIndex] = sheet.getSheetName();
+            EvaluationSheet evaluationSheet = evaluationWorkbook.getSheet(sheetIndex);
+            for (Row row : sheet) {
+                for (Cell cell : row) {
+                    if (cell.getCellType() == CellType.FORMULA) {
+                        cells.add(evaluationSheet.getCell(cell.getRowIndex(), cell.getColumnIndex()));
+                        sheetIndexes.add(sheetIndex);
+                    }
+                }
+            }
+        }
+
+        // the cells are usually iterated in order already
+        Integer[] order = new Integer[cells.size()];
+        long[] keys = new long[cells.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+            keys[i] = toKey(sheetIndexes.get(i), cells.get(i).getRowIndex(), cells.get(i).getColumnIndex());
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(keys[a], keys[b]));
+
+        _cellKeys = new long[order.length];
+        _areaStarts = new int[order.length + 1];
+        IntList sheets = new IntList();
+        IntList firstRows = new IntList();
+        IntList lastRows = new IntList();
+        IntList firstColumns = new IntList();
+        IntList lastColumns = new IntList();
+        IntList owners = new IntList();
+        for (int node = 0; node < order.length; node++) {
+            final int owner = node;
+            _cellKeys[node] = keys[order[node]];
+            _areaStarts[node] = owners.size();
+            AreaConsumer consumer = (firstSheet, lastSheet, firstRow, lastRow, firstColumn, lastColumn) -> {
+                for (int sheet = firstSheet; sheet <= lastSheet; sheet++) {
+                    sheets.add(sheet);
+                    firstRows.add(firstRow);
+                    lastRows.add(lastRow);
+                    firstColumns.add(firstColumn);
+                    lastColumns.add(lastColumn);
+                    owners.add(owner);
+                }
+            };
+            int sheetIndex = sheetIndexes.get(order[node]);
+            for (Ptg ptg : evaluationWorkbook.getFormulaTokens(cells.get(order[node]))) {
+                forEachArea(evaluationWorkbook, sheetIndex, ptg, consumer, 0);
+            }
+        }
+        _areaStarts[order.length] = owners.size();
+
+        _sheets = sheets.toArray();
+        _firstRows = firstRows.toArray();
+        _lastRows = lastRows.toArray();
+        _firstColumns = firstColumns.toArray();
+        _lastColumns = lastColumns.toArray();
+        _owners = owners.toArray();
+
+        IntList[] areasBySheet = new IntList[nSheets];
+        for (int area = 0; area < _sheets.length; area++) {
+            if (areasBySheet[_sheets[area]] == null) {
+                areasBySheet[_sheets[area]] = new IntList();
+            }
+            areasBySheet[_sheets[area]].add(area);
+        }
+        _treesBySheet = new IntervalTree[nSheets];
+        for (int sheet = 0; sheet < nSheets; sheet++) {
+            if (areasBySheet[sheet] != null) {
+                _treesBySheet[sheet] = new IntervalTree(this, areasBySheet[sheet].toArray(),
+                        0, _spreadsheetVersion.getLastRowIndex());
+            }
+        }
+    }
+
+    /**
+     * Builds the dependency graph of the formulas of the given workbook.
+     * The workbook is only read.
+     */
+    public static FormulaDependencyGraph create(Workbook workbook) {
+        return new FormulaDependencyGraph(workbook);
+    }
+
+    /**
+     * Resolves the areas of a cell or area reference token, including the references of a
+     * defined name, if {@code nameDepth} is non-negative
+     *
+     * @param sheetIndex the sheet of the formula, i.e. of references without a sheet
+     */
+    static void forEachArea(EvaluationWorkbook workbook, int sheetIndex, Ptg ptg, AreaConsumer consumer, int nameDepth) {
+        if (ptg instanceof RefNPtg || ptg instanceof AreaNPtg) {
+            // relative tokens only occur in shared formula definitions
+            return;
+        }
+        int firstRow, lastRow, firstColumn, lastColumn;
+        if (ptg instanceof AreaPtgBase) {
+            AreaPtgBase area = (AreaPtgBase) ptg;
+            firstRow = area.getFirstRow();
+            lastRow = area.getLastRow();
+            firstColumn = area.getFirstColumn();
+            lastColumn = area.getLastColumn();
+        } else if (ptg instanceof RefPtgBase) {
+            RefPtgBase ref = (RefPtgBase) ptg;
+            firstRow = lastRow = ref.getRow();
+            firstColumn = lastColumn = ref.getColumn();
+        } else {
+            if (ptg instanceof NamePtg && nameDepth >= 0 && nameDepth < MAX_NAME_DEPTH) {
+                EvaluationName name = workbook.getName((NamePtg) ptg);
+                if (name != null && name.hasFormula() && !name.isFunctionName()) {
+                    for (Ptg namePtg : name.getNameDefinition()) {
+                        forEachArea(workbook, sheetIndex, namePtg, consumer, nameDepth + 1);
+                    }
+                }
+            }
+            return;
+        }
+
+        int firstSheet, lastSheet;
+        if (ptg instanceof AreaPtg || ptg instanceof RefPtg) {
+            firstSheet = lastSheet = sheetIndex;
+        } else {
+            ExternalSheet externalSheet;
+            try {
+                if (ptg instanceof ExternSheetReferenceToken) {
+                    externalSheet = workbook.getExternalSheet(((ExternSheetReferenceToken) ptg).getExternSheetIndex());
+                } else if (ptg instanceof Pxg3D) {
+                    Pxg3D pxg = (Pxg3D) ptg;
+                    if (pxg.getSheetName() == null) {
+                        return;
+                    }
+                    externalSheet = workbook.getExternalSheet(pxg.getSheetName(), pxg.getLastSheetName(), pxg.getExternalWorkbookNumber());
+                } else {
+                    return;
+                }
+            } catch (RuntimeException e) {
+                // unresolvable references are reported by the evaluation
+                return;
+            }
+            if (externalSheet == null) {
+                // same rule as OperationEvaluationContext.createExternSheetRefEvaluator
+                firstSheet = 0;
+            } else if (externalSheet.getWorkbookName() != null) {
+                // other workbooks are evaluated by their own evaluators
+                return;
+            } else {
+                firstSheet = workbook.getSheetIndex(externalSheet.getSheetName());
+            }
+            lastSheet = (externalSheet instanceof ExternalSheetRange)
+                ? workbook.getSheetIndex(((ExternalSheetRange) externalSheet).getLastSheetName())
+                : firstSheet;
+            if (firstSheet < 0 || lastSheet < 0) {
+                return;
+            }
+        }
+        consumer.accept(firstSheet, lastSheet, firstRow, lastRow, firstColumn, lastColumn);
+    }
+
+    private static long toKey(int sheetIndex, int rowIndex, int columnIndex) {
+        return ((long) sheetIndex << 34) | ((long) rowIndex << 14) | columnIndex;
+    }
+
+    private CellReference toCellReference(int node) {
+        long key = _cellKeys[node];
+        return new CellReference(_sheetNames[(int) (key >>> 34)], (int) (key >>> 14) & 0xFFFFF,
+                (int) key & 0x3FFF, false, false);
+    }
+
+    private int getSheetIndex(CellReference cell) {
+        String sheetName = cell.getSheetName();
+        if (sheetName == null) {
+            throw new IllegalArgumentException("The cell reference needs a sheet name: " + cell.formatAsString());
+        }
+        for (int i = 0; i < _sheetNames.length; i++) {
+            if (_sheetNames[i].equalsIgnoreCase(sheetName)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Sheet '" + sheetName + "' does not exist");
+    }
+
+    /**
+     * @return the node id of the formula cell or -1
+     */
+    private int findNode(int sheetIndex, int rowIndex, int columnIndex) {
+        int node = Arrays.binarySearch(_cellKeys, toKey(sheetIndex, rowIndex, columnIndex));
+        return node < 0 ? -1 : node;
+    }
+
+    private void addIfInColumns(int area, int column, IntList result) {
+        if (_firstColumns[area] <= column && column <= _lastColumns[area]) {
+            result.add(_owners[area]);
+        }
+    }
+
+    /**
+     * @return the sorted node ids of the formula cells, which reference the given cell directly
+     */
+    private int[] findDependents(int sheetIndex, int rowIndex, int columnIndex) {
+        IntList owners = new IntList(8);
+        IntervalTree.find(_treesBySheet[sheetIndex], this, rowIndex, columnIndex, owners);
+        int[] result = owners.toArray();
+        Arrays.sort(result);
+        int size = 0;
+        for (int i = 0; i < result.length; i++) {
+            if (i == 0 || result[i] != result[i - 1]) {
+                result[size++] = result[i];
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    /**
+     * Builds the edges between the formula cells on the first use
+     */
+    private synchronized void buildDependents() {
+        if (_dependents != null) {
+            return;
+        }
+        int[] starts = new int[_cellKeys.length + 1];
+        IntList dependents = new IntList();
+        for (int node = 0; node < _cellKeys.length; node++) {
+            starts[node] = dependents.size();
+            long key = _cellKeys[node];
+            for (int dependent : findDependents((int) (key >>> 34), (int) (key >>> 14) & 0xFFFFF, (int) key & 0x3FFF)) {
+                dependents.add(dependent);
+            }
+        }
+        starts[_cellKeys.length] = dependents.size();
+        _dependentStarts = starts;
+        _dependents = dependents.toArray();
+    }
+
+    /**
+     * @return the number of formula cells
+     */
+    public int getFormulaCellCount() {
+        return _cellKeys.length;
+    }
+
+    /**
+     * @return the formula cells ordered by sheet, row and column
+     */
+    public List<CellReference> getFormulaCells() {
+        List<CellReference> result = new ArrayList<>(_cellKeys.length);
+        for (int node = 0; node < _cellKeys.length; node++) {
+            result.add(toCellReference(node));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the cells and areas, which are referenced by the formula of the given cell.
+     * References to several sheets are returned as one area per sheet.
+     *
+     * @param cell a cell reference with a sheet name
+     * @return the referenced areas in the order of the formula, empty if the cell has no formula
+     */
+    public List<AreaReference> getPrecedents(CellReference cell) {
+        int node = findNode(getSheetIndex(cell), cell.getRow(), cell.getCol());
+        if (node < 0) {
+            return Collections.emptyList();
+        }
+        List<AreaReference> result = new ArrayList<>(_areaStarts[node + 1] - _areaStarts[node]);
+        for (int area = _areaStarts[node]; area < _areaStarts[node + 1]; area++) {
+            result.add(toAreaReference(area));
+        }
+        return result;
+    }
+
+    private AreaReference toAreaReference(int area) {
+        String sheetName = _sheetNames[_sheets[area]];
+        CellReference firstCell = new CellReference(sheetName, _firstRows[area], _firstColumns[area], false, false);
+        if (_firstRows[area] == _lastRows[area] && _firstColumns[area] == _lastColumns[area]) {
+            // formatted as a single cell
+            return new AreaReference(firstCell.formatAsString(), _spreadsheetVersion);
+        }
+        if (_firstRows[area] == 0 && _lastRows[area] == _spreadsheetVersion.getLastRowIndex()) {
+            // whole columns are marked by absolute rows
+            firstCell = new CellReference(sheetName, 0, _firstColumns[area], true, false);
+            return new AreaReference(firstCell,
+                    new CellReference(sheetName, _lastRows[area], _lastColumns[area], true, false),
+                    _spreadsheetVersion);
+        }
+        return new AreaReference(firstCell,
+                new CellReference(sheetName, _lastRows[area], _lastColumns[area], false, false),
+                _spreadsheetVersion);
+    }
+
+    /**
+     * Formats an area with its sheet name, also for whole columns
+     */
+    private String formatArea(int area) {
+        AreaReference reference = toAreaReference(area);
+        if (reference.isWholeColumnReference()) {
+            StringBuilder sb = new StringBuilder(32);
+            SheetNameFormatter.appendFormat(sb, _sheetNames[_sheets[area]]);
+            return sb.append('!').append(reference.formatAsString()).toString();
+        }
+        return reference.formatAsString();
+    }
+
+    /**
+     * Returns the formula cells, which reference the given cell directly.
+     *
+     * @param cell a cell reference with a sheet name
+     * @return the dependent formula cells ordered by sheet, row and column
+     */
+    public List<CellReference> getDependents(CellReference cell) {
+        List<CellReference> result = new ArrayList<>();
+        for (int node : findDependents(getSheetIndex(cell), cell.getRow(), cell.getCol())) {
+            result.add(toCellReference(node));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the formula cells, which depend on the given cell directly or indirectly, i.e. which
+     * need to be recalculated, if the cell changes.
+     *
+     * @param cell a cell reference with a sheet name
+     * @return the dependent formula cells ordered by sheet, row and column
+     */
+    public List<CellReference> getAllDependents(CellReference cell) {
+        buildDependents();
+        BitSet visited = new BitSet(_cellKeys.length);
+        IntList queue = new IntList();
+        for (int node : findDependents(getSheetIndex(cell), cell.getRow(), cell.getCol())) {
+            visited.set(node);
+            queue.add(node);
+        }
+        for (int i = 0; i < queue.size(); i++) {
+            int node = queue.get(i);
+            for (int e = _dependentStarts[node]; e < _dependentStarts[node + 1]; e++) {
+                int dependent = _dependents[e];
+                if (!visited.get(dependent)) {
+                    visited.set(dependent);
+                    queue.add(dependent);
+                }
+            }
+        }
+        List<CellReference> result = new ArrayList<>(queue.size());
+        for (int node = visited.nextSetBit(0); node >= 0; node = visited.nextSetBit(node + 1)) {
+            result.add(toCellReference(node));
+        }
+        return result;
+    }
+
+    /**
+     * Finds the circular references, i.e. the groups of formula cells, which depend on each other.
+     *
+     * @return the cycles with their cells ordered by sheet, row and column, empty if there are none
+     */
+    public List<List<CellReference>> getCycles() {
+        buildDependents();
+        final int n = _cellKeys.length;
+        // iterative Tarjan's algorithm for the strongly connected components
+        int[] index = new int[n];
+        int[] lowLink = new int[n];
+        Arrays.fill(index, -1);
+        boolean[] onStack = new boolean[n];
+        int[] stack = new int[n];
+        int stackSize = 0;
+        int[] callNodes = new int[n];
+        int[] callEdges = new int[n];
+        int nextIndex = 0;
+        List<List<CellReference>> result = new ArrayList<>();
+
+        for (int root = 0; root < n; root++) {
+            if (index[root] >= 0) {
+                continue;
+            }
+            int depth = 0;
+            callNodes[0] = root;
+            callEdges[0] = _dependentStarts[root];
+            index[root] = lowLink[root] = nextIndex++;
+            stack[stackSize++] = root;
+            onStack[root] = true;
+            while (depth >= 0) {
+                int node = callNodes[depth];
+                if (callEdges[depth] < _dependentStarts[node + 1]) {
+                    int next = _dependents[callEdges[depth]++];
+                    if (index[next] < 0) {
+                        index[next] = lowLink[next] = nextIndex++;
+                        stack[stackSize++] = next;
+                        onStack[next] = true;
+                        depth++;
+                        callNodes[depth] = next;
+                        callEdges[depth] = _dependentStarts[next];
+                    } else if (onStack[next]) {
+                        lowLink[node] = Math.min(lowLink[node], index[next]);
+                    }
+                    continue;
+                }
+                if (lowLink[node] == index[node]) {
+                    int start = stackSize;
+                    do {
+                        onStack[stack[--start]] = false;
+                    } while (stack[start] != node);
+                    int[] component = Arrays.copyOfRange(stack, start, stackSize);
+                    stackSize = start;
+                    if (component.length > 1 || hasSelfReference(node)) {
+                        Arrays.sort(component);
+                        List<CellReference> cycle = new ArrayList<>(component.length);
+                        for (int member : component) {
+                            cycle.add(toCellReference(member));
+                        }
+                        result.add(cycle);
+                    }
+                }
+                depth--;
+                if (depth >= 0) {
+                    int parent = callNodes[depth];
+                    lowLink[parent] = Math.min(lowLink[parent], lowLink[node]);
+                }
+            }
+        }
+        return result;
+    }
+
+    private boolean hasSelfReference(int node) {
+        return Arrays.binarySearch(_dependents, _dependentStarts[node], _dependentStarts[node + 1], node) >= 0;
+    }
+
+    /**
+     * Writes the graph for external tools: one line per reference with the formula cell and
+     * the referenced cell or area separated by a tab, e.g. {@code Sheet1!C1<TAB>Sheet1!A1:B2}.
+     * The lines are ordered by the formula cells and the order of the references in the formulas.
+     */
+    public void write(Appendable out) throws IOException {
+        for (int node = 0; node < _cellKeys.length; node++) {
+            String cell = toCellReference(node).formatAsString();
+            for (int area = _areaStarts[node]; area < _areaStarts[node + 1]; area++) {
+                out.append(cell).append('\t').append(formatArea(area)).append('\n');
+            }
+        }
+    }
+}
@@ -17,7 +17,8 @@
 
 package org.apache.poi.ss.formula;
 
-import java.util.Stack;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.apache.poi.ss.formula.ptg.AttrPtg;
 import org.apache.poi.ss.formula.ptg.MemAreaPtg;
@@ -45,7 +46,8 @@ public class FormulaRenderer {
         if (ptgs == null || ptgs.length == 0) {
             throw new IllegalArgumentException("ptgs must not be null");
         }
-        Stack<String> stack = new Stack<>();
+        // an unsynchronized stack, as many formulas are rendered by bulk operations
+        List<String> stack = new ArrayList<>();
 
         for (Ptg ptg : ptgs) {
             // TODO - what about MemNoMemPtg?
@@ -56,8 +58,11 @@ public class FormulaRenderer {
                 continue;
             }
             if (ptg instanceof ParenthesisPtg) {
-                String contents = stack.pop();
-                stack.push ("(" + contents + ")");
+                if (stack.isEmpty()) {
+                    throw new IllegalStateException("Stack underflow");
+                }
+                String contents = pop(stack);
+                stack.add("(" + contents + ")");
                 continue;
             }
             if (ptg instanceof AttrPtg) {
@@ -78,7 +83,7 @@ public class FormulaRenderer {
                 }
                 if (attrPtg.isSum()) {
                     String[] operands = getOperands(stack, attrPtg.getNumberOfOperands());
-                    stack.push(attrPtg.toFormulaString(operands));
+                    stack.add(attrPtg.toFormulaString(operands));
                     continue;
                 }
                 throw new RuntimeException("Unexpected tAttr: " + attrPtg);
@@ -86,24 +91,24 @@ public class FormulaRenderer {
 
             if (ptg instanceof WorkbookDependentFormula) {
                 WorkbookDependentFormula optg = (WorkbookDependentFormula) ptg;
-                stack.push(optg.toFormulaString(book));
+                stack.add(optg.toFormulaString(book));
                 continue;
             }
             if (! (ptg instanceof OperationPtg)) {
-                stack.push(ptg.toFormulaString());
+                stack.add(ptg.toFormulaString());
                 continue;
             }
 
             OperationPtg o = (OperationPtg) ptg;
             String[] operands = getOperands(stack, o.getNumberOfOperands());
-            stack.push(o.toFormulaString(operands));
+            stack.add(o.toFormulaString(operands));
         }
         if(stack.isEmpty()) {
             // inspection of the code above reveals that every stack.pop() is followed by a
             // stack.push(). So this is either an internal error or impossible.
             throw new IllegalStateException("Stack underflow");
         }
-        String result = stack.pop();
+        String result = pop(stack);
         if(!stack.isEmpty()) {
             // Might be caused by some tokens like AttrPtg and Mem*Ptg, which really shouldn't
             // put anything on the stack
@@ -112,7 +117,11 @@ public class FormulaRenderer {
         return result;
     }
 
-    private static String[] getOperands(Stack<String> stack, int nOperands) {
+    private static String pop(List<String> stack) {
+        return stack.remove(stack.size() - 1);
+    }
+
+    private static String[] getOperands(List<String> stack, int nOperands) {
         String[] operands = new String[nOperands];
 
         for (int j = nOperands-1; j >= 0; j--) { // reverse iteration because args were pushed in-order
@@ -121,7 +130,7 @@ public class FormulaRenderer {
                     + ") operands but got (" + (nOperands - j - 1) + ")";
                 throw new IllegalStateException(msg);
             }
-            operands[j] = stack.pop();
+            operands[j] = pop(stack);
         }
         return operands;
     }
@@ -31,6 +31,7 @@ import org.apache.poi.ss.formula.ptg.Ref3DPxg;
 import org.apache.poi.ss.formula.ptg.RefErrorPtg;
 import org.apache.poi.ss.formula.ptg.RefPtg;
 import org.apache.poi.ss.formula.ptg.RefPtgBase;
+import org.apache.poi.util.Internal;
 
 
 /**
@@ -145,6 +146,66 @@ public final class FormulaShifter {
                 "]";
     }
 
+    /**
+     * Checks on the text of a formula, whether {@link #adjustFormula(Ptg[], int)} might change its tokens.
+     * Formulas on other sheets can only be affected by moves through references with a sheet name
+     * or structured references, so most of them don't need to be parsed at all. Row moves only affect
+     * references to the moved rows, their destination or later rows, so formulas, which only contain
+     * lower row numbers, aren't parsed either.
+     *
+     * @param formula the text of the formula
+     * @param currentExternSheetIx the extern sheet index of the sheet that contains the formula
+     * @return {@code false} if the formula is certainly not changed by this shifter
+     * @since POI 5.2.4
+     */
+    @Internal
+    public boolean mayAdjust(String formula, int currentExternSheetIx) {
+        if (_mode == ShiftMode.RowCopy || _mode == ShiftMode.ColumnCopy) {
+            // all relative references are moved
+            return true;
+        }
+        if (formula.indexOf('[') >= 0) {
+            // structured references are resolved to areas
+            return true;
+        }
+        boolean sheetReference = formula.indexOf('!') >= 0;
+        if (_mode == ShiftMode.SheetMove || currentExternSheetIx != _externSheetIndex) {
+            if (!sheetReference) {
+                return false;
+            }
+        }
+        if (_mode == ShiftMode.RowMove) {
+            return mayReferenceRowsFrom(formula, Math.min(_firstMovedIndex, _firstMovedIndex + _amountToMove));
+        }
+        return true;
+    }
+
+    /**
+     * @param formula the text of a formula
+     * @param rowIndex the 0-based index of a row
+     * @return {@code false} if the formula certainly doesn't reference the given row or a later row,
+     *      i.e. it contains neither a number, which is at least the 1-based row number, nor a whole column reference
+     */
+    private static boolean mayReferenceRowsFrom(String formula, int rowIndex) {
+        int value = -1;
+        for (int i = 0; i < formula.length(); i++) {
+            char c = formula.charAt(i);
+            if (c >= '0' && c <= '9') {
+                value = (value < 0 ? 0 : value * 10) + (c - '0');
+                if (value > rowIndex) {
+                    return true;
+                }
+            } else {
+                value = -1;
+                if (c == ':' && i > 0 && Character.isLetter(formula.charAt(i - 1))) {
+                    // a whole column reference like A:C or a range between names
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
     /**
      * @param ptgs - if necessary, will get modified by this method
      * @param currentExternSheetIx - the extern sheet index of the sheet that contains the formula being adjusted
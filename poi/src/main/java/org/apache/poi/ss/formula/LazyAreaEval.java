@@ -19,6 +19,7 @@ package org.apache.poi.ss.formula;
 
 import org.apache.poi.ss.formula.eval.AreaEval;
 import org.apache.poi.ss.formula.eval.AreaEvalBase;
+import org.apache.poi.ss.formula.eval.AreaValues;
 import org.apache.poi.ss.formula.eval.ValueEval;
 import org.apache.poi.ss.formula.ptg.AreaI;
 import org.apache.poi.ss.formula.ptg.AreaI.OffsetArea;
@@ -54,6 +55,12 @@ final class LazyAreaEval extends AreaEvalBase {
         return _evaluator.getEvalForCell(sheetIndex, rowIx, colIx);
     }
 
+    @Override
+    public void getValues(int sheetIndex, AreaValues values) {
+        _evaluator.getSheetEvaluator(sheetIndex).getValues(getFirstRow(), getFirstColumn(),
+                getLastRow(), getLastColumn(), values);
+    }
+
     @Override
     public AreaEval offset(int relFirstRowIx, int relLastRowIx, int relFirstColIx, int relLastColIx) {
         AreaI area = new OffsetArea(getFirstRow(), getFirstColumn(),
@@ -113,4 +120,24 @@ final class LazyAreaEval extends AreaEvalBase {
         SheetRefEvaluator _sre = _evaluator.getSheetEvaluator(_evaluator.getFirstSheetIndex());
         return _sre.isRowHidden(getFirstRow() + rowIndex);
     }
+
+    @Override
+    public LookupIndex getRowLookupIndex(int rowIndex) {
+        if (getFirstSheetIndex() != getLastSheetIndex()) {
+            return null;
+        }
+        SheetRefEvaluator _sre = _evaluator.getSheetEvaluator(_evaluator.getFirstSheetIndex());
+        int absRowIx = getFirstRow() + rowIndex;
+        return _sre.getLookupIndex(absRowIx, getFirstColumn(), absRowIx, getLastColumn());
+    }
+
+    @Override
+    public LookupIndex getColumnLookupIndex(int columnIndex) {
+        if (getFirstSheetIndex() != getLastSheetIndex()) {
+            return null;
+        }
+        SheetRefEvaluator _sre = _evaluator.getSheetEvaluator(_evaluator.getFirstSheetIndex());
+        int absColIx = getFirstColumn() + columnIndex;
+        return _sre.getLookupIndex(getFirstRow(), absColIx, getLastRow(), absColIx);
+    }
 }
@@ -0,0 +1,175 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.poi.ss.formula.eval.BoolEval;
+import org.apache.poi.ss.formula.eval.NumberEval;
+import org.apache.poi.ss.formula.eval.OperandResolver;
+import org.apache.poi.ss.formula.eval.StringEval;
+import org.apache.poi.ss.formula.eval.ValueEval;
+import org.apache.poi.util.IntList;
+import org.apache.poi.util.Internal;
+
+/**
+ * Hash index of the values of a single row or column, which replaces the linear scans of
+ * the exact match lookups and the equality criteria.
+ * <p>
+ * The indexes are built and cached by the {@link WorkbookEvaluator} for each evaluated range,
+ * see {@link TwoDEval#getColumnLookupIndex(int)}, and are reused by all formulas, which refer to the same range,
+ * until any cell of the range is changed.
+ * <p>
+ * Numbers are matched by their exact value, texts case-insensitively and blanks and errors are not indexed.
+ * The positions of each value are kept in ascending order.
+ *
+ * @since POI 5.2.4
+ */
+@Internal
+public final class LookupIndex {
+    /** smaller ranges are searched linearly */
+    public static final int MIN_SIZE = 16;
+
+    private static final int[] EMPTY = {};
+
+    private final int _size;
+    private final Map<Double, IntList> _numbers = new HashMap<>();
+    private final Map<String, IntList> _texts = new HashMap<>();
+    /** the texts, which can be parsed as number, by their value */
+    private final Map<Double, IntList> _numericTexts = new HashMap<>();
+    private final IntList _falses = new IntList();
+    private final IntList _trues = new IntList();
+
+    LookupIndex(int size) {
+        _size = size;
+    }
+
+    /**
+     * Adds the value of the next position - the values must be added in ascending order of their positions.
+     */
+    void add(int position, ValueEval value) {
+        if (value instanceof NumberEval) {
+            add(_numbers, ((NumberEval) value).getNumberValue(), position);
+        } else if (value instanceof StringEval) {
+            String text = ((StringEval) value).getStringValue();
+            _texts.computeIfAbsent(toKey(text), k -> new IntList(1)).add(position);
+            Double number = OperandResolver.parseDouble(text);
+            if (number != null && !Double.isNaN(number)) {
+                // +0.0 folds -0.0 into 0.0, as the numeric texts are compared with ==
+                add(_numericTexts, number + 0.0, position);
+            }
+        } else if (value instanceof BoolEval) {
+            (((BoolEval) value).getBooleanValue() ? _trues : _falses).add(position);
+        }
+    }
+
+    private static void add(Map<Double, IntList> map, double value, int position) {
+        map.computeIfAbsent(value, k -> new IntList(1)).add(position);
+    }
+
+    /**
+     * @return the number of indexed positions
+     */
+    public int getSize() {
+        return _size;
+    }
+
+    /**
+     * Finds the first position of a value of the same type, which is equal to the given value.
+     * Numbers are compared like {@link Double#compare(double, double)} and texts
+     * like {@link String#compareToIgnoreCase(String)}, wildcards are not supported.
+     *
+     * @param value a {@link NumberEval}, {@link StringEval} or {@link BoolEval}
+     * @return the zero based position or -1, if the value isn't found
+     */
+    public int indexOf(ValueEval value) {
+        IntList positions;
+        if (value instanceof NumberEval) {
+            positions = _numbers.get(((NumberEval) value).getNumberValue());
+        } else if (value instanceof StringEval) {
+            positions = _texts.get(toKey(((StringEval) value).getStringValue()));
+        } else if (value instanceof BoolEval) {
+            positions = ((BoolEval) value).getBooleanValue() ? _trues : _falses;
+        } else {
+            throw new IllegalArgumentException("Unsupported value type (" + value.getClass().getName() + ")");
+        }
+        return positions == null || positions.isEmpty() ? -1 : positions.get(0);
+    }
+
+    /**
+     * @param includeNumericTexts whether texts, which are parsed as the number, are matched too
+     * @return the ascending positions of the numbers, which are equal to the given number
+     */
+    public int[] getNumberPositions(double value, boolean includeNumericTexts) {
+        IntList numbers = _numbers.get(value);
+        if (!includeNumericTexts) {
+            return toArray(numbers);
+        }
+        return merge(numbers, _numericTexts.get(value + 0.0));
+    }
+
+    /**
+     * @return the ascending positions of the texts, which are equal to the given text ignoring the case
+     */
+    public int[] getTextPositions(String value) {
+        return toArray(_texts.get(toKey(value)));
+    }
+
+    /**
+     * @return the ascending positions of the given boolean
+     */
+    public int[] getBooleanPositions(boolean value) {
+        return toArray(value ? _trues : _falses);
+    }
+
+    /**
+     * Folds the case like {@link String#compareToIgnoreCase(String)} does, i.e. two texts are equal ignoring
+     * the case, if their keys are equal.
+     */
+    private static String toKey(String text) {
+        int len = text.length();
+        char[] chars = new char[len];
+        for (int i = 0; i < len; i++) {
+            chars[i] = Character.toLowerCase(Character.toUpperCase(text.charAt(i)));
+        }
+        return new String(chars);
+    }
+
+    private static int[] toArray(IntList positions) {
+        return positions == null ? EMPTY : positions.toArray();
+    }
+
+    private static int[] merge(IntList a, IntList b) {
+        if (a == null || b == null) {
+            return toArray(a == null ? b : a);
+        }
+        int[] result = new int[a.size() + b.size()];
+        int i = 0, j = 0, k = 0;
+        while (i < a.size() && j < b.size()) {
+            result[k++] = a.get(i) < b.get(j) ? a.get(i++) : b.get(j++);
+        }
+        while (i < a.size()) {
+            result[k++] = a.get(i++);
+        }
+        while (j < b.size()) {
+            result[k++] = b.get(j++);
+        }
+        return result;
+    }
+}
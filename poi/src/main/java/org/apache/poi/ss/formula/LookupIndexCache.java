@@ -0,0 +1,111 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.poi.ss.formula.FormulaCellCache.IEntryOperation;
+
+/**
+ * Caches the {@link LookupIndex}es by their range.
+ * <p>
+ * Each index has a formula cache entry without a cell, which depends on the cells of the range
+ * like a formula, which refers to the range. The formulas, which use the index, depend on this entry
+ * in turn, so they are cleared together with the index, whenever a cell of the range changes.
+ */
+final class LookupIndexCache {
+
+    static final class Entry {
+        private final FormulaCellCacheEntry _node = new FormulaCellCacheEntry();
+        private volatile LookupIndex _index;
+
+        public FormulaCellCacheEntry getNode() {
+            return _node;
+        }
+
+        /**
+         * @return the index or {@code null}, if the range can't be indexed - only valid,
+         *  if the node has a value
+         */
+        public LookupIndex getIndex() {
+            return _index;
+        }
+
+        public void setIndex(LookupIndex index) {
+            _index = index;
+        }
+    }
+
+    private static final class Range {
+        private final int _bookIndex;
+        private final int _sheetIndex;
+        private final int _firstRow;
+        private final int _firstColumn;
+        private final int _lastRow;
+        private final int _lastColumn;
+
+        Range(int bookIndex, int sheetIndex, int firstRow, int firstColumn, int lastRow, int lastColumn) {
+            _bookIndex = bookIndex;
+            _sheetIndex = sheetIndex;
+            _firstRow = firstRow;
+            _firstColumn = firstColumn;
+            _lastRow = lastRow;
+            _lastColumn = lastColumn;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = _bookIndex;
+            result = 31 * result + _sheetIndex;
+            result = 31 * result + _firstRow;
+            result = 31 * result + _firstColumn;
+            result = 31 * result + _lastRow;
+            return 31 * result + _lastColumn;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Range)) {
+                return false;
+            }
+            Range other = (Range) obj;
+            return _bookIndex == other._bookIndex && _sheetIndex == other._sheetIndex
+                && _firstRow == other._firstRow && _firstColumn == other._firstColumn
+                && _lastRow == other._lastRow && _lastColumn == other._lastColumn;
+        }
+    }
+
+    // concurrent, as the indexes are looked up and added during parallel evaluations
+    private final Map<Range, Entry> _entries = new ConcurrentHashMap<>();
+
+    public Entry getOrCreate(int bookIndex, int sheetIndex, int firstRow, int firstColumn, int lastRow, int lastColumn) {
+        Range range = new Range(bookIndex, sheetIndex, firstRow, firstColumn, lastRow, lastColumn);
+        return _entries.computeIfAbsent(range, k -> new Entry());
+    }
+
+    public void applyOperation(IEntryOperation operation) {
+        for (Entry entry : _entries.values()) {
+            operation.processEntry(entry.getNode());
+        }
+    }
+
+    public void clear() {
+        _entries.clear();
+    }
+}
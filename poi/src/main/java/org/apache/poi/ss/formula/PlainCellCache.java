@@ -17,36 +17,50 @@
 
 package org.apache.poi.ss.formula;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.locks.StampedLock;
 
+/**
+ * Caches the values of plain cells by their location.
+ * <p>
+ * The locations are packed into primitive long keys and the entries are stored in open addressing
+ * hash tables, so the lookups - e.g. for every cell of a large area - don't allocate any key objects.
+ * <p>
+ * The cache can be accessed concurrently, as the cells are looked up and added during parallel evaluations.
+ * The keys are split into segments, which are locked individually, and the lookups are usually done
+ * without locking at all.
+ */
 final class PlainCellCache {
 
-    public static final class Loc {
+    private static final int MAX_BOOK_INDEX = 0x3FFF;
+    private static final int MAX_SHEET_INDEX = 0xFFFF;
+    private static final int MAX_ROW_INDEX = 0xFFFFF;
+    private static final int MAX_COLUMN_INDEX = 0x3FFF;
+
+    private static final int SEGMENT_BITS = 4;
 
-        private final long _bookSheetColumn;
+    /**
+     * The location of a cell, only used for diagnostics - the cache itself works with
+     * the keys of {@link #toKey(int, int, int, int)}
+     */
+    public static final class Loc {
 
-        private final int _rowIndex;
+        private final long _key;
 
         public Loc(int bookIndex, int sheetIndex, int rowIndex, int columnIndex) {
-            _bookSheetColumn = toBookSheetColumn(bookIndex, sheetIndex, columnIndex);
-            _rowIndex = rowIndex;
+            _key = toKey(bookIndex, sheetIndex, rowIndex, columnIndex);
         }
 
-        public static long toBookSheetColumn(int bookIndex, int sheetIndex, int columnIndex) {
-            return ((bookIndex   & 0xFFFFL) << 48)  +
-                   ((sheetIndex  & 0xFFFFL) << 32) +
-                   ((columnIndex & 0xFFFFL) << 0);
+        public Loc(long key) {
+            _key = key;
         }
 
-        public Loc(long bookSheetColumn, int rowIndex) {
-            _bookSheetColumn = bookSheetColumn;
-            _rowIndex = rowIndex;
+        public long getKey() {
+            return _key;
         }
 
         @Override
         public int hashCode() {
-            return (int)(_bookSheetColumn ^ (_bookSheetColumn >>> 32)) + 17 * _rowIndex;
+            return Long.hashCode(_key);
         }
 
         @Override
@@ -55,45 +69,236 @@ final class PlainCellCache {
                 return false;
             }
             Loc other = (Loc) obj;
-            return _bookSheetColumn == other._bookSheetColumn && _rowIndex == other._rowIndex;
+            return _key == other._key;
         }
 
         public int getRowIndex() {
-            return _rowIndex;
+            return (int)((_key >>> 14) & MAX_ROW_INDEX);
         }
 
         public int getColumnIndex() {
-            return (int)(_bookSheetColumn & 0x000FFFF);
+            return (int)(_key & MAX_COLUMN_INDEX);
         }
 
         public int getSheetIndex() {
-            return (int)((_bookSheetColumn >> 32) & 0xFFFF);
+            return (int)((_key >>> 34) & MAX_SHEET_INDEX);
         }
 
         public int getBookIndex() {
-            return (int)((_bookSheetColumn >> 48) & 0xFFFF);
+            return (int)((_key >>> 50) & MAX_BOOK_INDEX);
         }
     }
 
-    private Map<Loc, PlainValueCellCacheEntry> _plainValueEntriesByLoc;
+    private final Segment[] _segments;
 
     public PlainCellCache() {
-        _plainValueEntriesByLoc = new HashMap<>();
+        _segments = new Segment[1 << SEGMENT_BITS];
+        for (int i = 0; i < _segments.length; i++) {
+            _segments[i] = new Segment();
+        }
+    }
+
+    /**
+     * Packs the location of a cell into a key: 14 bits for the book index, 16 bits for the sheet index,
+     * 20 bits for the row index and 14 bits for the column index
+     */
+    public static long toKey(int bookIndex, int sheetIndex, int rowIndex, int columnIndex) {
+        if (bookIndex > MAX_BOOK_INDEX || sheetIndex > MAX_SHEET_INDEX
+                || rowIndex > MAX_ROW_INDEX || columnIndex > MAX_COLUMN_INDEX
+                || (bookIndex | sheetIndex | rowIndex | columnIndex) < 0) {
+            throw new IllegalArgumentException("Cell location out of range: book " + bookIndex
+                    + ", sheet " + sheetIndex + ", row " + rowIndex + ", column " + columnIndex);
+        }
+        return ((long)bookIndex << 50) | ((long)sheetIndex << 34) | ((long)rowIndex << 14) | columnIndex;
     }
 
-    public void put(Loc key, PlainValueCellCacheEntry cce) {
-        _plainValueEntriesByLoc.put(key, cce);
+    public void put(long key, PlainValueCellCacheEntry cce) {
+        long hash = hash(key);
+        segmentFor(hash).put(key, hash, cce, false);
+    }
+
+    /**
+     * @return the previous entry or {@code null}, if the given entry was added
+     */
+    public PlainValueCellCacheEntry putIfAbsent(long key, PlainValueCellCacheEntry cce) {
+        long hash = hash(key);
+        return segmentFor(hash).put(key, hash, cce, true);
     }
 
     public void clear() {
-        _plainValueEntriesByLoc.clear();
+        for (Segment segment : _segments) {
+            segment.clear();
+        }
     }
 
-    public PlainValueCellCacheEntry get(Loc key) {
-        return _plainValueEntriesByLoc.get(key);
+    public PlainValueCellCacheEntry get(long key) {
+        long hash = hash(key);
+        return segmentFor(hash).get(key, hash);
     }
 
-    public void remove(Loc key) {
-        _plainValueEntriesByLoc.remove(key);
+    public void remove(long key) {
+        long hash = hash(key);
+        segmentFor(hash).remove(key, hash);
+    }
+
+    private Segment segmentFor(long hash) {
+        return _segments[(int)(hash >>> (64 - SEGMENT_BITS))];
+    }
+
+    private static long hash(long key) {
+        // the cells of an area differ in the low bits of the key, so the bits are spread over the whole hash
+        long h = key * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 29);
+    }
+
+    /**
+     * A hash table with linear probing. An empty slot is marked by a {@code null} value.
+     */
+    private static final class Segment {
+        private static final int INITIAL_CAPACITY = 16;
+
+        private final StampedLock _lock = new StampedLock();
+        private long[] _keys = new long[INITIAL_CAPACITY];
+        private PlainValueCellCacheEntry[] _values = new PlainValueCellCacheEntry[INITIAL_CAPACITY];
+        private int _size;
+
+        PlainValueCellCacheEntry get(long key, long hash) {
+            long stamp = _lock.tryOptimisticRead();
+            if (stamp != 0) {
+                PlainValueCellCacheEntry result = find(key, hash);
+                if (_lock.validate(stamp)) {
+                    return result;
+                }
+            }
+            stamp = _lock.readLock();
+            try {
+                return find(key, hash);
+            } finally {
+                _lock.unlockRead(stamp);
+            }
+        }
+
+        /**
+         * Might be called during a modification by an optimistic reader, so it must not fail on
+         * inconsistent tables - the result is discarded in that case
+         */
+        private PlainValueCellCacheEntry find(long key, long hash) {
+            long[] keys = _keys;
+            PlainValueCellCacheEntry[] values = _values;
+            int length = keys.length;
+            if (values.length != length) {
+                return null;
+            }
+            int mask = length - 1;
+            int index = (int)hash & mask;
+            for (int i = 0; i < length; i++) {
+                PlainValueCellCacheEntry value = values[index];
+                if (value == null) {
+                    return null;
+                }
+                if (keys[index] == key) {
+                    return value;
+                }
+                index = (index + 1) & mask;
+            }
+            return null;
+        }
+
+        PlainValueCellCacheEntry put(long key, long hash, PlainValueCellCacheEntry cce, boolean onlyIfAbsent) {
+            long stamp = _lock.writeLock();
+            try {
+                int mask = _keys.length - 1;
+                int index = (int)hash & mask;
+                while (_values[index] != null) {
+                    if (_keys[index] == key) {
+                        PlainValueCellCacheEntry previous = _values[index];
+                        if (!onlyIfAbsent) {
+                            _values[index] = cce;
+                        }
+                        return previous;
+                    }
+                    index = (index + 1) & mask;
+                }
+                _keys[index] = key;
+                _values[index] = cce;
+                // keep the load factor below 2/3
+                if (++_size * 3 > _keys.length * 2) {
+                    resize(_keys.length * 2);
+                }
+                return null;
+            } finally {
+                _lock.unlockWrite(stamp);
+            }
+        }
+
+        void remove(long key, long hash) {
+            long stamp = _lock.writeLock();
+            try {
+                int mask = _keys.length - 1;
+                int index = (int)hash & mask;
+                while (_values[index] != null) {
+                    if (_keys[index] == key) {
+                        _values[index] = null;
+                        _size--;
+                        closeGap(index);
+                        return;
+                    }
+                    index = (index + 1) & mask;
+                }
+            } finally {
+                _lock.unlockWrite(stamp);
+            }
+        }
+
+        void clear() {
+            long stamp = _lock.writeLock();
+            try {
+                _keys = new long[INITIAL_CAPACITY];
+                _values = new PlainValueCellCacheEntry[INITIAL_CAPACITY];
+                _size = 0;
+            } finally {
+                _lock.unlockWrite(stamp);
+            }
+        }
+
+        /**
+         * Moves the following entries of the probe sequence into the removed slot,
+         * so the lookups don't need any deletion markers
+         */
+        private void closeGap(int gap) {
+            int mask = _keys.length - 1;
+            int index = (gap + 1) & mask;
+            while (_values[index] != null) {
+                int home = (int)hash(_keys[index]) & mask;
+                // move the entry, if its home slot isn't in the cyclic range (gap, index]
+                if (((index - home) & mask) >= ((index - gap) & mask)) {
+                    _keys[gap] = _keys[index];
+                    _values[gap] = _values[index];
+                    _values[index] = null;
+                    gap = index;
+                }
+                index = (index + 1) & mask;
+            }
+        }
+
+        private void resize(int capacity) {
+            long[] oldKeys = _keys;
+            PlainValueCellCacheEntry[] oldValues = _values;
+            long[] keys = new long[capacity];
+            PlainValueCellCacheEntry[] values = new PlainValueCellCacheEntry[capacity];
+            int mask = capacity - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldValues[i] != null) {
+                    int index = (int)hash(oldKeys[i]) & mask;
+                    while (values[index] != null) {
+                        index = (index + 1) & mask;
+                    }
+                    keys[index] = oldKeys[i];
+                    values[index] = oldValues[i];
+                }
+            }
+            _keys = keys;
+            _values = values;
+        }
     }
 }
@@ -17,6 +17,7 @@
 
 package org.apache.poi.ss.formula;
 
+import org.apache.poi.ss.formula.eval.AreaValues;
 import org.apache.poi.ss.formula.eval.ValueEval;
 import org.apache.poi.ss.formula.ptg.FuncVarPtg;
 import org.apache.poi.ss.formula.ptg.Ptg;
@@ -48,6 +49,20 @@ final class SheetRefEvaluator {
         return _bookEvaluator.evaluateReference(getSheet(), _sheetIndex, rowIndex, columnIndex, _tracker);
     }
 
+    /**
+     * Fills the values of the given area in row major order
+     */
+    public void getValues(int firstRow, int firstColumn, int lastRow, int lastColumn, AreaValues values) {
+        _bookEvaluator.evaluateReferences(getSheet(), _sheetIndex, firstRow, firstColumn, lastRow, lastColumn, _tracker, values);
+    }
+
+    /**
+     * @return the index of the single row or column or {@code null}, if it needs to be searched linearly
+     */
+    public LookupIndex getLookupIndex(int firstRow, int firstColumn, int lastRow, int lastColumn) {
+        return _bookEvaluator.getLookupIndex(getSheet(), _sheetIndex, firstRow, firstColumn, lastRow, lastColumn, _tracker);
+    }
+
     private EvaluationSheet getSheet() {
         if (_sheet == null) {
             _sheet = _bookEvaluator.getSheet(_sheetIndex);
@@ -20,6 +20,7 @@ package org.apache.poi.ss.formula;
 import org.apache.poi.ss.formula.eval.AreaEval;
 import org.apache.poi.ss.formula.eval.ValueEval;
 import org.apache.poi.ss.formula.functions.Subtotal;
+import org.apache.poi.util.Internal;
 
 /**
  * Common interface of {@link AreaEval} and {@link org.apache.poi.ss.formula.eval.AreaEvalBase},
@@ -74,4 +75,25 @@ public interface TwoDEval extends ValueEval {
      */
     boolean isRowHidden(int rowIndex);
 
+    /**
+     * @param rowIndex relative row index (zero based)
+     * @return the cached index of the row for exact match lookups or {@code null}, if the row
+     *  needs to be searched linearly
+     * @since POI 5.2.4
+     */
+    @Internal
+    default LookupIndex getRowLookupIndex(int rowIndex) {
+        return null;
+    }
+
+    /**
+     * @param columnIndex relative column index (zero based)
+     * @return the cached index of the column for exact match lookups or {@code null}, if the column
+     *  needs to be searched linearly
+     * @since POI 5.2.4
+     */
+    @Internal
+    default LookupIndex getColumnLookupIndex(int columnIndex) {
+        return null;
+    }
 }
@@ -17,13 +17,17 @@
 
 package org.apache.poi.ss.formula;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Stack;
 import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -40,6 +44,8 @@ import org.apache.poi.ss.formula.udf.UDFFinder;
 import org.apache.poi.ss.usermodel.CellType;
 import org.apache.poi.ss.util.CellRangeAddressBase;
 import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.Beta;
+import org.apache.poi.util.IntList;
 import org.apache.poi.util.Internal;
 
 import static org.apache.logging.log4j.util.Unbox.box;
@@ -72,6 +78,8 @@ public final class WorkbookEvaluator {
 
     private boolean _ignoreMissingWorkbooks;
 
+    private volatile boolean _compiledEvaluation;
+
     /**
      * whether print detailed messages about the next formula evaluation
      */
@@ -94,8 +102,9 @@ public final class WorkbookEvaluator {
         _workbook = workbook;
         _evaluationListener = evaluationListener;
         _cache = new EvaluationCache(evaluationListener);
-        _sheetIndexesBySheet = new IdentityHashMap<>();
-        _sheetIndexesByName = new IdentityHashMap<>();
+        // synchronized for parallel evaluations
+        _sheetIndexesBySheet = Collections.synchronizedMap(new IdentityHashMap<>());
+        _sheetIndexesByName = Collections.synchronizedMap(new IdentityHashMap<>());
         _collaboratingWorkbookEnvironment = CollaboratingWorkbooksEnvironment.EMPTY;
         _workbookIx = 0;
         _stabilityClassifier = stabilityClassifier;
@@ -187,7 +196,7 @@ public final class WorkbookEvaluator {
         _cache.notifyDeleteCell(_workbookIx, sheetIndex, cell);
     }
 
-    private int getSheetIndex(EvaluationSheet sheet) {
+    /* package */ int getSheetIndex(EvaluationSheet sheet) {
         Integer result = _sheetIndexesBySheet.get(sheet);
         if (result == null) {
             int sheetIndex = _workbook.getSheetIndex(sheet);
@@ -201,10 +210,138 @@ public final class WorkbookEvaluator {
     }
 
     public ValueEval evaluate(EvaluationCell srcCell) {
-        int sheetIndex = getSheetIndex(srcCell.getSheet());
+        return evaluate(srcCell, getSheetIndex(srcCell.getSheet()));
+    }
+
+    /**
+     * Evaluates the given formula cells concurrently and keeps the results in the evaluation cache,
+     * i.e. subsequent calls to {@link #evaluate(EvaluationCell)} for these cells are served from the cache.
+     * <p>
+     * The formula cells are ordered by their cell and area references into strata, whose cells
+     * don't depend on each other, and each stratum is evaluated by the given pool. Cells, which are part
+     * of circular references or depend on them, are evaluated afterwards one by one in the calling
+     * thread, so the results are the same as of evaluating the cells sequentially.
+     * <p>
+     * The underlying workbook must not be modified during the evaluation. Evaluations with
+     * an evaluation listener or with debug output are done sequentially.
+     *
+     * @param formulaCells the formula cells to evaluate
+     * @param pool the pool to evaluate the strata with
+     *
+     * @since POI 5.2.4
+     */
+    @Beta
+    public void evaluateAll(Collection<? extends EvaluationCell> formulaCells, ForkJoinPool pool) {
+        if (_evaluationListener != null || dbgEvaluationOutputForNextEval || dbgEvaluationOutputIndent > 0) {
+            formulaCells.forEach(this::evaluate);
+            return;
+        }
+        List<EvaluationCell> cells = new ArrayList<>(formulaCells);
+        FormulaCellGraph graph = new FormulaCellGraph(this, cells);
+        IntList cyclic = new IntList();
+        for (int[] stratum : graph.getStrata(cyclic)) {
+            if (stratum.length <= StratumEvaluation.SEQUENTIAL_LIMIT) {
+                new StratumEvaluation(graph, stratum, 0, stratum.length).compute();
+            } else {
+                pool.invoke(new StratumEvaluation(graph, stratum, 0, stratum.length));
+            }
+        }
+        for (int i = 0; i < cyclic.size(); i++) {
+            int node = cyclic.get(i);
+            evaluate(graph.getCell(node), graph.getSheetIndex(node));
+        }
+    }
+
+    /**
+     * Evaluates the formula cells, whose cached results have been cleared by {@link #notifyUpdateCell(EvaluationCell)}
+     * or {@link #notifyDeleteCell(EvaluationCell)} since the last call of this method, and returns the cells,
+     * whose results have changed.
+     * <p>
+     * Only the formulas, which have been evaluated before and depend on the updated cells, and the updated formula
+     * cells themselves are evaluated - the other results are still cached. So after an initial evaluation of all
+     * formulas, a few updated inputs of a large model can be recalculated in a fraction of the time of a
+     * complete evaluation.
+     * <p>
+     * The invalidated cells are only collected after {@link #setDirtyCellTracking(boolean)} has been enabled.
+     *
+     * @return the formula cells with changed results, the new results are cached
+     * @throws IllegalStateException if the tracking of dirty cells isn't enabled
+     * @since POI 5.2.4
+     */
+    @Beta
+    public List<EvaluationCell> recalculateDirty() {
+        return recalculateDirty(null);
+    }
+
+    /**
+     * Like {@link #recalculateDirty()}, but the formula cells are evaluated in parallel by the given pool
+     *
+     * @param pool the pool to evaluate the formulas with, {@code null} to evaluate them sequentially
+     * @return the formula cells with changed results, the new results are cached
+     * @throws IllegalStateException if the tracking of dirty cells isn't enabled
+     * @see #evaluateAll(Collection, ForkJoinPool)
+     * @since POI 5.2.4
+     */
+    @Beta
+    public List<EvaluationCell> recalculateDirty(ForkJoinPool pool) {
+        Map<FormulaCellCacheEntry, ValueEval> dirtyCells = _cache.removeDirtyFormulaCells(_workbookIx);
+        List<EvaluationCell> cells = new ArrayList<>(dirtyCells.size());
+        for (FormulaCellCacheEntry cce : dirtyCells.keySet()) {
+            cells.add(cce.getCell());
+        }
+        if (pool != null) {
+            evaluateAll(cells, pool);
+        }
+
+        List<EvaluationCell> changedCells = new ArrayList<>();
+        for (Map.Entry<FormulaCellCacheEntry, ValueEval> me : dirtyCells.entrySet()) {
+            EvaluationCell cell = me.getKey().getCell();
+            // served from the cache, if the cell has already been evaluated as precedent of another cell
+            ValueEval result = evaluate(cell);
+            if (!CellCacheEntry.areValuesEqual(me.getValue(), result)) {
+                changedCells.add(cell);
+            }
+        }
+        return changedCells;
+    }
+
+    private ValueEval evaluate(EvaluationCell srcCell, int sheetIndex) {
         return evaluateAny(srcCell, sheetIndex, srcCell.getRowIndex(), srcCell.getColumnIndex(), new EvaluationTracker(_cache));
     }
 
+    /**
+     * Evaluates a slice of a stratum, by splitting it recursively
+     */
+    private final class StratumEvaluation extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private static final int SEQUENTIAL_LIMIT = 16;
+
+        private final transient FormulaCellGraph _graph;
+        private final int[] _nodes;
+        private final int _from, _to;
+
+        StratumEvaluation(FormulaCellGraph graph, int[] nodes, int from, int to) {
+            _graph = graph;
+            _nodes = nodes;
+            _from = from;
+            _to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (_to - _from <= SEQUENTIAL_LIMIT) {
+                for (int i = _from; i < _to; i++) {
+                    int node = _nodes[i];
+                    evaluate(_graph.getCell(node), _graph.getSheetIndex(node));
+                }
+            } else {
+                int mid = (_from + _to) >>> 1;
+                invokeAll(new StratumEvaluation(_graph, _nodes, _from, mid),
+                          new StratumEvaluation(_graph, _nodes, mid, _to));
+            }
+        }
+    }
+
     /**
      * Case-insensitive.
      *
@@ -228,6 +365,24 @@ public final class WorkbookEvaluator {
     }
 
 
+    /**
+     * Evaluates the formula with its compiled form, if the compiled evaluation is enabled
+     *
+     * @return the result or {@code null}, if the formula needs to be interpreted
+     */
+    private ValueEval evaluateCompiled(EvaluationCell srcCell, FormulaCellCacheEntry cce, OperationEvaluationContext ec) {
+        if (!_compiledEvaluation || dbgEvaluationOutputForNextEval || dbgEvaluationOutputIndent > 0
+                || srcCell.isPartOfArrayFormulaGroup()) {
+            return null;
+        }
+        CompiledFormula compiled = cce.getCompiledFormula();
+        if (compiled == null) {
+            compiled = CompiledFormula.compile(_workbook.getFormulaTokens(srcCell));
+            cce.setCompiledFormula(compiled);
+        }
+        return compiled.isCompiled() ? compiled.evaluate(ec) : null;
+    }
+
     /**
      * @return never {@code null}, never {@link BlankEval}
      */
@@ -244,7 +399,7 @@ public final class WorkbookEvaluator {
             return result;
         }
 
-        FormulaCellCacheEntry cce = _cache.getOrCreateFormulaCellEntry(srcCell);
+        FormulaCellCacheEntry cce = _cache.getOrCreateFormulaCellEntry(srcCell, _workbookIx);
         if (shouldCellDependencyBeRecorded || cce.isInputSensitive()) {
             tracker.acceptFormulaDependency(cce);
         }
@@ -257,12 +412,15 @@ public final class WorkbookEvaluator {
 
             try {
 
-                Ptg[] ptgs = _workbook.getFormulaTokens(srcCell);
                 OperationEvaluationContext ec = new OperationEvaluationContext
                         (this, _workbook, sheetIndex, rowIndex, columnIndex, tracker);
                 if (evalListener == null) {
-                    result = evaluateFormula(ec, ptgs);
+                    result = evaluateCompiled(srcCell, cce, ec);
+                    if (result == null) {
+                        result = evaluateFormula(ec, _workbook.getFormulaTokens(srcCell));
+                    }
                 } else {
+                    Ptg[] ptgs = _workbook.getFormulaTokens(srcCell);
                     evalListener.onStartEvaluate(srcCell, cce);
                     result = evaluateFormula(ec, ptgs);
                     evalListener.onEndEvaluate(cce, result);
@@ -791,6 +949,103 @@ public final class WorkbookEvaluator {
         return evaluateAny(cell, sheetIndex, rowIndex, columnIndex, tracker);
     }
 
+    /**
+     * Used by the lazy area evals to fill the values of an area in bulk. The plain cells are read
+     * without creating a {@link ValueEval}, unless the cell isn't cached yet or there is a listener.
+     */
+    /* package */ void evaluateReferences(
+            EvaluationSheet sheet, int sheetIndex, int firstRow, int firstColumn,
+            int lastRow, int lastColumn, EvaluationTracker tracker, AreaValues values) {
+        int width = lastColumn - firstColumn + 1;
+        values.reset(width * (lastRow - firstRow + 1));
+        for (int rowIndex = firstRow, i = 0; rowIndex <= lastRow; rowIndex++) {
+            for (int columnIndex = firstColumn; columnIndex <= lastColumn; columnIndex++, i++) {
+                EvaluationCell cell = sheet.getCell(rowIndex, columnIndex);
+                if (cell == null || cell.getCellType() == CellType.BLANK || cell.getCellType() == CellType.FORMULA
+                        || _evaluationListener != null) {
+                    values.setValue(i, evaluateAny(cell, sheetIndex, rowIndex, columnIndex, tracker));
+                    continue;
+                }
+                switch (cell.getCellType()) {
+                    case NUMERIC:
+                        values.setNumber(i, cell.getNumericCellValue());
+                        break;
+                    case STRING:
+                        values.setString(i, cell.getStringCellValue());
+                        break;
+                    case BOOLEAN:
+                        values.setBoolean(i, cell.getBooleanCellValue());
+                        break;
+                    case ERROR:
+                        values.setError(i, cell.getErrorCellValue());
+                        break;
+                    default:
+                        throw new RuntimeException("Unexpected cell type (" + cell.getCellType() + ")");
+                }
+                if (_stabilityClassifier == null || !_stabilityClassifier.isCellFinal(sheetIndex, rowIndex, columnIndex)) {
+                    tracker.acceptPlainValueDependency(_workbook, _workbookIx, sheetIndex, rowIndex, columnIndex, cell);
+                }
+            }
+        }
+    }
+
+    /**
+     * Used by the lazy area evals to get the cached index of a single row or column.
+     * The index is built with the values of the range on the first use, the currently evaluated
+     * formula depends on all cells of the range afterwards.
+     *
+     * @return the index or {@code null}, if the range needs to be searched linearly
+     */
+    /* package */ LookupIndex getLookupIndex(
+            EvaluationSheet sheet, int sheetIndex, int firstRow, int firstColumn,
+            int lastRow, int lastColumn, EvaluationTracker tracker) {
+        if (firstRow != lastRow && firstColumn != lastColumn) {
+            throw new IllegalArgumentException("Only single rows or columns can be indexed");
+        }
+        int size = (lastRow - firstRow + 1) * (lastColumn - firstColumn + 1);
+        if (size < LookupIndex.MIN_SIZE || _evaluationListener != null
+                || dbgEvaluationOutputForNextEval || dbgEvaluationOutputIndent > 0) {
+            return null;
+        }
+        LookupIndexCache.Entry entry = _cache.getOrCreateLookupIndexEntry(_workbookIx, sheetIndex,
+                firstRow, firstColumn, lastRow, lastColumn);
+        FormulaCellCacheEntry node = entry.getNode();
+        if (node.getValue() == null) {
+            if (!tracker.startEvaluate(node)) {
+                // the index is currently built, i.e. the range contains a lookup of itself
+                return null;
+            }
+            try {
+                LookupIndex index = new LookupIndex(size);
+                for (int i = 0; i < size && index != null; i++) {
+                    int rowIndex = firstRow == lastRow ? firstRow : firstRow + i;
+                    int columnIndex = firstRow == lastRow ? firstColumn + i : firstColumn;
+                    ValueEval value;
+                    try {
+                        value = evaluateReference(sheet, sheetIndex, rowIndex, columnIndex, tracker);
+                    } catch (RuntimeException e) {
+                        // a linear scan might stop before the cell, which can't be evaluated
+                        LOG.atDebug().withThrowable(e).log("Could not index the lookup range, searching linearly");
+                        index = null;
+                        continue;
+                    }
+                    if (value == ErrorEval.CIRCULAR_REF_ERROR) {
+                        // a linear scan might stop before the circular reference
+                        index = null;
+                    } else {
+                        index.add(i, value);
+                    }
+                }
+                entry.setIndex(index);
+                tracker.updateCacheResult(BoolEval.TRUE);
+            } finally {
+                tracker.endEvaluate(node);
+            }
+        }
+        tracker.acceptFormulaDependency(node);
+        return entry.getIndex();
+    }
+
     public FreeRefFunction findUserDefinedFunction(String functionName) {
         return _udfFinder.findFunction(functionName);
     }
@@ -867,6 +1122,28 @@ public final class WorkbookEvaluator {
         final int sheetIndex = getWorkbook().getSheetIndex(sheetName);
         Ptg[] ptgs = FormulaParser.parse(formula, (FormulaParsingWorkbook) getWorkbook(), formulaType, sheetIndex, target.getRow());
 
+        return evaluateRegionFormula(ptgs, sheetIndex, target, region, formulaType);
+    }
+
+    /**
+     * Evaluates a formula like {@link #evaluate(String, CellReference, CellRangeAddressBase)}, but with
+     * tokens, which were parsed once for all target cells, e.g. the formula of a conditional format rule.
+     * The given tokens aren't modified, the relative references are adjusted on copies.
+     *
+     * @param ptgs the parsed formula, without structured references, which depend on the row of the target
+     * @param sheetIndex the index of the sheet of the target
+     */
+    /* package */ ValueEval evaluate(Ptg[] ptgs, int sheetIndex, CellReference target, CellRangeAddressBase region) {
+        Ptg[] adjusted = ptgs.clone();
+        for (int i = 0; i < adjusted.length; i++) {
+            if (adjusted[i] instanceof RefPtgBase) {
+                adjusted[i] = adjusted[i].copy();
+            }
+        }
+        return evaluateRegionFormula(adjusted, sheetIndex, target, region, FormulaType.CELL);
+    }
+
+    private ValueEval evaluateRegionFormula(Ptg[] ptgs, int sheetIndex, CellReference target, CellRangeAddressBase region, FormulaType formulaType) {
         adjustRegionRelativeReference(ptgs, target, region);
 
         final OperationEvaluationContext ec = new OperationEvaluationContext(this, getWorkbook(), sheetIndex, target.getRow(), target.getCol(), new EvaluationTracker(_cache), formulaType.isSingleValue());
@@ -946,6 +1223,60 @@ public final class WorkbookEvaluator {
         return _ignoreMissingWorkbooks;
     }
 
+    /**
+     * Whether to evaluate formulas with their compiled form.
+     * <p>
+     * The formulas are compiled on their first evaluation into a tree of operations on primitive doubles.
+     * This speeds up repeated evaluations of numeric models, e.g. Monte Carlo simulations with a
+     * {@link org.apache.poi.ss.formula.eval.forked.ForkedEvaluator}. Formulas or values, which aren't supported
+     * by the compiled form - like texts, errors or most of the functions - are interpreted as before,
+     * so the results are the same in both modes.
+     * <p>
+     * The compiled form is not used for evaluations with an {@link IEvaluationListener}.
+     *
+     * @param compiledEvaluation {@code true} to evaluate formulas with their compiled form
+     * @since POI 5.2.4
+     */
+    @Beta
+    public void setCompiledEvaluation(boolean compiledEvaluation) {
+        _compiledEvaluation = compiledEvaluation;
+    }
+
+    /**
+     * @return whether formulas are evaluated with their compiled form
+     * @since POI 5.2.4
+     */
+    @Beta
+    public boolean isCompiledEvaluation() {
+        return _compiledEvaluation;
+    }
+
+    /**
+     * Whether to collect the formula cells, whose cached results are cleared by the notify~ methods,
+     * for {@link #recalculateDirty()}.
+     * <p>
+     * The tracking is disabled by default, as the collected cells and their previous results are kept
+     * until the next recalculation. Only the cells, which are invalidated after the tracking has been
+     * enabled, are recalculated, i.e. it should be enabled before the initial evaluation.
+     * Disabling the tracking discards the collected cells.
+     *
+     * @param tracking {@code true} to collect the invalidated formula cells
+     * @since POI 5.2.4
+     */
+    @Beta
+    public void setDirtyCellTracking(boolean tracking) {
+        _cache.setDirtyCellTracking(tracking);
+    }
+
+    /**
+     * @return whether the invalidated formula cells are collected for {@link #recalculateDirty()}
+     * @since POI 5.2.4
+     */
+    @Beta
+    public boolean isDirtyCellTracking() {
+        return _cache.isDirtyCellTracking();
+    }
+
     /**
      * Return a collection of functions that POI can evaluate
      *
@@ -19,6 +19,8 @@ package org.apache.poi.ss.formula.eval;
 
 import org.apache.poi.ss.formula.ThreeDEval;
 import org.apache.poi.ss.formula.TwoDEval;
+import org.apache.poi.util.Internal;
+
 /**
  * Evaluation of 2D (Row+Column) and 3D (Sheet+Row+Column) areas
  */
@@ -88,4 +90,25 @@ public interface AreaEval extends TwoDEval, ThreeDEval {
      * of this area
      */
     AreaEval offset(int relFirstRowIx, int relLastRowIx, int relFirstColIx, int relLastColIx);
+
+    /**
+     * Fills the values of this area on the given sheet in row major order.  The areas of the
+     * evaluated sheets override this to read the plain cells without creating a {@link ValueEval}
+     * for each cell.
+     *
+     * @param sheetIndex the index of the sheet, see {@link #getFirstSheetIndex()}
+     * @param values receives the values, it's reset to the size of this area
+     * @since POI 5.2.4
+     */
+    @Internal
+    default void getValues(int sheetIndex, AreaValues values) {
+        int width = getWidth();
+        int height = getHeight();
+        values.reset(width * height);
+        for (int r = 0; r < height; r++) {
+            for (int c = 0; c < width; c++) {
+                values.setValue(r * width + c, getValue(sheetIndex, r, c));
+            }
+        }
+    }
 }
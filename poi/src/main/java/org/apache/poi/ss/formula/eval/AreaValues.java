@@ -0,0 +1,189 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula.eval;
+
+import java.util.Arrays;
+
+import org.apache.poi.util.Internal;
+
+/**
+ * The values of the cells of an area in row major order, filled in bulk by
+ * {@link AreaEval#getValues(int, AreaValues)}.
+ * <p>
+ * The values are kept in a {@code double[]} with a type per cell, so aggregate functions can
+ * process the plain cells of large areas without a {@link ValueEval} for each cell.
+ * The numbers of booleans are 1 and 0, the numbers of errors are their error codes.
+ * <p>
+ * An instance can be reused for several areas, the arrays only grow as needed.
+ *
+ * @since POI 5.2.4
+ */
+@Internal
+public final class AreaValues {
+
+    public static final byte BLANK = 0;
+    public static final byte NUMBER = 1;
+    public static final byte STRING = 2;
+    public static final byte BOOLEAN = 3;
+    public static final byte ERROR = 4;
+    /** any other kind of value, e.g. a {@link MissingArgEval} of an array */
+    public static final byte OTHER = 5;
+
+    private static final double[] NO_NUMBERS = {};
+    private static final byte[] NO_TYPES = {};
+    private static final ValueEval[] NO_EVALS = {};
+
+    private double[] _numbers = NO_NUMBERS;
+    private byte[] _types = NO_TYPES;
+    /** the texts of plain cells - only allocated for areas with texts */
+    private String[] _strings;
+    /** the existing evals of the values, e.g. of formula results */
+    private ValueEval[] _evals = NO_EVALS;
+    private int _size;
+
+    /**
+     * Clears the values and makes room for the given number of values
+     */
+    public void reset(int size) {
+        if (size > _types.length) {
+            int capacity = Math.max(size, _types.length * 2);
+            _numbers = new double[capacity];
+            _types = new byte[capacity];
+            _evals = new ValueEval[capacity];
+            _strings = null;
+        } else {
+            Arrays.fill(_evals, 0, _size, null);
+            if (_strings != null) {
+                Arrays.fill(_strings, 0, _size, null);
+            }
+        }
+        _size = size;
+    }
+
+    public int getSize() {
+        return _size;
+    }
+
+    /**
+     * @return the numbers of the values, only valid up to {@link #getSize()}
+     */
+    public double[] getNumbers() {
+        return _numbers;
+    }
+
+    /**
+     * @return the types of the values, e.g. {@link #NUMBER}, only valid up to {@link #getSize()}
+     */
+    public byte[] getTypes() {
+        return _types;
+    }
+
+    public byte getType(int index) {
+        return _types[index];
+    }
+
+    public double getNumber(int index) {
+        return _numbers[index];
+    }
+
+    public void setBlank(int index) {
+        _types[index] = BLANK;
+        _numbers[index] = 0;
+        _evals[index] = null;
+    }
+
+    public void setNumber(int index, double value) {
+        _types[index] = NUMBER;
+        _numbers[index] = value;
+        _evals[index] = null;
+    }
+
+    public void setString(int index, String value) {
+        if (_strings == null) {
+            _strings = new String[_types.length];
+        }
+        _types[index] = STRING;
+        _numbers[index] = 0;
+        _strings[index] = value;
+        _evals[index] = null;
+    }
+
+    public void setBoolean(int index, boolean value) {
+        _types[index] = BOOLEAN;
+        _numbers[index] = value ? 1 : 0;
+        _evals[index] = null;
+    }
+
+    public void setError(int index, int errorCode) {
+        _types[index] = ERROR;
+        _numbers[index] = errorCode;
+        _evals[index] = null;
+    }
+
+    /**
+     * Sets an existing value, which is kept to be returned by {@link #getValue(int)}
+     */
+    public void setValue(int index, ValueEval value) {
+        if (value instanceof BoolEval) {
+            setBoolean(index, ((BoolEval) value).getBooleanValue());
+        } else if (value instanceof NumericValueEval) {
+            setNumber(index, ((NumericValueEval) value).getNumberValue());
+        } else if (value instanceof StringValueEval) {
+            _types[index] = STRING;
+            _numbers[index] = 0;
+        } else if (value instanceof ErrorEval) {
+            setError(index, ((ErrorEval) value).getErrorCode());
+        } else if (value == BlankEval.instance) {
+            setBlank(index);
+        } else {
+            _types[index] = OTHER;
+            _numbers[index] = 0;
+        }
+        _evals[index] = value;
+    }
+
+    /**
+     * @return the text of a {@link #STRING} value
+     */
+    public String getString(int index) {
+        ValueEval eval = _evals[index];
+        return eval == null ? _strings[index] : ((StringValueEval) eval).getStringValue();
+    }
+
+    /**
+     * @return the value as {@link ValueEval}, which is only created for plain numbers and texts
+     */
+    public ValueEval getValue(int index) {
+        ValueEval eval = _evals[index];
+        if (eval != null) {
+            return eval;
+        }
+        switch (_types[index]) {
+            case NUMBER:
+                return new NumberEval(_numbers[index]);
+            case STRING:
+                return new StringEval(_strings[index]);
+            case BOOLEAN:
+                return BoolEval.valueOf(_numbers[index] != 0);
+            case ERROR:
+                return ErrorEval.valueOf((int) _numbers[index]);
+            default:
+                return BlankEval.instance;
+        }
+    }
+}
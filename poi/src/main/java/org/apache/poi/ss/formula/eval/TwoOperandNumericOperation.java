@@ -77,6 +77,54 @@ public abstract class TwoOperandNumericOperation extends Fixed2ArgFunction imple
 
     protected abstract double evaluate(double d0, double d1) throws EvaluationException;
 
+    /**
+     * Multiplies the operands with the 15 significant digits, which Excel uses.
+     * Integer operands below 1e15 are multiplied as doubles, which gives the same result
+     * without converting them to decimals.
+     *
+     * @since POI 5.2.4
+     */
+    public static double multiply(double d0, double d1) {
+        if (isSmallInteger(d0) && isSmallInteger(d1)) {
+            // the operands are exact with 15 digits and the product is correctly rounded in both cases,
+            // only the sign of zero products is lost by BigDecimal
+            double product = d0 * d1;
+            return product == 0.0 ? 0.0 : product;
+        }
+        BigDecimal bd0 = new BigDecimal(NumberToTextConverter.toText(d0));
+        BigDecimal bd1 = new BigDecimal(NumberToTextConverter.toText(d1));
+        return bd0.multiply(bd1).doubleValue();
+    }
+
+    /**
+     * Divides the operands with the 15 significant digits, which Excel uses.
+     * The divisor must not be zero.
+     *
+     * @since POI 5.2.4
+     */
+    public static double divide(double d0, double d1) {
+        BigDecimal bd0 = new BigDecimal(NumberToTextConverter.toText(d0));
+        BigDecimal bd1 = new BigDecimal(NumberToTextConverter.toText(d1));
+        return bd0.divide(bd1, MathContext.DECIMAL128).doubleValue();
+    }
+
+    /**
+     * Raises the first operand to the power of the second, with the roots of negative numbers
+     * being negative like in Excel
+     *
+     * @since POI 5.2.4
+     */
+    public static double power(double d0, double d1) {
+        if(d0 < 0 && Math.abs(d1) > 0.0 && Math.abs(d1) < 1.0) {
+            return -1 * Math.pow(d0 * -1, d1);
+        }
+        return Math.pow(d0, d1);
+    }
+
+    private static boolean isSmallInteger(double d) {
+        return Math.abs(d) < 1e15 && d == Math.rint(d);
+    }
+
     public static final Function AddEval = new TwoOperandNumericOperation() {
         @Override
         protected double evaluate(double d0, double d1) {
@@ -89,26 +137,19 @@ public abstract class TwoOperandNumericOperation extends Fixed2ArgFunction imple
             if (d1 == 0.0) {
                 throw new EvaluationException(ErrorEval.DIV_ZERO);
             }
-            BigDecimal bd0 = new BigDecimal(NumberToTextConverter.toText(d0));
-            BigDecimal bd1 = new BigDecimal(NumberToTextConverter.toText(d1));
-            return bd0.divide(bd1, MathContext.DECIMAL128).doubleValue();
+            return divide(d0, d1);
         }
     };
     public static final Function MultiplyEval = new TwoOperandNumericOperation() {
         @Override
         protected double evaluate(double d0, double d1) {
-            BigDecimal bd0 = new BigDecimal(NumberToTextConverter.toText(d0));
-            BigDecimal bd1 = new BigDecimal(NumberToTextConverter.toText(d1));
-            return bd0.multiply(bd1).doubleValue();
+            return multiply(d0, d1);
         }
     };
     public static final Function PowerEval = new TwoOperandNumericOperation() {
         @Override
         protected double evaluate(double d0, double d1) {
-            if(d0 < 0 && Math.abs(d1) > 0.0 && Math.abs(d1) < 1.0) {
-                return -1 * Math.pow(d0 * -1, d1);
-            }
-            return Math.pow(d0, d1);
+            return power(d0, d1);
         }
     };
     private static final class SubtractEvalClass extends TwoOperandNumericOperation {
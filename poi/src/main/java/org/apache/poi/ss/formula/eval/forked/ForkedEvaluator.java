@@ -32,6 +32,7 @@ import org.apache.poi.ss.formula.eval.StringEval;
 import org.apache.poi.ss.formula.eval.ValueEval;
 import org.apache.poi.ss.formula.udf.UDFFinder;
 import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.util.Beta;
 
 /**
  * An alternative workbook evaluator that saves memory in situations where a single workbook is
@@ -58,6 +59,20 @@ public final class ForkedEvaluator {
         return new ForkedEvaluator(wb.createEvaluationWorkbook(), stabilityClassifier, udfFinder);
     }
 
+    /**
+     * Creates an evaluator of a snapshot, which is shared with other evaluators.  Unlike the
+     * evaluators of a {@link Workbook}, the evaluators of a snapshot can be used in different
+     * threads at the same time, as long as each evaluator is used by one thread only.
+     *
+     * @param udfFinder pass {@code null} for default (AnalysisToolPak only)
+     * @see FrozenEvaluationWorkbook
+     * @since POI 5.2.4
+     */
+    @Beta
+    public static ForkedEvaluator create(FrozenEvaluationWorkbook snapshot, IStabilityClassifier stabilityClassifier, UDFFinder udfFinder) {
+        return new ForkedEvaluator(snapshot, stabilityClassifier, udfFinder);
+    }
+
     /**
      * Sets the specified cell to the supplied {@code value}
      * @param sheetName the name of the sheet containing the cell
@@ -112,6 +127,20 @@ public final class ForkedEvaluator {
                 throw new IllegalStateException("Bad cell type (" + cell.getCellType() + ")");
         }
     }
+
+    /**
+     * Whether to evaluate formulas with their compiled form, which speeds up the repeated evaluations
+     * of numeric models, e.g. in Monte Carlo simulations. Formulas, which can't be compiled, are
+     * interpreted as before.
+     *
+     * @see WorkbookEvaluator#setCompiledEvaluation(boolean)
+     * @since POI 5.2.4
+     */
+    @Beta
+    public void setCompiledEvaluation(boolean compiledEvaluation) {
+        _evaluator.setCompiledEvaluation(compiledEvaluation);
+    }
+
     /**
      * Coordinates several formula evaluators together so that formulas that involve external
      * references can be evaluated.
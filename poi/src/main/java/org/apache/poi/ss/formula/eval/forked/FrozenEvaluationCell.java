@@ -0,0 +1,140 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula.eval.forked;
+
+import org.apache.poi.ss.formula.EvaluationCell;
+import org.apache.poi.ss.formula.EvaluationSheet;
+import org.apache.poi.ss.formula.ptg.Ptg;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.util.CellRangeAddress;
+
+/**
+ * An immutable copy of a cell of a {@link FrozenEvaluationWorkbook}, including the parsed tokens of a formula.
+ */
+final class FrozenEvaluationCell implements EvaluationCell {
+
+    private final FrozenEvaluationSheet _sheet;
+    private final int _rowIndex;
+    private final int _columnIndex;
+    private final CellType _cellType;
+    /** the type of the values below - the cached result type of formulas */
+    private final CellType _valueType;
+    private final double _numberValue;
+    private final String _stringValue;
+    private final boolean _booleanValue;
+    private final int _errorValue;
+    private final Ptg[] _formulaTokens;
+    private final CellRangeAddress _arrayFormulaRange;
+
+    /**
+     * @param formulaTokens the parsed formula - {@code null} for plain cells
+     */
+    FrozenEvaluationCell(FrozenEvaluationSheet sheet, EvaluationCell masterCell, Ptg[] formulaTokens) {
+        _sheet = sheet;
+        _rowIndex = masterCell.getRowIndex();
+        _columnIndex = masterCell.getColumnIndex();
+        _cellType = masterCell.getCellType();
+        _valueType = _cellType == CellType.FORMULA ? masterCell.getCachedFormulaResultType() : _cellType;
+        _numberValue = _valueType == CellType.NUMERIC ? masterCell.getNumericCellValue() : 0;
+        _stringValue = _valueType == CellType.STRING ? masterCell.getStringCellValue() : null;
+        _booleanValue = _valueType == CellType.BOOLEAN && masterCell.getBooleanCellValue();
+        _errorValue = _valueType == CellType.ERROR ? masterCell.getErrorCellValue() : 0;
+        _formulaTokens = formulaTokens;
+        _arrayFormulaRange = masterCell.isPartOfArrayFormulaGroup() ? masterCell.getArrayFormulaRange().copy() : null;
+    }
+
+    Ptg[] getFormulaTokens() {
+        return _formulaTokens;
+    }
+
+    @Override
+    public Object getIdentityKey() {
+        return this;
+    }
+
+    @Override
+    public EvaluationSheet getSheet() {
+        return _sheet;
+    }
+
+    @Override
+    public int getRowIndex() {
+        return _rowIndex;
+    }
+
+    @Override
+    public int getColumnIndex() {
+        return _columnIndex;
+    }
+
+    @Override
+    public CellType getCellType() {
+        return _cellType;
+    }
+
+    private void checkValueType(CellType expectedCellType) {
+        if (_valueType != expectedCellType) {
+            throw new IllegalStateException("Wrong data type (" + _valueType + ")");
+        }
+    }
+
+    @Override
+    public double getNumericCellValue() {
+        checkValueType(CellType.NUMERIC);
+        return _numberValue;
+    }
+
+    @Override
+    public String getStringCellValue() {
+        checkValueType(CellType.STRING);
+        return _stringValue;
+    }
+
+    @Override
+    public boolean getBooleanCellValue() {
+        checkValueType(CellType.BOOLEAN);
+        return _booleanValue;
+    }
+
+    @Override
+    public int getErrorCellValue() {
+        checkValueType(CellType.ERROR);
+        return _errorValue;
+    }
+
+    @Override
+    public CellRangeAddress getArrayFormulaRange() {
+        if (_arrayFormulaRange == null) {
+            throw new IllegalStateException("Cell is not part of an array formula.");
+        }
+        return _arrayFormulaRange;
+    }
+
+    @Override
+    public boolean isPartOfArrayFormulaGroup() {
+        return _arrayFormulaRange != null;
+    }
+
+    @Override
+    public CellType getCachedFormulaResultType() {
+        if (_cellType != CellType.FORMULA) {
+            throw new IllegalStateException("Only formula cells have cached results");
+        }
+        return _valueType;
+    }
+}
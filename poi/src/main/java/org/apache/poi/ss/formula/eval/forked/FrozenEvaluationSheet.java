@@ -0,0 +1,125 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula.eval.forked;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import org.apache.poi.ss.formula.EvaluationCell;
+import org.apache.poi.ss.formula.EvaluationSheet;
+import org.apache.poi.ss.formula.EvaluationWorkbook;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+
+/**
+ * An immutable copy of a sheet of a {@link FrozenEvaluationWorkbook}.
+ * <p>
+ * The cells of each row are kept in arrays sorted by their column index, so the lookups
+ * don't allocate any objects and can be done by many threads at once.
+ */
+final class FrozenEvaluationSheet implements EvaluationSheet {
+
+    private static final int[] NO_COLUMNS = {};
+    private static final FrozenEvaluationCell[] NO_CELLS = {};
+
+    private final int _sheetIndex;
+    private final int _lastRowNum;
+    private final BitSet _hiddenRows = new BitSet();
+    /** the column indexes of the cells by their row index */
+    private final int[][] _columns;
+    private final FrozenEvaluationCell[][] _cells;
+
+    FrozenEvaluationSheet(Sheet sheet, int sheetIndex, EvaluationWorkbook masterBook) {
+        _sheetIndex = sheetIndex;
+        _lastRowNum = sheet.getLastRowNum();
+        int nRows = Math.max(_lastRowNum + 1, 0);
+        _columns = new int[nRows][];
+        _cells = new FrozenEvaluationCell[nRows][];
+
+        EvaluationSheet masterSheet = masterBook.getSheet(sheetIndex);
+        for (Row row : sheet) {
+            int rowIndex = row.getRowNum();
+            if (row.getZeroHeight()) {
+                _hiddenRows.set(rowIndex);
+            }
+            int[] columns = new int[row.getPhysicalNumberOfCells()];
+            FrozenEvaluationCell[] cells = new FrozenEvaluationCell[columns.length];
+            int n = 0;
+            for (Cell cell : row) {
+                EvaluationCell masterCell = masterSheet.getCell(rowIndex, cell.getColumnIndex());
+                if (masterCell == null) {
+                    continue;
+                }
+                columns[n] = masterCell.getColumnIndex();
+                cells[n] = new FrozenEvaluationCell(this, masterCell,
+                        masterCell.getCellType() == CellType.FORMULA ? masterBook.getFormulaTokens(masterCell) : null);
+                n++;
+            }
+            if (n < columns.length) {
+                columns = Arrays.copyOf(columns, n);
+                cells = Arrays.copyOf(cells, n);
+            }
+            _columns[rowIndex] = columns;
+            _cells[rowIndex] = cells;
+        }
+        for (int i = 0; i < nRows; i++) {
+            if (_columns[i] == null) {
+                _columns[i] = NO_COLUMNS;
+                _cells[i] = NO_CELLS;
+            }
+        }
+    }
+
+    int getSheetIndex() {
+        return _sheetIndex;
+    }
+
+    @Override
+    public EvaluationCell getCell(int rowIndex, int columnIndex) {
+        if (rowIndex < 0 || rowIndex >= _columns.length) {
+            return null;
+        }
+        int[] columns = _columns[rowIndex];
+        // the cells of a row are usually stored without gaps
+        int ix = columnIndex - (columns.length == 0 ? 0 : columns[0]);
+        if (ix < 0 || ix >= columns.length || columns[ix] != columnIndex) {
+            ix = Arrays.binarySearch(columns, columnIndex);
+        }
+        return ix < 0 ? null : _cells[rowIndex][ix];
+    }
+
+    @Override
+    public int getLastRowNum() {
+        return _lastRowNum;
+    }
+
+    @Override
+    public boolean isRowHidden(int rowIndex) {
+        return rowIndex >= 0 && _hiddenRows.get(rowIndex);
+    }
+
+    /**
+     * The snapshot doesn't cache any results, so there is nothing to clear.
+     */
+    @Override
+    public void clearAllCachedResultValues() {
+        // nothing to do
+    }
+}
@@ -0,0 +1,296 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula.eval.forked;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.formula.EvaluationCell;
+import org.apache.poi.ss.formula.EvaluationName;
+import org.apache.poi.ss.formula.EvaluationSheet;
+import org.apache.poi.ss.formula.EvaluationWorkbook;
+import org.apache.poi.ss.formula.ptg.NamePtg;
+import org.apache.poi.ss.formula.ptg.NameXPtg;
+import org.apache.poi.ss.formula.ptg.Ptg;
+import org.apache.poi.ss.formula.udf.AggregatingUDFFinder;
+import org.apache.poi.ss.formula.udf.UDFFinder;
+import org.apache.poi.ss.usermodel.Name;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.util.Beta;
+
+/**
+ * A read-only snapshot of a workbook for formula evaluation, which can be shared by many threads.
+ * <p>
+ * The cells, their parsed formulas and the defined names are copied into immutable structures,
+ * when the snapshot is created, so the evaluations don't touch the underlying workbook - the lazily
+ * built caches of {@link org.apache.poi.xssf.usermodel.XSSFWorkbook XSSFWorkbook} aren't thread-safe.
+ * Only the rarely used external references are looked up in the underlying workbook on demand,
+ * synchronized on the workbook and cached afterwards.
+ * <p>
+ * Each thread evaluates the snapshot with its own {@link ForkedEvaluator}, see
+ * {@link ForkedEvaluator#create(FrozenEvaluationWorkbook, org.apache.poi.ss.formula.IStabilityClassifier, UDFFinder)},
+ * so the workbook is loaded just once and each evaluator only keeps its updated cells and cached results:
+ * <pre>
+ * FrozenEvaluationWorkbook snapshot = FrozenEvaluationWorkbook.create(workbook);
+ * // on each thread
+ * ForkedEvaluator evaluator = ForkedEvaluator.create(snapshot, null, null);
+ * evaluator.updateCell("Inputs", 0, 0, new NumberEval(4.0));
+ * ValueEval result = evaluator.evaluate("Calculations", 0, 0);
+ * </pre>
+ * The snapshot reflects the workbook at the time of its creation. Changes of the cells afterwards
+ * aren't seen by the snapshot, but the sheets, names and external links of the workbook
+ * must not be changed while the snapshot is in use.
+ *
+ * @since POI 5.2.4
+ */
+@Beta
+public final class FrozenEvaluationWorkbook implements EvaluationWorkbook {
+
+    /**
+     * An immutable copy of a defined name
+     */
+    private static final class FrozenName implements EvaluationName {
+        private final int _index;
+        private final int _sheetIndex;
+        private final String _nameText;
+        private final boolean _isFunctionName;
+        private final boolean _isRange;
+        private final Ptg[] _nameDefinition;
+
+        FrozenName(int index, int sheetIndex, EvaluationName masterName) {
+            _index = index;
+            _sheetIndex = sheetIndex;
+            _nameText = masterName.getNameText();
+            _isFunctionName = masterName.isFunctionName();
+            _isRange = masterName.isRange();
+            _nameDefinition = masterName.hasFormula() ? masterName.getNameDefinition() : null;
+        }
+
+        @Override
+        public String getNameText() {
+            return _nameText;
+        }
+
+        @Override
+        public boolean isFunctionName() {
+            return _isFunctionName;
+        }
+
+        @Override
+        public boolean hasFormula() {
+            return _nameDefinition != null;
+        }
+
+        @Override
+        public Ptg[] getNameDefinition() {
+            return _nameDefinition;
+        }
+
+        @Override
+        public boolean isRange() {
+            return _isRange;
+        }
+
+        @Override
+        public NamePtg createPtg() {
+            return new NamePtg(_index);
+        }
+    }
+
+    private final EvaluationWorkbook _masterBook;
+    private final SpreadsheetVersion _spreadsheetVersion;
+    private final UDFFinder _udfFinder;
+    private final String[] _sheetNames;
+    private final Map<String, Integer> _sheetIndexesByName = new HashMap<>();
+    private final FrozenEvaluationSheet[] _sheets;
+    private final FrozenName[] _names;
+    /** the names by their lower case text */
+    private final Map<String, List<FrozenName>> _namesByText = new HashMap<>();
+
+    // the external references looked up so far - concurrent, as they are looked up during the evaluations
+    private final Map<Object, Optional<Object>> _externalReferences = new ConcurrentHashMap<>();
+
+    private FrozenEvaluationWorkbook(Workbook workbook) {
+        _masterBook = workbook.createEvaluationWorkbook();
+        _spreadsheetVersion = _masterBook.getSpreadsheetVersion();
+        _udfFinder = _masterBook.getUDFFinder();
+
+        int nSheets = workbook.getNumberOfSheets();
+        _sheetNames = new String[nSheets];
+        _sheets = new FrozenEvaluationSheet[nSheets];
+        for (int i = 0; i < nSheets; i++) {
+            _sheetNames[i] = workbook.getSheetName(i);
+            _sheetIndexesByName.putIfAbsent(toKey(_sheetNames[i]), i);
+            _sheets[i] = new FrozenEvaluationSheet(workbook.getSheetAt(i), i, _masterBook);
+        }
+
+        List<? extends Name> names = workbook.getAllNames();
+        _names = new FrozenName[names.size()];
+        for (int i = 0; i < _names.length; i++) {
+            _names[i] = new FrozenName(i, names.get(i).getSheetIndex(), _masterBook.getName(new NamePtg(i)));
+            _namesByText.computeIfAbsent(toKey(_names[i].getNameText()), k -> new ArrayList<>(1)).add(_names[i]);
+        }
+    }
+
+    /**
+     * Creates a snapshot of the given workbook. The workbook is only read.
+     */
+    public static FrozenEvaluationWorkbook create(Workbook workbook) {
+        return new FrozenEvaluationWorkbook(workbook);
+    }
+
+    private static String toKey(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Looks up an external reference in the underlying workbook once
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T getExternalReference(Object key, Supplier<T> lookup) {
+        return (T) _externalReferences.computeIfAbsent(key, k -> {
+            synchronized (_masterBook) {
+                return Optional.ofNullable(lookup.get());
+            }
+        }).orElse(null);
+    }
+
+    @Override
+    public String getSheetName(int sheetIndex) {
+        return _sheetNames[sheetIndex];
+    }
+
+    @Override
+    public int getSheetIndex(EvaluationSheet sheet) {
+        if (!(sheet instanceof FrozenEvaluationSheet)) {
+            throw new IllegalArgumentException("Unexpected type of sheet: " + sheet.getClass().getName());
+        }
+        return ((FrozenEvaluationSheet) sheet).getSheetIndex();
+    }
+
+    @Override
+    public int getSheetIndex(String sheetName) {
+        Integer result = _sheetIndexesByName.get(toKey(sheetName));
+        return result == null ? -1 : result;
+    }
+
+    @Override
+    public EvaluationSheet getSheet(int sheetIndex) {
+        return _sheets[sheetIndex];
+    }
+
+    @Override
+    public ExternalSheet getExternalSheet(int externSheetIndex) {
+        return getExternalReference(Arrays.asList("sheet", externSheetIndex),
+                () -> _masterBook.getExternalSheet(externSheetIndex));
+    }
+
+    @Override
+    public ExternalSheet getExternalSheet(String firstSheetName, String lastSheetName, int externalWorkbookNumber) {
+        return getExternalReference(Arrays.asList("sheet", firstSheetName, lastSheetName, externalWorkbookNumber),
+                () -> _masterBook.getExternalSheet(firstSheetName, lastSheetName, externalWorkbookNumber));
+    }
+
+    @Override
+    public int convertFromExternSheetIndex(int externSheetIndex) {
+        Integer result = getExternalReference(Arrays.asList("sheetIndex", externSheetIndex),
+                () -> _masterBook.convertFromExternSheetIndex(externSheetIndex));
+        return result;
+    }
+
+    @Override
+    public ExternalName getExternalName(int externSheetIndex, int externNameIndex) {
+        return getExternalReference(Arrays.asList("name", externSheetIndex, externNameIndex),
+                () -> _masterBook.getExternalName(externSheetIndex, externNameIndex));
+    }
+
+    @Override
+    public ExternalName getExternalName(String nameName, String sheetName, int externalWorkbookNumber) {
+        return getExternalReference(Arrays.asList("name", nameName, sheetName, externalWorkbookNumber),
+                () -> _masterBook.getExternalName(nameName, sheetName, externalWorkbookNumber));
+    }
+
+    @Override
+    public String resolveNameXText(NameXPtg ptg) {
+        return getExternalReference(Arrays.asList("nameText", ptg.getSheetRefIndex(), ptg.getNameIndex()),
+                () -> _masterBook.resolveNameXText(ptg));
+    }
+
+    @Override
+    public EvaluationName getName(NamePtg namePtg) {
+        return _names[namePtg.getIndex()];
+    }
+
+    /**
+     * Finds the name, which is local to the given sheet, or else the global name
+     */
+    @Override
+    public EvaluationName getName(String name, int sheetIndex) {
+        List<FrozenName> names = _namesByText.get(toKey(name));
+        if (names == null) {
+            return null;
+        }
+        FrozenName global = null;
+        for (FrozenName nm : names) {
+            if (nm._sheetIndex == sheetIndex) {
+                return nm;
+            }
+            if (nm._sheetIndex == -1 && global == null) {
+                global = nm;
+            }
+        }
+        return global;
+    }
+
+    @Override
+    public Ptg[] getFormulaTokens(EvaluationCell cell) {
+        if (!(cell instanceof FrozenEvaluationCell)) {
+            throw new IllegalArgumentException("Unexpected type of cell: " + cell.getClass().getName());
+        }
+        return ((FrozenEvaluationCell) cell).getFormulaTokens();
+    }
+
+    /**
+     * @return a new finder for each evaluator, as the evaluators add their own functions to it
+     */
+    @Override
+    public UDFFinder getUDFFinder() {
+        return new AggregatingUDFFinder(_udfFinder);
+    }
+
+    @Override
+    public SpreadsheetVersion getSpreadsheetVersion() {
+        return _spreadsheetVersion;
+    }
+
+    /**
+     * The snapshot doesn't cache any results, so there is nothing to clear.
+     */
+    @Override
+    public void clearAllCachedResultValues() {
+        // nothing to do
+    }
+}
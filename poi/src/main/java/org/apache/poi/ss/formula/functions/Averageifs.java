@@ -60,17 +60,19 @@ public final class Averageifs extends Baseifs {
     @Override
     protected Aggregator createAggregator() {
         return new Aggregator() {
-            Double sum = 0.0;
-            Integer count = 0;
+            double sum = 0.0;
+            int count = 0;
 
             @Override
             public void addValue(ValueEval value) {
                 if(!(value instanceof NumberEval)) return;
 
-                double d = ((NumberEval) value).getNumberValue();
+                addNumber(((NumberEval) value).getNumberValue());
+            }
+
+            private void addNumber(double d) {
                 sum += d;
                 count++;
-
             }
 
             @Override
@@ -21,6 +21,7 @@ package org.apache.poi.ss.formula.functions;
 
 import org.apache.poi.ss.formula.OperationEvaluationContext;
 import org.apache.poi.ss.formula.eval.AreaEval;
+import org.apache.poi.ss.formula.eval.AreaValues;
 import org.apache.poi.ss.formula.eval.ErrorEval;
 import org.apache.poi.ss.formula.eval.EvaluationException;
 import org.apache.poi.ss.formula.eval.RefEval;
@@ -34,6 +35,9 @@ import org.apache.poi.ss.formula.functions.Countif.ErrorMatcher;
  */
 /*package*/ abstract class Baseifs implements FreeRefFunction {
 
+    /** the criteria ranges with fewer cells are read cell by cell, so the criteria can skip the other ranges */
+    private static final int BULK_READ_MIN_SIZE = 16;
+
     /**
      * Implementations must be stateless.
      * @return true if there should be a range argument before the criteria pairs
@@ -45,6 +49,7 @@ import org.apache.poi.ss.formula.functions.Countif.ErrorMatcher;
      */
     protected static interface Aggregator {
         void addValue(ValueEval d);
+
         ValueEval getResult();
     }
 
@@ -136,37 +141,142 @@ import org.apache.poi.ss.formula.functions.Countif.ErrorMatcher;
         int height = ranges[0].getHeight();
         int width = ranges[0].getWidth();
 
+        int[] candidates = findCandidatePositions(ranges, predicates);
+        if (candidates != null) {
+            // only the cells, which match the most selective indexed criteria, are checked
+            for (int position : candidates) {
+                int r = height == 1 ? 0 : position;
+                int c = height == 1 ? position : 0;
+                if (matches(ranges, predicates, r, c)) {
+                    addValue(aggregator, sumRange, r, c);
+                }
+            }
+            return aggregator.getResult();
+        }
+
+        if (isBulkReadable(ranges, predicates)) {
+            AreaValues[] values = readValues(ranges);
+            if (values != null) {
+                return aggregateMatchingValues(aggregator, sumRange, values, predicates, width);
+            }
+        }
+
         for (int r = 0; r < height; r++) {
             for (int c = 0; c < width; c++) {
+                if (matches(ranges, predicates, r, c)) {
+                    // aggregate only if all of the corresponding criteria specified are true for that cell.
+                    addValue(aggregator, sumRange, r, c);
+                }
+            }
+        }
+        return aggregator.getResult();
+    }
 
-                boolean matches = true;
-                for(int i = 0; i < ranges.length; i++){
-                    AreaEval aeRange = ranges[i];
-                    I_MatchPredicate mp = predicates[i];
+    private static boolean isBulkReadable(AreaEval[] ranges, I_MatchPredicate[] predicates) {
+        for (I_MatchPredicate mp : predicates) {
+            // Bugs 60858 and 56420 show predicate can be null
+            if (mp == null) {
+                return false;
+            }
+        }
+        return ranges[0].getHeight() * ranges[0].getWidth() >= BULK_READ_MIN_SIZE;
+    }
 
-                    // Bugs 60858 and 56420 show predicate can be null
-                    if (mp == null || !mp.matches(aeRange.getRelativeValue(r, c))) {
-                        matches = false;
-                        break;
-                    }
-                }
+    /**
+     * Reads the criteria ranges in bulk, so the numbers don't need a {@link ValueEval} for each cell
+     *
+     * @return the values of the ranges or {@code null}, if a cell can't be evaluated and the ranges
+     *      need to be read cell by cell, as the criteria might skip the cell
+     */
+    private static AreaValues[] readValues(AreaEval[] ranges) {
+        AreaValues[] values = new AreaValues[ranges.length];
+        try {
+            for (int i = 0; i < ranges.length; i++) {
+                values[i] = new AreaValues();
+                ranges[i].getValues(ranges[i].getFirstSheetIndex(), values[i]);
+            }
+        } catch (RuntimeException e) {
+            return null;
+        }
+        return values;
+    }
 
-                if(matches) { // aggregate only if all of the corresponding criteria specified are true for that cell.
-                    if(sumRange != null) {
-                        ValueEval value = sumRange.getRelativeValue(r, c);
-                        if (value instanceof ErrorEval) {
-                            throw new EvaluationException((ErrorEval)value);
-                        }
-                        aggregator.addValue(value);
-                    } else {
-                        aggregator.addValue(null);
-                    }
-                }
+    /**
+     * Same as the loop of {@link #aggregateMatchingCells(Aggregator, AreaEval, AreaEval[], I_MatchPredicate[])},
+     * but with the values of the criteria ranges, which have been read in bulk. The sum range is only read
+     * for the matching cells.
+     */
+    private static ValueEval aggregateMatchingValues(Aggregator aggregator, AreaEval sumRange, AreaValues[] values,
+            I_MatchPredicate[] predicates, int width) throws EvaluationException {
+        for (int index = 0, size = values[0].getSize(); index < size; index++) {
+            if (matches(values, predicates, index)) {
+                addValue(aggregator, sumRange, index / width, index % width);
             }
         }
         return aggregator.getResult();
     }
 
+    private static boolean matches(AreaValues[] values, I_MatchPredicate[] predicates, int index) {
+        for (int i = 0; i < values.length; i++) {
+            boolean matches = values[i].getType(index) == AreaValues.NUMBER
+                    ? predicates[i].matchesNumber(values[i].getNumber(index))
+                    : predicates[i].matches(values[i].getValue(index));
+            if (!matches) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean matches(AreaEval[] ranges, I_MatchPredicate[] predicates, int r, int c) {
+        for(int i = 0; i < ranges.length; i++){
+            AreaEval aeRange = ranges[i];
+            I_MatchPredicate mp = predicates[i];
+
+            // Bugs 60858 and 56420 show predicate can be null
+            if (mp == null || !mp.matches(aeRange.getRelativeValue(r, c))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void addValue(Aggregator aggregator, AreaEval sumRange, int r, int c) throws EvaluationException {
+        if(sumRange != null) {
+            ValueEval value = sumRange.getRelativeValue(r, c);
+            if (value instanceof ErrorEval) {
+                throw new EvaluationException((ErrorEval)value);
+            }
+            aggregator.addValue(value);
+        } else {
+            aggregator.addValue(null);
+        }
+    }
+
+    /**
+     * Finds the cells of single row or column ranges, which match the most selective criteria
+     * with a cached index of its range
+     *
+     * @return the ascending relative positions of the candidate cells or {@code null}, if all cells
+     *  need to be checked
+     */
+    private static int[] findCandidatePositions(AreaEval[] ranges, I_MatchPredicate[] predicates) {
+        if (!ranges[0].isColumn() && !ranges[0].isRow()) {
+            return null;
+        }
+        int[] result = null;
+        for (int i = 0; i < ranges.length; i++) {
+            if (predicates[i] == null) {
+                return null;
+            }
+            int[] positions = Countif.findMatchingPositions(ranges[i], predicates[i]);
+            if (positions != null && (result == null || positions.length < result.length)) {
+                result = positions;
+            }
+        }
+        return result;
+    }
+
     protected static AreaEval convertRangeArg(ValueEval eval) throws EvaluationException {
         if (eval instanceof AreaEval) {
             return (AreaEval) eval;
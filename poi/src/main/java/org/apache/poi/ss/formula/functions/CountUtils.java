@@ -19,6 +19,7 @@ package org.apache.poi.ss.formula.functions;
 
 import org.apache.poi.ss.formula.ThreeDEval;
 import org.apache.poi.ss.formula.TwoDEval;
+import org.apache.poi.ss.formula.eval.NumberEval;
 import org.apache.poi.ss.formula.eval.RefEval;
 import org.apache.poi.ss.formula.eval.ValueEval;
 
@@ -36,6 +37,14 @@ final class CountUtils {
      */
     public interface I_MatchPredicate {
         boolean matches(ValueEval x);
+
+        /**
+         * Same as {@link #matches(ValueEval)} for a {@link NumberEval} - overridden to match
+         * the numbers of areas, which are read in bulk, without creating their evals.
+         */
+        default boolean matchesNumber(double x) {
+            return matches(new NumberEval(x));
+        }
     }
     public interface I_MatchAreaPredicate extends I_MatchPredicate {
         boolean matches(TwoDEval x, int rowIndex, int columnIndex);
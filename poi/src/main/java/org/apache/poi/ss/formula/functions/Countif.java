@@ -19,7 +19,9 @@ package org.apache.poi.ss.formula.functions;
 
 import java.util.regex.Pattern;
 
+import org.apache.poi.ss.formula.LookupIndex;
 import org.apache.poi.ss.formula.ThreeDEval;
+import org.apache.poi.ss.formula.TwoDEval;
 import org.apache.poi.ss.formula.eval.BlankEval;
 import org.apache.poi.ss.formula.eval.BoolEval;
 import org.apache.poi.ss.formula.eval.ErrorEval;
@@ -222,6 +224,11 @@ public final class Countif extends Fixed2ArgFunction {
             }
             return evaluate(Double.compare(testValue, _value));
         }
+
+        @Override
+        public boolean matchesNumber(double x) {
+            return evaluate(Double.compare(x, _value));
+        }
     }
     private static final class BooleanMatcher extends MatcherBase {
 
@@ -279,6 +286,12 @@ public final class Countif extends Fixed2ArgFunction {
             }
             return evaluate(testValue - _value);
         }
+
+        @Override
+        public boolean matchesNumber(double x) {
+            // not-equals comparison of a number to boolean always returns true
+            return getCode() == CmpOp.NE;
+        }
     }
     public static final class ErrorMatcher extends MatcherBase {
 
@@ -302,6 +315,11 @@ public final class Countif extends Fixed2ArgFunction {
             return false;
         }
 
+        @Override
+        public boolean matchesNumber(double x) {
+            return false;
+        }
+
         public int getValue() {
             return _value;
         }
@@ -372,6 +390,12 @@ public final class Countif extends Fixed2ArgFunction {
             // for example, the string "apples" and the string "APPLES" will match the same cells.
             return evaluate(testedValue.compareToIgnoreCase(_value));
         }
+
+        @Override
+        public boolean matchesNumber(double x) {
+            // numbers never match texts
+            return false;
+        }
         /**
          * Translates Excel countif wildcard strings into java regex strings
          * @return {@code null} if the specified value contains no special wildcard characters.
@@ -447,12 +471,61 @@ public final class Countif extends Fixed2ArgFunction {
         if (rangeArg instanceof RefEval) {
             return CountUtils.countMatchingCellsInRef((RefEval) rangeArg, criteriaPredicate);
         } else if (rangeArg instanceof ThreeDEval) {
+            int[] positions = findMatchingPositions((ThreeDEval) rangeArg, criteriaPredicate);
+            if (positions != null) {
+                return positions.length;
+            }
             return CountUtils.countMatchingCellsInArea((ThreeDEval) rangeArg, criteriaPredicate);
         } else {
             throw new IllegalArgumentException("Bad range arg type (" + rangeArg.getClass().getName() + ")");
         }
     }
 
+    /**
+     * Finds the cells of a single row or column, which match an equality criteria, with the cached index of the range.
+     * The other criteria and ranges are searched linearly.
+     *
+     * @return the ascending relative positions of the matching cells or {@code null}, if the range
+     *  needs to be searched linearly
+     */
+    /* package */ static int[] findMatchingPositions(TwoDEval range, I_MatchPredicate criteriaPredicate) {
+        if (!(criteriaPredicate instanceof MatcherBase)) {
+            return null;
+        }
+        int code = ((MatcherBase) criteriaPredicate).getCode();
+        if (code != CmpOp.NONE && code != CmpOp.EQ) {
+            return null;
+        }
+        if (criteriaPredicate instanceof StringMatcher) {
+            StringMatcher sm = (StringMatcher) criteriaPredicate;
+            // empty strings match blanks
+            if (sm._pattern != null || sm._value.isEmpty()) {
+                return null;
+            }
+        } else if (!(criteriaPredicate instanceof NumberMatcher || criteriaPredicate instanceof BooleanMatcher)) {
+            return null;
+        }
+
+        LookupIndex index;
+        if (range.isColumn()) {
+            index = range.getColumnLookupIndex(0);
+        } else if (range.isRow()) {
+            index = range.getRowLookupIndex(0);
+        } else {
+            return null;
+        }
+        if (index == null) {
+            return null;
+        }
+        if (criteriaPredicate instanceof NumberMatcher) {
+            return index.getNumberPositions(((NumberMatcher) criteriaPredicate)._value, true);
+        }
+        if (criteriaPredicate instanceof BooleanMatcher) {
+            return index.getBooleanPositions(((BooleanMatcher) criteriaPredicate)._value == 1);
+        }
+        return index.getTextPositions(((StringMatcher) criteriaPredicate)._value);
+    }
+
     /**
      * Creates a criteria predicate object for the supplied criteria arg
      * @return {@code null} if the arg evaluates to blank.
@@ -25,6 +25,7 @@ import java.util.NoSuchElementException;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import org.apache.poi.ss.formula.LookupIndex;
 import org.apache.poi.ss.formula.TwoDEval;
 import org.apache.poi.ss.formula.eval.BlankEval;
 import org.apache.poi.ss.formula.eval.BoolEval;
@@ -110,6 +111,14 @@ public final class LookupUtils {
         ValueEval getItem(int index);
         int getSize();
 
+        /**
+         * @return the cached index of the values or {@code null}, if the vector needs to be searched linearly
+         * @since POI 5.2.4
+         */
+        default LookupIndex getLookupIndex() {
+            return null;
+        }
+
         default Iterator<Integer> indexIterator() {
             return new Iterator<Integer>() {
                 private int pos = 0;
@@ -176,6 +185,11 @@ public final class LookupUtils {
         public int getSize() {
             return _size;
         }
+
+        @Override
+        public LookupIndex getLookupIndex() {
+            return _tableArray.getRowLookupIndex(_rowIndex);
+        }
     }
 
     private static final class ColumnVector implements ValueVector {
@@ -207,6 +221,11 @@ public final class LookupUtils {
         public int getSize() {
             return _size;
         }
+
+        @Override
+        public LookupIndex getLookupIndex() {
+            return _tableArray.getColumnLookupIndex(_columnIndex);
+        }
     }
 
     private static final class SheetVector implements ValueVector {
@@ -615,6 +634,15 @@ public final class LookupUtils {
     }
 
     public static int lookupFirstIndexOfValue(ValueEval lookupValue, ValueVector vector, boolean isRangeLookup) throws EvaluationException {
+        if (!isRangeLookup) {
+            int result = lookupIndexedValue(lookupValue, vector);
+            if (result == -1) {
+                throw new EvaluationException(ErrorEval.NA);
+            }
+            if (result >= 0) {
+                return result;
+            }
+        }
         LookupValueComparer lookupComparer = createLookupComparer(lookupValue, isRangeLookup, false);
         int result;
         if(isRangeLookup) {
@@ -652,6 +680,15 @@ public final class LookupUtils {
                 modifiedLookup = new StringEval(sb.toString());
             }
         }
+        if (matchMode == MatchMode.ExactMatch && searchMode == SearchMode.IterateForward) {
+            int result = lookupIndexedValue(lookupValue, vector);
+            if (result == -1) {
+                throw new EvaluationException(ErrorEval.NA);
+            }
+            if (result >= 0) {
+                return result;
+            }
+        }
         LookupValueComparer lookupComparer = createTolerantLookupComparer(modifiedLookup, matchMode != MatchMode.WildcardMatch, true);
         int result;
         if (searchMode == SearchMode.BinarySearchForward) {
@@ -669,6 +706,25 @@ public final class LookupUtils {
         return result;
     }
 
+    /**
+     * Finds the first exact match of the specified value with the cached index of the vector.
+     * Only numbers, booleans and texts without wildcards are looked up with the index.
+     *
+     * @return zero based index into the vector, -1 if the value cannot be found or -2,
+     *  if the vector needs to be searched linearly
+     */
+    static int lookupIndexedValue(ValueEval lookupValue, ValueVector vector) {
+        if (lookupValue instanceof StringEval) {
+            if (Countif.StringMatcher.getWildCardPattern(((StringEval) lookupValue).getStringValue()) != null) {
+                return -2;
+            }
+        } else if (!(lookupValue instanceof NumberEval || lookupValue instanceof BoolEval)) {
+            return -2;
+        }
+        LookupIndex index = vector.getLookupIndex();
+        return index == null ? -2 : index.indexOf(lookupValue);
+    }
+
     /**
      * Finds first (lowest index) matching occurrence of specified value.
      * @param lookupComparer the value to be found in column or row vector
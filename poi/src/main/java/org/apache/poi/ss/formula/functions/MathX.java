@@ -29,7 +29,8 @@ import java.math.RoundingMode;
  * provided by java.lang.Math class. It follows the Math class
  * in that it has a private constructor and all static methods.
  */
-final class MathX {
+@Internal
+public final class MathX {
 
     private MathX() {
         // no instances of this class
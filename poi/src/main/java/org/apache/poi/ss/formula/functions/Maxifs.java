@@ -59,19 +59,24 @@ public final class Maxifs extends Baseifs {
     @Override
     protected Aggregator createAggregator() {
         return new Aggregator() {
-            Double accumulator = null;
+            boolean hasValue = false;
+            double accumulator = 0.0;
 
             @Override
             public void addValue(ValueEval value) {
-                double d = (value instanceof NumberEval) ? ((NumberEval) value).getNumberValue() : 0.0;
-                if(accumulator == null || accumulator < d) {
+                addNumber((value instanceof NumberEval) ? ((NumberEval) value).getNumberValue() : 0.0);
+            }
+
+            private void addNumber(double d) {
+                if(!hasValue || accumulator < d) {
                     accumulator = d;
+                    hasValue = true;
                 }
             }
 
             @Override
             public ValueEval getResult() {
-                return new NumberEval(accumulator == null ? 0.0 : accumulator);
+                return new NumberEval(accumulator);
             }
         };
     }
@@ -20,6 +20,8 @@ package org.apache.poi.ss.formula.functions;
 import org.apache.poi.ss.SpreadsheetVersion;
 import org.apache.poi.ss.formula.ThreeDEval;
 import org.apache.poi.ss.formula.TwoDEval;
+import org.apache.poi.ss.formula.eval.AreaEval;
+import org.apache.poi.ss.formula.eval.AreaValues;
 import org.apache.poi.ss.formula.eval.BlankEval;
 import org.apache.poi.ss.formula.eval.BoolEval;
 import org.apache.poi.ss.formula.eval.ErrorEval;
@@ -139,6 +141,15 @@ public abstract class MultiOperandNumericFunction implements Function {
      * Collects values from a single argument
      */
     private void collectValues(ValueEval operand, DoubleList temp) throws EvaluationException {
+        if (operand instanceof AreaEval && isSubtotalCounted() && isHiddenRowCounted()) {
+            AreaEval ae = (AreaEval) operand;
+            AreaValues values = new AreaValues();
+            for (int sIx = ae.getFirstSheetIndex(); sIx <= ae.getLastSheetIndex(); sIx++) {
+                ae.getValues(sIx, values);
+                collectValues(values, temp);
+            }
+            return;
+        }
         if (operand instanceof ThreeDEval) {
             ThreeDEval ae = (ThreeDEval) operand;
             for (int sIx = ae.getFirstSheetIndex(); sIx <= ae.getLastSheetIndex(); sIx++) {
@@ -178,6 +189,41 @@ public abstract class MultiOperandNumericFunction implements Function {
         collectValue(operand, false, temp);
     }
 
+    /**
+     * Collects the values of an area like {@link #collectValue(ValueEval, boolean, DoubleList)},
+     * but without a {@link ValueEval} for each number
+     */
+    private void collectValues(AreaValues values, DoubleList temp) throws EvaluationException {
+        boolean isViaReference = !treatStringsAsZero();
+        double[] numbers = values.getNumbers();
+        byte[] types = values.getTypes();
+        for (int i = 0, size = values.getSize(); i < size; i++) {
+            switch (types[i]) {
+                case AreaValues.NUMBER:
+                    temp.add(numbers[i]);
+                    break;
+                case AreaValues.BLANK:
+                    blankConsumer.accept(BlankEval.instance, temp);
+                    break;
+                case AreaValues.STRING:
+                    if (!isViaReference) {
+                        temp.add(0.0);
+                    }
+                    break;
+                case AreaValues.BOOLEAN:
+                    BoolEval boolEval = BoolEval.valueOf(numbers[i] != 0);
+                    if (isViaReference) {
+                        boolByRefConsumer.accept(boolEval, temp);
+                    } else {
+                        boolByValueConsumer.accept(boolEval, temp);
+                    }
+                    break;
+                default:
+                    collectValue(values.getValue(i), isViaReference, temp);
+            }
+        }
+    }
+
     private void collectValue(ValueEval ve, boolean isViaReference, DoubleList temp) throws EvaluationException {
         if (ve == null) {
             throw new IllegalArgumentException("ve must not be null");
@@ -21,6 +21,7 @@ import java.util.Arrays;
 
 import org.apache.poi.ss.formula.TwoDEval;
 import org.apache.poi.ss.formula.eval.AreaEval;
+import org.apache.poi.ss.formula.eval.AreaValues;
 import org.apache.poi.ss.formula.eval.BlankEval;
 import org.apache.poi.ss.formula.eval.ErrorEval;
 import org.apache.poi.ss.formula.eval.EvaluationException;
@@ -156,6 +157,10 @@ public final class Sumproduct implements Function {
             return ErrorEval.VALUE_INVALID;
         }
 
+        if (areAllAreas(args)) {
+            return evaluateAreaSumProduct(args, height * width);
+        }
+
         double acc = 0;
 
         for (int rrIx=0; rrIx<height; rrIx++) {
@@ -172,6 +177,63 @@ public final class Sumproduct implements Function {
         return new NumberEval(acc);
     }
 
+    private static boolean areAllAreas(TwoDEval[] args) {
+        for (TwoDEval arg : args) {
+            if (!(arg instanceof AreaEval)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Same as {@link #evaluateAreaSumProduct(ValueEval[])}, but the areas are read in bulk,
+     * so there is no {@link ValueEval} for each number
+     */
+    private static ValueEval evaluateAreaSumProduct(TwoDEval[] args, int size) throws EvaluationException {
+        double[] terms = new double[size];
+        Arrays.fill(terms, 1D);
+        // the first error in row major order takes precedence
+        int errorIndex = size;
+        ErrorEval error = null;
+        AreaValues values = new AreaValues();
+        for (TwoDEval arg : args) {
+            AreaEval ae = (AreaEval) arg;
+            ae.getValues(ae.getFirstSheetIndex(), values);
+            double[] numbers = values.getNumbers();
+            byte[] types = values.getTypes();
+            for (int i = 0; i < size; i++) {
+                switch (types[i]) {
+                    case AreaValues.NUMBER:
+                    case AreaValues.BOOLEAN:
+                        terms[i] *= numbers[i];
+                        break;
+                    case AreaValues.BLANK:
+                    case AreaValues.STRING:
+                        // blanks and texts are zero
+                        terms[i] *= 0D;
+                        break;
+                    default:
+                        ValueEval ve = values.getValue(i);
+                        if (!(ve instanceof ErrorEval)) {
+                            terms[i] *= getProductTerm(ve, false);
+                        } else if (i < errorIndex) {
+                            errorIndex = i;
+                            error = (ErrorEval) ve;
+                        }
+                }
+            }
+        }
+        if (error != null) {
+            throw new EvaluationException(error);
+        }
+        double acc = 0;
+        for (double term : terms) {
+            acc += term;
+        }
+        return new NumberEval(acc);
+    }
+
     private static void throwFirstError(TwoDEval areaEval) throws EvaluationException {
         int height = areaEval.getHeight();
         int width = areaEval.getWidth();
@@ -353,7 +353,11 @@ public abstract class TextFunction implements Function {
 
             try {
                 // Ask DataFormatter to handle the String for us
-                String formattedStr = formatter.formatRawCellContents(s0, -1, s1);
+                // (the formatter isn't thread-safe, but formulas might be evaluated in parallel)
+                String formattedStr;
+                synchronized (formatter) {
+                    formattedStr = formatter.formatRawCellContents(s0, -1, s1);
+                }
                 return new StringEval(formattedStr);
             } catch (Exception e) {
                 return ErrorEval.VALUE_INVALID;
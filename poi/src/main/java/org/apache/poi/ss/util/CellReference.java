@@ -215,6 +215,36 @@ public class CellReference implements GenericRecord {
         return retval-1;
     }
 
+    /**
+     * takes the column portion at the start of a cell reference, e.g. "AB" of "AB12" or "$AB$12",
+     * and converts it to the 0-based column index without creating intermediate strings.
+     * Parsing stops at the first character, which isn't a letter.
+     *
+     * @param ref the cell reference
+     * @return zero based column index, or -1 if the reference doesn't start with a column
+     *      or the column is beyond the last column of {@link SpreadsheetVersion#EXCEL2007}
+     * @since POI 5.2.4
+     */
+    public static int convertColPrefixToIndex(String ref) {
+        int len = ref.length();
+        int i = (len > 0 && ref.charAt(0) == ABSOLUTE_REFERENCE_MARKER) ? 1 : 0;
+        int maxCol = SpreadsheetVersion.EXCEL2007.getMaxColumns();
+        int retval = 0;
+        for (; i < len; i++) {
+            char thechar = ref.charAt(i);
+            if (thechar >= 'a' && thechar <= 'z') {
+                thechar -= 'a' - 'A';
+            } else if (thechar < 'A' || thechar > 'Z') {
+                break;
+            }
+            retval = (retval * 26) + (thechar - 'A' + 1);
+            if (retval > maxCol) {
+                return -1;
+            }
+        }
+        return retval-1;
+    }
+
     /**
      * Classifies an identifier as either a simple (2D) cell reference or a named range name
      * @return one of the values from {@code NameType}
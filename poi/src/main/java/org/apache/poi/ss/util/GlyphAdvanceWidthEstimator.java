@@ -0,0 +1,246 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.util;
+
+import java.awt.font.GlyphMetrics;
+import java.awt.font.GlyphVector;
+import java.awt.font.TextAttribute;
+import java.awt.font.TextLayout;
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.util.Beta;
+
+/**
+ * Measures texts by adding up the advances of their glyphs, which are read once per font
+ * and cached in tables, instead of creating a {@link TextLayout} for each text.
+ * <p>
+ * The metrics of a font are read in blocks of 256 characters, when a character of the block is
+ * measured for the first time. Texts, which need a complex layout - e.g. bidirectional text,
+ * combining marks, scripts with contextual shaping or characters outside the basic multilingual
+ * plane -, and texts with characters, which the font can't display, are measured by the fallback
+ * estimator, which uses a {@link TextLayout} by default.
+ * <p>
+ * The results match the ones of {@link TextLayoutWidthEstimator} for simple texts, apart from
+ * rounding differences, as kerning and ligatures aren't applied by either of them.
+ *
+ * @since POI 5.2.4
+ */
+@Beta
+public final class GlyphAdvanceWidthEstimator implements TextWidthEstimator {
+    private static final int BLOCK_BITS = 8;
+    private static final int BLOCK_SIZE = 1 << BLOCK_BITS;
+    private static final int BLOCK_COUNT = (Character.MAX_VALUE + 1) >> BLOCK_BITS;
+
+    /** the number of fonts, whose metrics are cached, before the cache is cleared */
+    private static final int MAX_FONTS = 1000;
+
+    private final TextWidthEstimator fallback;
+    private final Map<FontKey, GlyphTable> tables = new ConcurrentHashMap<>();
+
+    /**
+     * Creates an estimator, which falls back to a {@link TextLayoutWidthEstimator} for complex texts
+     */
+    public GlyphAdvanceWidthEstimator() {
+        this(new TextLayoutWidthEstimator());
+    }
+
+    /**
+     * @param fallback the estimator for the texts, which can't be measured by the cached glyph metrics
+     */
+    public GlyphAdvanceWidthEstimator(TextWidthEstimator fallback) {
+        this.fallback = fallback;
+    }
+
+    @Override
+    public double getWidth(String text, Font font) {
+        GlyphTable table = getTable(font);
+        int length = text.length();
+        double position = 0;
+        double right = 0;
+        float[] metrics = null;
+        int block = -1;
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c >> BLOCK_BITS != block) {
+                block = c >> BLOCK_BITS;
+                metrics = table.getBlock(block);
+            }
+            int offset = c & (BLOCK_SIZE - 1);
+            float advance = metrics[offset];
+            if (Float.isNaN(advance)) {
+                return fallback.getWidth(text, font);
+            }
+            right = Math.max(right, position + metrics[BLOCK_SIZE + offset]);
+            position += advance;
+        }
+        // the underline spans the advances of all glyphs
+        return font.getUnderline() == Font.U_SINGLE ? Math.max(right, position) : right;
+    }
+
+    private GlyphTable getTable(Font font) {
+        FontKey key = new FontKey(font);
+        GlyphTable table = tables.get(key);
+        if (table == null) {
+            if (tables.size() >= MAX_FONTS) {
+                tables.clear();
+            }
+            table = tables.computeIfAbsent(key, GlyphTable::new);
+        }
+        return table;
+    }
+
+    /**
+     * @return {@code true} if the character needs a complex layout, which isn't provided by adding up advances,
+     *      or is a control character, which isn't drawn like a glyph of the font
+     */
+    private static boolean requiresLayout(char c) {
+        if (c < 0x20) {
+            return true;
+        }
+        if (c < 0x0300) {
+            return false;
+        }
+        if (c < 0x0370) {
+            // combining diacritical marks
+            return true;
+        }
+        if (c < 0x0590) {
+            // greek, cyrillic and armenian
+            return false;
+        }
+        if (c < 0x1E00) {
+            // hebrew, arabic, indic and southeast asian scripts, and others with contextual shaping
+            return true;
+        }
+        if (c < 0x2000) {
+            // latin and greek extended
+            return false;
+        }
+        if (c <= 0x200F || (c >= 0x2028 && c <= 0x202E) || (c >= 0x2060 && c <= 0x206F)) {
+            // zero-width and directional formatting characters
+            return true;
+        }
+        if (c >= 0x20D0 && c <= 0x20FF) {
+            // combining marks for symbols
+            return true;
+        }
+        if (c >= 0xD800 && c <= 0xDFFF) {
+            // surrogates of characters outside the basic multilingual plane
+            return true;
+        }
+        // hebrew and arabic presentation forms, variation selectors and combining half marks
+        return c >= 0xFB1D && c <= 0xFEFF;
+    }
+
+    private static final class FontKey {
+        private final String name;
+        private final short heightInPoints;
+        private final boolean bold;
+        private final boolean italic;
+
+        FontKey(Font font) {
+            name = font.getFontName();
+            heightInPoints = font.getFontHeightInPoints();
+            bold = font.getBold();
+            italic = font.getItalic();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof FontKey)) {
+                return false;
+            }
+            FontKey other = (FontKey) o;
+            return heightInPoints == other.heightInPoints && bold == other.bold && italic == other.italic
+                && Objects.equals(name, other.name);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(name, heightInPoints, bold, italic);
+        }
+    }
+
+    /**
+     * The glyph metrics of a font, the font is resolved with the same attributes as by {@link SheetUtil}
+     */
+    private static final class GlyphTable {
+        private final java.awt.Font font;
+        /**
+         * per block of characters: the advances of the glyphs, followed by the right edges of the glyphs relative
+         * to their origin. The advance is NaN for characters, which can't be measured by the table.
+         */
+        private final AtomicReferenceArray<float[]> blocks = new AtomicReferenceArray<>(BLOCK_COUNT);
+
+        GlyphTable(FontKey key) {
+            Map<TextAttribute, Object> attributes = new HashMap<>();
+            if (key.name != null) {
+                attributes.put(TextAttribute.FAMILY, key.name);
+            }
+            attributes.put(TextAttribute.SIZE, (float) key.heightInPoints);
+            if (key.bold) {
+                attributes.put(TextAttribute.WEIGHT, TextAttribute.WEIGHT_BOLD);
+            }
+            if (key.italic) {
+                attributes.put(TextAttribute.POSTURE, TextAttribute.POSTURE_OBLIQUE);
+            }
+            font = java.awt.Font.getFont(attributes);
+        }
+
+        float[] getBlock(int block) {
+            float[] metrics = blocks.get(block);
+            if (metrics == null) {
+                // concurrent readers might read the same block, but it's published only after it is complete
+                metrics = readBlock(block);
+                blocks.set(block, metrics);
+            }
+            return metrics;
+        }
+
+        private float[] readBlock(int block) {
+            char[] chars = new char[BLOCK_SIZE];
+            for (int i = 0; i < BLOCK_SIZE; i++) {
+                chars[i] = (char) ((block << BLOCK_BITS) + i);
+            }
+            GlyphVector glyphs = font.createGlyphVector(SheetUtil.getFontRenderContext(), chars);
+            float[] metrics = new float[2 * BLOCK_SIZE];
+            Arrays.fill(metrics, Float.NaN);
+            for (int i = 0; i < BLOCK_SIZE; i++) {
+                if (requiresLayout(chars[i]) || !font.canDisplay(chars[i])) {
+                    continue;
+                }
+                GlyphMetrics glyph = glyphs.getGlyphMetrics(i);
+                Rectangle2D bounds = glyph.getBounds2D();
+                metrics[i] = glyph.getAdvanceX();
+                // glyphs without an outline, e.g. of spaces, don't extend the visible width
+                metrics[BLOCK_SIZE + i] = bounds.isEmpty() ? Float.NEGATIVE_INFINITY : (float) bounds.getMaxX();
+            }
+            return metrics;
+        }
+    }
+}
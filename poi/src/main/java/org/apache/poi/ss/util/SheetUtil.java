@@ -38,6 +38,7 @@ import org.apache.poi.ss.usermodel.RichTextString;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.util.Beta;
 import org.apache.poi.util.Internal;
 
 
@@ -109,6 +110,11 @@ public class SheetUtil {
      */
     public static final int DEFAULT_CHAR_WIDTH = 5;
 
+    /**
+     * measures the unrotated text of the cells
+     */
+    private static volatile TextWidthEstimator textWidthEstimator = new GlyphAdvanceWidthEstimator();
+
     /**
      * Compute width of a single cell
      *
@@ -175,14 +181,11 @@ public class SheetUtil {
                 for (String line : lines) {
                     String txt = line + defaultChar;
 
-                    AttributedString str = new AttributedString(txt);
-                    copyAttributes(font, str, 0, txt.length());
-
                     /*if (rt.numFormattingRuns() > 0) {
                         // TODO: support rich text fragments
                     }*/
 
-                    width = getCellWidth(defaultCharWidth, colspan, style, width, str);
+                    width = getCellWidth(defaultCharWidth, colspan, style, width, txt, font);
                 }
             }
         } else {
@@ -199,10 +202,7 @@ public class SheetUtil {
             }
             if(sval != null) {
                 String txt = sval + defaultChar;
-                AttributedString str = new AttributedString(txt);
-                copyAttributes(font, str, 0, txt.length());
-
-                width = getCellWidth(defaultCharWidth, colspan, style, width, str);
+                width = getCellWidth(defaultCharWidth, colspan, style, width, txt, font);
             }
         }
         return width;
@@ -216,14 +216,15 @@ public class SheetUtil {
      * @param colspan the number of columns that is spanned by the cell (1 if the cell is not part of a merged region)
      * @param style the cell style, which contains text rotation and indention information needed to compute the cell width
      * @param minWidth the minimum best-fit width. This algorithm will only return values greater than or equal to the minimum width.
-     * @param str the text contained in the cell
+     * @param txt the text contained in the cell
+     * @param font the font of the cell
      * @return the best fit cell width
      */
     private static double getCellWidth(int defaultCharWidth, int colspan,
-            CellStyle style, double minWidth, AttributedString str) {
-        TextLayout layout = new TextLayout(str.getIterator(), fontRenderContext);
-        final Rectangle2D bounds;
+            CellStyle style, double minWidth, String txt, Font font) {
+        final double frameWidth;
         if(style.getRotation() != 0){
+            TextLayout layout = createTextLayout(txt, font);
             /*
              * Transform the text using a scale so that it's height is increased by a multiple of the leading,
              * and then rotate the text before computing the bounds. The scale results in some whitespace around
@@ -235,12 +236,12 @@ public class SheetUtil {
             trans.concatenate(
             AffineTransform.getScaleInstance(1, fontHeightMultiple)
             );
-            bounds = layout.getOutline(trans).getBounds();
+            Rectangle2D bounds = layout.getOutline(trans).getBounds();
+            // frameWidth accounts for leading spaces which is excluded from bounds.getWidth()
+            frameWidth = bounds.getX() + bounds.getWidth();
         } else {
-            bounds = layout.getBounds();
+            frameWidth = textWidthEstimator.getWidth(txt, font);
         }
-        // frameWidth accounts for leading spaces which is excluded from bounds.getWidth()
-        final double frameWidth = bounds.getX() + bounds.getWidth();
         return Math.max(minWidth, ((frameWidth / colspan) / defaultCharWidth) + style.getIndention());
     }
 
@@ -333,6 +334,33 @@ public class SheetUtil {
         return getCellWidth(cell, defaultCharWidth, formatter, useMergedCells, mergedRegions);
     }
 
+    /**
+     * Set the estimator, which measures the unrotated text of cells when computing the width of cells and columns.
+     * <p>
+     * The default is a {@link GlyphAdvanceWidthEstimator}, a {@link TextLayoutWidthEstimator} measures each text
+     * like prior to POI 5.2.4. Rotated text is always measured with a {@link TextLayout}.
+     *
+     * @param estimator the estimator, which is used by all threads
+     * @since POI 5.2.4
+     */
+    @Beta
+    public static void setTextWidthEstimator(TextWidthEstimator estimator) {
+        if (estimator == null) {
+            throw new IllegalArgumentException("estimator must not be null");
+        }
+        textWidthEstimator = estimator;
+    }
+
+    /**
+     * @return the estimator, which measures the unrotated text of cells
+     * @see #setTextWidthEstimator(TextWidthEstimator)
+     * @since POI 5.2.4
+     */
+    @Beta
+    public static TextWidthEstimator getTextWidthEstimator() {
+        return textWidthEstimator;
+    }
+
     /**
      * Check if the Fonts are installed correctly so that Java can compute the size of
      * columns.
@@ -354,6 +382,22 @@ public class SheetUtil {
         return (layout.getBounds().getWidth() > 0);
     }
 
+    /**
+     * Lay out the given text with the attributes of the given font
+     */
+    static TextLayout createTextLayout(String text, Font font) {
+        AttributedString str = new AttributedString(text);
+        copyAttributes(font, str, 0, text.length());
+        return new TextLayout(str.getIterator(), fontRenderContext);
+    }
+
+    /**
+     * @return the context, in which text is measured
+     */
+    static FontRenderContext getFontRenderContext() {
+        return fontRenderContext;
+    }
+
     /**
      * Copy text attributes from the supplied Font to Java2D AttributedString
      */
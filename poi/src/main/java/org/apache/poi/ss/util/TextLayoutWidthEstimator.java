@@ -0,0 +1,47 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.util;
+
+import java.awt.font.TextLayout;
+import java.awt.geom.Rectangle2D;
+
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.util.Beta;
+
+/**
+ * Measures each text with a {@link TextLayout}, which supports all scripts and bidirectional text,
+ * but is expensive to create.
+ * <p>
+ * This was the only way to measure the text of cells prior to POI 5.2.4.
+ *
+ * @see GlyphAdvanceWidthEstimator
+ * @since POI 5.2.4
+ */
+@Beta
+public final class TextLayoutWidthEstimator implements TextWidthEstimator {
+    @Override
+    public double getWidth(String text, Font font) {
+        if (text.isEmpty()) {
+            return 0;
+        }
+        TextLayout layout = SheetUtil.createTextLayout(text, font);
+        Rectangle2D bounds = layout.getBounds();
+        // the x-coordinate accounts for leading spaces, which are excluded from bounds.getWidth()
+        return bounds.getX() + bounds.getWidth();
+    }
+}
@@ -0,0 +1,45 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.util;
+
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.util.Beta;
+
+/**
+ * Measures the width of a single line of text for the automatic sizing of columns.
+ * <p>
+ * {@link SheetUtil} uses the estimator, which is set by {@link SheetUtil#setTextWidthEstimator(TextWidthEstimator)},
+ * for the unrotated text of the cells. The same estimator is used by all threads, so implementations need to be
+ * thread-safe.
+ *
+ * @see GlyphAdvanceWidthEstimator
+ * @see TextLayoutWidthEstimator
+ * @since POI 5.2.4
+ */
+@Beta
+public interface TextWidthEstimator {
+    /**
+     * Measures the given text, when it is drawn with the given font.
+     *
+     * @param text the text, which doesn't contain line breaks
+     * @param font the font of the text
+     * @return the distance in pixels from the start of the text to the right edge of its last visible glyph,
+     *      i.e. leading spaces are included in the width, but trailing spaces aren't
+     */
+    double getWidth(String text, Font font);
+}
@@ -0,0 +1,166 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.Random;
+
+import org.apache.poi.hssf.model.HSSFFormulaParser;
+import org.apache.poi.hssf.usermodel.HSSFFormulaEvaluator;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.formula.eval.NumberEval;
+import org.apache.poi.ss.formula.eval.ValueEval;
+import org.apache.poi.ss.formula.eval.forked.ForkedEvaluator;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellValue;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@link CompiledFormula} and {@link WorkbookEvaluator#setCompiledEvaluation(boolean)}
+ */
+final class TestCompiledFormula {
+    private static final int FORMULA_COLUMN = 7;
+    private static final String[] FORMULAS = {
+        "A1+B1*C1", "A1-A1", "-A1", "+B1", "C1%", "A1/B1", "A1/C1", "B1^0.5", "(-8)^(1/3)",
+        "0.1*3", "1/3*3", "A1*1E200*1E200",
+        "A1>B1", "A1=A1", "A1<>B1", "A1<=C1", "B1>=0",
+        "IF(A1>B1,A1,B1)", "IF(C1,1,2)", "IF(A1<0,TRUE)", "IF(A1>0,TRUE,FALSE)", "IF(A1>0,1,\"x\")",
+        "SUM(A1:C1)", "SUM(A1:C2)", "SUM(A1,B1,2,TRUE)", "AVERAGE(A1:C1)", "AVERAGE(E1:E2)",
+        "MIN(A1:C1,5)", "MAX(A1:C1)", "MAX(E1:E2)", "SUM(A2:D2)", "SUM(A1:A3)", "SUM(D1)",
+        "ABS(C1)", "SQRT(B1)", "SQRT(C1)", "EXP(1)", "LN(B1)", "INT(C1)", "ROUND(B1/7,2)",
+        "ROUNDUP(B1/7,1)", "ROUNDDOWN(B1/7,1)", "MOD(A1,3)", "MOD(A1,0)", "POWER(2,10)",
+        "A2+1", "D1+1", "D2*2", "E1+1", "A3*2", "Other!A1*2", "SUM(Other!A1:A2)",
+        "LEN(D1)", "A1&B1",
+    };
+
+    @Test
+    void compile() throws IOException {
+        try (HSSFWorkbook wb = createWorkbook(1)) {
+            assertTrue(compile(wb, "A1+B1*C1").isCompiled());
+            assertTrue(compile(wb, "IF(A1>B1,SUM(A1:C1),-ROUND(B1,2))").isCompiled());
+            assertTrue(compile(wb, "Other!A1*2").isCompiled());
+            // unsupported functions and operators
+            assertFalse(compile(wb, "LEN(D1)").isCompiled());
+            assertFalse(compile(wb, "A1&B1").isCompiled());
+            assertFalse(compile(wb, "\"a\"").isCompiled());
+            // areas are only supported as arguments of the aggregate functions
+            assertFalse(compile(wb, "ABS(A1:A2)").isCompiled());
+            // the result type of IF depends on the condition
+            assertFalse(compile(wb, "IF(A1>0,1,TRUE)").isCompiled());
+        }
+    }
+
+    @Test
+    void sameResultsAsInterpreted() throws IOException {
+        for (int seed = 1; seed <= 5; seed++) {
+            try (HSSFWorkbook interpreted = createWorkbook(seed);
+                 HSSFWorkbook compiled = createWorkbook(seed)) {
+                HSSFFormulaEvaluator interpreter = new HSSFFormulaEvaluator(interpreted);
+                HSSFFormulaEvaluator compiler = new HSSFFormulaEvaluator(compiled);
+                compiler.setCompiledEvaluation(true);
+
+                Sheet expectedSheet = interpreted.getSheet("Data");
+                Sheet actualSheet = compiled.getSheet("Data");
+                for (int i = 0; i < FORMULAS.length; i++) {
+                    CellValue expected = interpreter.evaluate(expectedSheet.getRow(i).getCell(FORMULA_COLUMN));
+                    CellValue actual = compiler.evaluate(actualSheet.getRow(i).getCell(FORMULA_COLUMN));
+                    assertEquals(expected.toString(), actual.toString(), FORMULAS[i] + " with seed " + seed);
+                }
+            }
+        }
+    }
+
+    @Test
+    void changedFormula() throws IOException {
+        try (HSSFWorkbook wb = createWorkbook(1)) {
+            HSSFFormulaEvaluator evaluator = new HSSFFormulaEvaluator(wb);
+            evaluator.setCompiledEvaluation(true);
+            Cell cell = wb.getSheet("Data").getRow(0).getCell(FORMULA_COLUMN);
+            cell.setCellFormula("2*3");
+            assertEquals(6.0, evaluator.evaluate(cell).getNumberValue(), 0.0);
+
+            cell.setCellFormula("2+3");
+            evaluator.notifySetFormula(cell);
+            assertEquals(5.0, evaluator.evaluate(cell).getNumberValue(), 0.0);
+        }
+    }
+
+    @Test
+    void forkedEvaluator() throws IOException {
+        try (HSSFWorkbook wb = createWorkbook(1)) {
+            ForkedEvaluator interpreter = ForkedEvaluator.create(wb, null, null);
+            ForkedEvaluator compiler = ForkedEvaluator.create(wb, null, null);
+            compiler.setCompiledEvaluation(true);
+
+            Random random = new Random(42);
+            for (int run = 0; run < 50; run++) {
+                NumberEval a1 = new NumberEval(Math.floor(random.nextDouble() * 200 - 100));
+                NumberEval b1 = new NumberEval(random.nextDouble() * 10);
+                interpreter.updateCell("Data", 0, 0, a1);
+                compiler.updateCell("Data", 0, 0, a1);
+                interpreter.updateCell("Data", 0, 1, b1);
+                compiler.updateCell("Data", 0, 1, b1);
+                for (int i = 0; i < FORMULAS.length; i++) {
+                    ValueEval expected = interpreter.evaluate("Data", i, FORMULA_COLUMN);
+                    ValueEval actual = compiler.evaluate("Data", i, FORMULA_COLUMN);
+                    assertEquals(expected.toString(), actual.toString(), FORMULAS[i] + " in run " + run);
+                }
+            }
+        }
+    }
+
+    private static CompiledFormula compile(HSSFWorkbook wb, String formula) {
+        return CompiledFormula.compile(HSSFFormulaParser.parse(formula, wb, FormulaType.CELL, 1));
+    }
+
+    /**
+     * Creates a workbook with numbers, blanks, a text, a boolean and an error in the sheet "Data"
+     * and the {@link #FORMULAS} in the column {@link #FORMULA_COLUMN} of the same sheet
+     */
+    private static HSSFWorkbook createWorkbook(int seed) {
+        Random random = new Random(seed);
+        HSSFWorkbook wb = new HSSFWorkbook();
+        Sheet data = wb.createSheet("Data");
+        Row row1 = data.createRow(0);
+        row1.createCell(0).setCellValue(Math.floor(random.nextDouble() * 200 - 100));
+        row1.createCell(1).setCellValue(random.nextDouble() * 10);
+        row1.createCell(2).setCellValue(random.nextInt(5) - 2);
+        row1.createCell(3).setCellValue("text");
+        Row row2 = data.createRow(1);
+        row2.createCell(0).setCellValue(true);
+        row2.createCell(1).setCellValue(random.nextDouble());
+        row2.createCell(3).setCellFormula("1/0");
+        data.createRow(2).createCell(0).setCellFormula("A1*B1");
+
+        Sheet other = wb.createSheet("Other");
+        other.createRow(0).createCell(0).setCellValue(random.nextInt(100));
+        other.createRow(1).createCell(0).setCellValue(random.nextInt(100));
+
+        for (int i = 0; i < FORMULAS.length; i++) {
+            Row row = i < 3 ? data.getRow(i) : data.createRow(i);
+            row.createCell(FORMULA_COLUMN).setCellFormula(FORMULAS[i]);
+        }
+        return wb;
+    }
+}
@@ -0,0 +1,183 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.Name;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.util.AreaReference;
+import org.apache.poi.ss.util.CellReference;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@link FormulaDependencyGraph}
+ */
+final class TestFormulaDependencyGraph {
+
+    @Test
+    void queries() throws IOException {
+        try (Workbook wb = createWorkbook()) {
+            FormulaDependencyGraph graph = FormulaDependencyGraph.create(wb);
+            assertEquals(10, graph.getFormulaCellCount());
+            assertEquals("[Sheet1!B1, Sheet1!D1, Sheet1!B2, Sheet1!A3, Sheet2!A1, Sheet2!D1, Sheet2!A2, Sheet2!C5, Sheet2!C6, Sheet2!C7]",
+                format(graph.getFormulaCells()));
+
+            assertEquals("[Sheet1!A1:A2]", formatAreas(graph.getPrecedents(ref("Sheet1!A3"))));
+            // the name is resolved to its area
+            assertEquals("[Sheet2!A1, Sheet1!A3]", formatAreas(graph.getPrecedents(ref("Sheet1!B2"))));
+            // a 3D reference has an area per sheet
+            assertEquals("[Sheet1!C1, Sheet2!C1]", formatAreas(graph.getPrecedents(ref("Sheet2!A2"))));
+            assertEquals("[]", formatAreas(graph.getPrecedents(ref("Sheet1!A1"))));
+
+            assertEquals("[Sheet1!D1, Sheet1!A3]", format(graph.getDependents(ref("Sheet1!A1"))));
+            assertEquals("[Sheet1!D1]", format(graph.getDependents(ref("Sheet1!A1000"))));
+            assertEquals("[Sheet2!A2]", format(graph.getDependents(ref("Sheet1!C1"))));
+            assertEquals("[Sheet2!A2]", format(graph.getDependents(ref("sheet2!C1"))));
+            assertEquals("[]", format(graph.getDependents(ref("Sheet1!E1"))));
+
+            assertEquals("[Sheet1!B1, Sheet1!D1, Sheet1!B2, Sheet1!A3, Sheet2!A1, Sheet2!D1]",
+                format(graph.getAllDependents(ref("Sheet1!A1"))));
+
+            assertThrows(IllegalArgumentException.class, () -> graph.getDependents(new CellReference("A1")));
+            assertThrows(IllegalArgumentException.class, () -> graph.getDependents(ref("Sheet3!A1")));
+        }
+    }
+
+    @Test
+    void cycles() throws IOException {
+        try (Workbook wb = createWorkbook()) {
+            FormulaDependencyGraph graph = FormulaDependencyGraph.create(wb);
+            List<String> cycles = graph.getCycles().stream().map(TestFormulaDependencyGraph::format).collect(Collectors.toList());
+            assertEquals("[[Sheet2!C5, Sheet2!C6], [Sheet2!C7]]", cycles.toString());
+        }
+    }
+
+    @Test
+    void write() throws IOException {
+        try (Workbook wb = createWorkbook()) {
+            StringBuilder sb = new StringBuilder();
+            FormulaDependencyGraph.create(wb).write(sb);
+            String[] lines = sb.toString().split("\n");
+            assertEquals(12, lines.length);
+            assertEquals("Sheet1!B1\tSheet1!A3", lines[0]);
+            assertEquals("Sheet1!D1\tSheet1!A:A", lines[1]);
+            assertEquals("Sheet1!A3\tSheet1!A1:A2", lines[4]);
+            assertEquals("Sheet2!A2\tSheet1!C1", lines[7]);
+            assertEquals("Sheet2!A2\tSheet2!C1", lines[8]);
+        }
+    }
+
+    /**
+     * Compares the dependents of the interval trees with a linear search through the precedents
+     */
+    @Test
+    void sameDependentsAsLinearSearch() throws IOException {
+        Random random = new Random(42);
+        try (Workbook wb = new HSSFWorkbook()) {
+            Sheet sheet = wb.createSheet("Data");
+            for (int r = 0; r < 300; r++) {
+                Row row = sheet.createRow(r);
+                int firstRow = random.nextInt(1000);
+                int lastRow = firstRow + random.nextInt(r % 10 == 0 ? 1000 : 20);
+                int firstColumn = random.nextInt(20);
+                int lastColumn = firstColumn + random.nextInt(5);
+                row.createCell(30).setCellFormula("SUM(" + new CellReference(firstRow, firstColumn).formatAsString()
+                    + ":" + new CellReference(lastRow, lastColumn).formatAsString() + ")");
+            }
+
+            FormulaDependencyGraph graph = FormulaDependencyGraph.create(wb);
+            List<CellReference> cells = graph.getFormulaCells();
+            List<AreaReference> areas = new ArrayList<>();
+            for (CellReference cell : cells) {
+                areas.add(graph.getPrecedents(cell).get(0));
+            }
+            for (int i = 0; i < 500; i++) {
+                CellReference cell = new CellReference("Data", random.nextInt(2100), random.nextInt(26), false, false);
+                List<CellReference> expected = new ArrayList<>();
+                for (int j = 0; j < cells.size(); j++) {
+                    AreaReference area = areas.get(j);
+                    CellReference first = area.getFirstCell();
+                    CellReference last = area.getLastCell();
+                    if (first.getRow() <= cell.getRow() && cell.getRow() <= last.getRow()
+                        && first.getCol() <= cell.getCol() && cell.getCol() <= last.getCol()) {
+                        expected.add(cells.get(j));
+                    }
+                }
+                assertEquals(format(expected), format(graph.getDependents(cell)), cell.formatAsString());
+            }
+            assertTrue(graph.getCycles().isEmpty());
+        }
+    }
+
+    /**
+     * Creates a workbook with references within and across sheets, 3D references, whole columns,
+     * a defined name and circular references
+     */
+    private static Workbook createWorkbook() {
+        Workbook wb = new HSSFWorkbook();
+        Sheet sheet1 = wb.createSheet("Sheet1");
+        Sheet sheet2 = wb.createSheet("Sheet2");
+        Name name = wb.createName();
+        name.setNameName("Total");
+        name.setRefersToFormula("Sheet1!$A$3");
+
+        Row row = sheet1.createRow(0);
+        row.createCell(0).setCellValue(1);
+        row.createCell(1).setCellFormula("A3*2");
+        row.createCell(2).setCellValue(3);
+        row.createCell(3).setCellFormula("SUM(A:A)");
+        row = sheet1.createRow(1);
+        row.createCell(0).setCellValue(2);
+        row.createCell(1).setCellFormula("Sheet2!A1+Total");
+        sheet1.createRow(2).createCell(0).setCellFormula("SUM(A1:A2)");
+
+        row = sheet2.createRow(0);
+        row.createCell(0).setCellFormula("Sheet1!B1+1");
+        row.createCell(2).setCellValue(4);
+        row.createCell(3).setCellFormula("A1");
+        sheet2.createRow(1).createCell(0).setCellFormula("SUM(Sheet1:Sheet2!C1)");
+        sheet2.createRow(4).createCell(2).setCellFormula("C6");
+        sheet2.createRow(5).createCell(2).setCellFormula("C5+1");
+        sheet2.createRow(6).createCell(2).setCellFormula("C7");
+        return wb;
+    }
+
+    private static CellReference ref(String reference) {
+        return new CellReference(reference);
+    }
+
+    private static String format(List<CellReference> cells) {
+        return cells.stream().map(CellReference::formatAsString).collect(Collectors.toList()).toString();
+    }
+
+    private static String formatAreas(List<AreaReference> areas) {
+        return areas.stream().map(AreaReference::formatAsString).collect(Collectors.toList()).toString();
+    }
+}
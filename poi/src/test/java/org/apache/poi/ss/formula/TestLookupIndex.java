@@ -0,0 +1,250 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+
+import org.apache.poi.hssf.usermodel.HSSFFormulaEvaluator;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.formula.eval.BlankEval;
+import org.apache.poi.ss.formula.eval.BoolEval;
+import org.apache.poi.ss.formula.eval.ErrorEval;
+import org.apache.poi.ss.formula.eval.NotImplementedException;
+import org.apache.poi.ss.formula.eval.NumberEval;
+import org.apache.poi.ss.formula.eval.StringEval;
+import org.apache.poi.ss.formula.eval.ValueEval;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellValue;
+import org.apache.poi.ss.usermodel.FormulaError;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.util.CellReference;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@link LookupIndex} and the indexed lookups of the {@link WorkbookEvaluator}
+ */
+final class TestLookupIndex {
+    private static final int ROWS = 100;
+    private static final String[] LOOKUP_VALUES = {
+        "3", "3.5", "42", "\"text2\"", "\"TEXT4\"", "\"Text\"", "\"te*\"", "\"5\"", "\"7\"", "TRUE", "FALSE", "Data!C1", "Data!D1",
+    };
+    private static final String[] FORMULAS = {
+        "VLOOKUP(%s,Data!A1:B100,2,FALSE)", "VLOOKUP(%s,Data!A:B,2,0)", "HLOOKUP(%s,Row!A1:CV2,2,FALSE)",
+        "MATCH(%s,Data!A1:A100,0)", "MATCH(%s,Row!A1:CV1,0)", "_xlfn.XLOOKUP(%s,Data!A1:A100,Data!B1:B100)",
+        "COUNTIF(Data!A1:A100,%s)", "COUNTIF(Row!A1:CV1,%s)", "SUMIFS(Data!B1:B100,Data!A1:A100,%s)",
+        "COUNTIFS(Data!A1:A100,%s,Data!B1:B100,\">20\")", "SUMIFS(Data!B1:B100,Data!B1:B100,\"<50\",Data!A1:A100,%s)",
+        "COUNTIF(Data!A1:A100,\"<>\"&%s)",
+    };
+
+    @Test
+    void index() {
+        LookupIndex index = new LookupIndex(7);
+        index.add(0, new NumberEval(1));
+        index.add(1, new StringEval("Abc"));
+        index.add(2, BlankEval.instance);
+        index.add(3, new StringEval("1"));
+        index.add(4, BoolEval.TRUE);
+        index.add(5, new NumberEval(1));
+        index.add(6, ErrorEval.NA);
+
+        assertEquals(7, index.getSize());
+        assertEquals(0, index.indexOf(new NumberEval(1)));
+        assertEquals(-1, index.indexOf(new NumberEval(2)));
+        assertEquals(1, index.indexOf(new StringEval("aBC")));
+        assertEquals(3, index.indexOf(new StringEval("1")));
+        assertEquals(4, index.indexOf(BoolEval.TRUE));
+        assertEquals(-1, index.indexOf(BoolEval.FALSE));
+
+        assertArrayEquals(new int[]{0, 5}, index.getNumberPositions(1, false));
+        assertArrayEquals(new int[]{0, 3, 5}, index.getNumberPositions(1, true));
+        assertArrayEquals(new int[]{}, index.getNumberPositions(-1, true));
+        assertArrayEquals(new int[]{1}, index.getTextPositions("ABC"));
+        assertArrayEquals(new int[]{4}, index.getBooleanPositions(true));
+    }
+
+    @Test
+    void sameResultsAsLinearSearch() throws IOException {
+        try (HSSFWorkbook wb = createWorkbook()) {
+            HSSFFormulaEvaluator indexed = new HSSFFormulaEvaluator(wb);
+            // the ranges are searched linearly with an evaluation listener
+            WorkbookEvaluator linear = WorkbookEvaluatorTestHelper.createEvaluator(wb, new EvaluationListener() {});
+            Sheet sheet = wb.getSheet("Formulas");
+            for (int i = 0; i < FORMULAS.length; i++) {
+                for (int j = 0; j < LOOKUP_VALUES.length; j++) {
+                    String formula = String.format(FORMULAS[i], LOOKUP_VALUES[j]);
+                    Cell cell = sheet.getRow(i).getCell(j);
+                    CellValue actual = indexed.evaluate(cell);
+                    ValueEval expected = WorkbookEvaluator.dereferenceResult(
+                        linear.evaluate(formula, new CellReference(cell)), cell.getRowIndex(), cell.getColumnIndex());
+                    assertEquals(toCellValue(expected).toString(), actual.toString(), formula);
+                }
+            }
+        }
+    }
+
+    @Test
+    void updatedRange() throws IOException {
+        try (HSSFWorkbook wb = createWorkbook()) {
+            HSSFFormulaEvaluator evaluator = new HSSFFormulaEvaluator(wb);
+            Sheet data = wb.getSheet("Data");
+            Cell vlookup = wb.getSheet("Formulas").getRow(0).getCell(2);
+            Cell countif = wb.getSheet("Formulas").getRow(6).getCell(2);
+            assertEquals(43.0, evaluator.evaluate(vlookup).getNumberValue(), 0.0);
+            assertEquals(1.0, evaluator.evaluate(countif).getNumberValue(), 0.0);
+
+            // a new value in a blank cell
+            Cell blank = data.getRow(2).createCell(0);
+            blank.setCellValue(42);
+            evaluator.notifyUpdateCell(blank);
+            assertEquals(3.0, evaluator.evaluate(vlookup).getNumberValue(), 0.0);
+            assertEquals(2.0, evaluator.evaluate(countif).getNumberValue(), 0.0);
+
+            // a changed value
+            blank.setCellValue("42");
+            evaluator.notifyUpdateCell(blank);
+            assertEquals(43.0, evaluator.evaluate(vlookup).getNumberValue(), 0.0);
+            assertEquals(2.0, evaluator.evaluate(countif).getNumberValue(), 0.0);
+
+            // a changed input of a formula in the range
+            Cell input = data.getRow(0).getCell(2);
+            input.setCellValue(41);
+            evaluator.notifyUpdateCell(input);
+            assertEquals(FormulaError.NA.getCode(), evaluator.evaluate(vlookup).getErrorValue());
+            assertEquals(1.0, evaluator.evaluate(countif).getNumberValue(), 0.0);
+
+            // a changed formula in the range
+            Cell formula = data.getRow(42).getCell(0);
+            formula.setCellFormula("C1+1");
+            evaluator.notifySetFormula(formula);
+            assertEquals(43.0, evaluator.evaluate(vlookup).getNumberValue(), 0.0);
+            assertEquals(2.0, evaluator.evaluate(countif).getNumberValue(), 0.0);
+        }
+    }
+
+    @Test
+    void lookupOfOwnRange() throws IOException {
+        try (HSSFWorkbook wb = createWorkbook()) {
+            HSSFFormulaEvaluator evaluator = new HSSFFormulaEvaluator(wb);
+            Sheet data = wb.getSheet("Data");
+            // the lookup is found before its own cell, so there is no circular reference
+            Cell cell = data.getRow(ROWS - 1).getCell(0);
+            cell.setCellFormula("MATCH(3,A1:A100,0)");
+            evaluator.notifySetFormula(cell);
+            assertEquals(44.0, evaluator.evaluate(cell).getNumberValue(), 0.0);
+
+            // the own cell is searched, if the value isn't found before
+            cell.setCellFormula("MATCH(99,A1:A100,0)");
+            evaluator.notifySetFormula(cell);
+            assertEquals(FormulaError.NA.getCode(), evaluator.evaluate(cell).getErrorValue());
+        }
+    }
+
+    @Test
+    void rangeWithFailingCell() throws IOException {
+        try (HSSFWorkbook wb = createWorkbook()) {
+            HSSFFormulaEvaluator evaluator = new HSSFFormulaEvaluator(wb);
+            Sheet data = wb.getSheet("Data");
+            // the function isn't implemented, the cell after the match can't be evaluated
+            data.getRow(ROWS - 1).getCell(0).setCellFormula("ERFC(1)");
+            Cell match = wb.getSheet("Formulas").getRow(3).getCell(2);
+            assertEquals(43.0, evaluator.evaluate(match).getNumberValue(), 0.0);
+            Cell vlookup = wb.getSheet("Formulas").getRow(0).getCell(2);
+            assertEquals(43.0, evaluator.evaluate(vlookup).getNumberValue(), 0.0);
+
+            // the linear search still fails, if the cell is reached
+            Cell countif = wb.getSheet("Formulas").getRow(6).getCell(2);
+            assertThrows(NotImplementedException.class, () -> evaluator.evaluate(countif));
+        }
+    }
+
+    private static CellValue toCellValue(ValueEval eval) {
+        if (eval instanceof NumberEval) {
+            return new CellValue(((NumberEval) eval).getNumberValue());
+        }
+        if (eval instanceof StringEval) {
+            return new CellValue(((StringEval) eval).getStringValue());
+        }
+        if (eval instanceof BoolEval) {
+            return CellValue.valueOf(((BoolEval) eval).getBooleanValue());
+        }
+        return CellValue.getError(((ErrorEval) eval).getErrorCode());
+    }
+
+    /**
+     * Creates a workbook with numbers, texts, numeric texts, booleans, blanks and errors in the first column
+     * of the sheet "Data" and the first row of the sheet "Row" and the {@link #FORMULAS} with each of the {@link #LOOKUP_VALUES}
+     * in the sheet "Formulas"
+     */
+    private static HSSFWorkbook createWorkbook() {
+        HSSFWorkbook wb = new HSSFWorkbook();
+        Sheet data = wb.createSheet("Data");
+        for (int i = 0; i < ROWS; i++) {
+            data.createRow(i);
+        }
+        Sheet rows = wb.createSheet("Row");
+        Row row1 = rows.createRow(0);
+        Row row2 = rows.createRow(1);
+        for (int i = 0; i < ROWS; i++) {
+            setValue(data.getRow(i).createCell(0), i);
+            data.getRow(i).createCell(1).setCellValue(i + 1);
+            setValue(row1.createCell(i), i);
+            row2.createCell(i).setCellValue(i + 1);
+        }
+        data.getRow(0).createCell(2).setCellValue(42);
+        data.getRow(42).getCell(0).setCellFormula("C1");
+
+        Sheet formulas = wb.createSheet("Formulas");
+        for (int i = 0; i < FORMULAS.length; i++) {
+            Row row = formulas.createRow(i);
+            for (int j = 0; j < LOOKUP_VALUES.length; j++) {
+                row.createCell(j).setCellFormula(String.format(FORMULAS[i], LOOKUP_VALUES[j]));
+            }
+        }
+        return wb;
+    }
+
+    private static void setValue(Cell cell, int i) {
+        switch (i % 7) {
+            case 0:
+                cell.setCellValue(i % 2 == 0 ? "TEXT" + (i % 5) : "text" + (i % 5));
+                break;
+            case 1:
+                cell.setCellValue(i % 10);
+                break;
+            case 2:
+                cell.setBlank();
+                break;
+            case 3:
+                cell.setCellValue(i % 2 == 0);
+                break;
+            case 4:
+                cell.setCellValue(String.valueOf(i % 10));
+                break;
+            case 5:
+                cell.setCellValue(i % 10 + 0.5);
+                break;
+            default:
+                cell.setCellFormula("1/0");
+        }
+    }
+}
@@ -0,0 +1,231 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.apache.poi.hssf.usermodel.HSSFEvaluationWorkbook;
+import org.apache.poi.hssf.usermodel.HSSFFormulaEvaluator;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.FormulaError;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.util.IntList;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@link WorkbookEvaluator#evaluateAll(java.util.Collection, ForkJoinPool)}
+ */
+final class TestParallelEvaluation {
+    private static final int ROWS = 2000;
+
+    private static ForkJoinPool pool;
+
+    @BeforeAll
+    static void setUp() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterAll
+    static void tearDown() {
+        pool.shutdown();
+    }
+
+    @Test
+    void sameResultsAsSequential() throws IOException {
+        try (HSSFWorkbook sequential = createWorkbook();
+             HSSFWorkbook parallel = createWorkbook()) {
+            new HSSFFormulaEvaluator(sequential).evaluateAll();
+            new HSSFFormulaEvaluator(parallel).evaluateAll(pool);
+            assertSameResults(sequential, parallel);
+        }
+    }
+
+    @Test
+    void repeatedEvaluation() throws IOException {
+        try (HSSFWorkbook wb = createWorkbook()) {
+            HSSFFormulaEvaluator evaluator = new HSSFFormulaEvaluator(wb);
+            evaluator.evaluateAll(pool);
+            Cell input = wb.getSheet("Data").getRow(0).getCell(0);
+            input.setCellValue(1000);
+            evaluator.notifyUpdateCell(input);
+            evaluator.evaluateAll(pool);
+
+            try (HSSFWorkbook expected = createWorkbook()) {
+                expected.getSheet("Data").getRow(0).getCell(0).setCellValue(1000);
+                new HSSFFormulaEvaluator(expected).evaluateAll();
+                assertSameResults(expected, wb);
+            }
+        }
+    }
+
+    @Test
+    void strata() throws IOException {
+        try (HSSFWorkbook wb = new HSSFWorkbook()) {
+            Row row = wb.createSheet().createRow(0);
+            row.createCell(0).setCellValue(1);
+            row.createCell(1).setCellFormula("A1");
+            row.createCell(2).setCellFormula("B1+1");
+            row.createCell(3).setCellFormula("SUM(B1:C1)");
+            row.createCell(4).setCellFormula("E1+1");
+            row.createCell(5).setCellFormula("E1*2");
+            row.createCell(6).setCellFormula("A1*3");
+
+            WorkbookEvaluator evaluator = new WorkbookEvaluator(HSSFEvaluationWorkbook.create(wb), null, null);
+            FormulaCellGraph graph = new FormulaCellGraph(evaluator, getFormulaCells(wb));
+            IntList cyclic = new IntList();
+            List<int[]> strata = graph.getStrata(cyclic);
+
+            assertEquals(3, strata.size());
+            // B1, G1
+            assertArrayEquals(new int[]{0, 5}, strata.get(0));
+            // C1
+            assertArrayEquals(new int[]{1}, strata.get(1));
+            // D1
+            assertArrayEquals(new int[]{2}, strata.get(2));
+            // E1 references itself and F1 depends on E1
+            assertArrayEquals(new int[]{3, 4}, cyclic.toArray());
+        }
+    }
+
+    @Test
+    void strataOfOverlappingAreas() throws IOException {
+        try (HSSFWorkbook wb = new HSSFWorkbook()) {
+            Sheet sheet = wb.createSheet();
+            for (int i = 0; i < 100; i++) {
+                Row row = sheet.createRow(i);
+                row.createCell(0).setCellValue(i);
+                // running total over the formula cells of column B
+                row.createCell(1).setCellFormula("A" + (i + 1) + "*2");
+                row.createCell(2).setCellFormula("SUM(B$1:B" + (i + 1) + ")");
+            }
+            sheet.createRow(100).createCell(2).setCellFormula("SUM(C1:C100)");
+
+            WorkbookEvaluator evaluator = new WorkbookEvaluator(HSSFEvaluationWorkbook.create(wb), null, null);
+            FormulaCellGraph graph = new FormulaCellGraph(evaluator, getFormulaCells(wb));
+            IntList cyclic = new IntList();
+            List<int[]> strata = graph.getStrata(cyclic);
+
+            assertEquals(0, cyclic.size());
+            assertEquals(3, strata.size());
+            assertEquals(100, strata.get(0).length);
+            assertEquals(100, strata.get(1).length);
+            assertEquals(1, strata.get(2).length);
+        }
+    }
+
+    @Test
+    void circularReferences() throws IOException {
+        try (HSSFWorkbook wb = new HSSFWorkbook()) {
+            Row row = wb.createSheet().createRow(0);
+            row.createCell(0).setCellFormula("B1+1");
+            row.createCell(1).setCellFormula("A1+1");
+            row.createCell(2).setCellFormula("A1*2");
+            row.createCell(3).setCellFormula("7");
+
+            new HSSFFormulaEvaluator(wb).evaluateAll(pool);
+            for (int i = 0; i < 3; i++) {
+                assertEquals(CellType.ERROR, row.getCell(i).getCachedFormulaResultType());
+                assertEquals(FormulaError.CIRCULAR_REF.getCode(), row.getCell(i).getErrorCellValue());
+            }
+            assertEquals(7, row.getCell(3).getNumericCellValue(), 0);
+        }
+    }
+
+    private static HSSFWorkbook createWorkbook() {
+        HSSFWorkbook wb = new HSSFWorkbook();
+        Sheet data = wb.createSheet("Data");
+        for (int i = 0; i < ROWS; i++) {
+            int r = i + 1;
+            Row row = data.createRow(i);
+            row.createCell(0).setCellValue(i % 17);
+            row.createCell(1).setCellFormula("A" + r + "*2+0.5");
+            // a long chain of dependencies
+            row.createCell(2).setCellFormula(i == 0 ? "B1" : "C" + i + "+B" + r);
+            // overlapping areas
+            row.createCell(3).setCellFormula("SUM(B$1:B" + r + ")");
+            row.createCell(4).setCellFormula("IF(MOD(A" + r + ",2)=0,TEXT(D" + r + ",\"0.00\"),FACT(A" + r + "))");
+            // dynamic reference
+            row.createCell(5).setCellFormula("INDIRECT(\"B\"&" + r + ")+D" + r);
+        }
+        Sheet summary = wb.createSheet("Summary");
+        Row row = summary.createRow(0);
+        row.createCell(0).setCellFormula("SUM(Data!D1:D" + ROWS + ")");
+        row.createCell(1).setCellFormula("Data!C" + ROWS + "/A1");
+        row.createCell(2).setCellFormula("VLOOKUP(5,Data!A1:F" + ROWS + ",6,FALSE)");
+        row.createCell(3).setCellFormula("COUNTIF(Data!E1:E" + ROWS + ",\">100\")");
+        return wb;
+    }
+
+    private static List<EvaluationCell> getFormulaCells(HSSFWorkbook wb) {
+        EvaluationWorkbook evalWorkbook = HSSFEvaluationWorkbook.create(wb);
+        List<EvaluationCell> cells = new ArrayList<>();
+        for (int i = 0; i < wb.getNumberOfSheets(); i++) {
+            EvaluationSheet evalSheet = evalWorkbook.getSheet(i);
+            for (Row row : wb.getSheetAt(i)) {
+                for (Cell cell : row) {
+                    if (cell.getCellType() == CellType.FORMULA) {
+                        cells.add(evalSheet.getCell(cell.getRowIndex(), cell.getColumnIndex()));
+                    }
+                }
+            }
+        }
+        return cells;
+    }
+
+    private static void assertSameResults(Workbook expected, Workbook actual) {
+        for (int i = 0; i < expected.getNumberOfSheets(); i++) {
+            for (Row row : expected.getSheetAt(i)) {
+                Row actualRow = actual.getSheetAt(i).getRow(row.getRowNum());
+                for (Cell cell : row) {
+                    Cell actualCell = actualRow.getCell(cell.getColumnIndex());
+                    if (cell.getCellType() != CellType.FORMULA) {
+                        continue;
+                    }
+                    String ref = cell.getAddress().formatAsString();
+                    assertEquals(cell.getCachedFormulaResultType(), actualCell.getCachedFormulaResultType(), ref);
+                    switch (cell.getCachedFormulaResultType()) {
+                        case NUMERIC:
+                            assertEquals(cell.getNumericCellValue(), actualCell.getNumericCellValue(), 0, ref);
+                            break;
+                        case STRING:
+                            assertEquals(cell.getStringCellValue(), actualCell.getStringCellValue(), ref);
+                            break;
+                        case ERROR:
+                            assertEquals(cell.getErrorCellValue(), actualCell.getErrorCellValue(), ref);
+                            break;
+                        default:
+                            assertEquals(cell.toString(), actualCell.toString(), ref);
+                            break;
+                    }
+                }
+            }
+        }
+    }
+}
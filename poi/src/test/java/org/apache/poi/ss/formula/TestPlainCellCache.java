@@ -22,6 +22,11 @@ package org.apache.poi.ss.formula;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
 
 import org.apache.poi.ss.formula.PlainCellCache.Loc;
 import org.apache.poi.ss.formula.eval.NumberEval;
@@ -46,14 +51,15 @@ class TestPlainCellCache {
                         assertEquals(loc.hashCode(), sameLoc.hashCode());
                         assertEquals(loc, sameLoc);
 
-                        assertNull(cache.get(loc));
+                        long key = loc.getKey();
+                        assertNull(cache.get(key));
                         PlainValueCellCacheEntry entry = new PlainValueCellCacheEntry(new NumberEval(0));
-                        cache.put(loc, entry);
-                        assertSame(entry, cache.get(loc));
-                        cache.remove(loc);
-                        assertNull(cache.get(loc));
+                        cache.put(key, entry);
+                        assertSame(entry, cache.get(key));
+                        cache.remove(key);
+                        assertNull(cache.get(key));
 
-                        cache.put(loc, entry);
+                        cache.put(key, entry);
                     }
                     cache.clear();
                 }
@@ -61,4 +67,44 @@ class TestPlainCellCache {
 
         }
     }
+
+    @Test
+    void testMaxLocation() {
+        Loc loc = new Loc(0x3FFF, 0xFFFF, 0xFFFFF, 0x3FFF);
+        assertEquals(0x3FFF, loc.getBookIndex());
+        assertEquals(0xFFFF, loc.getSheetIndex());
+        assertEquals(0xFFFFF, loc.getRowIndex());
+        assertEquals(0x3FFF, loc.getColumnIndex());
+        assertThrows(IllegalArgumentException.class, () -> PlainCellCache.toKey(0, 0, 0x100000, 0));
+        assertThrows(IllegalArgumentException.class, () -> PlainCellCache.toKey(0, -1, 0, 0));
+    }
+
+    @Test
+    void testPutAndRemove() {
+        PlainCellCache cache = new PlainCellCache();
+        Map<Long, PlainValueCellCacheEntry> expected = new HashMap<>();
+        Random random = new Random(1234);
+        for (int i = 0; i < 100000; i++) {
+            long key = PlainCellCache.toKey(0, random.nextInt(3), random.nextInt(200), random.nextInt(50));
+            if (random.nextInt(3) == 0) {
+                cache.remove(key);
+                expected.remove(key);
+            } else {
+                PlainValueCellCacheEntry entry = new PlainValueCellCacheEntry(new NumberEval(i));
+                PlainValueCellCacheEntry previous = cache.putIfAbsent(key, entry);
+                assertSame(expected.get(key), previous);
+                if (previous == null) {
+                    expected.put(key, entry);
+                }
+            }
+        }
+        for (int sheetIndex = 0; sheetIndex < 3; sheetIndex++) {
+            for (int rowIndex = 0; rowIndex < 200; rowIndex++) {
+                for (int columnIndex = 0; columnIndex < 50; columnIndex++) {
+                    long key = PlainCellCache.toKey(0, sheetIndex, rowIndex, columnIndex);
+                    assertSame(expected.get(key), cache.get(key));
+                }
+            }
+        }
+    }
 }
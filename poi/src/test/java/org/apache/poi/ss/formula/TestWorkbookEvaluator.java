@@ -26,6 +26,9 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 import org.apache.poi.hssf.HSSFTestDataSamples;
 import org.apache.poi.hssf.usermodel.HSSFCell;
@@ -641,4 +644,72 @@ class TestWorkbookEvaluator {
         assertEquals(0,cellB3.getNumericCellValue(), 0.00001);
         assertEquals("3",cellC3.getStringCellValue());
     }
+
+    @Test
+    void testRecalculateDirty() throws IOException {
+        try (HSSFWorkbook wb = new HSSFWorkbook()) {
+            HSSFSheet sheet = wb.createSheet("Sheet1");
+            HSSFRow row = sheet.createRow(0);
+            HSSFCell cellA1 = row.createCell(0);
+            HSSFCell cellB1 = row.createCell(1);
+            cellA1.setCellValue(2);
+            cellB1.setCellValue(3);
+            HSSFCell cellC1 = row.createCell(2);
+            cellC1.setCellFormula("A1*2");
+            HSSFCell cellD1 = row.createCell(3);
+            cellD1.setCellFormula("C1+B1");
+            HSSFCell cellE1 = row.createCell(4);
+            cellE1.setCellFormula("MIN(C1,1)");
+            HSSFCell cellF1 = row.createCell(5);
+            cellF1.setCellFormula("B1*2");
+
+            HSSFFormulaEvaluator fe = new HSSFFormulaEvaluator(wb);
+            // the invalidated cells aren't collected by default
+            assertThrows(IllegalStateException.class, fe::recalculateDirty);
+            fe.setDirtyCellTracking(true);
+            fe.evaluateAll();
+            assertTrue(fe.recalculateDirty().isEmpty());
+
+            // C1, D1 and E1 are recalculated, but E1 doesn't change
+            cellA1.setCellValue(6);
+            fe.notifyUpdateCell(cellA1);
+            assertEquals(Arrays.asList(cellC1, cellD1), fe.recalculateDirty());
+            assertEquals(12, cellC1.getNumericCellValue(), EPSILON);
+            assertEquals(15, cellD1.getNumericCellValue(), EPSILON);
+            assertEquals(1, cellE1.getNumericCellValue(), EPSILON);
+            assertTrue(fe.recalculateDirty().isEmpty());
+
+            // an unchanged value doesn't change any result
+            fe.notifyUpdateCell(cellB1);
+            assertTrue(fe.recalculateDirty().isEmpty());
+
+            // updated formula cells are recalculated too
+            cellF1.setCellFormula("B1*3");
+            fe.notifySetFormula(cellF1);
+            cellC1.setCellFormula("A1");
+            fe.notifySetFormula(cellC1);
+            List<Cell> changed = fe.recalculateDirty();
+            assertEquals(3, changed.size());
+            assertTrue(changed.containsAll(Arrays.asList(cellC1, cellD1, cellF1)));
+            assertEquals(9, cellF1.getNumericCellValue(), EPSILON);
+            assertEquals(9, cellD1.getNumericCellValue(), EPSILON);
+            assertEquals(1, cellE1.getNumericCellValue(), EPSILON);
+
+            // deleted formula cells are not recalculated
+            cellB1.setCellValue(4);
+            fe.notifyUpdateCell(cellB1);
+            fe.notifyDeleteCell(cellF1);
+            row.removeCell(cellF1);
+            assertEquals(Collections.singletonList(cellD1), fe.recalculateDirty());
+            assertEquals(10, cellD1.getNumericCellValue(), EPSILON);
+
+            // disabling the tracking discards the collected cells
+            cellA1.setCellValue(1);
+            fe.notifyUpdateCell(cellA1);
+            fe.setDirtyCellTracking(false);
+            assertThrows(IllegalStateException.class, fe::recalculateDirty);
+            fe.setDirtyCellTracking(true);
+            assertTrue(fe.recalculateDirty().isEmpty());
+        }
+    }
 }
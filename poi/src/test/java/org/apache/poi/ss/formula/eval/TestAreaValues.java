@@ -0,0 +1,194 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula.eval;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.io.IOException;
+
+import org.apache.poi.hssf.usermodel.HSSFFormulaEvaluator;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.formula.WorkbookEvaluator;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellValue;
+import org.apache.poi.ss.usermodel.FormulaError;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.util.CellReference;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the bulk reading of areas with {@link AreaEval#getValues(int, AreaValues)}
+ * and the aggregate functions, which use it
+ */
+final class TestAreaValues {
+
+    @Test
+    void values() {
+        AreaValues values = new AreaValues();
+        values.reset(6);
+        values.setNumber(0, 1.5);
+        values.setString(1, "abc");
+        values.setBoolean(2, true);
+        values.setError(3, FormulaError.NA.getCode());
+        values.setBlank(4);
+        values.setValue(5, new StringEval("def"));
+
+        assertEquals(6, values.getSize());
+        assertEquals(AreaValues.NUMBER, values.getType(0));
+        assertEquals(1.5, ((NumberEval) values.getValue(0)).getNumberValue(), 0.0);
+        assertEquals(AreaValues.STRING, values.getType(1));
+        assertEquals("abc", values.getString(1));
+        assertEquals(1.0, values.getNumber(2), 0.0);
+        assertSame(BoolEval.TRUE, values.getValue(2));
+        assertSame(ErrorEval.NA, values.getValue(3));
+        assertSame(BlankEval.instance, values.getValue(4));
+        assertEquals("def", values.getString(5));
+
+        // reused for a smaller area
+        values.reset(2);
+        values.setNumber(0, 2);
+        values.setBlank(1);
+        assertEquals(2, values.getSize());
+        assertSame(BlankEval.instance, values.getValue(1));
+    }
+
+    @Test
+    void sameValuesAsCellByCell() throws IOException {
+        try (HSSFWorkbook wb = createWorkbook()) {
+            WorkbookEvaluator evaluator = new HSSFFormulaEvaluator(wb)._getWorkbookEvaluator();
+            AreaEval area = (AreaEval) evaluator.evaluate("Data!A1:C21", new CellReference("Data", 0, 4, false, false));
+            AreaValues values = new AreaValues();
+            area.getValues(area.getFirstSheetIndex(), values);
+            assertEquals(63, values.getSize());
+            for (int r = 0; r < area.getHeight(); r++) {
+                for (int c = 0; c < area.getWidth(); c++) {
+                    ValueEval expected = area.getRelativeValue(r, c);
+                    ValueEval actual = values.getValue(r * area.getWidth() + c);
+                    assertEquals(String.valueOf(expected), String.valueOf(actual), "cell " + r + "/" + c);
+                }
+            }
+        }
+    }
+
+    @Test
+    void aggregates() throws IOException {
+        try (HSSFWorkbook wb = createWorkbook()) {
+            HSSFFormulaEvaluator evaluator = new HSSFFormulaEvaluator(wb);
+            Cell cell = wb.getSheet("Data").getRow(0).createCell(4);
+            assertNumber(88, evaluator, cell, "SUM(A1:A20)");
+            assertNumber(11, evaluator, cell, "AVERAGE(A1:A20)");
+            assertNumber(5.75, evaluator, cell, "AVERAGEA(A1:A20)");
+            assertNumber(19, evaluator, cell, "MAX(A1:A20)");
+            assertNumber(2516, evaluator, cell, "SUMPRODUCT(A1:A20,B1:B20)");
+            assertNumber(162, evaluator, cell, "SUMIFS(B1:B20,A1:A20,\">5\")");
+            assertNumber(6, evaluator, cell, "COUNTIFS(A1:A20,\">5\")");
+            assertNumber(27, evaluator, cell, "AVERAGEIFS(B1:B20,A1:A20,\">5\")");
+            assertNumber(18, evaluator, cell, "MAXIFS(B1:B20,A1:A20,\"<10\")");
+            assertNumber(6, evaluator, cell, "MINIFS(B1:B20,A1:A20,\"<10\")");
+            assertNumber(76, evaluator, cell, "SUMIFS(B1:B20,A1:A20,TRUE)");
+            assertNumber(60, evaluator, cell, "SUMIFS(B1:B20,A1:A20,\"t*\")");
+            assertNumber(102, evaluator, cell, "SUMIFS(C1:C20,A1:A20,\"<18\",B1:B20,\">0\")");
+
+            // errors of the matched cells and of any cell of the other aggregates
+            assertError(FormulaError.DIV0, evaluator, cell, "SUMIFS(C1:C20,A1:A20,\">18\")");
+            assertError(FormulaError.DIV0, evaluator, cell, "SUM(C1:C20)");
+            assertError(FormulaError.DIV0, evaluator, cell, "SUMPRODUCT(A1:A20,C1:C20)");
+        }
+    }
+
+    @Test
+    void updatedCells() throws IOException {
+        try (HSSFWorkbook wb = createWorkbook()) {
+            HSSFFormulaEvaluator evaluator = new HSSFFormulaEvaluator(wb);
+            Sheet sheet = wb.getSheet("Data");
+            Cell sum = sheet.getRow(0).createCell(4);
+            sum.setCellFormula("SUM(A1:A20)");
+            Cell sumifs = sheet.getRow(1).createCell(4);
+            sumifs.setCellFormula("SUMIFS(B1:B20,A1:A20,\">5\")");
+            assertEquals(88, evaluator.evaluate(sum).getNumberValue(), 0.0);
+            assertEquals(162, evaluator.evaluate(sumifs).getNumberValue(), 0.0);
+
+            // the plain cells, which were read in bulk, are dependencies of the formulas
+            Cell cell = sheet.getRow(4).getCell(0);
+            cell.setCellValue(100);
+            evaluator.notifyUpdateCell(cell);
+            assertEquals(184, evaluator.evaluate(sum).getNumberValue(), 0.0);
+            assertEquals(170, evaluator.evaluate(sumifs).getNumberValue(), 0.0);
+
+            Cell formula = sheet.getRow(3).getCell(0);
+            formula.setCellFormula("1+12");
+            evaluator.notifySetFormula(formula);
+            assertEquals(194, evaluator.evaluate(sum).getNumberValue(), 0.0);
+            assertEquals(176, evaluator.evaluate(sumifs).getNumberValue(), 0.0);
+        }
+    }
+
+    private static void assertNumber(double expected, HSSFFormulaEvaluator evaluator, Cell cell, String formula) {
+        assertEquals(expected, evaluate(evaluator, cell, formula).getNumberValue(), 0.0, formula);
+    }
+
+    private static void assertError(FormulaError expected, HSSFFormulaEvaluator evaluator, Cell cell, String formula) {
+        assertEquals(expected.getCode(), evaluate(evaluator, cell, formula).getErrorValue(), formula);
+    }
+
+    private static CellValue evaluate(HSSFFormulaEvaluator evaluator, Cell cell, String formula) {
+        cell.setCellFormula(formula);
+        evaluator.notifySetFormula(cell);
+        return evaluator.evaluate(cell);
+    }
+
+    /**
+     * Creates a sheet "Data" with texts, blanks, booleans, numbers and a formula in the column A,
+     * the doubled row index in the column B and the same with a #DIV/0! in the last row in the column C
+     */
+    private static HSSFWorkbook createWorkbook() {
+        HSSFWorkbook wb = new HSSFWorkbook();
+        Sheet sheet = wb.createSheet("Data");
+        for (int i = 0; i < 21; i++) {
+            Row row = sheet.createRow(i);
+            if (i == 20) {
+                break;
+            }
+            switch (i % 5) {
+                case 0:
+                    row.createCell(0).setCellValue("t" + i);
+                    break;
+                case 1:
+                    break;
+                case 2:
+                    row.createCell(0).setCellValue(true);
+                    break;
+                default:
+                    if (i == 3) {
+                        row.createCell(0).setCellFormula("1+2");
+                    } else {
+                        row.createCell(0).setCellValue(i);
+                    }
+            }
+            row.createCell(1).setCellValue(2 * i);
+            if (i == 19) {
+                row.createCell(2).setCellFormula("1/0");
+            } else {
+                row.createCell(2).setCellValue(2 * i);
+            }
+        }
+        return wb;
+    }
+}
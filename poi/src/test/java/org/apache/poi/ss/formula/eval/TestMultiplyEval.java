@@ -0,0 +1,95 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula.eval;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.math.BigDecimal;
+
+import org.apache.poi.ss.formula.functions.EvalFactory;
+import org.apache.poi.ss.util.NumberToTextConverter;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the multiply operator, in particular that the shortcut for integer operands
+ * returns the same results as the multiplication with 15 significant digits
+ */
+final class TestMultiplyEval {
+    private static final double[] VALUES = {
+        0.0, -0.0, 1, -1, 3, -7, 0.1, 0.2, -0.3, 1.1, 1e-10, 123456789,
+        999999999999999d, -999999999999999d, 1e15, -1e15, 1e15 + 2, 1e16, 1234567890123456d,
+        123456789012345.6, 1e300, -1e300, 4.9e-324, Double.MAX_VALUE
+    };
+
+    @Test
+    void testMatchesDecimalMultiplication() {
+        for (double d0 : VALUES) {
+            for (double d1 : VALUES) {
+                confirm(d0, d1);
+            }
+        }
+    }
+
+    @Test
+    void testZeroProducts() {
+        // BigDecimal has no negative zero
+        confirm(0.0, 0.0, -0.0);
+        confirm(0.0, -0.0, -5);
+        confirm(0.0, -0.0, 5);
+        confirm(0.0, -3, 0.0);
+    }
+
+    @Test
+    void testSmallIntegerBoundary() {
+        // the largest operands of the shortcut
+        confirm(999999999999999d * 999999999999999d, 999999999999999d, 999999999999999d);
+        // products, which aren't exact as double
+        confirm(123456789012345d * 98765432109d, 123456789012345d, 98765432109d);
+        // operands at 1e15 aren't handled by the shortcut
+        confirm(1e15, 1e15, 1);
+        confirm(3e15, 1e15, 3);
+    }
+
+    @Test
+    void testOperator() {
+        ValueEval result = TwoOperandNumericOperation.MultiplyEval.evaluate(
+            new ValueEval[] { new NumberEval(-0.0), new NumberEval(12) }, 0, 0);
+        assertEquals(0.0, ((NumberEval) result).getNumberValue());
+        assertEquals(Double.doubleToLongBits(0.0), Double.doubleToLongBits(((NumberEval) result).getNumberValue()));
+
+        ValueEval area = EvalFactory.createAreaEval("A1:A1", new ValueEval[] { new NumberEval(0.1) });
+        result = TwoOperandNumericOperation.MultiplyEval.evaluate(new ValueEval[] { area, new NumberEval(3) }, 0, 0);
+        assertEquals(0.3, ((NumberEval) result).getNumberValue());
+    }
+
+    private static void confirm(double d0, double d1) {
+        confirm(decimalMultiply(d0, d1), d0, d1);
+    }
+
+    private static void confirm(double expected, double d0, double d1) {
+        double actual = TwoOperandNumericOperation.multiply(d0, d1);
+        assertEquals(Double.doubleToLongBits(expected), Double.doubleToLongBits(actual), d0 + " * " + d1);
+    }
+
+    /** the multiplication of the operator prior to the shortcut for integer operands */
+    private static double decimalMultiply(double d0, double d1) {
+        BigDecimal bd0 = new BigDecimal(NumberToTextConverter.toText(d0));
+        BigDecimal bd1 = new BigDecimal(NumberToTextConverter.toText(d1));
+        return bd0.multiply(bd1).doubleValue();
+    }
+}
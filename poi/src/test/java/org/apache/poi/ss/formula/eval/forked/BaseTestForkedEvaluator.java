@@ -22,12 +22,19 @@ import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.poi.hssf.usermodel.HSSFWorkbook;
 import org.apache.poi.ss.formula.IStabilityClassifier;
 import org.apache.poi.ss.formula.eval.NumberEval;
+import org.apache.poi.ss.formula.eval.StringEval;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Name;
 import org.apache.poi.ss.usermodel.Workbook;
 import org.junit.jupiter.api.Test;
 
@@ -114,4 +121,71 @@ public class BaseTestForkedEvaluator {
             assertEquals("Underlying cell 'A2' is missing in master sheet.", ex.getMessage());
         }
     }
+
+    @Test
+    void testFrozenWorkbook() throws IOException {
+        try (Workbook wb = createWorkbook()) {
+            Name name = wb.createName();
+            name.setNameName("Factor");
+            name.setRefersToFormula("Calculations!$B$1");
+            Row row = wb.getSheet("Calculations").getRow(0);
+            row.createCell(2).setCellFormula("Factor*2+SUM(Inputs!A1:B1)");
+            row.createCell(3).setCellFormula("IF(Inputs!A1>3,\"big\",\"small\")");
+
+            FrozenEvaluationWorkbook snapshot = FrozenEvaluationWorkbook.create(wb);
+            // later changes of the workbook aren't seen by the snapshot
+            wb.getSheet("Inputs").getRow(0).getCell(0).setCellValue(100.0);
+            row.getCell(1).setCellValue(50.0);
+
+            ForkedEvaluator fe = ForkedEvaluator.create(snapshot, null, null);
+            assertEquals(7.0, ((NumberEval) fe.evaluate("Calculations", 0, 0)).getNumberValue(), 0.0);
+            assertEquals(15.0, ((NumberEval) fe.evaluate("Calculations", 0, 2)).getNumberValue(), 0.0);
+            assertEquals("small", ((StringEval) fe.evaluate("Calculations", 0, 3)).getStringValue());
+
+            fe.updateCell("Inputs", 0, 0, new NumberEval(4.0));
+            fe.updateCell("Calculations", 0, 1, new NumberEval(1.5));
+            assertEquals(3.0, ((NumberEval) fe.evaluate("Calculations", 0, 0)).getNumberValue(), 0.0);
+            assertEquals(10.0, ((NumberEval) fe.evaluate("Calculations", 0, 2)).getNumberValue(), 0.0);
+            assertEquals("big", ((StringEval) fe.evaluate("Calculations", 0, 3)).getStringValue());
+
+            // the other evaluators of the snapshot aren't affected
+            ForkedEvaluator fe2 = ForkedEvaluator.create(snapshot, null, null);
+            assertEquals(7.0, ((NumberEval) fe2.evaluate("Calculations", 0, 0)).getNumberValue(), 0.0);
+
+            UnsupportedOperationException ex = assertThrows(
+                UnsupportedOperationException.class,
+                () -> fe.updateCell("Inputs", 1, 0, new NumberEval(4.0))
+            );
+            assertEquals("Underlying cell 'A2' is missing in master sheet.", ex.getMessage());
+        }
+    }
+
+    @Test
+    void testFrozenWorkbookInThreads() throws Exception {
+        try (Workbook wb = createWorkbook()) {
+            FrozenEvaluationWorkbook snapshot = FrozenEvaluationWorkbook.create(wb);
+            ExecutorService executor = Executors.newFixedThreadPool(4);
+            try {
+                List<Future<?>> futures = new ArrayList<>();
+                for (int t = 0; t < 8; t++) {
+                    final int offset = t;
+                    futures.add(executor.submit(() -> {
+                        ForkedEvaluator fe = ForkedEvaluator.create(snapshot, null, null);
+                        for (int i = 0; i < 200; i++) {
+                            double input = offset * 1000 + i;
+                            fe.updateCell("Inputs", 0, 0, new NumberEval(input));
+                            NumberEval result = (NumberEval) fe.evaluate("Calculations", 0, 0);
+                            assertEquals(5.0 * input - 3.0, result.getNumberValue(), 0.0);
+                        }
+                        return null;
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } finally {
+                executor.shutdown();
+            }
+        }
+    }
 }
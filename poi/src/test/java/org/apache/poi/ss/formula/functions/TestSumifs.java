@@ -391,6 +391,23 @@ final class TestSumifs {
         }
     }
 
+    @Test
+    void testUnsupportedFunctionInUnmatchedCell() throws IOException {
+        try (HSSFWorkbook wb = initWorkbook1()) {
+            HSSFSheet sheet = wb.getSheetAt(0);
+            for (int rownum = 9; rownum < 20; rownum++) {
+                addRow(sheet, rownum, 1, "Pears", "Tom");
+            }
+            // the cells of the rows, which don't match, are never evaluated
+            sheet.getRow(9).getCell(0).setCellFormula("ERFC(1)");
+            sheet.getRow(10).getCell(2).setCellFormula("ERFC(1)");
+            HSSFFormulaEvaluator fe = new HSSFFormulaEvaluator(wb);
+            HSSFCell cell = sheet.getRow(0).createCell(100);
+            assertDouble(fe, cell, "SUMIFS(A2:A21, B2:B21, \"Apples\", C2:C21, \"Tom\")", 5);
+            assertDouble(fe, cell, "SUMIFS(A2:A21, B2:B21, \"<>Pears\")", 104);
+        }
+    }
+
     //see https://support.microsoft.com/en-us/office/sumifs-function-c9e748f5-7ea7-455d-9406-611cebce642b
     private HSSFWorkbook initWorkbook1() {
         HSSFWorkbook wb = new HSSFWorkbook();
@@ -325,6 +325,22 @@ final class TestCellReference {
         assertTrue(e.getMessage().contains("A$"));
     }
 
+    @Test
+    void testConvertColPrefixToIndex() {
+        assertEquals(0, CellReference.convertColPrefixToIndex("A1"));
+        assertEquals(1, CellReference.convertColPrefixToIndex("b7"));
+        assertEquals(701, CellReference.convertColPrefixToIndex("ZZ12"));
+        assertEquals(16383, CellReference.convertColPrefixToIndex("XFD1048576"));
+        assertEquals(27, CellReference.convertColPrefixToIndex("$AB$12"));
+        assertEquals(27, CellReference.convertColPrefixToIndex("AB"));
+
+        assertEquals(-1, CellReference.convertColPrefixToIndex(""));
+        assertEquals(-1, CellReference.convertColPrefixToIndex("12"));
+        assertEquals(-1, CellReference.convertColPrefixToIndex("$$A1"));
+        assertEquals(-1, CellReference.convertColPrefixToIndex("XFE1"));
+        assertEquals(-1, CellReference.convertColPrefixToIndex("ABCDEFGHIJ1"));
+    }
+
     @Test
     void testConvertNumColColString() {
         assertEquals("A", CellReference.convertNumToColString(0));
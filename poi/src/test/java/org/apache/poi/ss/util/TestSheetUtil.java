@@ -21,6 +21,7 @@ import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.IOException;
@@ -28,6 +29,7 @@ import java.io.IOException;
 import org.apache.poi.hssf.usermodel.HSSFWorkbook;
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.Font;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
@@ -215,4 +217,43 @@ final class TestSheetUtil {
             assertEquals(-1.0, SheetUtil.getColumnWidth(sheet, 0, true, 1, 2), 0.01, "Not having any widht for rows with all empty cells");
         }
     }
+
+    @Test
+    void testGlyphAdvanceWidthEstimator() throws IOException {
+        try (Workbook wb = new HSSFWorkbook()) {
+            TextWidthEstimator estimator = new GlyphAdvanceWidthEstimator();
+            TextWidthEstimator textLayout = new TextLayoutWidthEstimator();
+            String[] texts = {"0", "sometext0", "  padded  0", "TRUE0", "1,234.56 \u20ac0",
+                "\u00c4\u00d6\u00dc \u00e4\u00f6\u00fc \u00df \u0416\u0437\u03a9\u03b20",
+                "\u05e9\u05dc\u05d5\u05dd0", "tab\t0", "e\u03010"};
+            for (int style = 0; style < 8; style++) {
+                Font font = wb.createFont();
+                font.setFontHeightInPoints((short) (8 + 3 * style));
+                font.setBold((style & 1) != 0);
+                font.setItalic((style & 2) != 0);
+                font.setUnderline((style & 4) != 0 ? Font.U_SINGLE : Font.U_NONE);
+                for (String text : texts) {
+                    assertEquals(textLayout.getWidth(text, font), estimator.getWidth(text, font), 0.01,
+                        "width of '" + text + "' with font style " + style);
+                }
+            }
+        }
+    }
+
+    @Test
+    void testSetTextWidthEstimator() throws IOException {
+        TextWidthEstimator defaultEstimator = SheetUtil.getTextWidthEstimator();
+        try (Workbook wb = new HSSFWorkbook()) {
+            Sheet sheet = wb.createSheet("sheet");
+            Cell cell = sheet.createRow(0).createCell(0);
+            cell.setCellValue("sometext");
+
+            SheetUtil.setTextWidthEstimator((text, font) -> 10.0 * text.length());
+            // the text is measured with an additional default character
+            assertEquals(9.0, SheetUtil.getCellWidth(cell, 10, null, false), 0.01);
+        } finally {
+            SheetUtil.setTextWidthEstimator(defaultEstimator);
+        }
+        assertSame(defaultEstimator, SheetUtil.getTextWidthEstimator());
+    }
 }